@@ -0,0 +1,127 @@
+package net.osmand.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.Random;
+
+import net.osmand.GPXUtilities;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.SyntheticObfGenerator;
+
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Fixture data of benchmarks. All fixtures are generated with fixed seed, real map file
+ * could be passed with -Dosmand.benchmark.obf (-Pobf for gradle jmh task) instead of synthetic one.
+ */
+public class BenchmarkFixtures {
+
+	public static final String OBF_PROPERTY = "osmand.benchmark.obf";
+
+	static final long SEED = 42;
+
+	// square km of synthetic map
+	private static final double SYNTHETIC_AREA = 400;
+
+	public static BinaryMapIndexReader openObf() throws IOException {
+		String path = System.getProperty(OBF_PROPERTY);
+		File file;
+		if (path == null) {
+			file = File.createTempFile("synthetic", ".obf");
+			file.deleteOnExit();
+			new SyntheticObfGenerator().setArea(SYNTHETIC_AREA).setSeed(SEED).generate(file);
+		} else {
+			file = new File(path);
+		}
+		return new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+	}
+
+	/**
+	 * Protobuf stream of records: varint32, varint64, fixed32 and string.
+	 */
+	public static byte[] generateProtobufRecords(int count) throws IOException {
+		Random rnd = new Random(SEED);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+		for (int i = 0; i < count; i++) {
+			cos.writeRawVarint32(rnd.nextInt(1 << (1 + rnd.nextInt(30))));
+			cos.writeRawVarint64(rnd.nextLong() >>> rnd.nextInt(63));
+			cos.writeRawLittleEndian32(rnd.nextInt());
+			cos.writeStringNoTag("name " + rnd.nextInt(100000));
+		}
+		cos.flush();
+		return bos.toByteArray();
+	}
+
+	public static GPXFile generateGpx(int tracks, int pointsPerTrack) {
+		Random rnd = new Random(SEED);
+		GPXFile gpx = new GPXFile("OsmAnd benchmark");
+		double lat = 52.3;
+		double lon = 4.9;
+		long time = 1600000000000L;
+		for (int t = 0; t < tracks; t++) {
+			Track track = new Track();
+			track.name = "Track " + t;
+			TrkSegment segment = new TrkSegment();
+			for (int i = 0; i < pointsPerTrack; i++) {
+				lat += (rnd.nextDouble() - 0.5) * 0.001;
+				lon += (rnd.nextDouble() - 0.5) * 0.001;
+				time += 1000;
+				segment.points.add(new WptPt(lat, lon, time, 10 + rnd.nextInt(50), rnd.nextDouble() * 20, 5));
+			}
+			track.segments.add(segment);
+			gpx.tracks.add(track);
+		}
+		return gpx;
+	}
+
+	public static String writeGpx(GPXFile gpx) {
+		StringWriter writer = new StringWriter();
+		Exception e = GPXUtilities.writeGpx(writer, gpx, null);
+		if (e != null) {
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+
+	public static String[] openingHours() {
+		return new String[] {
+				"Mo-Fr 08:00-20:00; Sa 09:00-14:00",
+				"Mo-Su 00:00-24:00",
+				"24/7",
+				"Mo-Fr 09:00-12:30,14:00-18:00; Sa 10:00-13:00; PH off",
+				"Jan-Mar: Mo-Fr 10:00-17:00; Apr-Dec: Mo-Su 09:00-19:00",
+				"Mo,We,Fr 07:30-11:00; Tu,Th 15:00-19:00",
+				"sunrise-sunset",
+				"Mo-Sa 10:00-20:00; Su 12:00-18:00; Dec 24 10:00-14:00",
+				"Tu-Su 11:00-23:00; Mo off; week 1-52/2 Sa 08:00-12:00",
+				"Mo-Fr 06:00-22:00; Sa,Su 08:00-22:00 \"weekend service\"" };
+	}
+
+	/**
+	 * Rendering style with rules for number of tag values (line rules depend on zoom).
+	 */
+	public static String generateRenderingStyle(int values) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		sb.append("<renderingStyle name=\"benchmark\" defaultColor=\"#f1eee8\" version=\"1\">\n");
+		sb.append("\t<line>\n");
+		for (int i = 0; i < values; i++) {
+			sb.append("\t\t<switch tag=\"highway\" value=\"v").append(i).append("\">\n");
+			sb.append("\t\t\t<case minzoom=\"15\" color=\"#ff0000\" strokeWidth=\"").append(i % 8 + 4).append("\"/>\n");
+			sb.append("\t\t\t<case minzoom=\"12\" color=\"#00ff00\" strokeWidth=\"").append(i % 8 + 2).append("\"/>\n");
+			sb.append("\t\t\t<case maxzoom=\"11\" color=\"#0000ff\" strokeWidth=\"1\"/>\n");
+			sb.append("\t\t</switch>\n");
+		}
+		sb.append("\t</line>\n");
+		sb.append("</renderingStyle>\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,80 @@
+package net.osmand.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.data.Amenity;
+
+/**
+ * Map and POI search in square of {@link #tileSize} around center of map file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BinaryMapIndexReaderBenchmark {
+
+	// size of search area in 31 tile units (1 << 17 is ~2 km)
+	@Param({ "131072" })
+	public int tileSize;
+
+	@Param({ "15" })
+	public int zoom;
+
+	private BinaryMapIndexReader reader;
+	private int centerX;
+	private int centerY;
+	private int poiCenterX;
+	private int poiCenterY;
+
+	@Setup
+	public void setup() throws IOException {
+		reader = BenchmarkFixtures.openObf();
+		for (MapIndex mi : reader.getMapIndexes()) {
+			for (MapRoot root : mi.getRoots()) {
+				centerX = (int) (((long) root.getLeft() + root.getRight()) / 2);
+				centerY = (int) (((long) root.getTop() + root.getBottom()) / 2);
+			}
+		}
+		for (PoiRegion poi : reader.getPoiIndexes()) {
+			poiCenterX = (int) (((long) poi.getLeft31() + poi.getRight31()) / 2);
+			poiCenterY = (int) (((long) poi.getTop31() + poi.getBottom31()) / 2);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+	}
+
+	@Benchmark
+	public List<BinaryMapDataObject> searchMapIndex() throws IOException {
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(centerX - tileSize / 2,
+				centerX + tileSize / 2, centerY - tileSize / 2, centerY + tileSize / 2, zoom, null);
+		return reader.searchMapIndex(req);
+	}
+
+	@Benchmark
+	public List<Amenity> searchPoi() throws IOException {
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(poiCenterX - tileSize / 2,
+				poiCenterX + tileSize / 2, poiCenterY - tileSize / 2, poiCenterY + tileSize / 2, zoom,
+				BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+		return reader.searchPoi(req);
+	}
+}
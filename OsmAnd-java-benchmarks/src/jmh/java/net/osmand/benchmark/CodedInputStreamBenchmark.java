@@ -0,0 +1,45 @@
+package net.osmand.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.protobuf.CodedInputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodedInputStreamBenchmark {
+
+	@Param({ "10000" })
+	public int records;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() throws IOException {
+		data = BenchmarkFixtures.generateProtobufRecords(records);
+	}
+
+	@Benchmark
+	public long decodeRecords(Blackhole bh) throws IOException {
+		CodedInputStream cis = CodedInputStream.newInstance(data);
+		long sum = 0;
+		for (int i = 0; i < records; i++) {
+			sum += cis.readRawVarint32();
+			sum += cis.readRawVarint64();
+			sum += cis.readRawLittleEndian32();
+			bh.consume(cis.readString());
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,87 @@
+package net.osmand.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.GeneralRouter;
+import net.osmand.router.RoutingConfiguration;
+
+/**
+ * Attribute evaluation of roads with random combinations of tags. Router is built for each iteration,
+ * so evaluation is measured with cache filled during the iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeneralRouterBenchmark {
+
+	private static final String[][] TAGS = {
+			{ "highway", "motorway" }, { "highway", "trunk" }, { "highway", "primary" }, { "highway", "secondary" },
+			{ "highway", "tertiary" }, { "highway", "residential" }, { "highway", "service" }, { "highway", "track" },
+			{ "highway", "cycleway" }, { "highway", "footway" }, { "surface", "asphalt" }, { "surface", "gravel" },
+			{ "surface", "unpaved" }, { "maxspeed", "50" }, { "maxspeed", "90" }, { "oneway", "yes" },
+			{ "access", "private" }, { "toll", "yes" }, { "lanes", "2" }, { "smoothness", "bad" } };
+
+	@Param({ "car", "bicycle" })
+	public String profile;
+
+	@Param({ "1000" })
+	public int roads;
+
+	private RouteDataObject[] objects;
+	private GeneralRouter router;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(BenchmarkFixtures.SEED);
+		RouteRegion reg = new RouteRegion();
+		for (int i = 0; i < TAGS.length; i++) {
+			reg.initRouteEncodingRule(i + 1, TAGS[i][0], TAGS[i][1]);
+		}
+		objects = new RouteDataObject[roads];
+		for (int i = 0; i < roads; i++) {
+			RouteDataObject ro = new RouteDataObject(reg);
+			// highway type and 0-3 additional tags
+			int[] types = new int[1 + rnd.nextInt(4)];
+			types[0] = 1 + rnd.nextInt(10);
+			for (int k = 1; k < types.length; k++) {
+				types[k] = 11 + rnd.nextInt(TAGS.length - 10);
+			}
+			ro.types = types;
+			ro.pointsX = new int[] { 0, 100 };
+			ro.pointsY = new int[] { 0, 100 };
+			ro.id = i;
+			objects[i] = ro;
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setupRouter() {
+		router = RoutingConfiguration.getDefault().build(profile, 100).router;
+	}
+
+	@Benchmark
+	public float defineSpeedAndPriority() {
+		float sum = 0;
+		for (RouteDataObject ro : objects) {
+			if (router.acceptLine(ro)) {
+				sum += router.defineRoutingSpeed(ro);
+				sum += router.defineSpeedPriority(ro);
+				sum += router.defineRoutingObstacle(ro, 1, true);
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,51 @@
+package net.osmand.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.osmand.GPXUtilities;
+import net.osmand.GPXUtilities.GPXFile;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GpxBenchmark {
+
+	@Param({ "10" })
+	public int tracks;
+
+	@Param({ "5000" })
+	public int points;
+
+	private GPXFile gpx;
+	private byte[] content;
+
+	@Setup
+	public void setup() {
+		gpx = BenchmarkFixtures.generateGpx(tracks, points);
+		content = BenchmarkFixtures.writeGpx(gpx).getBytes(Charset.forName("UTF-8"));
+	}
+
+	@Benchmark
+	public GPXFile loadGpx() {
+		return GPXUtilities.loadGPXFile(new ByteArrayInputStream(content));
+	}
+
+	@Benchmark
+	public int writeGpx() {
+		StringWriter writer = new StringWriter(content.length);
+		GPXUtilities.writeGpx(writer, gpx, null);
+		return writer.getBuffer().length();
+	}
+}
@@ -0,0 +1,55 @@
+package net.osmand.benchmark;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.util.OpeningHoursParser;
+import net.osmand.util.OpeningHoursParser.OpeningHours;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OpeningHoursBenchmark {
+
+	private String[] formats;
+	private OpeningHours[] parsed;
+	private Calendar time;
+
+	@Setup
+	public void setup() {
+		formats = BenchmarkFixtures.openingHours();
+		parsed = new OpeningHours[formats.length];
+		for (int i = 0; i < formats.length; i++) {
+			parsed[i] = OpeningHoursParser.parseOpenedHours(formats[i]);
+		}
+		time = Calendar.getInstance();
+		time.set(2020, Calendar.NOVEMBER, 17, 13, 30);
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) {
+		for (String f : formats) {
+			bh.consume(OpeningHoursParser.parseOpenedHours(f));
+		}
+	}
+
+	@Benchmark
+	public int isOpened() {
+		int opened = 0;
+		for (OpeningHours oh : parsed) {
+			if (oh != null && oh.isOpenedForTime(time)) {
+				opened++;
+			}
+		}
+		return opened;
+	}
+}
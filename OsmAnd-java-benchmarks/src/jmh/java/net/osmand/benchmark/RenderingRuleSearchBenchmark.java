@@ -0,0 +1,56 @@
+package net.osmand.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.render.RenderingRuleSearchRequest;
+import net.osmand.render.RenderingRulesStorage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderingRuleSearchBenchmark {
+
+	@Param({ "200" })
+	public int values;
+
+	private RenderingRulesStorage storage;
+	private RenderingRuleSearchRequest request;
+
+	@Setup
+	public void setup() throws XmlPullParserException, IOException {
+		storage = new RenderingRulesStorage("benchmark", new LinkedHashMap<String, String>());
+		byte[] style = BenchmarkFixtures.generateRenderingStyle(values).getBytes(Charset.forName("UTF-8"));
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(style), null);
+		request = new RenderingRuleSearchRequest(storage);
+	}
+
+	@Benchmark
+	public int searchLineRules() {
+		int found = 0;
+		for (int i = 0; i < values; i++) {
+			request.setStringFilter(storage.PROPS.R_TAG, "highway");
+			request.setStringFilter(storage.PROPS.R_VALUE, "v" + i);
+			int zoom = 10 + i % 8;
+			request.setIntFilter(storage.PROPS.R_MINZOOM, zoom);
+			request.setIntFilter(storage.PROPS.R_MAXZOOM, zoom);
+			if (request.search(RenderingRulesStorage.LINE_RULES)) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
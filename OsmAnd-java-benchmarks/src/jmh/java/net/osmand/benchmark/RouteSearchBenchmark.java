@@ -0,0 +1,81 @@
+package net.osmand.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RouteSegmentResult;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingContext;
+import net.osmand.router.RoutingTileCache;
+
+/**
+ * Route along diagonal of routing region (from 1/4 to 3/4 of bounding box) with cold context
+ * and with decoded tiles shared from previous calculations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RouteSearchBenchmark {
+
+	private static final int MEMORY_LIMIT_MB = 256;
+
+	@Param({ "car" })
+	public String profile;
+
+	private BinaryMapIndexReader[] readers;
+	private LatLon start;
+	private LatLon end;
+	private RoutingTileCache tileCache;
+
+	@Setup
+	public void setup() throws IOException {
+		readers = new BinaryMapIndexReader[] { BenchmarkFixtures.openObf() };
+		RouteRegion reg = readers[0].getRoutingIndexes().get(0);
+		double dlat = reg.getTopLatitude() - reg.getBottomLatitude();
+		double dlon = reg.getRightLongitude() - reg.getLeftLongitude();
+		start = new LatLon(reg.getBottomLatitude() + dlat / 4, reg.getLeftLongitude() + dlon / 4);
+		end = new LatLon(reg.getBottomLatitude() + dlat * 3 / 4, reg.getLeftLongitude() + dlon * 3 / 4);
+		tileCache = new RoutingTileCache(MEMORY_LIMIT_MB * (1L << 20));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		readers[0].close();
+	}
+
+	@Benchmark
+	public List<RouteSegmentResult> searchRoute() throws IOException, InterruptedException {
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(profile, MEMORY_LIMIT_MB);
+		return searchRoute(config);
+	}
+
+	@Benchmark
+	public List<RouteSegmentResult> searchRouteSharedTiles() throws IOException, InterruptedException {
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(profile, MEMORY_LIMIT_MB);
+		config.tileCache = tileCache;
+		return searchRoute(config);
+	}
+
+	private List<RouteSegmentResult> searchRoute(RoutingConfiguration config) throws IOException, InterruptedException {
+		RoutePlannerFrontEnd frontEnd = new RoutePlannerFrontEnd();
+		RoutingContext ctx = frontEnd.buildRoutingContext(config, null, readers, RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+		List<RouteSegmentResult> res = frontEnd.searchRoute(ctx, start, end, null);
+		ctx.unloadAllData();
+		return res;
+	}
+}
@@ -0,0 +1,81 @@
+package net.osmand.search;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.osmand.ResultMatcher;
+import net.osmand.benchmark.BenchmarkFixtures;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.MapUtils;
+
+/**
+ * Search queries are executed synchronously (same as in search tests) to measure search itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchUICoreBenchmark {
+
+	@Param({ "street", "cafe", "1" })
+	public String query;
+
+	private BinaryMapIndexReader reader;
+	private SearchUICore core;
+	private SearchSettings settings;
+
+	@Setup
+	public void setup() throws IOException {
+		reader = BenchmarkFixtures.openObf();
+		core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+		LatLon center = new LatLon(0, 0);
+		for (PoiRegion poi : reader.getPoiIndexes()) {
+			center = new LatLon(MapUtils.get31LatitudeY((poi.getTop31() + poi.getBottom31()) >>> 1),
+					MapUtils.get31LongitudeX((poi.getLeft31() + poi.getRight31()) >>> 1));
+		}
+		settings = new SearchSettings(Collections.singletonList(reader)).setOriginalLocation(center);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+	}
+
+	@Benchmark
+	public List<SearchResult> search() {
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase(query, settings);
+		SearchResultMatcher matcher = new SearchResultMatcher(new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		}, phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, matcher);
+		return matcher.getRequestResults();
+	}
+}
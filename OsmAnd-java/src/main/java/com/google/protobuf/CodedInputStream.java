@@ -33,6 +33,11 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +73,57 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream over memory mapped file. File is mapped
+   * lazily by read only windows, so seek doesn't cost a system call and
+   * strings and bytes are decoded directly from mapping.
+   * Positions of stream are int, so files larger than 2 GB are not supported.
+   * Mapped windows are released by {@link #close()}.
+   */
+  public static CodedInputStream newMappedInstance(RandomAccessFile raf) throws IOException {
+    return newMappedInstance(raf, MAPPED_WINDOW_SHIFT);
+  }
+
+  static CodedInputStream newMappedInstance(RandomAccessFile raf, int windowShift) throws IOException {
+    final long length = raf.length();
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("File is too large to be mapped: " + length);
+    }
+    return new CodedInputStream(raf.getChannel(), length, windowShift);
+  }
+
+  /**
+   * Create a new CodedInputStream reading file channel by positional reads.
+   * Position of channel is not used, so many streams could read same channel
+   * concurrently.
+   */
+  public static CodedInputStream newPositionalInstance(FileChannel channel) throws IOException {
+    return new CodedInputStream(channel, channel.size(), 0);
+  }
+
+  /**
+   * Create a new CodedInputStream reading file channel by positional reads
+   * through given reader (e.g. block cache). Length of file is given, so
+   * channel is accessed only by reader.
+   */
+  public static CodedInputStream newPositionalInstance(FileChannel channel, long length,
+      PositionalReader reader) {
+    CodedInputStream is = new CodedInputStream(channel, length, 0);
+    is.positionalReader = reader;
+    return is;
+  }
+
+  /**
+   * Source of positional reads of file channel.
+   */
+  public interface PositionalReader {
+    /**
+     * Reads up to length bytes of file from position.
+     * @return number of bytes read, -1 at the end of file
+     */
+    int read(long position, byte[] buffer, int offset, int length) throws IOException;
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -225,7 +281,8 @@ public final class CodedInputStream {
     if (size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
-      final String result = new String(buffer, bufferPos, size, "UTF-8");
+      final String result = windows != null ? decodeMappedString(size) :
+          new String(buffer, bufferPos, size, "UTF-8");
       bufferPos += size;
       return result;
     } else {
@@ -327,7 +384,8 @@ public final class CodedInputStream {
     } else if (size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
-      final ByteString result = ByteString.copyFrom(buffer, bufferPos, size);
+      final ByteString result = windows != null ? ByteString.copyFrom(mappedSlice(), size) :
+          ByteString.copyFrom(buffer, bufferPos, size);
       bufferPos += size;
       return result;
     } else {
@@ -568,6 +626,19 @@ public final class CodedInputStream {
   private static final int DEFAULT_SIZE_LIMIT = 64 << 20;  // 64MB
   private static final int BUFFER_SIZE = 5 * 1024;
 
+  // osmand change: file channel read by positional reads or memory mapped
+  // (buffer is null), current window and offset of buffer start
+  // (totalBytesRetired) in window
+  private static final int MAPPED_WINDOW_SHIFT = 28;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private FileChannel channel;
+  private PositionalReader positionalReader;
+  private long channelLength;
+  private int windowShift;
+  private ByteBuffer[] windows;
+  private ByteBuffer window;
+  private int windowOffset;
+
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
     this.buffer = buffer;
     bufferSize = off + len;
@@ -586,6 +657,21 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+  // osmand change: windowShift 0 for positional reads
+  private CodedInputStream(final FileChannel channel, long length, int windowShift) {
+    buffer = windowShift == 0 ? new byte[BUFFER_SIZE] : null;
+    bufferSize = 0;
+    bufferPos = 0;
+    totalBytesRetired = 0;
+    input = null;
+    this.channel = channel;
+    this.channelLength = length;
+    if (windowShift > 0) {
+      this.windowShift = windowShift;
+      windows = new ByteBuffer[(int) ((length + (1L << windowShift) - 1) >> windowShift)];
+    }
+  }
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -761,6 +847,10 @@ public final class CodedInputStream {
     	} else {
     		bufferSize = -1;
     	}
+    } else if (windows != null) {
+    	bufferSize = mapWindow(totalBytesRetired);
+    } else if (channel != null) {
+    	bufferSize = readChannel(totalBytesRetired);
     } else {
     	bufferSize = (input == null) ? -1 : input.read(buffer);
     }
@@ -797,9 +887,151 @@ public final class CodedInputStream {
     if (bufferPos == bufferSize) {
       refillBuffer(true);
     }
+    if (windows != null) {
+      return window.get(windowOffset + bufferPos++);
+    }
     return buffer[bufferPos++];
   }
 
+  // osmand change
+  /**
+   * Selects window of mapped file containing position (window is mapped on first use).
+   * @return number of bytes available in window from position, -1 at the end of file
+   */
+  private int mapWindow(int position) throws IOException {
+    if (position >= channelLength) {
+      return -1;
+    }
+    int ind = position >> windowShift;
+    if (windows[ind] == null) {
+      long start = ((long) ind) << windowShift;
+      long size = Math.min(channelLength - start, 1L << windowShift);
+      windows[ind] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+    window = windows[ind];
+    windowOffset = position - (ind << windowShift);
+    return window.limit() - windowOffset;
+  }
+
+  /**
+   * Fills buffer by positional read of channel.
+   * @return number of bytes read, -1 at the end of file
+   */
+  private int readChannel(int position) throws IOException {
+    final long remain = channelLength - position;
+    if (remain <= 0) {
+      return -1;
+    }
+    final int length = (int) Math.min(remain, buffer.length);
+    if (positionalReader != null) {
+      int read = 0;
+      while (read < length) {
+        final int n = positionalReader.read(position + read, buffer, read, length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      return read > 0 ? read : -1;
+    }
+    final ByteBuffer bb = ByteBuffer.wrap(buffer, 0, length);
+    while (bb.hasRemaining()) {
+      if (channel.read(bb, position + bb.position()) < 0) {
+        break;
+      }
+    }
+    return bb.position() > 0 ? bb.position() : -1;
+  }
+
+  /**
+   * Releases mapped windows of file (mapped file can't be replaced or deleted
+   * on Windows). Next read maps file again, so stream shouldn't be read after
+   * file is closed.
+   */
+  public void close() {
+    if (windows == null) {
+      return;
+    }
+    totalBytesRetired += bufferPos;
+    bufferPos = 0;
+    bufferSize = 0;
+    window = null;
+    for (int i = 0; i < windows.length; i++) {
+      if (windows[i] != null) {
+        unmap(windows[i]);
+        windows[i] = null;
+      }
+    }
+  }
+
+  // mapping is released by garbage collector if cleaner of buffer is not accessible
+  private static void unmap(ByteBuffer buffer) {
+    try {
+      // java 9+
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (Exception e) {
+      try {
+        // java 8
+        final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        final Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      } catch (Exception ex) {
+        // android
+      }
+    }
+  }
+
+  private ByteBuffer mappedSlice() {
+    ByteBuffer slice = window.duplicate();
+    slice.position(windowOffset + bufferPos);
+    return slice;
+  }
+
+  private String decodeMappedString(int size) {
+    final int start = windowOffset + bufferPos;
+    final char[] chars = new char[size];
+    for (int i = 0; i < size; i++) {
+      final byte b = window.get(start + i);
+      if (b < 0) {
+        // not ascii
+        ByteBuffer slice = mappedSlice();
+        slice.limit(start + size);
+        return UTF_8.decode(slice).toString();
+      }
+      chars[i] = (char) b;
+    }
+    return new String(chars);
+  }
+
+  private byte[] readChannelBytes(final int size) throws IOException {
+    if (totalBytesRetired + bufferPos + (long) size > channelLength) {
+      throw InvalidProtocolBufferException.truncatedMessage();
+    }
+    final byte[] bytes = new byte[size];
+    int pos = 0;
+    while (pos < size) {
+      if (bufferPos == bufferSize) {
+        refillBuffer(true);
+      }
+      final int n = Math.min(size - pos, bufferSize - bufferPos);
+      if (windows != null) {
+        mappedSlice().get(bytes, pos, n);
+      } else {
+        System.arraycopy(buffer, bufferPos, bytes, pos, n);
+      }
+      bufferPos += n;
+      pos += n;
+    }
+    return bytes;
+  }
+
   /**
    * Read a fixed size of bytes from the input.
    *
@@ -818,7 +1050,9 @@ public final class CodedInputStream {
       throw InvalidProtocolBufferException.truncatedMessage();
     }
 
-    if (size <= bufferSize - bufferPos) {
+    if (channel != null) {
+      return readChannelBytes(size);
+    } else if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       final byte[] bytes = new byte[size];
       System.arraycopy(buffer, bufferPos, bytes, 0, size);
@@ -935,6 +1169,13 @@ public final class CodedInputStream {
     if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       bufferPos += size;
+    } else if (channel != null) {
+      // osmand change
+      if (totalBytesRetired + bufferPos + (long) size > channelLength) {
+        seek(channelLength);
+        throw InvalidProtocolBufferException.truncatedMessage();
+      }
+      seek(totalBytesRetired + bufferPos + size);
     } else {
       // Skipping more bytes than are in the buffer.  First skip what we have.
       int pos = bufferSize - bufferPos;
@@ -975,7 +1216,9 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = (int) pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  if (raf != null) {
+			  raf.seek(pointer);
+		  }
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
@@ -117,12 +117,25 @@ public class TspAnt {
         }
         n = l.size() ;
 //        System.out.println("Cost");
+        double[][] cost = new double[n][n];
+		for (int i = 0; i < n ; i++) {
+			for (int j = 1; j < n ; j++) {
+				cost[i][j] = MapUtils.getDistance(l.get(i), l.get(j));
+			}
+		}
+		return readGraph(cost, keepEndPoint);
+    }
+
+    // Read graph from cost matrix (e.g. travel times of RouteMatrix), first row is start point,
+    // last row is end point if keepEndPoint.
+    public TspAnt readGraph(double[][] cost, boolean keepEndPoint) {
+        n = cost.length;
         graph = new double[n][n];
         double maxSum = 0;
 		for (int i = 0; i < n ; i++) {
 			double maxIWeight = 0;
 			for (int j = 1; j < n ; j++) {
-				double d = Math.rint(MapUtils.getDistance(l.get(i), l.get(j))) + 0.1;
+				double d = Math.rint(cost[i][j]) + 0.1;
 				maxIWeight = Math.max(d, maxIWeight);
 				graph[i][j] = d;
 			}
@@ -8,11 +8,14 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
 
+import org.apache.commons.logging.Log;
+
 import net.osmand.data.LatLon;
 import net.osmand.util.MapUtils;
 
 // http://stackoverflow.com/questions/7159259/optimized-tsp-algorithms
 public class TspHeldKarp {
+  private static final Log log = PlatformUtil.getLog(TspHeldKarp.class);
   // number of cities
   private int n;
   // cost matrix
@@ -25,20 +28,37 @@ public class TspHeldKarp {
 
   /// OSMAND Modification
 	public TspHeldKarp readInput(List<LatLon> ls, boolean returnToInitialPoint) {
-		n = ls.size();
+		int n = ls.size();
+		double[][] cost = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				cost[i][j] = MapUtils.getDistance(ls.get(i), ls.get(j));
+			}
+		}
+		return readInput(cost, returnToInitialPoint);
+	}
+
+	// cost matrix (e.g. travel times of RouteMatrix)
+	public TspHeldKarp readInput(double[][] inputCost, boolean returnToInitialPoint) {
+		n = inputCost.length;
 		order = new int[n];
 		cost = new double[n][n];
 		// TSPLIB distances are rounded to the nearest integer to avoid the sum of square roots problem
-		System.out.println("Cost");
+		boolean debug = log.isDebugEnabled();
+		if (debug) {
+			log.debug("Cost");
+		}
 		for (int i = 0; i < n; i++) {
 			for (int j = 0; j < n; j++) {
 				if (!returnToInitialPoint && (j == 0)) {
 					cost[i][j] = 0;
 				} else {
-					cost[i][j] = Math.rint(MapUtils.getDistance(ls.get(i), ls.get(j)));
+					cost[i][j] = Math.rint(inputCost[i][j]);
 				}
 			}
-			System.out.println(Arrays.toString(cost[i]));
+			if (debug) {
+				log.debug(Arrays.toString(cost[i]));
+			}
 		}
 		
 		return this;
@@ -0,0 +1,175 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.protobuf.CodedInputStream.PositionalReader;
+
+/**
+ * Process wide LRU cache of file blocks shared by all readers of obf files. Block is keyed by
+ * (file, offset, length): blocks are aligned by {@link #BLOCK_SIZE}, last block of file could be shorter.
+ * File is identified by path and modification time, so blocks of replaced file are never returned
+ * (they are evicted as least recently used).
+ *
+ * Cache is safe to use from many threads, blocks are read from disk outside of lock.
+ */
+public class BinaryBlockCache {
+
+	public static final int BLOCK_SHIFT = 14;
+	public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	private final long maxBytes;
+	private long cachedBytes;
+	private final LinkedHashMap<BlockKey, byte[]> blocks = new LinkedHashMap<BlockKey, byte[]>(16, 0.75f, true);
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public BinaryBlockCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param fileReader reader of file blocks which are not cached
+	 * @return reader of file through this cache
+	 */
+	public PositionalReader getReader(File file, final long length, final PositionalReader fileReader) {
+		final String path = file.getAbsolutePath();
+		final long modified = file.lastModified();
+		return new PositionalReader() {
+			@Override
+			public int read(long position, byte[] buffer, int offset, int len) throws IOException {
+				if (position >= length) {
+					return -1;
+				}
+				long blockOffset = position & ~((long) BLOCK_SIZE - 1);
+				int blockLength = (int) Math.min(BLOCK_SIZE, length - blockOffset);
+				byte[] block = getBlock(new BlockKey(path, modified, blockOffset, blockLength), fileReader);
+				int shift = (int) (position - blockOffset);
+				int n = Math.min(len, block.length - shift);
+				System.arraycopy(block, shift, buffer, offset, n);
+				return n;
+			}
+		};
+	}
+
+	private byte[] getBlock(BlockKey key, PositionalReader fileReader) throws IOException {
+		byte[] block;
+		synchronized (blocks) {
+			block = blocks.get(key);
+		}
+		if (block != null) {
+			hits.incrementAndGet();
+			return block;
+		}
+		misses.incrementAndGet();
+		block = new byte[key.length];
+		int read = 0;
+		while (read < block.length) {
+			int n = fileReader.read(key.offset + read, block, read, block.length - read);
+			if (n < 0) {
+				throw new IOException("Unexpected end of file " + key.path);
+			}
+			read += n;
+		}
+		synchronized (blocks) {
+			byte[] old = blocks.put(key, block);
+			if (old != null) {
+				cachedBytes -= old.length;
+			}
+			cachedBytes += block.length;
+			Iterator<byte[]> it = blocks.values().iterator();
+			while (cachedBytes > maxBytes && it.hasNext()) {
+				cachedBytes -= it.next().length;
+				it.remove();
+			}
+		}
+		return block;
+	}
+
+	public void clear() {
+		synchronized (blocks) {
+			blocks.clear();
+			cachedBytes = 0;
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getCachedBytes() {
+		synchronized (blocks) {
+			return cachedBytes;
+		}
+	}
+
+	public int getCachedBlocks() {
+		synchronized (blocks) {
+			return blocks.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public double getHitRatio() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : ((double) h) / total;
+	}
+
+	public void resetStats() {
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Block cache: %d KB of %d KB, hits %d, misses %d, hit ratio %.2f",
+				getCachedBytes() >> 10, maxBytes >> 10, getHits(), getMisses(), getHitRatio());
+	}
+
+	private static class BlockKey {
+		private final String path;
+		private final long modified;
+		private final long offset;
+		private final int length;
+
+		BlockKey(String path, long modified, long offset, int length) {
+			this.path = path;
+			this.modified = modified;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = path.hashCode();
+			result = 31 * result + (int) (modified ^ (modified >>> 32));
+			result = 31 * result + (int) (offset ^ (offset >>> 32));
+			return 31 * result + length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey other = (BlockKey) obj;
+			return offset == other.offset && length == other.length && modified == other.modified
+					&& path.equals(other.path);
+		}
+	}
+}
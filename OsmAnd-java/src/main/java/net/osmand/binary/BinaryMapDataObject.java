@@ -4,8 +4,10 @@ import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.osmand.binary.BinaryMapIndexReader.MapIndex;
@@ -13,6 +15,8 @@ import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.render.RenderingRulesStorage;
 import net.osmand.util.Algorithms;
 
+import com.google.protobuf.CodedInputStream;
+
 public class BinaryMapDataObject {
 	protected int[] coordinates = null;
 	protected int[][] polygonInnerCoordinates = null;
@@ -29,6 +33,13 @@ public class BinaryMapDataObject {
 	
 	protected MapIndex mapIndex = null;
 
+	// lazy decoding: encoded inner polygons (relative to base point) and names (indexes of string table of block)
+	byte[][] rawInnerCoordinates = null;
+	int rawBaseX;
+	int rawBaseY;
+	byte[] rawNames = null;
+	List<String> rawStringTable = null;
+
 	public BinaryMapDataObject() {
 	}
 
@@ -51,6 +62,7 @@ public class BinaryMapDataObject {
 	
 	
 	public String getName() {
+		decodeNames();
 		if(objectNames == null){
 			return "";
 		}
@@ -62,10 +74,12 @@ public class BinaryMapDataObject {
 	}
 
 	public TIntObjectHashMap<String> getObjectNames() {
+		decodeNames();
 		return objectNames;
 	}
 	
 	public Map<Integer, String> getOrderedObjectNames() {
+		decodeNames();
 		if (namesOrder == null) {
 			return null;
 		}
@@ -78,6 +92,7 @@ public class BinaryMapDataObject {
 	}
 	
 	public void putObjectName(int type, String name){
+		decodeNames();
 		if(objectNames == null){
 			objectNames = new TIntObjectHashMap<String>();
 			namesOrder = new TIntArrayList();
@@ -87,8 +102,55 @@ public class BinaryMapDataObject {
 	}
 	
 	public int[][] getPolygonInnerCoordinates() {
+		if (rawInnerCoordinates != null) {
+			int[][] inner = new int[rawInnerCoordinates.length][];
+			for (int i = 0; i < inner.length; i++) {
+				inner[i] = decodeCoordinates(rawInnerCoordinates[i], rawBaseX, rawBaseY);
+			}
+			polygonInnerCoordinates = inner;
+			rawInnerCoordinates = null;
+		}
 		return polygonInnerCoordinates;
 	}
+
+	private static int[] decodeCoordinates(byte[] raw, int px, int py) {
+		TIntArrayList res = new TIntArrayList(raw.length);
+		CodedInputStream is = CodedInputStream.newInstance(raw);
+		try {
+			while (!is.isAtEnd()) {
+				int x = (is.readSInt32() << BinaryMapIndexReader.SHIFT_COORDINATES) + px;
+				int y = (is.readSInt32() << BinaryMapIndexReader.SHIFT_COORDINATES) + py;
+				res.add(x);
+				res.add(y);
+				px = x;
+				py = y;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return res.toArray();
+	}
+
+	private void decodeNames() {
+		if (rawNames == null) {
+			return;
+		}
+		objectNames = new TIntObjectHashMap<String>();
+		namesOrder = new TIntArrayList();
+		CodedInputStream is = CodedInputStream.newInstance(rawNames);
+		try {
+			while (!is.isAtEnd()) {
+				int stag = is.readRawVarint32();
+				int pId = is.readRawVarint32();
+				objectNames.put(stag, rawStringTable == null ? ((char) pId) + "" : rawStringTable.get(pId));
+				namesOrder.add(stag);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		rawNames = null;
+		rawStringTable = null;
+	}
 	
 	public int[] getTypes(){
 		return types;
@@ -117,6 +179,7 @@ public class BinaryMapDataObject {
 	}
 	
 	public String getNameByType(int type) {
+		decodeNames();
 		if(type != -1 && objectNames != null) {
 			return objectNames.get(type);
 		}
@@ -172,6 +235,7 @@ public class BinaryMapDataObject {
 	}
 	
 	public TIntArrayList getNamesOrder() {
+		decodeNames();
 		return namesOrder;
 	}
 	
@@ -199,6 +263,10 @@ public class BinaryMapDataObject {
 	}
 	
 	public boolean compareBinary(BinaryMapDataObject thatObj, int coordinatesPrecision) {
+		decodeNames();
+		thatObj.decodeNames();
+		getPolygonInnerCoordinates();
+		thatObj.getPolygonInnerCoordinates();
 		if(this.objectType == thatObj.objectType
 				&& this.id == thatObj.id
 				&& this.area == thatObj.area 
@@ -401,6 +469,7 @@ public class BinaryMapDataObject {
 		if (mapIndex == null) {
 			return "";
 		}
+		decodeNames();
 		TIntObjectIterator<String> it = objectNames.iterator();
 		while (it.hasNext()) {
 			it.advance();
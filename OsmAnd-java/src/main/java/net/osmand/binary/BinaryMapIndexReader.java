@@ -2,6 +2,7 @@ package net.osmand.binary;
 
 
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedInputStream.PositionalReader;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.WireFormat;
@@ -56,6 +57,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -88,6 +93,11 @@ public class BinaryMapIndexReader {
 	public static final int LABEL_ZOOM_ENCODE = 31 - SHIFT_COORDINATES;
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	public static boolean READ_STATS = false;
+	// read files through memory mapping instead of buffered reads of random access file
+	public static boolean USE_MEMORY_MAPPED_FILES = false;
+	// process wide cache of file blocks, not used for memory mapped files
+	// (file is read by positional reads, threads using readers shouldn't be interrupted, see setThreadSafe)
+	public static BinaryBlockCache BLOCK_CACHE = null;
 	public static final SearchPoiTypeFilter ACCEPT_ALL_POI_TYPE_FILTER = new SearchPoiTypeFilter() {
 		@Override
 		public boolean isEmpty() {
@@ -101,7 +111,8 @@ public class BinaryMapIndexReader {
 	};
 	
 	
-	private final RandomAccessFile raf;
+	// file is opened again if its channel was closed by interrupted read (see FileChannelReader)
+	private volatile RandomAccessFile raf;
 	protected final File file;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
@@ -116,6 +127,14 @@ public class BinaryMapIndexReader {
 	TLongObjectHashMap<IncompleteTransportRoute> incompleteTransportRoutes = null;
 	
 	protected CodedInputStream codedIS;
+	// thread safe mode: searches run on cursors of calling threads
+	private ThreadLocal<BinaryMapIndexReader> cursors;
+	// not null for cursor, reader owning file and metadata
+	private final BinaryMapIndexReader owner;
+	// positional reads of file of owner
+	private final PositionalReader fileReader;
+	// length of file read when file is opened (channel size is interruptible and closes channel)
+	private volatile long fileLength;
 
 	private final BinaryMapTransportReaderAdapter transportAdapter;
 	private final BinaryMapPoiReaderAdapter poiAdapter;
@@ -125,10 +144,23 @@ public class BinaryMapIndexReader {
 	private static final String BASEMAP_NAME = "basemap";
 
 
+	private CodedInputStream createCodedInputStream(RandomAccessFile raf, File file) throws IOException {
+		if (USE_MEMORY_MAPPED_FILES) {
+			return CodedInputStream.newMappedInstance(raf);
+		} else if (BLOCK_CACHE != null && file != null) {
+			return CodedInputStream.newPositionalInstance(raf.getChannel(), fileLength,
+					BLOCK_CACHE.getReader(file, fileLength, fileReader));
+		}
+		return CodedInputStream.newInstance(raf);
+	}
+
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.owner = null;
+		this.fileReader = new FileChannelReader();
+		this.fileLength = raf.length();
+		codedIS = createCodedInputStream(raf, this.file);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -140,7 +172,10 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.owner = null;
+		this.fileReader = new FileChannelReader();
+		this.fileLength = raf.length();
+		codedIS = createCodedInputStream(raf, this.file);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -154,7 +189,10 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.owner = null;
+		this.fileReader = new FileChannelReader();
+		this.fileLength = raf.length();
+		codedIS = createCodedInputStream(raf, this.file);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
@@ -173,10 +211,117 @@ public class BinaryMapIndexReader {
 	}
 
 
+	/**
+	 * Cursor of thread safe reader: reads file of owner by positional reads and shares its metadata.
+	 */
+	private BinaryMapIndexReader(BinaryMapIndexReader owner) throws IOException {
+		this.raf = owner.raf;
+		this.file = owner.file;
+		this.owner = owner;
+		this.fileReader = owner.fileReader;
+		// file of owner isn't accessed directly: it could be closed by interrupted read of other thread
+		this.fileLength = owner.fileLength;
+		BinaryBlockCache cache = BLOCK_CACHE;
+		codedIS = CodedInputStream.newPositionalInstance(raf.getChannel(), fileLength,
+				cache == null || file == null ? fileReader : cache.getReader(file, fileLength, fileReader));
+		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		version = owner.version;
+		dateCreated = owner.dateCreated;
+		basemap = owner.basemap;
+		transportAdapter = new BinaryMapTransportReaderAdapter(this);
+		addressAdapter = new BinaryMapAddressReaderAdapter(this);
+		poiAdapter = new BinaryMapPoiReaderAdapter(this);
+		routeAdapter = new BinaryMapRouteReaderAdapter(this);
+		mapIndexes = owner.mapIndexes;
+		poiIndexes = owner.poiIndexes;
+		addressIndexes = owner.addressIndexes;
+		transportIndexes = owner.transportIndexes;
+		routingIndexes = owner.routingIndexes;
+		indexes = owner.indexes;
+	}
+
+	/**
+	 * In thread safe mode reader could be searched by many threads at once: each thread searches by its own
+	 * cursor that reads file by positional reads (without extra file handle) and shares metadata of this reader.
+	 * Low level reads (readByte, readInt) are not supported in this mode.
+	 * <p>
+	 * Threads searching thread safe reader (or any reader with {@link #BLOCK_CACHE}) shouldn't be interrupted:
+	 * interrupted positional read closes file channel for all threads. Interrupted search fails with
+	 * {@link ClosedByInterruptException} and file is opened again, but searches of other threads running
+	 * at that moment are repeated or fail. Cancel searches by their requests instead.
+	 */
+	public void setThreadSafe(boolean threadSafe) {
+		if (owner != null) {
+			throw new IllegalStateException("Cursor of thread safe reader");
+		}
+		cursors = threadSafe ? new ThreadLocal<BinaryMapIndexReader>() : null;
+	}
+
+	public boolean isThreadSafe() {
+		return cursors != null;
+	}
+
+	private BinaryMapIndexReader cursor() throws IOException {
+		FileChannel channel = raf.getChannel();
+		if (!channel.isOpen()) {
+			reopenFile(channel);
+		}
+		BinaryMapIndexReader cursor = cursors.get();
+		if (cursor == null || cursor.raf != raf) {
+			// first search of thread or file was opened again
+			cursor = new BinaryMapIndexReader(this);
+			cursors.set(cursor);
+		}
+		return cursor;
+	}
+
 	public long getDateCreated() {
 		return dateCreated;
 	}
 
+	/**
+	 * Positional reads of file channel. JDK closes channel (and file) for all threads when thread reading
+	 * it is interrupted, so closed file is opened again: interrupted thread gets {@link ClosedByInterruptException},
+	 * reads of other threads are repeated.
+	 */
+	private class FileChannelReader implements PositionalReader {
+
+		@Override
+		public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+			while (true) {
+				FileChannel channel = raf.getChannel();
+				try {
+					return channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+				} catch (ClosedByInterruptException e) {
+					reopenFile(channel);
+					throw e;
+				} catch (ClosedChannelException e) {
+					// closed by interrupted read of other thread
+					reopenFile(channel);
+				}
+			}
+		}
+	}
+
+	private synchronized void reopenFile(FileChannel closedChannel) throws IOException {
+		if (codedIS == null) {
+			throw new ClosedChannelException();
+		}
+		if (raf.getChannel() != closedChannel || closedChannel.isOpen()) {
+			// already opened again by other thread
+			return;
+		}
+		log.warn("File " + file.getName() + " was closed by interrupted read and is opened again");
+		RandomAccessFile reopened = new RandomAccessFile(file, "r");
+		fileLength = reopened.length();
+		raf = reopened;
+		if (cursors != null && !USE_MEMORY_MAPPED_FILES) {
+			// own stream of thread safe reader is not used by searches (it reads closed file if not positional)
+			codedIS = createCodedInputStream(raf, file);
+			codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		}
+	}
+
 	private void init() throws IOException {
 		boolean initCorrectly = false;
 		while (true) {
@@ -486,6 +631,11 @@ public class BinaryMapIndexReader {
 	 * Transport public methods
 	 */
 	public void loadTransportRoutes(int[] filePointers, TIntObjectHashMap<TransportRoute> result) throws IOException {
+		if (cursors != null) {
+			cursor().loadTransportRoutes(filePointers, result);
+			return;
+		}
+
 		Map<TransportIndex, TIntArrayList> groupPoints = new HashMap<TransportIndex, TIntArrayList>();
 		for (int filePointer : filePointers) {
 			TransportIndex ind = getTransportIndex(filePointer);
@@ -565,6 +715,10 @@ public class BinaryMapIndexReader {
 	}
 	
 	public List<TransportStop> searchTransportIndex(TransportIndex index, SearchRequest<TransportStop> req) throws IOException {
+		if (cursors != null) {
+			return cursor().searchTransportIndex(index, req);
+		}
+
 		if (index.stopsFileLength == 0 || index.right < req.left || index.left > req.right || index.top > req.bottom
 				|| index.bottom < req.top) {
 			return req.getSearchResults();
@@ -584,6 +738,10 @@ public class BinaryMapIndexReader {
 	}
 	
 	public List<TransportStop> searchTransportIndex(SearchRequest<TransportStop> req) throws IOException {
+		if (cursors != null) {
+			return cursor().searchTransportIndex(req);
+		}
+
 		for (TransportIndex index : transportIndexes) {
 			searchTransportIndex(index, req);
 		}
@@ -621,6 +779,10 @@ public class BinaryMapIndexReader {
 
 	public List<City> getCities(SearchRequest<City> resultMatcher, StringMatcher matcher, String lang, int cityType)
 			throws IOException {
+		if (cursors != null) {
+			return cursor().getCities(resultMatcher, matcher, lang, cityType);
+		}
+
 		List<City> cities = new ArrayList<City>();
 		for (AddressRegion r : addressIndexes) {
 			for (CitiesBlock block : r.cities) {
@@ -641,6 +803,10 @@ public class BinaryMapIndexReader {
 	}
 	public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, StringMatcher matcher,  
 			int cityType) throws IOException {
+		if (cursors != null) {
+			return cursor().getCities(region, resultMatcher, matcher, cityType);
+		}
+
 		List<City> cities = new ArrayList<City>();
 		for (CitiesBlock block : region.cities) {
 			if (block.type == cityType) {
@@ -654,6 +820,10 @@ public class BinaryMapIndexReader {
 	}
 
 	public int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
+		if (cursors != null) {
+			return cursor().preloadStreets(c, resultMatcher);
+		}
+
 		AddressRegion reg;
 		try {
 			reg = checkAddressIndex(c.getFileOffset());
@@ -679,6 +849,11 @@ public class BinaryMapIndexReader {
 	}
 
 	public void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) throws IOException {
+		if (cursors != null) {
+			cursor().preloadBuildings(s, resultMatcher);
+			return;
+		}
+
 		AddressRegion reg = checkAddressIndex(s.getFileOffset());
 		codedIS.seek(s.getFileOffset());
 		int size = codedIS.readRawVarint32();
@@ -871,6 +1046,10 @@ public class BinaryMapIndexReader {
 	}
 	
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
+		if (cursors != null) {
+			return cursor().searchMapIndex(req, filterMapIndex);
+		}
+
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -880,12 +1059,14 @@ public class BinaryMapIndexReader {
 			if(filterMapIndex != null && mapIndex != filterMapIndex) {
 				continue;
 			}
-			// lazy initializing rules
-			if (mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				int oldLimit = codedIS.pushLimit(mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
+			// lazy initializing rules (shared by cursors of thread safe reader)
+			synchronized (mapIndex) {
+				if (mapIndex.encodingRules.isEmpty()) {
+					codedIS.seek(mapIndex.filePointer);
+					int oldLimit = codedIS.pushLimit(mapIndex.length);
+					readMapIndex(mapIndex, true);
+					codedIS.popLimit(oldLimit);
+				}
 			}
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
@@ -896,12 +1077,14 @@ public class BinaryMapIndexReader {
 
 
 					// lazy initializing trees
-					if (index.trees == null) {
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						int oldLimit = codedIS.pushLimit(index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
+					synchronized (index) {
+						if (index.trees == null) {
+							index.trees = new ArrayList<MapTree>();
+							codedIS.seek(index.filePointer);
+							int oldLimit = codedIS.pushLimit(index.length);
+							readMapLevel(index);
+							codedIS.popLimit(oldLimit);
+						}
 					}
 
 					for (MapTree tree : index.trees) {
@@ -997,7 +1180,9 @@ public class BinaryMapIndexReader {
 					List<String> stringTable = readStringTable();
 					for (int i = 0; i < tempResults.size(); i++) {
 						BinaryMapDataObject rs = tempResults.get(i);
-						if (rs.objectNames != null) {
+						if (rs.rawNames != null) {
+							rs.rawStringTable = stringTable;
+						} else if (rs.objectNames != null) {
 							int[] keys = rs.objectNames.keys();
 							for (int j = 0; j < keys.length; j++) {
 								rs.objectNames.put(keys[j], stringTable.get(rs.objectNames.get(keys[j]).charAt(0)));
@@ -1096,54 +1281,34 @@ public class BinaryMapIndexReader {
 		if (!area && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
 			throw new IllegalArgumentException();
 		}
-		req.cacheCoordinates.clear();
 		int size = codedIS.readRawVarint32();
 		if (READ_STATS) {
 			req.stat.lastObjectCoordinates += size;
 			req.stat.addTagHeader(OsmandOdb.MapData.COORDINATES_FIELD_NUMBER,
 					size);
 		}
-		int old = codedIS.pushLimit(size);
-		int px = tree.left & MASK_TO_READ;
-		int py = tree.top & MASK_TO_READ;
-		boolean contains = false;
-		int minX = Integer.MAX_VALUE;
-		int maxX = 0;
-		int minY = Integer.MAX_VALUE;
-		int maxY = 0;
 		req.numberOfVisitedObjects++;
-		while (codedIS.getBytesUntilLimit() > 0) {
-			int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
-			int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
-			req.cacheCoordinates.add(x);
-			req.cacheCoordinates.add(y);
-			px = x;
-			py = y;
-			if (!contains && req.left <= x && req.right >= x && req.top <= y && req.bottom >= y) {
-				contains = true;
-			}
+		int old;
+		byte[] rawCoordinates = null;
+		if (req.lazyDecoding) {
+			// coordinates are decoded only if types are accepted
+			rawCoordinates = codedIS.readRawBytes(size);
+		} else {
+			old = codedIS.pushLimit(size);
+			boolean contains = readMapObjectCoordinates(codedIS, tree, req);
+			codedIS.popLimit(old);
 			if (!contains) {
-				minX = Math.min(minX, x);
-				maxX = Math.max(maxX, x);
-				minY = Math.min(minY, y);
-				maxY = Math.max(maxY, y);
+				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				return null;
 			}
 		}
-		if (!contains) {
-			if (maxX >= req.left && minX <= req.right && minY <= req.bottom && maxY >= req.top) {
-				contains = true;
-			}
-
-		}
-		codedIS.popLimit(old);
-		if (!contains) {
-			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-			return null;
-		}
 
 		// read 
 
 		List<TIntArrayList> innercoordinates = null;
+		List<byte[]> rawInnerCoordinates = null;
+		byte[] rawNames = null;
+		int px, py;
 		TIntArrayList additionalTypes = null;
 		TIntObjectHashMap<String> stringNames = null;
 		TIntArrayList stringOrder = null;
@@ -1159,6 +1324,19 @@ public class BinaryMapIndexReader {
 				loop = false;
 				break;
 			case OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER:
+				size = codedIS.readRawVarint32();
+				if(READ_STATS) {
+					req.stat.lastObjectCoordinates += size;
+					req.stat.addTagHeader(OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER,
+							size);
+				}
+				if (req.lazyDecoding) {
+					if (rawInnerCoordinates == null) {
+						rawInnerCoordinates = new ArrayList<byte[]>();
+					}
+					rawInnerCoordinates.add(codedIS.readRawBytes(size));
+					break;
+				}
 				if (innercoordinates == null) {
 					innercoordinates = new ArrayList<TIntArrayList>();
 				}
@@ -1166,12 +1344,6 @@ public class BinaryMapIndexReader {
 				innercoordinates.add(polygon);
 				px = tree.left & MASK_TO_READ;
 				py = tree.top & MASK_TO_READ;
-				size = codedIS.readRawVarint32();
-				if(READ_STATS) {
-					req.stat.lastObjectCoordinates += size;
-					req.stat.addTagHeader(OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER,
-							size);
-				}
 				old = codedIS.pushLimit(size);
 				while (codedIS.getBytesUntilLimit() > 0) {
 					int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
@@ -1218,7 +1390,6 @@ public class BinaryMapIndexReader {
 					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
 					return null;
 				}
-				req.numberOfAcceptedObjects++;
 				break;
 			case OsmandOdb.MapData.ID_FIELD_NUMBER:
 				id = codedIS.readSInt64();
@@ -1229,17 +1400,21 @@ public class BinaryMapIndexReader {
 				}
 				break;
 			case OsmandOdb.MapData.STRINGNAMES_FIELD_NUMBER:
-				stringNames = new TIntObjectHashMap<String>();
-				stringOrder = new TIntArrayList();
 				sizeL = codedIS.readRawVarint32();
-				old = codedIS.pushLimit(sizeL);
-				while (codedIS.getBytesUntilLimit() > 0) {
-					int stag = codedIS.readRawVarint32();
-					int pId = codedIS.readRawVarint32();
-					stringNames.put(stag, ((char)pId)+"");
-					stringOrder.add(stag);
+				if (req.lazyDecoding) {
+					rawNames = codedIS.readRawBytes(sizeL);
+				} else {
+					stringNames = new TIntObjectHashMap<String>();
+					stringOrder = new TIntArrayList();
+					old = codedIS.pushLimit(sizeL);
+					while (codedIS.getBytesUntilLimit() > 0) {
+						int stag = codedIS.readRawVarint32();
+						int pId = codedIS.readRawVarint32();
+						stringNames.put(stag, ((char) pId) + "");
+						stringOrder.add(stag);
+					}
+					codedIS.popLimit(old);
 				}
-				codedIS.popLimit(old);
 				if(READ_STATS) {
 					req.stat.addTagHeader(OsmandOdb.MapData.STRINGNAMES_FIELD_NUMBER, sizeL);
 					req.stat.lastStringNamesSize += sizeL;
@@ -1270,12 +1445,25 @@ public class BinaryMapIndexReader {
 				break;
 			}
 		}
+		if (rawCoordinates != null) {
+			CodedInputStream is = CodedInputStream.newInstance(rawCoordinates);
+			is.pushLimit(rawCoordinates.length);
+			if (!readMapObjectCoordinates(is, tree, req)) {
+				return null;
+			}
+		}
+		req.numberOfAcceptedObjects++;
 		BinaryMapDataObject dataObject = new BinaryMapDataObject();
 		dataObject.area = area;
 		dataObject.coordinates = req.cacheCoordinates.toArray();
 		dataObject.objectNames = stringNames;
 		dataObject.namesOrder = stringOrder;
-		if (innercoordinates == null) {
+		dataObject.rawNames = rawNames;
+		if (rawInnerCoordinates != null) {
+			dataObject.rawInnerCoordinates = rawInnerCoordinates.toArray(new byte[rawInnerCoordinates.size()][]);
+			dataObject.rawBaseX = tree.left & MASK_TO_READ;
+			dataObject.rawBaseY = tree.top & MASK_TO_READ;
+		} else if (innercoordinates == null) {
 			dataObject.polygonInnerCoordinates = new int[0][0];
 		} else {
 			dataObject.polygonInnerCoordinates = new int[innercoordinates.size()][];
@@ -1298,7 +1486,50 @@ public class BinaryMapIndexReader {
 		return dataObject;
 	}
 
+	/**
+	 * Reads coordinates of map object into request cache.
+	 * @return true if object intersects bbox of request
+	 */
+	private boolean readMapObjectCoordinates(CodedInputStream is, MapTree tree, SearchRequest<BinaryMapDataObject> req)
+			throws IOException {
+		req.cacheCoordinates.clear();
+		int px = tree.left & MASK_TO_READ;
+		int py = tree.top & MASK_TO_READ;
+		boolean contains = false;
+		int minX = Integer.MAX_VALUE;
+		int maxX = 0;
+		int minY = Integer.MAX_VALUE;
+		int maxY = 0;
+		while (is.getBytesUntilLimit() > 0) {
+			int x = (is.readSInt32() << SHIFT_COORDINATES) + px;
+			int y = (is.readSInt32() << SHIFT_COORDINATES) + py;
+			req.cacheCoordinates.add(x);
+			req.cacheCoordinates.add(y);
+			px = x;
+			py = y;
+			if (!contains && req.left <= x && req.right >= x && req.top <= y && req.bottom >= y) {
+				contains = true;
+			}
+			if (!contains) {
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+		}
+		if (!contains) {
+			if (maxX >= req.left && minX <= req.right && minY <= req.bottom && maxY >= req.top) {
+				contains = true;
+			}
+		}
+		return contains;
+	}
+
 	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+		if (cursors != null) {
+			return cursor().searchAddressDataByName(req, typeFilter);
+		}
+
 		for (AddressRegion reg : addressIndexes) {
 			if (reg.indexNameOffset != -1) {
 				codedIS.seek(reg.indexNameOffset);
@@ -1316,16 +1547,30 @@ public class BinaryMapIndexReader {
 	}
 
 	public void initCategories(PoiRegion poiIndex) throws IOException {
+		if (cursors != null) {
+			cursor().initCategories(poiIndex);
+			return;
+		}
+
 		poiAdapter.initCategories(poiIndex);
 	}
 
 	public void initCategories() throws IOException {
+		if (cursors != null) {
+			cursor().initCategories();
+			return;
+		}
+
 		for (PoiRegion poiIndex : poiIndexes) {
 			poiAdapter.initCategories(poiIndex);
 		}
 	}
 
 	public List<Amenity> searchPoiByName(SearchRequest<Amenity> req) throws IOException {
+		if (cursors != null) {
+			return cursor().searchPoiByName(req);
+		}
+
 		if (req.nameQuery == null || req.nameQuery.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1340,6 +1585,10 @@ public class BinaryMapIndexReader {
 	}
 
 	public Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
+		if (cursors != null) {
+			return cursor().searchPoiCategoriesByName(query, map);
+		}
+
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1371,6 +1620,10 @@ public class BinaryMapIndexReader {
 	}
 
 	public List<PoiSubType> searchPoiSubTypesByPrefix(String query) throws IOException {
+		if (cursors != null) {
+			return cursor().searchPoiSubTypesByPrefix(query);
+		}
+
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1388,6 +1641,10 @@ public class BinaryMapIndexReader {
 	}
 
 	public List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
+		if (cursors != null) {
+			return cursor().searchPoi(req);
+		}
+
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -1406,6 +1663,10 @@ public class BinaryMapIndexReader {
 	}
 
 	public List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
+		if (cursors != null) {
+			return cursor().searchPoi(poiIndex, req);
+		}
+
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -1617,9 +1878,12 @@ public class BinaryMapIndexReader {
 		return request;
 	}
 
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
 		if (codedIS != null) {
+			// releases mapped windows of file
+			codedIS.close();
 			raf.close();
+			TransportStopsIndex.release(file);
 			codedIS = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
@@ -1706,6 +1970,8 @@ public class BinaryMapIndexReader {
 		String nameQuery = null;
 		StringMatcherMode matcherMode = StringMatcherMode.CHECK_STARTS_FROM_SPACE;
 		SearchFilter searchFilter = null;
+		// map objects: decode coordinates after types are accepted, inner polygons and names when accessed
+		boolean lazyDecoding = false;
 
 		SearchPoiTypeFilter poiTypeFilter = null;
 
@@ -1790,6 +2056,10 @@ public class BinaryMapIndexReader {
 			this.limit = limit;
 		}
 
+		public void setLazyDecoding(boolean lazyDecoding) {
+			this.lazyDecoding = lazyDecoding;
+		}
+
 		public boolean isCancelled() {
 			if (this.interrupted) {
 				return interrupted;
@@ -2016,10 +2286,10 @@ public class BinaryMapIndexReader {
 			}
 				
 			BinaryMapDataObject bm = 
-					new BinaryMapDataObject(o.id, o.coordinates, o.polygonInnerCoordinates, o.objectType, o.area, 
+					new BinaryMapDataObject(o.id, o.coordinates, o.getPolygonInnerCoordinates(), o.objectType, o.area, 
 							types.toArray(), additionalTypes.isEmpty() ? null : additionalTypes.toArray(), 
 									o.labelX, o.labelY);
-			if (o.namesOrder != null) {
+			if (o.getNamesOrder() != null) {
 				bm.objectNames = new TIntObjectHashMap<>();
 				bm.namesOrder = new TIntArrayList();
 				for (int i = 0; i < o.namesOrder.size(); i++) {
@@ -2687,6 +2957,10 @@ public class BinaryMapIndexReader {
 
 
 	public List<RouteSubregion> searchRouteIndexTree(SearchRequest<?> req, List<RouteSubregion> list) throws IOException {
+		if (cursors != null) {
+			return cursor().searchRouteIndexTree(req, list);
+		}
+
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -2700,12 +2974,21 @@ public class BinaryMapIndexReader {
 	}
 
 	public void loadRouteIndexData(List<RouteSubregion> toLoad, ResultMatcher<RouteDataObject> matcher) throws IOException {
+		if (cursors != null) {
+			cursor().loadRouteIndexData(toLoad, matcher);
+			return;
+		}
+
 		if (routeAdapter != null) {
 			routeAdapter.loadRouteRegionData(toLoad, matcher);
 		}
 	}
 
 	public List<RouteDataObject> loadRouteIndexData(RouteSubregion rs) throws IOException {
+		if (cursors != null) {
+			return cursor().loadRouteIndexData(rs);
+		}
+
 		if (routeAdapter != null) {
 			return routeAdapter.loadRouteRegionData(rs);
 		}
@@ -2713,25 +2996,41 @@ public class BinaryMapIndexReader {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException {
+		if (cursors != null) {
+			cursor().initRouteRegion(routeReg);
+			return;
+		}
+
 		if (routeAdapter != null) {
 			routeAdapter.initRouteRegion(routeReg);
 		}
 	}
 
 	
-	public TLongObjectHashMap<IncompleteTransportRoute> getIncompleteTransportRoutes() throws InvalidProtocolBufferException, IOException {
+	public synchronized TLongObjectHashMap<IncompleteTransportRoute> getIncompleteTransportRoutes() throws InvalidProtocolBufferException, IOException {
+		if (owner != null) {
+			return owner.getIncompleteTransportRoutes();
+		}
+		if (cursors != null && incompleteTransportRoutes == null) {
+			incompleteTransportRoutes = cursor().readIncompleteTransportRoutes();
+		}
 		if (incompleteTransportRoutes == null) {
-			incompleteTransportRoutes = new TLongObjectHashMap<>();
-			for (TransportIndex ti : transportIndexes) {
-				if (ti.incompleteRoutesLength > 0) {
-					codedIS.seek(ti.incompleteRoutesOffset);
-					int oldLimit = codedIS.pushLimit(ti.incompleteRoutesLength);
-					transportAdapter.readIncompleteRoutesList(incompleteTransportRoutes, ti.filePointer);
-					codedIS.popLimit(oldLimit);
-				}
-			}
+			incompleteTransportRoutes = readIncompleteTransportRoutes();
 		}
 		return incompleteTransportRoutes;
 	}
 
+	private TLongObjectHashMap<IncompleteTransportRoute> readIncompleteTransportRoutes() throws IOException {
+		TLongObjectHashMap<IncompleteTransportRoute> res = new TLongObjectHashMap<>();
+		for (TransportIndex ti : transportIndexes) {
+			if (ti.incompleteRoutesLength > 0) {
+				codedIS.seek(ti.incompleteRoutesOffset);
+				int oldLimit = codedIS.pushLimit(ti.incompleteRoutesLength);
+				transportAdapter.readIncompleteRoutesList(res, ti.filePointer);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+		return res;
+	}
+
 }
@@ -285,11 +285,13 @@ public class BinaryMapPoiReaderAdapter {
 	}
 
 	public void initCategories(PoiRegion region) throws IOException {
-		if (region.categories.isEmpty()) {
-			codedIS.seek(region.filePointer);
-			int oldLimit = codedIS.pushLimit(region.length);
-			readPoiIndex(region, true);
-			codedIS.popLimit(oldLimit);
+		synchronized (region) {
+			if (region.categories.isEmpty()) {
+				codedIS.seek(region.filePointer);
+				int oldLimit = codedIS.pushLimit(region.length);
+				readPoiIndex(region, true);
+				codedIS.popLimit(oldLimit);
+			}
 		}
 	}
 
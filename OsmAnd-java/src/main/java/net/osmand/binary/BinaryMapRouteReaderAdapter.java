@@ -22,12 +22,14 @@ import org.apache.commons.logging.Log;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import gnu.trove.iterator.TLongObjectIterator;
 import gnu.trove.list.array.TIntArrayList;
@@ -290,6 +292,26 @@ public class BinaryMapRouteReaderAdapter {
 		}
 	}
 
+	private static class TypesCombination {
+		private final int[] types;
+		private final int hash;
+
+		TypesCombination(int[] types) {
+			this.types = types;
+			this.hash = Arrays.hashCode(types);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TypesCombination && Arrays.equals(types, ((TypesCombination) obj).types);
+		}
+	}
+
 	public static class RouteRegion extends BinaryIndexPart {
 		public int regionsRead;
 		public List<RouteTypeRule> routeEncodingRules = new ArrayList<BinaryMapRouteReaderAdapter.RouteTypeRule>();
@@ -312,6 +334,8 @@ public class BinaryMapRouteReaderAdapter {
 		int destinationTypeRule = -1;
 		int destinationRefTypeRule = -1;
 		private RouteRegion referenceRouteRegion;
+		// distinct combinations of road or point types (used by routers to index precalculated attributes)
+		private final ConcurrentHashMap<TypesCombination, Integer> typesCombinations = new ConcurrentHashMap<TypesCombination, Integer>();
 
 		public String getPartName() {
 			return "Routing";
@@ -321,7 +345,29 @@ public class BinaryMapRouteReaderAdapter {
 			return OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER;
 		}
 		
-		public int searchRouteEncodingRule(String tag, String value) {
+		/**
+		 * @return dense id of types combination, equal arrays have same id
+		 */
+		public int getTypesCombinationId(int[] types) {
+			TypesCombination key = new TypesCombination(types);
+			Integer id = typesCombinations.get(key);
+			if (id == null) {
+				synchronized (typesCombinations) {
+					id = typesCombinations.get(key);
+					if (id == null) {
+						id = typesCombinations.size();
+						typesCombinations.put(key, id);
+					}
+				}
+			}
+			return id;
+		}
+
+		public int getTypesCombinationsCount() {
+			return typesCombinations.size();
+		}
+
+		public synchronized int searchRouteEncodingRule(String tag, String value) {
 			if(decodingRules == null) {
 				decodingRules = new LinkedHashMap<String, Integer>();
 				for(int i = 1; i < routeEncodingRules.size(); i++) {
@@ -539,7 +585,7 @@ public class BinaryMapRouteReaderAdapter {
 		}
 
 
-		public int findOrCreateRouteType(String tag, String value) {
+		public synchronized int findOrCreateRouteType(String tag, String value) {
 			int ruleId = searchRouteEncodingRule(tag, value);
 			if(ruleId == -1) {
 				ruleId = routeEncodingRules.size() ;
@@ -1033,11 +1079,13 @@ public class BinaryMapRouteReaderAdapter {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException, InvalidProtocolBufferException {
-		if (routeReg.routeEncodingRules.isEmpty()) {
-			codedIS.seek(routeReg.filePointer);
-			int oldLimit = codedIS.pushLimit(routeReg.length);
-			readRouteIndex(routeReg);
-			codedIS.popLimit(oldLimit);
+		synchronized (routeReg) {
+			if (routeReg.routeEncodingRules.isEmpty()) {
+				codedIS.seek(routeReg.filePointer);
+				int oldLimit = codedIS.pushLimit(routeReg.length);
+				readRouteIndex(routeReg);
+				codedIS.popLimit(oldLimit);
+			}
 		}
 	}
 
@@ -1045,16 +1093,19 @@ public class BinaryMapRouteReaderAdapter {
 	public List<RouteDataObject> loadRouteRegionData(RouteSubregion rs) throws IOException {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
-		if (rs.dataObjects == null) {
-			codedIS.seek(rs.filePointer + rs.shiftToData);
-			int limit = codedIS.readRawVarint32();
-			int oldLimit = codedIS.pushLimit(limit);
-			readRouteTreeData(rs, idMap, restrictionMap);
-			codedIS.popLimit(oldLimit);
+		// subregion is shared by cursors of thread safe reader, objects are read into it and detached
+		synchronized (rs) {
+			if (rs.dataObjects == null) {
+				codedIS.seek(rs.filePointer + rs.shiftToData);
+				int limit = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(limit);
+				readRouteTreeData(rs, idMap, restrictionMap);
+				codedIS.popLimit(oldLimit);
+			}
+			List<RouteDataObject> res = rs.dataObjects;
+			rs.dataObjects = null;
+			return res;
 		}
-		List<RouteDataObject> res = rs.dataObjects;
-		rs.dataObjects = null;
-		return res;
 	}
 	
 	public void loadRouteRegionData(List<RouteSubregion> toLoad, ResultMatcher<RouteDataObject> matcher) throws IOException {
@@ -1069,20 +1120,24 @@ public class BinaryMapRouteReaderAdapter {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
 		for (RouteSubregion rs : toLoad) {
-			if (rs.dataObjects == null) {
-				codedIS.seek(rs.filePointer + rs.shiftToData);
-				int limit = codedIS.readRawVarint32();
-				int oldLimit = codedIS.pushLimit(limit);
-				readRouteTreeData(rs, idMap, restrictionMap);
-				codedIS.popLimit(oldLimit);
+			List<RouteDataObject> dataObjects;
+			synchronized (rs) {
+				if (rs.dataObjects == null) {
+					codedIS.seek(rs.filePointer + rs.shiftToData);
+					int limit = codedIS.readRawVarint32();
+					int oldLimit = codedIS.pushLimit(limit);
+					readRouteTreeData(rs, idMap, restrictionMap);
+					codedIS.popLimit(oldLimit);
+				}
+				dataObjects = rs.dataObjects;
+				// free objects
+				rs.dataObjects = null;
 			}
-			for (RouteDataObject ro : rs.dataObjects) {
+			for (RouteDataObject ro : dataObjects) {
 				if (ro != null) {
 					matcher.publish(ro);
 				}
 			}
-			// free objects
-			rs.dataObjects = null;
 		}
 	}
 
@@ -1090,11 +1145,13 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
+				synchronized (rs) {
+					if (rs.subregions == null) {
+						codedIS.seek(rs.filePointer);
+						int old = codedIS.pushLimit(rs.length);
+						readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
+						codedIS.popLimit(old);
+					}
 				}
 				searchRouteRegionTree(req, rs.subregions, toLoad);
 
@@ -1111,11 +1168,13 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					int old = codedIS.pushLimit(rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
+				synchronized (rs) {
+					if (rs.subregions == null) {
+						codedIS.seek(rs.filePointer);
+						int old = codedIS.pushLimit(rs.length);
+						readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
+						codedIS.popLimit(old);
+					}
 				}
 				searchRouteRegionTree(req, rs.subregions, toLoad);
 
@@ -1,5 +1,6 @@
 package net.osmand.binary;
 
+import net.osmand.IProgress;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
 import net.osmand.binary.BinaryMapAddressReaderAdapter.CitiesBlock;
@@ -20,6 +21,7 @@ import net.osmand.binary.OsmandIndex.PoiPart;
 import net.osmand.binary.OsmandIndex.RoutingPart;
 import net.osmand.binary.OsmandIndex.RoutingSubregion;
 import net.osmand.binary.OsmandIndex.TransportPart;
+import net.osmand.osm.MapPoiTypes;
 
 import org.apache.commons.logging.Log;
 
@@ -28,34 +30,44 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Cache of headers of obf files. Cached entry is valid while size and modification time of file are same.
+ * New entries are appended to cache file (repeated fileIndex field of stored index), file is rewritten
+ * only when outdated entries take more than half of it.
+ */
 public class CachedOsmandIndexes {
 
-	private OsmAndStoredIndex storedIndex;
-	private OsmAndStoredIndex.Builder storedIndexBuilder;
+	// latest entry of every file name
+	private final Map<String, FileIndex> storedFiles = new LinkedHashMap<String, FileIndex>();
+	// entries not written to cache file yet
+	private final Map<String, FileIndex> addedFiles = new LinkedHashMap<String, FileIndex>();
+	// cache file and number of entries in it (including outdated)
+	private File storedFile;
+	private int storedEntries;
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
-	private boolean hasChanged = true;
 
 	public static final int VERSION = 2;
 
-	public void addToCache(BinaryMapIndexReader reader, File f) {
-		hasChanged = true;
-		if (storedIndexBuilder == null) {
-			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
-			storedIndexBuilder.setVersion(VERSION);
-			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
-			if (storedIndex != null) {
-				for (FileIndex ex : storedIndex.getFileIndexList()) {
-					if (!ex.getFileName().equals(f.getName())) {
-						storedIndexBuilder.addFileIndex(ex);
-					}
-				}
-			}
-		}
-
+	public synchronized void addToCache(BinaryMapIndexReader reader, File f) {
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
 		fileIndex.setDateModified(d == 0 ? f.lastModified() : d);
+		fileIndex.setLastModified(f.lastModified());
 		fileIndex.setSize(f.length());
 		fileIndex.setVersion(reader.getVersion());
 		fileIndex.setFileName(f.getName());
@@ -157,8 +169,9 @@ public class CachedOsmandIndexes {
 			fileIndex.addRoutingIndex(routing);
 		}
 
-		storedIndexBuilder.addFileIndex(fileIndex);
-
+		FileIndex fi = fileIndex.build();
+		storedFiles.put(f.getName(), fi);
+		addedFiles.put(f.getName(), fi);
 	}
 
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
@@ -175,28 +188,125 @@ public class CachedOsmandIndexes {
 	}
 
 	public BinaryMapIndexReader getReader(File f, boolean useStoredIndex) throws IOException {
-		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
-		FileIndex found = null;
-		if (storedIndex != null && useStoredIndex) {
-			for (int i = 0; i < storedIndex.getFileIndexCount(); i++) {
-				FileIndex fi = storedIndex.getFileIndex(i);
-				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())) {
-					// f.lastModified() == fi.getDateModified()
-					found = fi;
+		FileIndex found = useStoredIndex ? getCachedIndex(f) : null;
+		if (found == null) {
+			BinaryMapIndexReader reader = openReader(f);
+			addToCache(reader, f);
+			return reader;
+		}
+		return initFileIndex(found, new RandomAccessFile(f.getPath(), "r"), f);
+	}
+
+	public Map<File, BinaryMapIndexReader> getReaders(List<File> files, Collection<File> filesToReindex, int threads) {
+		return getReaders(files, filesToReindex, threads, IProgress.EMPTY_PROGRESS, "");
+	}
+
+	/**
+	 * Opens readers of files, files which are not cached (or are going to be reindexed) are opened in parallel.
+	 * @param progress receives task "taskName fileName" when file starts to be indexed (calls are synchronized on it)
+	 * @return readers of files in same order, files that couldn't be read are not included
+	 */
+	public Map<File, BinaryMapIndexReader> getReaders(List<File> files, Collection<File> filesToReindex, int threads,
+			final IProgress progress, final String taskName) {
+		Map<File, BinaryMapIndexReader> readers = new LinkedHashMap<File, BinaryMapIndexReader>();
+		Map<File, Future<BinaryMapIndexReader>> opened = new HashMap<File, Future<BinaryMapIndexReader>>();
+		// lazy initialization of default poi types is not thread safe, readers get them in constructor
+		MapPoiTypes.getDefault();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			for (final File f : files) {
+				if (filesToReindex.contains(f) || getCachedIndex(f) == null) {
+					opened.put(f, executor.submit(new Callable<BinaryMapIndexReader>() {
+						@Override
+						public BinaryMapIndexReader call() throws Exception {
+							synchronized (progress) {
+								progress.startTask(taskName + " " + f.getName(), -1);
+							}
+							return openReader(f);
+						}
+					}));
+				}
+			}
+			for (File f : files) {
+				try {
+					Future<BinaryMapIndexReader> future = opened.get(f);
+					if (future == null) {
+						readers.put(f, initFileIndex(getCachedIndex(f), new RandomAccessFile(f.getPath(), "r"), f));
+					} else {
+						BinaryMapIndexReader reader = future.get();
+						addToCache(reader, f);
+						readers.put(f, reader);
+					}
+				} catch (ExecutionException e) {
+					log.error(String.format("File %s could not be read", f.getName()), e.getCause());
+				} catch (IOException e) {
+					log.error(String.format("File %s could not be read", f.getName()), e);
+				} catch (InterruptedException e) {
+					log.error(e.getMessage(), e);
+					executor.shutdownNow();
+					// readers which are being opened are closed after their tasks finish
+					awaitTermination(executor);
+					closeOpened(opened, readers);
+					Thread.currentThread().interrupt();
 					break;
 				}
 			}
+		} finally {
+			executor.shutdown();
 		}
-		BinaryMapIndexReader reader = null;
-		if (found == null) {
-			long val = System.currentTimeMillis();
-			reader = new BinaryMapIndexReader(mf, f);
-			addToCache(reader, f);
-			if (log.isDebugEnabled()) {
-				log.debug("Initializing db " + f.getAbsolutePath() + " " + (System.currentTimeMillis() - val) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return readers;
+	}
+
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
 			}
-		} else {
-			reader = initFileIndex(found, mf, f);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void closeOpened(Map<File, Future<BinaryMapIndexReader>> opened, Map<File, BinaryMapIndexReader> readers) {
+		for (Map.Entry<File, Future<BinaryMapIndexReader>> e : opened.entrySet()) {
+			Future<BinaryMapIndexReader> future = e.getValue();
+			if (!readers.containsKey(e.getKey()) && future.isDone() && !future.isCancelled()) {
+				try {
+					future.get().close();
+				} catch (Exception ex) {
+					// reader was not opened
+				}
+			}
+		}
+	}
+
+	private synchronized FileIndex getCachedIndex(File f) {
+		FileIndex fi = storedFiles.get(f.getName());
+		if (fi != null && f.length() == fi.getSize()
+				&& (!fi.hasLastModified() || f.lastModified() == fi.getLastModified())) {
+			return fi;
+		}
+		return null;
+	}
+
+	private BinaryMapIndexReader openReader(File f) throws IOException {
+		long val = System.currentTimeMillis();
+		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
+		BinaryMapIndexReader reader;
+		try {
+			reader = new BinaryMapIndexReader(mf, f);
+		} catch (IOException e) {
+			mf.close();
+			throw e;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Initializing db " + f.getAbsolutePath() + " " + (System.currentTimeMillis() - val) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 		return reader;
 	}
@@ -309,14 +419,17 @@ public class CachedOsmandIndexes {
 		return reader;
 	}
 
-	public void readFromFile(File f, int version) throws IOException {
+	public synchronized void readFromFile(File f, int version) throws IOException {
 		long time = System.currentTimeMillis();
 		FileInputStream is = new FileInputStream(f);
 		try {
-			storedIndex = OsmandIndex.OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
-			hasChanged = false;
-			if (storedIndex.getVersion() != version) {
-				storedIndex = null;
+			OsmAndStoredIndex storedIndex = OsmandIndex.OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
+			if (storedIndex.getVersion() == version) {
+				for (FileIndex fi : storedIndex.getFileIndexList()) {
+					storedFiles.put(fi.getFileName(), fi);
+				}
+				storedFile = f;
+				storedEntries = storedIndex.getFileIndexCount();
 			}
 		} finally {
 			is.close();
@@ -324,15 +437,37 @@ public class CachedOsmandIndexes {
 		log.info("Initialize cache " + (System.currentTimeMillis() - time));
 	}
 
-	public void writeToFile(File f) throws IOException {
-		if (hasChanged) {
-			FileOutputStream outputStream = new FileOutputStream(f);
-			try {
+	public synchronized void writeToFile(File f) throws IOException {
+		if (addedFiles.isEmpty()) {
+			return;
+		}
+		boolean append = f.equals(storedFile) && f.exists()
+				&& storedEntries + addedFiles.size() <= 2 * storedFiles.size();
+		FileOutputStream outputStream = new FileOutputStream(f, append);
+		try {
+			if (append) {
+				// repeated fields of concatenated messages are merged
+				CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+				for (FileIndex fi : addedFiles.values()) {
+					out.writeMessage(OsmAndStoredIndex.FILEINDEX_FIELD_NUMBER, fi);
+				}
+				out.flush();
+				storedEntries += addedFiles.size();
+			} else {
+				OsmAndStoredIndex.Builder storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
+				storedIndexBuilder.setVersion(VERSION);
+				storedIndexBuilder.setDateCreated(System.currentTimeMillis());
+				for (FileIndex fi : storedFiles.values()) {
+					storedIndexBuilder.addFileIndex(fi);
+				}
 				storedIndexBuilder.build().writeTo(outputStream);
-			} finally {
-				outputStream.close();
+				storedEntries = storedFiles.size();
 			}
+		} finally {
+			outputStream.close();
 		}
+		storedFile = f;
+		addedFiles.clear();
 	}
 
 }
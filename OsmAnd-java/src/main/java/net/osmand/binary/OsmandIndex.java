@@ -816,6 +816,18 @@ public final class OsmandIndex {
      * <code>repeated .OsmAnd.OBF.RoutingPart routingIndex = 12;</code>
      */
     int getRoutingIndexCount();
+
+    // optional int64 lastModified = 13;
+    // osmand change: field is added by hand, OsmandIndex.proto in resources repository
+    // needs the same field in message FileIndex before this file is generated again
+    /**
+     * <code>optional int64 lastModified = 13;</code>
+     */
+    boolean hasLastModified();
+    /**
+     * <code>optional int64 lastModified = 13;</code>
+     */
+    long getLastModified();
   }
   /**
    * Protobuf type {@code OsmAnd.OBF.FileIndex}
@@ -920,6 +932,11 @@ public final class OsmandIndex {
               routingIndex_.add(input.readMessage(net.osmand.binary.OsmandIndex.RoutingPart.PARSER, extensionRegistry));
               break;
             }
+            case 104: {
+              bitField0_ |= 0x00000010;
+              lastModified_ = input.readInt64();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1233,6 +1250,22 @@ public final class OsmandIndex {
       return routingIndex_.get(index);
     }
 
+    // optional int64 lastModified = 13;
+    public static final int LASTMODIFIED_FIELD_NUMBER = 13;
+    private long lastModified_;
+    /**
+     * <code>optional int64 lastModified = 13;</code>
+     */
+    public boolean hasLastModified() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional int64 lastModified = 13;</code>
+     */
+    public long getLastModified() {
+      return lastModified_;
+    }
+
     private void initFields() {
       size_ = 0L;
       dateModified_ = 0L;
@@ -1243,6 +1276,7 @@ public final class OsmandIndex {
       poiIndex_ = java.util.Collections.emptyList();
       mapIndex_ = java.util.Collections.emptyList();
       routingIndex_ = java.util.Collections.emptyList();
+      lastModified_ = 0L;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1329,6 +1363,9 @@ public final class OsmandIndex {
       for (int i = 0; i < routingIndex_.size(); i++) {
         output.writeMessage(12, routingIndex_.get(i));
       }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeInt64(13, lastModified_);
+      }
     }
 
     private int memoizedSerializedSize = -1;
@@ -1373,6 +1410,10 @@ public final class OsmandIndex {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(12, routingIndex_.get(i));
       }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(13, lastModified_);
+      }
       memoizedSerializedSize = size;
       return size;
     }
@@ -1482,6 +1523,8 @@ public final class OsmandIndex {
         bitField0_ = (bitField0_ & ~0x00000080);
         routingIndex_ = java.util.Collections.emptyList();
         bitField0_ = (bitField0_ & ~0x00000100);
+        lastModified_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000200);
         return this;
       }
 
@@ -1546,6 +1589,10 @@ public final class OsmandIndex {
           bitField0_ = (bitField0_ & ~0x00000100);
         }
         result.routingIndex_ = routingIndex_;
+        if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.lastModified_ = lastModified_;
         result.bitField0_ = to_bitField0_;
         return result;
       }
@@ -1616,6 +1663,9 @@ public final class OsmandIndex {
           }
           
         }
+        if (other.hasLastModified()) {
+          setLastModified(other.getLastModified());
+        }
         return this;
       }
 
@@ -2486,6 +2536,39 @@ public final class OsmandIndex {
         return this;
       }
 
+      // optional int64 lastModified = 13;
+      private long lastModified_ ;
+      /**
+       * <code>optional int64 lastModified = 13;</code>
+       */
+      public boolean hasLastModified() {
+        return ((bitField0_ & 0x00000200) == 0x00000200);
+      }
+      /**
+       * <code>optional int64 lastModified = 13;</code>
+       */
+      public long getLastModified() {
+        return lastModified_;
+      }
+      /**
+       * <code>optional int64 lastModified = 13;</code>
+       */
+      public Builder setLastModified(long value) {
+        bitField0_ |= 0x00000200;
+        lastModified_ = value;
+        
+        return this;
+      }
+      /**
+       * <code>optional int64 lastModified = 13;</code>
+       */
+      public Builder clearLastModified() {
+        bitField0_ = (bitField0_ & ~0x00000200);
+        lastModified_ = 0L;
+        
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:OsmAnd.OBF.FileIndex)
     }
 
@@ -36,6 +36,8 @@ public class RouteDataObject {
 	// mixed array [0, height, cumulative_distance height, cumulative_distance, height, ...] - length is length(points)*2
 	public float[] heightDistanceArray = null;
 	public float heightByCurrentLocation = Float.NaN;
+	// combination id with types array for which it was calculated
+	private TypesCombinationId typesCombination;
 	private static final Log LOG = PlatformUtil.getLog(RouteDataObject.class);
 
 	public RouteDataObject(RouteRegion region) {
@@ -533,7 +535,32 @@ public class RouteDataObject {
 		return types;
 	}
 
+	/**
+	 * @return id of types combination within region, see {@link RouteRegion#getTypesCombinationId(int[])}
+	 */
+	public int getTypesCombinationId() {
+		TypesCombinationId c = typesCombination;
+		if (c == null || c.types != types) {
+			c = new TypesCombinationId(types, region.getTypesCombinationId(types));
+			typesCombination = c;
+		}
+		return c.id;
+	}
+
+	// immutable, so array and id are always seen together by other threads
+	private static final class TypesCombinationId {
+		private final int[] types;
+		private final int id;
+
+		private TypesCombinationId(int[] types, int id) {
+			this.types = types;
+			this.id = id;
+		}
+	}
+
 	public void processConditionalTags(long conditionalTime) {
+		// types could be changed in place
+		typesCombination = null;
 		int sz = types.length;
 		for (int i = 0; i < sz; i++) {
 			RouteTypeRule r = region.quickGetEncodingRule(types[i]);
@@ -0,0 +1,1172 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.OsmandOdb.AddressNameIndexDataAtom;
+import net.osmand.binary.OsmandOdb.BuildingIndex;
+import net.osmand.binary.OsmandOdb.CityBlockIndex;
+import net.osmand.binary.OsmandOdb.CityIndex;
+import net.osmand.binary.OsmandOdb.IdTable;
+import net.osmand.binary.OsmandOdb.IndexedStringTable;
+import net.osmand.binary.OsmandOdb.MapData;
+import net.osmand.binary.OsmandOdb.MapDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex.CitiesIndex;
+import net.osmand.binary.OsmandOdb.OsmAndAddressIndex;
+import net.osmand.binary.OsmandOdb.OsmAndAddressNameIndexData.AddressNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndAddressNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndCategoryTable;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapRootLevel;
+import net.osmand.binary.OsmandOdb.OsmAndMapIndex;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBox;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxData;
+import net.osmand.binary.OsmandOdb.OsmAndPoiBoxDataAtom;
+import net.osmand.binary.OsmandOdb.OsmAndPoiCategories;
+import net.osmand.binary.OsmandOdb.OsmAndPoiIndex;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex.OsmAndPoiNameIndexData;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndex;
+import net.osmand.binary.OsmandOdb.OsmAndPoiNameIndexDataAtom;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBlock;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteDataBox;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex.RouteEncodingRule;
+import net.osmand.binary.OsmandOdb.OsmAndRoutingIndex;
+import net.osmand.binary.OsmandOdb.OsmAndStructure;
+import net.osmand.binary.OsmandOdb.OsmAndTileBox;
+import net.osmand.binary.OsmandOdb.OsmAndTransportIndex;
+import net.osmand.binary.OsmandOdb.RestrictionData;
+import net.osmand.binary.OsmandOdb.RouteData;
+import net.osmand.binary.OsmandOdb.StreetIndex;
+import net.osmand.binary.OsmandOdb.StringTable;
+import net.osmand.binary.OsmandOdb.TransportRoute;
+import net.osmand.binary.OsmandOdb.TransportRouteStop;
+import net.osmand.binary.OsmandOdb.TransportRoutes;
+import net.osmand.binary.OsmandOdb.TransportStop;
+import net.osmand.binary.OsmandOdb.TransportStopsTree;
+import net.osmand.data.City.CityType;
+import net.osmand.osm.MapRenderingTypes;
+import net.osmand.util.MapUtils;
+
+/**
+ * Generates synthetic map file (.obf) for performance testing without real map files. File covers square area
+ * with grid of roads (with turn restrictions) and contains map, routing, POI, address and transport sections
+ * which could be read by {@link BinaryMapIndexReader} and used for routing by {@link net.osmand.router.RoutePlannerFrontEnd}.
+ * All data is derived from seed, so files generated with same parameters are identical.
+ */
+public class SyntheticObfGenerator {
+
+	private static final Log log = PlatformUtil.getLog(SyntheticObfGenerator.class);
+
+	private static final int VERSION = 2;
+	private static final long DATE_CREATED = 1577836800000L;
+	private static final double METERS_IN_DEGREE = 111320;
+	// nodes are aligned to precision of map section (precision of route section is higher)
+	private static final int COORDINATES_MASK = ~((1 << BinaryMapIndexReader.SHIFT_COORDINATES) - 1);
+	private static final int ROUTE_SHIFT_COORDINATES = 4;
+	// grid intervals in one side of leaf box of map, route and transport trees
+	private static final int CELL = 8;
+	// leaf boxes in one side of town
+	private static final int TOWN_CELLS = 4;
+	private static final int PRIMARY_EVERY = 8;
+	private static final int ONEWAY_EVERY = 4;
+	private static final int STOP_EVERY = 2;
+	private static final int MAP_MIN_ZOOM = 13;
+	private static final int MAP_MAX_ZOOM = 22;
+	private static final int POI_ROOT_ZOOM = 10;
+	private static final int POI_LEAF_ZOOM = 14;
+	private static final int POI_DATA_ZOOM = 24;
+	// length of name prefixes in name index tables
+	private static final int NAME_PREFIX = 4;
+
+	private static final String[][] MAP_RULES = {
+			{ "highway", "primary" }, { "highway", "residential" }, { "oneway", "yes" }, { "name", "" } };
+	private static final String[][] ROUTE_RULES = {
+			{ "highway", "primary" }, { "highway", "residential" }, { "oneway", "yes" }, { "name", "" },
+			{ "highway", "traffic_signals" }, { "surface", "asphalt" } };
+	private static final int RULE_PRIMARY = 1;
+	private static final int RULE_RESIDENTIAL = 2;
+	private static final int RULE_ONEWAY = 3;
+	private static final int RULE_NAME = 4;
+	private static final int RULE_TRAFFIC_SIGNALS = 5;
+	private static final int RULE_SURFACE = 6;
+
+	// category and its subcategories
+	private static final String[][] POI_TYPES = {
+			{ "sustenance", "cafe", "restaurant", "fast_food" },
+			{ "shop", "supermarket", "bakery", "convenience" },
+			{ "tourism", "hotel", "museum" },
+			{ "finance", "bank", "atm" },
+			{ "healthcare", "pharmacy" } };
+	private static final String[] OPENING_HOURS = {
+			"Mo-Fr 08:00-20:00; Sa 09:00-14:00", "Mo-Su 00:00-24:00", "24/7",
+			"Mo-Fr 09:00-12:30,14:00-18:00; Sa 10:00-13:00; PH off", "Tu-Su 11:00-23:00; Mo off" };
+	private static final String[] TOWN_PREFIXES = { "North", "South", "East", "West", "Old", "New", "Upper", "Lower" };
+	private static final String[] TOWN_SUFFIXES = { "field", "brook", "ham", "ton", "wick", "bury", "ford", "stead" };
+
+	private String name = "Synthetic";
+	private double centerLat = 52.0;
+	private double centerLon = 5.0;
+	private double area = 100;
+	private int roadSpacing = 200;
+	private double poiDensity = 30;
+	private double restrictionsRatio = 0.05;
+	private double missingStopsRatio = 0;
+	private long seed = 42;
+
+	// nodes of grid
+	private int nodes;
+	private int[] xs;
+	private int[] ys;
+	// leaf boxes in one side of grid
+	private int cells;
+
+	public SyntheticObfGenerator setName(String name) {
+		this.name = name;
+		return this;
+	}
+
+	public SyntheticObfGenerator setCenter(double lat, double lon) {
+		this.centerLat = lat;
+		this.centerLon = lon;
+		return this;
+	}
+
+	/**
+	 * @param area area of map in square kilometers
+	 */
+	public SyntheticObfGenerator setArea(double area) {
+		this.area = area;
+		return this;
+	}
+
+	/**
+	 * @param roadSpacing distance between parallel roads in meters
+	 */
+	public SyntheticObfGenerator setRoadSpacing(int roadSpacing) {
+		this.roadSpacing = roadSpacing;
+		return this;
+	}
+
+	/**
+	 * @param poiDensity POI per square kilometer
+	 */
+	public SyntheticObfGenerator setPoiDensity(double poiDensity) {
+		this.poiDensity = poiDensity;
+		return this;
+	}
+
+	/**
+	 * @param restrictionsRatio part of intersections with turn restriction
+	 */
+	public SyntheticObfGenerator setRestrictionsRatio(double restrictionsRatio) {
+		this.restrictionsRatio = restrictionsRatio;
+		return this;
+	}
+
+	/**
+	 * @param missingStopsRatio part of stops written as placeholders of stops from other files
+	 */
+	public SyntheticObfGenerator setMissingStopsRatio(double missingStopsRatio) {
+		this.missingStopsRatio = missingStopsRatio;
+		return this;
+	}
+
+	public SyntheticObfGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public void generate(File file) throws IOException {
+		long time = System.currentTimeMillis();
+		initGrid();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			ObfOutput out = new ObfOutput(raf);
+			out.cos.writeUInt32(OsmAndStructure.VERSION_FIELD_NUMBER, VERSION);
+			out.cos.writeInt64(OsmAndStructure.DATECREATED_FIELD_NUMBER, DATE_CREATED);
+			writeMapIndex(out);
+			writeRouteIndex(out);
+			writePoiIndex(out);
+			writeAddressIndex(out);
+			writeTransportIndex(out);
+			out.cos.writeUInt32(OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, VERSION);
+			out.cos.flush();
+		} finally {
+			raf.close();
+		}
+		log.info("Synthetic map " + file.getName() + " " + nodes + "x" + nodes + " nodes, " + (file.length() >> 10)
+				+ " KB generated in " + (System.currentTimeMillis() - time) + " ms");
+	}
+
+	private void initGrid() {
+		double side = Math.sqrt(area) * 1000;
+		nodes = Math.max(2, (int) (side / roadSpacing) + 1);
+		double dlat = roadSpacing / METERS_IN_DEGREE;
+		double dlon = dlat / Math.cos(Math.toRadians(centerLat));
+		double top = centerLat + dlat * (nodes - 1) / 2;
+		double left = centerLon - dlon * (nodes - 1) / 2;
+		xs = new int[nodes];
+		ys = new int[nodes];
+		for (int i = 0; i < nodes; i++) {
+			xs[i] = MapUtils.get31TileNumberX(left + i * dlon) & COORDINATES_MASK;
+			ys[i] = MapUtils.get31TileNumberY(top - i * dlat) & COORDINATES_MASK;
+		}
+		cells = (nodes - 2) / CELL + 1;
+	}
+
+	private int cellOf(int node) {
+		return Math.min(node / CELL, cells - 1);
+	}
+
+	private static class ObfOutput {
+		private final RandomAccessFile raf;
+		private final CodedOutputStream cos;
+		private final Deque<Integer> lengthPointers = new ArrayDeque<Integer>();
+
+		ObfOutput(final RandomAccessFile raf) {
+			this.raf = raf;
+			this.cos = CodedOutputStream.newInstance(new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					raf.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					raf.write(b, off, len);
+				}
+			}, 1 << 16);
+		}
+
+		int position() throws IOException {
+			cos.flush();
+			return (int) raf.getFilePointer();
+		}
+
+		/**
+		 * Starts message with fixed 4 bytes length.
+		 * @return position of length
+		 */
+		int startFixedMessage(int field) throws IOException {
+			cos.writeTag(field, WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED);
+			int pointer = reserveInt();
+			lengthPointers.push(pointer);
+			return pointer;
+		}
+
+		void endFixedMessage() throws IOException {
+			int pointer = lengthPointers.pop();
+			patchInt(pointer, position() - pointer - 4);
+		}
+
+		int reserveInt() throws IOException {
+			int pointer = position();
+			cos.writeRawLittleEndian32(0);
+			return pointer;
+		}
+
+		void patchInt(int pointer, int value) throws IOException {
+			long current = position();
+			raf.seek(pointer);
+			raf.writeInt(value);
+			raf.seek(current);
+		}
+	}
+
+	private static class CellTree {
+		int left;
+		int right;
+		int top;
+		int bottom;
+		int cx;
+		int cy;
+		List<CellTree> children;
+		int filePointer;
+		int shiftPointer;
+
+		boolean isLeaf() {
+			return children == null;
+		}
+	}
+
+	private CellTree buildTree(int cx0, int cy0, int cx1, int cy1, boolean[][] filter) {
+		if (cx1 - cx0 == 1 && cy1 - cy0 == 1) {
+			if (filter != null && !filter[cx0][cy0]) {
+				return null;
+			}
+			CellTree leaf = new CellTree();
+			leaf.cx = cx0;
+			leaf.cy = cy0;
+			leaf.left = xs[cx0 * CELL];
+			leaf.right = xs[Math.min((cx0 + 1) * CELL, nodes - 1)];
+			leaf.top = ys[cy0 * CELL];
+			leaf.bottom = ys[Math.min((cy0 + 1) * CELL, nodes - 1)];
+			return leaf;
+		}
+		int mx = cx1 - cx0 > 1 ? (cx0 + cx1) / 2 : cx1;
+		int my = cy1 - cy0 > 1 ? (cy0 + cy1) / 2 : cy1;
+		CellTree tree = new CellTree();
+		tree.children = new ArrayList<CellTree>(4);
+		addChild(tree, buildTree(cx0, cy0, mx, my, filter));
+		if (mx < cx1) {
+			addChild(tree, buildTree(mx, cy0, cx1, my, filter));
+		}
+		if (my < cy1) {
+			addChild(tree, buildTree(cx0, my, mx, cy1, filter));
+		}
+		if (mx < cx1 && my < cy1) {
+			addChild(tree, buildTree(mx, my, cx1, cy1, filter));
+		}
+		return tree.children.isEmpty() ? null : tree;
+	}
+
+	private static void addChild(CellTree tree, CellTree child) {
+		if (child == null) {
+			return;
+		}
+		if (tree.children.isEmpty()) {
+			tree.left = child.left;
+			tree.right = child.right;
+			tree.top = child.top;
+			tree.bottom = child.bottom;
+		} else {
+			tree.left = Math.min(tree.left, child.left);
+			tree.right = Math.max(tree.right, child.right);
+			tree.top = Math.min(tree.top, child.top);
+			tree.bottom = Math.max(tree.bottom, child.bottom);
+		}
+		tree.children.add(child);
+	}
+
+	private static class Road {
+		long id;
+		boolean primary;
+		boolean oneway;
+		String name;
+		int[] x;
+		int[] y;
+		// indexes of points with traffic signals
+		TIntArrayList signals = new TIntArrayList();
+	}
+
+	/**
+	 * @return horizontal roads (by rows) followed by vertical roads (by columns) of leaf box
+	 */
+	private List<Road> getRoads(int cx, int cy) {
+		List<Road> roads = new ArrayList<Road>();
+		for (int j = cy * CELL; j < nodes && cellOf(j) == cy; j++) {
+			roads.add(createRoad(true, j, cx));
+		}
+		for (int i = cx * CELL; i < nodes && cellOf(i) == cx; i++) {
+			roads.add(createRoad(false, i, cy));
+		}
+		return roads;
+	}
+
+	private Road createRoad(boolean horizontal, int line, int cell) {
+		int from = cell * CELL;
+		int to = Math.min(from + CELL, nodes - 1);
+		Road r = new Road();
+		// as in real maps lower bits of id are not part of osm id
+		r.id = (((long) line * 2 + (horizontal ? 0 : 1)) * cells + cell + 1) << 6;
+		r.primary = line % PRIMARY_EVERY == 0;
+		r.oneway = !r.primary && line % ONEWAY_EVERY == ONEWAY_EVERY / 2;
+		r.name = getRoadName(horizontal, line);
+		// one way roads go in opposite directions
+		boolean reverse = r.oneway && (line / ONEWAY_EVERY) % 2 == 1;
+		r.x = new int[to - from + 1];
+		r.y = new int[to - from + 1];
+		for (int k = 0; k <= to - from; k++) {
+			int node = reverse ? to - k : from + k;
+			r.x[k] = horizontal ? xs[node] : xs[line];
+			r.y[k] = horizontal ? ys[line] : ys[node];
+			if (r.primary && horizontal && node % PRIMARY_EVERY == 0) {
+				r.signals.add(k);
+			}
+		}
+		return r;
+	}
+
+	private static String getRoadName(boolean horizontal, int line) {
+		if (line % PRIMARY_EVERY == 0) {
+			return (horizontal ? "Avenue " : "Boulevard ") + (line / PRIMARY_EVERY + 1);
+		}
+		return (horizontal ? "Street " : "Lane ") + (line + 1);
+	}
+
+	private void writeMapIndex(ObfOutput out) throws IOException {
+		CodedOutputStream cos = out.cos;
+		out.startFixedMessage(OsmAndStructure.MAPINDEX_FIELD_NUMBER);
+		cos.writeString(OsmAndMapIndex.NAME_FIELD_NUMBER, name);
+		for (int i = 0; i < MAP_RULES.length; i++) {
+			cos.writeMessage(OsmAndMapIndex.RULES_FIELD_NUMBER, MapEncodingRule.newBuilder().setTag(MAP_RULES[i][0])
+					.setValue(MAP_RULES[i][1]).setId(i + 1).build());
+		}
+		CellTree root = buildTree(0, 0, cells, cells, null);
+		out.startFixedMessage(OsmAndMapIndex.LEVELS_FIELD_NUMBER);
+		cos.writeInt32(MapRootLevel.MAXZOOM_FIELD_NUMBER, MAP_MAX_ZOOM);
+		cos.writeInt32(MapRootLevel.MINZOOM_FIELD_NUMBER, MAP_MIN_ZOOM);
+		cos.writeInt32(MapRootLevel.LEFT_FIELD_NUMBER, root.left);
+		cos.writeInt32(MapRootLevel.RIGHT_FIELD_NUMBER, root.right);
+		cos.writeInt32(MapRootLevel.TOP_FIELD_NUMBER, root.top);
+		cos.writeInt32(MapRootLevel.BOTTOM_FIELD_NUMBER, root.bottom);
+		List<CellTree> leaves = new ArrayList<CellTree>();
+		writeMapBox(out, MapRootLevel.BOXES_FIELD_NUMBER, root, root, leaves);
+		for (CellTree leaf : leaves) {
+			cos.writeTag(MapRootLevel.BLOCKS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			out.patchInt(leaf.shiftPointer, out.position() - leaf.filePointer);
+			cos.writeMessageNoTag(createMapDataBlock(leaf));
+		}
+		out.endFixedMessage();
+		out.endFixedMessage();
+	}
+
+	private void writeMapBox(ObfOutput out, int field, CellTree tree, CellTree parent, List<CellTree> leaves)
+			throws IOException {
+		CodedOutputStream cos = out.cos;
+		out.startFixedMessage(field);
+		tree.filePointer = out.position();
+		cos.writeSInt32(MapDataBox.LEFT_FIELD_NUMBER, tree.left - parent.left);
+		cos.writeSInt32(MapDataBox.RIGHT_FIELD_NUMBER, tree.right - parent.right);
+		cos.writeSInt32(MapDataBox.TOP_FIELD_NUMBER, tree.top - parent.top);
+		cos.writeSInt32(MapDataBox.BOTTOM_FIELD_NUMBER, tree.bottom - parent.bottom);
+		if (tree.isLeaf()) {
+			cos.writeTag(MapDataBox.SHIFTTOMAPDATA_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+			tree.shiftPointer = out.reserveInt();
+			leaves.add(tree);
+		} else {
+			for (CellTree child : tree.children) {
+				writeMapBox(out, MapDataBox.BOXES_FIELD_NUMBER, child, tree, leaves);
+			}
+		}
+		out.endFixedMessage();
+	}
+
+	private MapDataBlock createMapDataBlock(CellTree leaf) throws IOException {
+		MapDataBlock.Builder block = MapDataBlock.newBuilder();
+		StringTable.Builder strings = StringTable.newBuilder();
+		for (Road r : getRoads(leaf.cx, leaf.cy)) {
+			MapData.Builder data = MapData.newBuilder();
+			data.setCoordinates(writeDeltas(r.x, r.y, leaf.left, leaf.top, BinaryMapIndexReader.SHIFT_COORDINATES));
+			data.setTypes(writeVarints(r.primary ? RULE_PRIMARY : RULE_RESIDENTIAL));
+			if (r.oneway) {
+				data.setAdditionalTypes(writeVarints(RULE_ONEWAY));
+			}
+			data.setStringNames(writeVarints(RULE_NAME, strings.getSCount()));
+			strings.addS(r.name);
+			data.setId(r.id);
+			block.addDataObjects(data);
+		}
+		block.setStringTable(strings);
+		return block.build();
+	}
+
+	private void writeRouteIndex(ObfOutput out) throws IOException {
+		CodedOutputStream cos = out.cos;
+		out.startFixedMessage(OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER);
+		cos.writeString(OsmAndRoutingIndex.NAME_FIELD_NUMBER, name);
+		for (int i = 0; i < ROUTE_RULES.length; i++) {
+			cos.writeMessage(OsmAndRoutingIndex.RULES_FIELD_NUMBER, RouteEncodingRule.newBuilder()
+					.setTag(ROUTE_RULES[i][0]).setValue(ROUTE_RULES[i][1]).setId(i + 1).build());
+		}
+		CellTree root = buildTree(0, 0, cells, cells, null);
+		List<CellTree> leaves = new ArrayList<CellTree>();
+		writeRouteBox(out, OsmAndRoutingIndex.ROOTBOXES_FIELD_NUMBER, root, null, leaves);
+		for (CellTree leaf : leaves) {
+			cos.writeTag(OsmAndRoutingIndex.BLOCKS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			out.patchInt(leaf.shiftPointer, out.position() - leaf.filePointer);
+			cos.writeMessageNoTag(createRouteDataBlock(leaf));
+		}
+		out.endFixedMessage();
+	}
+
+	private void writeRouteBox(ObfOutput out, int field, CellTree tree, CellTree parent, List<CellTree> leaves)
+			throws IOException {
+		CodedOutputStream cos = out.cos;
+		out.startFixedMessage(field);
+		tree.filePointer = out.position();
+		cos.writeSInt32(RouteDataBox.LEFT_FIELD_NUMBER, tree.left - (parent == null ? 0 : parent.left));
+		cos.writeSInt32(RouteDataBox.RIGHT_FIELD_NUMBER, tree.right - (parent == null ? 0 : parent.right));
+		cos.writeSInt32(RouteDataBox.TOP_FIELD_NUMBER, tree.top - (parent == null ? 0 : parent.top));
+		cos.writeSInt32(RouteDataBox.BOTTOM_FIELD_NUMBER, tree.bottom - (parent == null ? 0 : parent.bottom));
+		if (tree.isLeaf()) {
+			cos.writeTag(RouteDataBox.SHIFTTODATA_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+			tree.shiftPointer = out.reserveInt();
+			leaves.add(tree);
+		} else {
+			for (CellTree child : tree.children) {
+				writeRouteBox(out, RouteDataBox.BOXES_FIELD_NUMBER, child, tree, leaves);
+			}
+		}
+		out.endFixedMessage();
+	}
+
+	private RouteDataBlock createRouteDataBlock(CellTree leaf) throws IOException {
+		Random rnd = new Random(seed + (long) leaf.cy * cells + leaf.cx);
+		List<Road> roads = getRoads(leaf.cx, leaf.cy);
+		RouteDataBlock.Builder block = RouteDataBlock.newBuilder();
+		IdTable.Builder ids = IdTable.newBuilder();
+		StringTable.Builder strings = StringTable.newBuilder();
+		long prevId = 0;
+		for (int k = 0; k < roads.size(); k++) {
+			Road r = roads.get(k);
+			ids.addRouteId(r.id - prevId);
+			prevId = r.id;
+			RouteData.Builder data = RouteData.newBuilder();
+			data.setPoints(writeDeltas(r.x, r.y, leaf.left, leaf.top, ROUTE_SHIFT_COORDINATES));
+			if (!r.signals.isEmpty()) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				CodedOutputStream pointTypes = CodedOutputStream.newInstance(bos);
+				for (int i = 0; i < r.signals.size(); i++) {
+					pointTypes.writeRawVarint32(r.signals.get(i));
+					pointTypes.writeRawVarint32(CodedOutputStream.computeRawVarint32Size(RULE_TRAFFIC_SIGNALS));
+					pointTypes.writeRawVarint32(RULE_TRAFFIC_SIGNALS);
+				}
+				pointTypes.flush();
+				data.setPointTypes(ByteString.copyFrom(bos.toByteArray()));
+			}
+			int type = r.primary ? RULE_PRIMARY : RULE_RESIDENTIAL;
+			data.setTypes(r.oneway ? writeVarints(type, RULE_SURFACE, RULE_ONEWAY) : writeVarints(type, RULE_SURFACE));
+			data.setRouteId(k);
+			data.setStringNames(writeVarints(RULE_NAME, strings.getSCount()));
+			strings.addS(r.name);
+			block.addDataObjects(data);
+		}
+		// turn restrictions from horizontal to vertical roads at inner intersections of leaf box
+		int horizontal = 0;
+		while (horizontal < roads.size() && roads.get(horizontal).y[0] == roads.get(horizontal).y[1]) {
+			horizontal++;
+		}
+		for (int j = 0; j < horizontal; j++) {
+			for (int i = horizontal; i < roads.size(); i++) {
+				if ((leaf.cy * CELL + j) % CELL != 0 && (leaf.cx * CELL + i - horizontal) % CELL != 0
+						&& rnd.nextDouble() < restrictionsRatio) {
+					block.addRestrictions(RestrictionData.newBuilder().setFrom(j).setTo(i)
+							.setType(rnd.nextBoolean() ? MapRenderingTypes.RESTRICTION_NO_LEFT_TURN
+									: MapRenderingTypes.RESTRICTION_NO_RIGHT_TURN));
+				}
+			}
+		}
+		block.setIdTable(ids);
+		block.setStringTable(strings);
+		return block.build();
+	}
+
+	private static class Poi {
+		long id;
+		int x;
+		int y;
+		int category;
+		int subcategory;
+		String name;
+		String openingHours;
+	}
+
+	private List<Poi> generatePois() {
+		Random rnd = new Random(seed + 1);
+		int count = (int) Math.round(area * poiDensity);
+		Map<String, Integer> counters = new TreeMap<String, Integer>();
+		List<Poi> pois = new ArrayList<Poi>(count);
+		for (int k = 0; k < count; k++) {
+			Poi p = new Poi();
+			p.id = k + 1;
+			p.x = xs[0] + (int) (rnd.nextDouble() * (xs[nodes - 1] - xs[0]));
+			p.y = ys[0] + (int) (rnd.nextDouble() * (ys[nodes - 1] - ys[0]));
+			p.category = rnd.nextInt(POI_TYPES.length);
+			p.subcategory = rnd.nextInt(POI_TYPES[p.category].length - 1);
+			String type = POI_TYPES[p.category][p.subcategory + 1];
+			Integer c = counters.get(type);
+			c = c == null ? 1 : c + 1;
+			counters.put(type, c);
+			p.name = Character.toUpperCase(type.charAt(0)) + type.substring(1).replace('_', ' ') + " " + c;
+			p.openingHours = OPENING_HOURS[rnd.nextInt(OPENING_HOURS.length)];
+			pois.add(p);
+		}
+		return pois;
+	}
+
+	private static long tileKey(int x, int y) {
+		return (((long) x) << 32) | y;
+	}
+
+	private void writePoiIndex(ObfOutput out) throws IOException {
+		CodedOutputStream cos = out.cos;
+		List<Poi> pois = generatePois();
+		// categories of tiles with POI on zooms from root to leaf
+		List<TLongObjectHashMap<TIntArrayList>> tiles = new ArrayList<TLongObjectHashMap<TIntArrayList>>();
+		for (int z = POI_ROOT_ZOOM; z <= POI_LEAF_ZOOM; z++) {
+			tiles.add(new TLongObjectHashMap<TIntArrayList>());
+		}
+		TLongObjectHashMap<List<Poi>> leafPois = new TLongObjectHashMap<List<Poi>>();
+		for (Poi p : pois) {
+			int category = (p.subcategory << 7) | p.category;
+			for (int z = POI_ROOT_ZOOM; z <= POI_LEAF_ZOOM; z++) {
+				long key = tileKey(p.x >> (31 - z), p.y >> (31 - z));
+				TIntArrayList categories = tiles.get(z - POI_ROOT_ZOOM).get(key);
+				if (categories == null) {
+					categories = new TIntArrayList();
+					tiles.get(z - POI_ROOT_ZOOM).put(key, categories);
+				}
+				if (!categories.contains(category)) {
+					categories.add(category);
+				}
+			}
+			long leaf = tileKey(p.x >> (31 - POI_LEAF_ZOOM), p.y >> (31 - POI_LEAF_ZOOM));
+			if (!leafPois.containsKey(leaf)) {
+				leafPois.put(leaf, new ArrayList<Poi>());
+			}
+			leafPois.get(leaf).add(p);
+		}
+
+		out.startFixedMessage(OsmAndStructure.POIINDEX_FIELD_NUMBER);
+		int indexPointer = out.position();
+		cos.writeString(OsmAndPoiIndex.NAME_FIELD_NUMBER, name);
+		cos.writeMessage(OsmAndPoiIndex.BOUNDARIES_FIELD_NUMBER, OsmAndTileBox.newBuilder().setLeft(xs[0])
+				.setRight(xs[nodes - 1]).setTop(ys[0]).setBottom(ys[nodes - 1]).build());
+		for (String[] category : POI_TYPES) {
+			OsmAndCategoryTable.Builder table = OsmAndCategoryTable.newBuilder().setCategory(category[0]);
+			for (int i = 1; i < category.length; i++) {
+				table.addSubcategories(category[i]);
+			}
+			cos.writeMessage(OsmAndPoiIndex.CATEGORIESTABLE_FIELD_NUMBER, table.build());
+		}
+		TLongArrayList leaves = new TLongArrayList();
+		TIntArrayList boxPointers = new TIntArrayList();
+		TLongArrayList roots = new TLongArrayList(tiles.get(0).keys());
+		roots.sort();
+		for (int i = 0; i < roots.size(); i++) {
+			long root = roots.get(i);
+			writePoiBox(out, OsmAndPoiIndex.BOXES_FIELD_NUMBER, POI_ROOT_ZOOM, (int) (root >> 32), (int) root, 0, 0, 0,
+					tiles, leaves, boxPointers);
+		}
+		TIntArrayList atomPointers = new TIntArrayList();
+		TIntArrayList atomLeaves = new TIntArrayList();
+		writePoiNameIndex(out, leaves, leafPois, atomPointers, atomLeaves);
+		int[] dataPointers = new int[leaves.size()];
+		for (int l = 0; l < leaves.size(); l++) {
+			long leaf = leaves.get(l);
+			int tx = (int) (leaf >> 32);
+			int ty = (int) leaf;
+			dataPointers[l] = out.startFixedMessage(OsmAndPoiIndex.POIDATA_FIELD_NUMBER) - indexPointer;
+			out.patchInt(boxPointers.get(l), dataPointers[l]);
+			OsmAndPoiBoxData.Builder data = OsmAndPoiBoxData.newBuilder().setZoom(POI_LEAF_ZOOM).setX(tx).setY(ty);
+			for (Poi p : leafPois.get(leaf)) {
+				data.addPoiData(OsmAndPoiBoxDataAtom.newBuilder()
+						.setDx((p.x >> (31 - POI_DATA_ZOOM)) - (tx << (POI_DATA_ZOOM - POI_LEAF_ZOOM)))
+						.setDy((p.y >> (31 - POI_DATA_ZOOM)) - (ty << (POI_DATA_ZOOM - POI_LEAF_ZOOM)))
+						.addCategories((p.subcategory << 7) | p.category).setName(p.name).setId(p.id)
+						.setOpeningHours(p.openingHours));
+			}
+			data.build().writeTo(cos);
+			out.endFixedMessage();
+		}
+		for (int i = 0; i < atomPointers.size(); i++) {
+			out.patchInt(atomPointers.get(i), dataPointers[atomLeaves.get(i)]);
+		}
+		out.endFixedMessage();
+	}
+
+	private void writePoiBox(ObfOutput out, int field, int zoom, int x, int y, int pzoom, int px, int py,
+			List<TLongObjectHashMap<TIntArrayList>> tiles, TLongArrayList leaves, TIntArrayList boxPointers)
+			throws IOException {
+		CodedOutputStream cos = out.cos;
+		out.startFixedMessage(field);
+		cos.writeUInt32(OsmAndPoiBox.ZOOM_FIELD_NUMBER, zoom - pzoom);
+		cos.writeSInt32(OsmAndPoiBox.LEFT_FIELD_NUMBER, x - (px << (zoom - pzoom)));
+		cos.writeSInt32(OsmAndPoiBox.TOP_FIELD_NUMBER, y - (py << (zoom - pzoom)));
+		OsmAndPoiCategories.Builder categories = OsmAndPoiCategories.newBuilder();
+		TIntArrayList list = tiles.get(zoom - POI_ROOT_ZOOM).get(tileKey(x, y));
+		for (int i = 0; i < list.size(); i++) {
+			categories.addCategories(list.get(i));
+		}
+		cos.writeMessage(OsmAndPoiBox.CATEGORIES_FIELD_NUMBER, categories.build());
+		if (zoom == POI_LEAF_ZOOM) {
+			cos.writeTag(OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+			boxPointers.add(out.reserveInt());
+			leaves.add(tileKey(x, y));
+		} else {
+			TLongObjectHashMap<TIntArrayList> children = tiles.get(zoom + 1 - POI_ROOT_ZOOM);
+			for (int dy = 0; dy < 2; dy++) {
+				for (int dx = 0; dx < 2; dx++) {
+					int cx = (x << 1) + dx;
+					int cy = (y << 1) + dy;
+					if (children.containsKey(tileKey(cx, cy))) {
+						writePoiBox(out, OsmAndPoiBox.SUBBOXES_FIELD_NUMBER, zoom + 1, cx, cy, zoom, x, y, tiles, leaves,
+								boxPointers);
+					}
+				}
+			}
+		}
+		out.endFixedMessage();
+	}
+
+	private void writePoiNameIndex(ObfOutput out, TLongArrayList leaves, TLongObjectHashMap<List<Poi>> leafPois,
+			TIntArrayList atomPointers, TIntArrayList atomLeaves) throws IOException {
+		CodedOutputStream cos = out.cos;
+		// leaves with POI names starting with prefix
+		TreeMap<String, TIntArrayList> prefixes = new TreeMap<String, TIntArrayList>();
+		for (int l = 0; l < leaves.size(); l++) {
+			for (Poi p : leafPois.get(leaves.get(l))) {
+				for (String prefix : getNamePrefixes(p.name)) {
+					TIntArrayList list = prefixes.get(prefix);
+					if (list == null) {
+						list = new TIntArrayList();
+						prefixes.put(prefix, list);
+					}
+					if (list.isEmpty() || list.get(list.size() - 1) != l) {
+						list.add(l);
+					}
+				}
+			}
+		}
+		out.startFixedMessage(OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER);
+		TIntArrayList valPointers = new TIntArrayList();
+		int tablePointer = writeIndexedStringTable(out, OsmAndPoiNameIndex.TABLE_FIELD_NUMBER, prefixes.keySet(),
+				valPointers);
+		int k = 0;
+		for (TIntArrayList list : prefixes.values()) {
+			cos.writeTag(OsmAndPoiNameIndex.DATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			int pointer = out.position();
+			out.patchInt(valPointers.get(k++), pointer - tablePointer);
+			OsmAndPoiNameIndexData.Builder data = OsmAndPoiNameIndexData.newBuilder();
+			for (int i = 0; i < list.size(); i++) {
+				long leaf = leaves.get(list.get(i));
+				data.addAtoms(OsmAndPoiNameIndexDataAtom.newBuilder().setZoom(POI_LEAF_ZOOM).setX((int) (leaf >> 32))
+						.setY((int) leaf).setShiftTo(0));
+			}
+			OsmAndPoiNameIndexData message = data.build();
+			cos.writeMessageNoTag(message);
+			// shift to data is last fixed field of atom, it is patched when data is written
+			pointer += CodedOutputStream.computeRawVarint32Size(message.getSerializedSize());
+			for (int i = 0; i < list.size(); i++) {
+				pointer += CodedOutputStream.computeMessageSize(OsmAndPoiNameIndexData.ATOMS_FIELD_NUMBER,
+						message.getAtoms(i));
+				atomPointers.add(pointer - 4);
+				atomLeaves.add(list.get(i));
+			}
+		}
+		out.endFixedMessage();
+	}
+
+	/**
+	 * Writes keys of table, values are patched later relatively to returned position of table.
+	 */
+	private static int writeIndexedStringTable(ObfOutput out, int field, Collection<String> keys,
+			TIntArrayList valPointers) throws IOException {
+		out.startFixedMessage(field);
+		int tablePointer = out.position();
+		for (String key : keys) {
+			out.cos.writeString(IndexedStringTable.KEY_FIELD_NUMBER, key);
+			out.cos.writeTag(IndexedStringTable.VAL_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+			valPointers.add(out.reserveInt());
+		}
+		out.endFixedMessage();
+		return tablePointer;
+	}
+
+	private static Set<String> getNamePrefixes(String name) {
+		Set<String> prefixes = new LinkedHashSet<String>();
+		for (String word : name.toLowerCase().split(" ")) {
+			prefixes.add(word.substring(0, Math.min(NAME_PREFIX, word.length())));
+		}
+		return prefixes;
+	}
+
+	private static class AddressObject {
+		long id;
+		int type;
+		String name;
+		int x;
+		int y;
+		int filePointer;
+		int shiftPointer;
+		AddressObject city;
+		List<AddressObject> streets = new ArrayList<AddressObject>();
+	}
+
+	private List<AddressObject> generateTowns() {
+		List<AddressObject> towns = new ArrayList<AddressObject>();
+		int townSide = TOWN_CELLS * CELL;
+		int townsCount = (cells - 1) / TOWN_CELLS + 1;
+		long id = 1;
+		for (int ty = 0; ty < townsCount; ty++) {
+			for (int tx = 0; tx < townsCount; tx++) {
+				int k = towns.size();
+				AddressObject town = new AddressObject();
+				town.id = id++;
+				town.type = BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE;
+				town.name = TOWN_PREFIXES[k % TOWN_PREFIXES.length]
+						+ TOWN_SUFFIXES[(k / TOWN_PREFIXES.length) % TOWN_SUFFIXES.length];
+				if (k >= TOWN_PREFIXES.length * TOWN_SUFFIXES.length) {
+					town.name += " " + (k / (TOWN_PREFIXES.length * TOWN_SUFFIXES.length) + 1);
+				}
+				int c0 = tx * townSide;
+				int c1 = tx == townsCount - 1 ? nodes - 1 : (tx + 1) * townSide;
+				int r0 = ty * townSide;
+				int r1 = ty == townsCount - 1 ? nodes - 1 : (ty + 1) * townSide;
+				town.x = xs[(c0 + c1) / 2];
+				town.y = ys[(r0 + r1) / 2];
+				for (int j = r0; j < r1 || (j == r1 && r1 == nodes - 1); j++) {
+					town.streets.add(createStreet(town, id++, getRoadName(true, j), c0, c1, j, true));
+				}
+				for (int i = c0; i < c1 || (i == c1 && c1 == nodes - 1); i++) {
+					town.streets.add(createStreet(town, id++, getRoadName(false, i), r0, r1, i, false));
+				}
+				towns.add(town);
+			}
+		}
+		return towns;
+	}
+
+	private AddressObject createStreet(AddressObject town, long id, String name, int from, int to, int line,
+			boolean horizontal) {
+		AddressObject street = new AddressObject();
+		street.id = id;
+		street.type = BinaryMapAddressReaderAdapter.STREET_TYPE;
+		street.name = name;
+		street.city = town;
+		int middle = (from + to) / 2;
+		street.x = horizontal ? xs[middle] : xs[line];
+		street.y = horizontal ? ys[line] : ys[middle];
+		// buildings are kept as streets of street
+		for (int k = from; k < to; k++) {
+			AddressObject building = new AddressObject();
+			building.name = String.valueOf((k - from) * 2 + 1);
+			building.x = horizontal ? xs[k] + (xs[k + 1] - xs[k]) / 2 : xs[line];
+			building.y = horizontal ? ys[line] : ys[k] + (ys[k + 1] - ys[k]) / 2;
+			street.streets.add(building);
+		}
+		return street;
+	}
+
+	private void writeAddressIndex(ObfOutput out) throws IOException {
+		CodedOutputStream cos = out.cos;
+		List<AddressObject> towns = generateTowns();
+		out.startFixedMessage(OsmAndStructure.ADDRESSINDEX_FIELD_NUMBER);
+		cos.writeString(OsmAndAddressIndex.NAME_FIELD_NUMBER, name);
+		cos.writeString(OsmAndAddressIndex.NAME_EN_FIELD_NUMBER, name);
+		out.startFixedMessage(OsmAndAddressIndex.CITIES_FIELD_NUMBER);
+		cos.writeEnum(CitiesIndex.TYPE_FIELD_NUMBER, CitiesIndex.CitiesType.CitiesOrTowns_VALUE);
+		for (AddressObject town : towns) {
+			cos.writeTag(CitiesIndex.CITIES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			town.filePointer = out.position();
+			cos.writeMessageNoTag(CityIndex.newBuilder().setCityType(CityType.TOWN.ordinal()).setName(town.name)
+					.setId(town.id).setX(town.x).setY(town.y).setShiftToCityBlockIndex(0).build());
+			// shift to city block is last fixed field of city
+			town.shiftPointer = out.position() - 4;
+		}
+		for (AddressObject town : towns) {
+			cos.writeTag(CitiesIndex.BLOCKS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			int pointer = out.position();
+			out.patchInt(town.shiftPointer, pointer - town.filePointer);
+			List<StreetIndex> streets = new ArrayList<StreetIndex>();
+			int size = 0;
+			for (AddressObject street : town.streets) {
+				StreetIndex s = createStreetIndex(town, street);
+				size += CodedOutputStream.computeMessageSize(CityBlockIndex.STREETS_FIELD_NUMBER, s);
+				streets.add(s);
+			}
+			cos.writeRawVarint32(size);
+			pointer += CodedOutputStream.computeRawVarint32Size(size);
+			for (int i = 0; i < streets.size(); i++) {
+				town.streets.get(i).filePointer = pointer + CodedOutputStream.computeTagSize(CityBlockIndex.STREETS_FIELD_NUMBER);
+				pointer += CodedOutputStream.computeMessageSize(CityBlockIndex.STREETS_FIELD_NUMBER, streets.get(i));
+				cos.writeMessage(CityBlockIndex.STREETS_FIELD_NUMBER, streets.get(i));
+			}
+		}
+		out.endFixedMessage();
+		writeAddressNameIndex(out, towns);
+		out.endFixedMessage();
+	}
+
+	private StreetIndex createStreetIndex(AddressObject town, AddressObject street) {
+		int sx = street.x >> 7;
+		int sy = street.y >> 7;
+		StreetIndex.Builder s = StreetIndex.newBuilder().setName(street.name).setX(sx - (town.x >> 7))
+				.setY(sy - (town.y >> 7)).setId(street.id);
+		long id = street.id << 10;
+		for (AddressObject building : street.streets) {
+			s.addBuildings(BuildingIndex.newBuilder().setName(building.name).setX((building.x >> 7) - sx)
+					.setY((building.y >> 7) - sy).setId(id++));
+		}
+		return s.build();
+	}
+
+	private void writeAddressNameIndex(ObfOutput out, List<AddressObject> towns) throws IOException {
+		CodedOutputStream cos = out.cos;
+		TreeMap<String, List<AddressObject>> prefixes = new TreeMap<String, List<AddressObject>>();
+		for (AddressObject town : towns) {
+			addAddressPrefixes(prefixes, town);
+			for (AddressObject street : town.streets) {
+				addAddressPrefixes(prefixes, street);
+			}
+		}
+		out.startFixedMessage(OsmAndAddressIndex.NAMEINDEX_FIELD_NUMBER);
+		TIntArrayList valPointers = new TIntArrayList();
+		int tablePointer = writeIndexedStringTable(out, OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER,
+				prefixes.keySet(), valPointers);
+		int k = 0;
+		for (List<AddressObject> list : prefixes.values()) {
+			cos.writeTag(OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			int pointer = out.position();
+			out.patchInt(valPointers.get(k++), pointer - tablePointer);
+			AddressNameIndexData.Builder data = AddressNameIndexData.newBuilder();
+			for (AddressObject o : list) {
+				AddressNameIndexDataAtom.Builder atom = AddressNameIndexDataAtom.newBuilder().setName(o.name)
+						.setType(o.type).addShiftToIndex(pointer - o.filePointer);
+				if (o.city != null) {
+					atom.addShiftToCityIndex(pointer - o.city.filePointer);
+				}
+				atom.addXy16(((o.x >> 15) << 16) | (o.y >> 15));
+				data.addAtom(atom);
+			}
+			cos.writeMessageNoTag(data.build());
+		}
+		out.endFixedMessage();
+	}
+
+	private static void addAddressPrefixes(Map<String, List<AddressObject>> prefixes, AddressObject o) {
+		for (String prefix : getNamePrefixes(o.name)) {
+			List<AddressObject> list = prefixes.get(prefix);
+			if (list == null) {
+				list = new ArrayList<AddressObject>();
+				prefixes.put(prefix, list);
+			}
+			list.add(o);
+		}
+	}
+
+	private static class Stop {
+		long id;
+		int x;
+		int y;
+		String name;
+		List<Line> lines = new ArrayList<Line>();
+	}
+
+	private static class Line {
+		long id;
+		String ref;
+		int[] x;
+		int[] y;
+		List<Stop> stops = new ArrayList<Stop>();
+		int filePointer;
+	}
+
+	/**
+	 * Bus lines in both directions along primary roads with stops on every second intersection.
+	 */
+	private List<Line> generateLines(TIntObjectHashMap<Stop> stops) {
+		List<Line> lines = new ArrayList<Line>();
+		Random rnd = new Random(seed + 2);
+		for (int line = 0; line < nodes; line += PRIMARY_EVERY) {
+			for (int d = 0; d < 4; d++) {
+				boolean horizontal = d < 2;
+				boolean reverse = d % 2 == 1;
+				Line l = new Line();
+				l.id = lines.size() + 1;
+				l.ref = String.valueOf(line / PRIMARY_EVERY * 2 + (horizontal ? 1 : 2));
+				l.x = new int[nodes];
+				l.y = new int[nodes];
+				for (int k = 0; k < nodes; k++) {
+					int node = reverse ? nodes - 1 - k : k;
+					int i = horizontal ? node : line;
+					int j = horizontal ? line : node;
+					l.x[k] = xs[i];
+					l.y[k] = ys[j];
+					if (node % STOP_EVERY == 0) {
+						int key = j * nodes + i;
+						Stop s = stops.get(key);
+						if (s == null) {
+							s = new Stop();
+							s.id = key + 1;
+							s.x = xs[i] >> (31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM);
+							s.y = ys[j] >> (31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM);
+							s.name = rnd.nextDouble() < missingStopsRatio ? net.osmand.data.TransportStop.MISSING_STOP_NAME
+									: getRoadName(true, j) + " / " + getRoadName(false, i);
+							stops.put(key, s);
+						}
+						s.lines.add(l);
+						l.stops.add(s);
+					}
+				}
+				lines.add(l);
+			}
+		}
+		return lines;
+	}
+
+	private void writeTransportIndex(ObfOutput out) throws IOException {
+		CodedOutputStream cos = out.cos;
+		TIntObjectHashMap<Stop> stops = new TIntObjectHashMap<Stop>();
+		List<Line> lines = generateLines(stops);
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		out.startFixedMessage(OsmAndStructure.TRANSPORTINDEX_FIELD_NUMBER);
+		cos.writeString(OsmAndTransportIndex.NAME_FIELD_NUMBER, name);
+		out.startFixedMessage(OsmAndTransportIndex.ROUTES_FIELD_NUMBER);
+		for (Line l : lines) {
+			cos.writeTag(TransportRoutes.ROUTES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			l.filePointer = out.position();
+			cos.writeMessageNoTag(createTransportRoute(l, strings));
+		}
+		out.endFixedMessage();
+		// stops by leaf boxes
+		TIntObjectHashMap<List<Stop>> cellStops = new TIntObjectHashMap<List<Stop>>();
+		boolean[][] filter = new boolean[cells][cells];
+		int[] keys = stops.keys();
+		Arrays.sort(keys);
+		for (int key : keys) {
+			int cx = cellOf(key % nodes);
+			int cy = cellOf(key / nodes);
+			filter[cx][cy] = true;
+			if (!cellStops.containsKey(cy * cells + cx)) {
+				cellStops.put(cy * cells + cx, new ArrayList<Stop>());
+			}
+			cellStops.get(cy * cells + cx).add(stops.get(key));
+		}
+		CellTree root = buildTree(0, 0, cells, cells, filter);
+		out.startFixedMessage(OsmAndTransportIndex.STOPS_FIELD_NUMBER);
+		writeStopsTree(out, root, null, cellStops, strings);
+		out.endFixedMessage();
+		StringTable.Builder table = StringTable.newBuilder();
+		for (String s : strings.keySet()) {
+			table.addS(s);
+		}
+		cos.writeMessage(OsmAndTransportIndex.STRINGTABLE_FIELD_NUMBER, table.build());
+		out.endFixedMessage();
+	}
+
+	private static int getStringId(Map<String, Integer> strings, String s) {
+		Integer id = strings.get(s);
+		if (id == null) {
+			id = strings.size();
+			strings.put(s, id);
+		}
+		return id;
+	}
+
+	private TransportRoute createTransportRoute(Line l, Map<String, Integer> strings) throws IOException {
+		TransportRoute.Builder route = TransportRoute.newBuilder();
+		route.setId(l.id);
+		route.setType(getStringId(strings, "bus"));
+		route.setOperator(getStringId(strings, "Synthetic Transit"));
+		route.setRef(l.ref);
+		route.setName(getStringId(strings, "Bus " + l.ref));
+		route.setDistance((nodes - 1) * roadSpacing);
+		long pid = 0;
+		int px = 0;
+		int py = 0;
+		for (Stop s : l.stops) {
+			route.addDirectStops(TransportRouteStop.newBuilder().setId(s.id - pid).setDx(s.x - px).setDy(s.y - py)
+					.setName(getStringId(strings, s.name)));
+			pid = s.id;
+			px = s.x;
+			py = s.y;
+		}
+		route.setGeometry(writeDeltas(l.x, l.y, 0, 0, BinaryMapIndexReader.SHIFT_COORDINATES));
+		return route.build();
+	}
+
+	private void writeStopsTree(ObfOutput out, CellTree tree, CellTree parent, TIntObjectHashMap<List<Stop>> cellStops,
+			Map<String, Integer> strings) throws IOException {
+		CodedOutputStream cos = out.cos;
+		int shift = 31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM;
+		int left = tree.left >> shift;
+		int top = tree.top >> shift;
+		cos.writeSInt32(TransportStopsTree.LEFT_FIELD_NUMBER, left - (parent == null ? 0 : parent.left >> shift));
+		cos.writeSInt32(TransportStopsTree.RIGHT_FIELD_NUMBER,
+				(tree.right >> shift) - (parent == null ? 0 : parent.right >> shift));
+		cos.writeSInt32(TransportStopsTree.TOP_FIELD_NUMBER, top - (parent == null ? 0 : parent.top >> shift));
+		cos.writeSInt32(TransportStopsTree.BOTTOM_FIELD_NUMBER,
+				(tree.bottom >> shift) - (parent == null ? 0 : parent.bottom >> shift));
+		if (tree.isLeaf()) {
+			for (Stop s : cellStops.get(tree.cy * cells + tree.cx)) {
+				cos.writeTag(TransportStopsTree.LEAFS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+				int pointer = out.position();
+				TransportStop.Builder stop = TransportStop.newBuilder().setDx(s.x - left).setDy(s.y - top).setId(s.id)
+						.setName(getStringId(strings, s.name));
+				for (Line l : s.lines) {
+					stop.addRoutes(pointer - l.filePointer);
+				}
+				for (Line l : s.lines) {
+					stop.addRoutesIds(l.id);
+				}
+				cos.writeMessageNoTag(stop.build());
+			}
+		} else {
+			for (CellTree child : tree.children) {
+				out.startFixedMessage(TransportStopsTree.SUBTREES_FIELD_NUMBER);
+				writeStopsTree(out, child, tree, cellStops, strings);
+				out.endFixedMessage();
+			}
+		}
+	}
+
+	private static ByteString writeVarints(int... values) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+		for (int v : values) {
+			cos.writeRawVarint32(v);
+		}
+		cos.flush();
+		return ByteString.copyFrom(bos.toByteArray());
+	}
+
+	private static ByteString writeDeltas(int[] x, int[] y, int px, int py, int shift) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+		px = px >> shift;
+		py = py >> shift;
+		for (int i = 0; i < x.length; i++) {
+			cos.writeSInt32NoTag((x[i] >> shift) - px);
+			cos.writeSInt32NoTag((y[i] >> shift) - py);
+			px = x[i] >> shift;
+			py = y[i] >> shift;
+		}
+		cos.flush();
+		return ByteString.copyFrom(bos.toByteArray());
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: SyntheticObfGenerator <file.obf> [area in square km] [seed]");
+			return;
+		}
+		SyntheticObfGenerator generator = new SyntheticObfGenerator();
+		if (args.length > 1) {
+			generator.setArea(Double.parseDouble(args[1]));
+		}
+		if (args.length > 2) {
+			generator.setSeed(Long.parseLong(args[2]));
+		}
+		generator.generate(new File(args[0]));
+	}
+}
@@ -0,0 +1,313 @@
+package net.osmand.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.data.TransportStop;
+
+/**
+ * Persistent adjacency index of transport stops of obf file: location, references to routes (file pointers),
+ * route ids and deleted route ids of every stop. Stops are sorted by x, index file is memory mapped,
+ * so stops of bbox are found without reading transport stops tree and string tables.
+ * Stops of index don't have names, they are intended for routing only. Placeholders of stops of other files
+ * are flagged and get {@link TransportStop#MISSING_STOP_NAME}, so they are skipped as stops read from file.
+ *
+ * Index is built on first use and rebuilt when size or modification time of obf file changes.
+ * Opened index is kept until obf file is closed ({@link #release(File)}) or replaced.
+ */
+public class TransportStopsIndex {
+
+	private static final Log log = PlatformUtil.getLog(TransportStopsIndex.class);
+
+	public static final int VERSION = 2;
+	public static final String EXTENSION = ".stops.idx";
+	private static final int MAGIC = 0x4f54534e;
+	private static final int HEADER_SIZE = 4 * 4 + 8 * 2 + 4 * 4;
+	private static final int SHIFT = 31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM;
+	private static final byte FLAG_MISSING_STOP = 1;
+
+	private static final Map<String, TransportStopsIndex> indexes = new HashMap<String, TransportStopsIndex>();
+
+	private final MappedByteBuffer buf;
+	private final File obf;
+	private final long obfLength;
+	private final long obfModified;
+	private final int stopsCount;
+	// positions of arrays in buffer
+	private final int xPos;
+	private final int yPos;
+	private final int idPos;
+	private final int refsStartPos;
+	private final int refsPos;
+	private final int routeIdsStartPos;
+	private final int routeIdsPos;
+	private final int deletedStartPos;
+	private final int deletedPos;
+	private final int flagsPos;
+
+	private TransportStopsIndex(MappedByteBuffer buf, File obf) {
+		this.buf = buf;
+		this.obf = obf;
+		obfLength = buf.getLong(16);
+		obfModified = buf.getLong(24);
+		stopsCount = buf.getInt(32);
+		int refsCount = buf.getInt(36);
+		int routeIdsCount = buf.getInt(40);
+		int deletedCount = buf.getInt(44);
+		xPos = HEADER_SIZE;
+		yPos = xPos + 4 * stopsCount;
+		idPos = yPos + 4 * stopsCount;
+		refsStartPos = idPos + 8 * stopsCount;
+		refsPos = refsStartPos + 4 * (stopsCount + 1);
+		routeIdsStartPos = refsPos + 4 * refsCount;
+		routeIdsPos = routeIdsStartPos + 4 * (stopsCount + 1);
+		deletedStartPos = routeIdsPos + 8 * routeIdsCount;
+		deletedPos = deletedStartPos + 4 * (stopsCount + 1);
+		flagsPos = deletedPos + 8 * deletedCount;
+	}
+
+	/**
+	 * @return index of obf file of reader stored in directory, index is built if it doesn't exist or is outdated
+	 */
+	public static synchronized TransportStopsIndex getIndex(BinaryMapIndexReader reader, File dir) throws IOException {
+		File obf = reader.getFile();
+		File file = new File(dir, obf.getName() + EXTENSION);
+		TransportStopsIndex index = indexes.get(file.getAbsolutePath());
+		if (index == null || !index.isValid(obf)) {
+			// index of replaced file is not used anymore
+			indexes.remove(file.getAbsolutePath());
+			index = open(file, obf);
+			if (index == null) {
+				long time = System.currentTimeMillis();
+				build(reader, file);
+				index = open(file, obf);
+				if (index == null) {
+					throw new IOException("Transport stops index is not valid " + file.getAbsolutePath());
+				}
+				log.info("Transport stops index " + file.getName() + " (" + index.stopsCount + " stops) is built in "
+						+ (System.currentTimeMillis() - time) + " ms");
+			}
+			indexes.put(file.getAbsolutePath(), index);
+		}
+		return index;
+	}
+
+	/**
+	 * Drops opened indexes of obf file (called when file is closed), mapping is freed once stops readers
+	 * which still use the index are gone.
+	 */
+	public static synchronized void release(File obf) {
+		Iterator<TransportStopsIndex> it = indexes.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().obf.equals(obf)) {
+				it.remove();
+			}
+		}
+	}
+
+	private static TransportStopsIndex open(File file, File obf) throws IOException {
+		if (!file.exists() || file.length() < HEADER_SIZE) {
+			return null;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+				return null;
+			}
+			TransportStopsIndex index = new TransportStopsIndex(buf, obf);
+			return index.isValid(obf) ? index : null;
+		} finally {
+			// mapping stays valid after file is closed
+			raf.close();
+		}
+	}
+
+	private boolean isValid(File obf) {
+		return obf.length() == obfLength && obf.lastModified() == obfModified;
+	}
+
+	public int getStopsCount() {
+		return stopsCount;
+	}
+
+	/**
+	 * Same as {@link BinaryMapIndexReader#searchTransportIndex(SearchRequest)} but stops are without names
+	 * (except missing stops).
+	 */
+	public List<TransportStop> searchTransportIndex(SearchRequest<TransportStop> req) {
+		int lo = 0;
+		int hi = stopsCount;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (buf.getInt(xPos + 4 * mid) < req.left) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		for (int i = lo; i < stopsCount && !req.isCancelled(); i++) {
+			int x = buf.getInt(xPos + 4 * i);
+			if (x > req.right) {
+				break;
+			}
+			int y = buf.getInt(yPos + 4 * i);
+			if (y < req.top || y > req.bottom) {
+				continue;
+			}
+			req.numberOfAcceptedObjects++;
+			TransportStop stop = new TransportStop();
+			stop.setLocation(BinaryMapIndexReader.TRANSPORT_STOP_ZOOM, x, y);
+			stop.setId(buf.getLong(idPos + 8 * i));
+			stop.setReferencesToRoutes(readInts(refsStartPos, refsPos, i));
+			stop.setRoutesIds(readLongs(routeIdsStartPos, routeIdsPos, i));
+			stop.setDeletedRoutesIds(readLongs(deletedStartPos, deletedPos, i));
+			if ((buf.get(flagsPos + i) & FLAG_MISSING_STOP) != 0) {
+				stop.setName(TransportStop.MISSING_STOP_NAME);
+			}
+			req.publish(stop);
+		}
+		return req.getSearchResults();
+	}
+
+	private int[] readInts(int startPos, int pos, int i) {
+		int s = buf.getInt(startPos + 4 * i);
+		int[] res = new int[buf.getInt(startPos + 4 * (i + 1)) - s];
+		for (int k = 0; k < res.length; k++) {
+			res[k] = buf.getInt(pos + 4 * (s + k));
+		}
+		return res;
+	}
+
+	private long[] readLongs(int startPos, int pos, int i) {
+		int s = buf.getInt(startPos + 4 * i);
+		long[] res = new long[buf.getInt(startPos + 4 * (i + 1)) - s];
+		for (int k = 0; k < res.length; k++) {
+			res[k] = buf.getLong(pos + 8 * (s + k));
+		}
+		return res;
+	}
+
+	private static void build(BinaryMapIndexReader reader, File file) throws IOException {
+		List<TransportStop> stops = new ArrayList<TransportStop>();
+		for (TransportIndex ti : reader.getTransportIndexes()) {
+			reader.searchTransportIndex(ti, BinaryMapIndexReader.buildSearchTransportRequest(0, Integer.MAX_VALUE, 0,
+					Integer.MAX_VALUE, -1, stops));
+		}
+		Collections.sort(stops, new Comparator<TransportStop>() {
+			@Override
+			public int compare(TransportStop o1, TransportStop o2) {
+				int c = Integer.compare(o1.x31, o2.x31);
+				return c != 0 ? c : Integer.compare(o1.y31, o2.y31);
+			}
+		});
+		int refsCount = 0;
+		int routeIdsCount = 0;
+		int deletedCount = 0;
+		for (TransportStop s : stops) {
+			refsCount += length(s.getReferencesToRoutes());
+			routeIdsCount += length(s.getRoutesIds());
+			deletedCount += length(s.getDeletedRoutesIds());
+		}
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			// reserved
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeLong(reader.getFile().length());
+			out.writeLong(reader.getFile().lastModified());
+			out.writeInt(stops.size());
+			out.writeInt(refsCount);
+			out.writeInt(routeIdsCount);
+			out.writeInt(deletedCount);
+			for (TransportStop s : stops) {
+				out.writeInt(s.x31 >> SHIFT);
+			}
+			for (TransportStop s : stops) {
+				out.writeInt(s.y31 >> SHIFT);
+			}
+			for (TransportStop s : stops) {
+				out.writeLong(s.getId());
+			}
+			int start = 0;
+			out.writeInt(start);
+			for (TransportStop s : stops) {
+				start += length(s.getReferencesToRoutes());
+				out.writeInt(start);
+			}
+			for (TransportStop s : stops) {
+				if (s.getReferencesToRoutes() != null) {
+					for (int ref : s.getReferencesToRoutes()) {
+						out.writeInt(ref);
+					}
+				}
+			}
+			start = 0;
+			out.writeInt(start);
+			for (TransportStop s : stops) {
+				start += length(s.getRoutesIds());
+				out.writeInt(start);
+			}
+			for (TransportStop s : stops) {
+				if (s.getRoutesIds() != null) {
+					for (long id : s.getRoutesIds()) {
+						out.writeLong(id);
+					}
+				}
+			}
+			start = 0;
+			out.writeInt(start);
+			for (TransportStop s : stops) {
+				start += length(s.getDeletedRoutesIds());
+				out.writeInt(start);
+			}
+			for (TransportStop s : stops) {
+				if (s.getDeletedRoutesIds() != null) {
+					for (long id : s.getDeletedRoutesIds()) {
+						out.writeLong(id);
+					}
+				}
+			}
+			for (TransportStop s : stops) {
+				out.writeByte(s.isMissingStop() ? FLAG_MISSING_STOP : 0);
+			}
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Couldn't replace " + file.getAbsolutePath());
+		}
+		if (!tmp.renameTo(file)) {
+			throw new IOException("Couldn't rename " + tmp.getAbsolutePath());
+		}
+	}
+
+	private static int length(int[] a) {
+		return a == null ? 0 : a.length;
+	}
+
+	private static int length(long[] a) {
+		return a == null ? 0 : a.length;
+	}
+}
@@ -1,15 +1,29 @@
 package net.osmand.router;
 
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.LatLon;
 import net.osmand.osm.MapRenderingTypes;
@@ -31,6 +45,13 @@ public class BinaryRoutePlanner {
 	private static final int ROUTE_POINTS = 11;
 	private static final boolean TRACE_ROUTING = false;
 
+	private static ExecutorService reverseSearchExecutor;
+	// not null while both directions are searched in parallel, guards visited maps
+	private Object visitedLock;
+	// not null while meetings of both directions are published for alternative routes
+	private ResultMatcher<FinalRouteSegment> meetingsMatcher;
+	private float meetingsMaxStretch;
+
 
 	public static double squareRootDist(int x1, int y1, int x2, int y2) {
 		return MapUtils.squareRootDist31(x1, y1, x2, y2);
@@ -38,19 +59,6 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private static class SegmentsComparator implements Comparator<RouteSegment> {
-		final RoutingContext ctx;
-
-		public SegmentsComparator(RoutingContext ctx) {
-			this.ctx = ctx;
-		}
-
-		@Override
-		public int compare(RouteSegment o1, RouteSegment o2) {
-			return ctx.roadPriorityComparator(o1.distanceFromStart, o1.distanceToEnd, o2.distanceFromStart, o2.distanceToEnd);
-		}
-	}
-
 	private static class NonHeuristicSegmentsComparator implements Comparator<RouteSegment> {
 		public NonHeuristicSegmentsComparator() {
 		}
@@ -71,26 +79,350 @@ public class BinaryRoutePlanner {
 		ctx.memoryOverhead = 1000;
 
 		// Initializing priority queue to visit way segments 
-		Comparator<RouteSegment> nonHeuristicSegmentsComparator = new NonHeuristicSegmentsComparator();
-		PriorityQueue<RouteSegment> graphDirectSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
-		PriorityQueue<RouteSegment> graphReverseSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
+		RouteSegmentHeap graphDirectSegments = new RouteSegmentHeap(ctx.config.heuristicCoefficient);
+		RouteSegmentHeap graphReverseSegments;
 
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
 		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		TLongObjectHashMap<RouteSegment> visitedOppositeSegments;
+
+		// kept tree stays in context during search, so its tiles are not evicted (see RoutingContext.unloadUnusedTiles)
+		ReverseSearchTree tree = ctx.reverseSearchTree;
+		if (recalculationEnd == null && tree != null && tree.isValidFor(ctx, end)) {
+			// warm start : continue reverse search of previous calculation with new start
+			graphReverseSegments = tree.graphSegments;
+			visitedOppositeSegments = tree.visitedSegments;
+			updateReverseFrontier(ctx, graphReverseSegments);
+			initQueuesWithStartEnd(ctx, start, end, null, graphDirectSegments, null);
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.reusedReverseSegments += visitedOppositeSegments.size();
+			}
+		} else {
+			ctx.reverseSearchTree = null;
+			graphReverseSegments = new RouteSegmentHeap(ctx.config.heuristicCoefficient);
+			visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+			initQueuesWithStartEnd(ctx, start, end, recalculationEnd, graphDirectSegments, graphReverseSegments);
+		}
+
+		// kept reverse search doesn't stop at meetings with forward search, otherwise next forward search
+		// from other start would have to go around roads which are cut by meetings
+		boolean keepReverseTree = ctx.config.reuseReverseSearchTree && recalculationEnd == null
+				&& ctx.planRouteIn2Directions() && ctx.precalculatedRouteDirection == null;
+		FinalRouteSegment finalSegment;
+		try {
+			if (ctx.config.parallelBidirectionalSearch && ctx.planRouteIn2Directions()
+					&& ctx.precalculatedRouteDirection == null && ctx.visitor == null && meetingsMatcher == null) {
+				finalSegment = searchRouteInParallel(ctx, start, end, graphDirectSegments, graphReverseSegments,
+						visitedDirectSegments, visitedOppositeSegments, keepReverseTree);
+			} else {
+				finalSegment = searchRouteSequentially(ctx, start, end, graphDirectSegments, graphReverseSegments,
+						visitedDirectSegments, visitedOppositeSegments, keepReverseTree);
+			}
+		} finally {
+			ctx.reverseSearchTree = null;
+		}
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
+			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+			ctx.calculationProgress.directQueueSize += graphDirectSegments.size(); // Math.max(ctx.directQueueSize,
+																					// graphDirectSegments.size());
+			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
+			ctx.calculationProgress.updatedQueueSegments += graphDirectSegments.getUpdates() + graphReverseSegments.getUpdates();
+			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+		}
+		if (keepReverseTree) {
+			ctx.reverseSearchTree = new ReverseSearchTree(ctx, end, graphReverseSegments, visitedOppositeSegments);
+		}
+		return finalSegment;
+	}
+
+	/**
+	 * Calculate best route and continue bidirectional search while min(f(x)) of frontier is within maxStretch
+	 * of best route time. Each meeting of forward and reverse search is a route via meeting segment
+	 * (candidate of alternative route) and is published to matcher in order of time, best route first.
+	 * Search stops when matcher is cancelled, so alternatives are found by one search.
+	 * @return final segment of best route, null if route is not found
+	 */
+	FinalRouteSegment searchRouteAlternatives(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
+			float maxStretch, ResultMatcher<FinalRouteSegment> matcher) throws InterruptedException, IOException {
+		meetingsMatcher = matcher;
+		meetingsMaxStretch = maxStretch;
+		try {
+			return searchRouteInternal(ctx, start, end, null);
+		} finally {
+			meetingsMatcher = null;
+		}
+	}
+
+	/**
+	 * Calculate times (seconds) and distances (meters) from start to all targets using one search tree
+	 * (Dijkstra without heuristic). Search doesn't stop at reached target and finishes when all targets are settled.
+	 * Route to target ends at the end of target road segment (time is calculated to the end of segment),
+	 * distance is measured between precise points of start and target. Not reached targets have value -1.
+	 */
+	void searchRouteToTargets(final RoutingContext ctx, RouteSegmentPoint start, List<RouteSegmentPoint> targets,
+			float[] times, float[] distances) throws InterruptedException, IOException {
+		searchRouteToTargets(ctx, start, targets, times, distances, 0, null);
+	}
+
+	/**
+	 * Same as {@link #searchRouteToTargets(RoutingContext, RouteSegmentPoint, List, float[], float[])} though
+	 * segments farther than maxDistance (meters of fastest route, not limited if <= 0) are not expanded.
+	 * @param finalSegments if not null is filled with final segments of reached targets (to prepare route)
+	 */
+	void searchRouteToTargets(final RoutingContext ctx, RouteSegmentPoint start, List<RouteSegmentPoint> targets,
+			float[] times, float[] distances, float maxDistance, FinalRouteSegment[] finalSegments)
+			throws InterruptedException, IOException {
+		Arrays.fill(times, -1);
+		Arrays.fill(distances, -1);
+		// targets are visited segments of opposite direction with zero distance
+		TLongObjectHashMap<RouteSegment> targetSegments = new TLongObjectHashMap<RouteSegment>();
+		int targetsLeft = 0;
+		for (int i = 0; i < targets.size(); i++) {
+			RouteSegmentPoint t = targets.get(i);
+			if (t == null) {
+				continue;
+			}
+			int st = Math.max(t.getSegmentStart(), 1);
+			long fwd = calculateRoutePointId(t.road, st - 1, st);
+			long bwd = calculateRoutePointId(t.road, st, st - 1);
+			TargetSegment ts = (TargetSegment) targetSegments.get(fwd);
+			if (ts == null) {
+				ts = new TargetSegment(t.road, st);
+				targetSegments.put(fwd, ts);
+				targetSegments.put(bwd, ts);
+			}
+			ts.targets.add(i);
+			targetsLeft++;
+		}
+		if (targetsLeft == 0) {
+			return;
+		}
+		PrecalculatedRouteDirection precalculatedRouteDirection = ctx.precalculatedRouteDirection;
+		ctx.precalculatedRouteDirection = null;
+		try {
+			RouteSegmentHeap graphSegments = new RouteSegmentHeap(0);
+			TLongObjectHashMap<RouteSegment> visitedSegments = new TLongObjectHashMap<RouteSegment>();
+			Map<RouteSegment, Float> startDistances = new IdentityHashMap<RouteSegment, Float>();
+			RouteSegment startPos = initRouteSegment(ctx, start, true);
+			RouteSegment startNeg = initRouteSegment(ctx, start, false);
+			if (startPos != null) {
+				// route starts from the end of start segment, part before precise start point is not passed
+				startDistances.put(startPos, -preciseDistance(start, startPos.getSegmentStart()));
+				graphSegments.push(startPos);
+			}
+			if (startNeg != null) {
+				startDistances.put(startNeg, -preciseDistance(start, startNeg.getSegmentStart()));
+				graphSegments.push(startNeg);
+			}
+			while (!graphSegments.isEmpty() && targetsLeft > 0) {
+				RouteSegment segment = graphSegments.poll();
+				if (segment instanceof FinalRouteSegment) {
+					TIntArrayList reached = ((TargetSegment) ((FinalRouteSegment) segment).opposite).targets;
+					for (int k = 0; k < reached.size(); k++) {
+						int ind = reached.get(k);
+						if (times[ind] < 0) {
+							times[ind] = segment.distanceFromStart;
+							distances[ind] = Math.max(0, getStartDistance(segment, startDistances)
+									- preciseDistance(targets.get(ind), segment.getSegmentStart()));
+							if (finalSegments != null) {
+								finalSegments[ind] = (FinalRouteSegment) segment;
+							}
+							targetsLeft--;
+						}
+					}
+					continue;
+				}
+				if (maxDistance > 0 && getStartDistance(segment, startDistances) > maxDistance) {
+					continue;
+				}
+				ctx.memoryOverhead = visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+						+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+					throw new IllegalStateException("There is not enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+				}
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+				}
+				// search continues through targets (visited segments of opposite direction)
+				processRouteSegment(ctx, false, graphSegments, visitedSegments, segment, targetSegments, false, true);
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+			}
+		} finally {
+			ctx.precalculatedRouteDirection = precalculatedRouteDirection;
+		}
+	}
+
+	/**
+	 * Expand search from start (Dijkstra without heuristic) and collect road segments reachable within budget.
+	 * @param maxTime time budget in seconds (not limited if <= 0)
+	 * @param maxDistance distance budget in meters of fastest route (not limited if <= 0)
+	 */
+	RouteReachableArea searchReachableArea(final RoutingContext ctx, RouteSegmentPoint start, float maxTime,
+			float maxDistance) throws InterruptedException, IOException {
+		float timeLimit = maxTime > 0 ? maxTime : Float.POSITIVE_INFINITY;
+		float distanceLimit = maxDistance > 0 ? maxDistance : Float.POSITIVE_INFINITY;
+		PrecalculatedRouteDirection precalculatedRouteDirection = ctx.precalculatedRouteDirection;
+		ctx.precalculatedRouteDirection = null;
+		RouteSegmentHeap graphSegments = new RouteSegmentHeap(0);
+		TLongObjectHashMap<RouteSegment> visitedSegments = new TLongObjectHashMap<RouteSegment>();
+		TLongObjectHashMap<RouteSegment> noOpposite = new TLongObjectHashMap<RouteSegment>();
+		// distance of fastest route to segment start
+		Map<RouteSegment, Float> startDistances = new IdentityHashMap<RouteSegment, Float>();
+		try {
+			RouteSegment startPos = initRouteSegment(ctx, start, true);
+			RouteSegment startNeg = initRouteSegment(ctx, start, false);
+			if (startPos != null) {
+				graphSegments.push(startPos);
+			}
+			if (startNeg != null) {
+				graphSegments.push(startNeg);
+			}
+			while (!graphSegments.isEmpty()) {
+				RouteSegment segment = graphSegments.poll();
+				if (segment.distanceFromStart > timeLimit) {
+					// segments are polled in order of time
+					break;
+				}
+				if (maxDistance > 0 && getStartDistance(segment, startDistances) > distanceLimit) {
+					continue;
+				}
+				ctx.memoryOverhead = visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+						+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+					throw new IllegalStateException("There is not enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+				}
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+				}
+				processRouteSegment(ctx, false, graphSegments, visitedSegments, segment, noOpposite, false, false);
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+			}
+			RouteReachableArea area = new RouteReachableArea(maxTime, maxDistance);
+			// each visited interval is stored with segment it was reached from
+			Set<RouteSegment> segments = Collections.newSetFromMap(new IdentityHashMap<RouteSegment, Boolean>());
+			for (RouteSegment s : visitedSegments.valueCollection()) {
+				if (segments.add(s)) {
+					addReachableSegment(ctx, area, s, visitedSegments, getStartDistance(s, startDistances),
+							timeLimit, distanceLimit);
+				}
+			}
+			return area;
+		} finally {
+			ctx.precalculatedRouteDirection = precalculatedRouteDirection;
+		}
+	}
+
+	private void addReachableSegment(RoutingContext ctx, RouteReachableArea area, RouteSegment s,
+			TLongObjectHashMap<RouteSegment> visitedSegments, float startDistance, float timeLimit, float distanceLimit) {
+		if (s.distanceFromStart > timeLimit || startDistance > distanceLimit) {
+			return;
+		}
+		RouteDataObject road = s.getRoad();
+		boolean dir = s.isPositive();
+		int inc = dir ? 1 : -1;
+		float[] times = new float[road.getPointsLength()];
+		float[] distances = new float[road.getPointsLength()];
+		int size = 0;
+		times[size] = s.distanceFromStart;
+		distances[size++] = startDistance;
+		float segmentDist = 0;
+		float obstaclesTime = 0;
+		int end = s.getSegmentStart();
+		for (int prev = s.getSegmentStart(), pnt = prev + inc; pnt >= 0 && pnt < road.getPointsLength(); prev = pnt, pnt += inc) {
+			// interval belongs to other (faster) segment
+			if (visitedSegments.get(calculateRoutePointId(road, prev, pnt)) != s) {
+				break;
+			}
+			segmentDist += squareRootDist(road.getPoint31XTile(prev), road.getPoint31YTile(prev),
+					road.getPoint31XTile(pnt), road.getPoint31YTile(pnt));
+			double obstacle = ctx.getRouter().defineRoutingObstacle(road, pnt, dir);
+			double heightObstacle = ctx.getRouter().defineHeightObstacle(road, (short) prev, (short) pnt);
+			if (obstacle < 0 || heightObstacle < 0) {
+				break;
+			}
+			obstaclesTime += obstacle + heightObstacle;
+			float time = s.distanceFromStart + calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime);
+			if (time > timeLimit || startDistance + segmentDist > distanceLimit) {
+				break;
+			}
+			times[size] = time;
+			distances[size++] = startDistance + segmentDist;
+			end = pnt;
+		}
+		if (end != s.getSegmentStart()) {
+			area.addSegment(new RouteReachableArea.ReachableSegment(road, s.getSegmentStart(), end,
+					Arrays.copyOf(times, size), Arrays.copyOf(distances, size)));
+		}
+	}
+
+	private static float getStartDistance(RouteSegment segment, Map<RouteSegment, Float> startDistances) {
+		List<RouteSegment> chain = new ArrayList<RouteSegment>();
+		RouteSegment s = segment;
+		Float dist = 0f;
+		while (s != null) {
+			Float d = startDistances.get(s);
+			if (d != null) {
+				dist = d;
+				break;
+			}
+			chain.add(s);
+			s = s.getParentRoute();
+		}
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			RouteSegment c = chain.get(i);
+			RouteSegment parent = c.getParentRoute();
+			if (parent != null) {
+				dist += roadDistance(parent.getRoad(), parent.getSegmentStart(), c.getParentSegmentEnd());
+			}
+			startDistances.put(c, dist);
+		}
+		return dist;
+	}
 
-		initQueuesWithStartEnd(ctx, start, end, recalculationEnd, graphDirectSegments, graphReverseSegments, 
-				visitedDirectSegments, visitedOppositeSegments);
+	private static float preciseDistance(RouteSegmentPoint p, int ind) {
+		return (float) squareRootDist(p.preciseX, p.preciseY, p.getRoad().getPoint31XTile(ind),
+				p.getRoad().getPoint31YTile(ind));
+	}
 
+	private static float roadDistance(RouteDataObject road, int from, int to) {
+		double dist = 0;
+		int inc = to >= from ? 1 : -1;
+		for (int i = from; i != to; i += inc) {
+			dist += squareRootDist(road.getPoint31XTile(i), road.getPoint31YTile(i),
+					road.getPoint31XTile(i + inc), road.getPoint31YTile(i + inc));
+		}
+		return (float) dist;
+	}
+
+	private FinalRouteSegment searchRouteSequentially(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
+			RouteSegmentHeap graphDirectSegments, RouteSegmentHeap graphReverseSegments,
+			TLongObjectHashMap<RouteSegment> visitedDirectSegments, TLongObjectHashMap<RouteSegment> visitedOppositeSegments,
+			boolean keepReverseTree) throws InterruptedException, IOException {
+		Comparator<RouteSegment> nonHeuristicSegmentsComparator = new NonHeuristicSegmentsComparator();
 		// Extract & analyze segment with min(f(x)) from queue while final segment is not found
 		boolean forwardSearch = true;
 
-		PriorityQueue<RouteSegment> graphSegments = graphDirectSegments;
+		RouteSegmentHeap graphSegments = graphDirectSegments;
 
 		FinalRouteSegment finalSegment = null;
 		boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
 		boolean onlyForward = ctx.getPlanRoadDirection() > 0;
+		float maxMeetingTime = Float.POSITIVE_INFINITY;
 		while (!graphSegments.isEmpty()) {
+			if (finalSegment != null && graphSegments.peekKey() > maxMeetingTime) {
+				// collect meetings of alternative routes until both frontiers exceed max time
+				RouteSegmentHeap other = forwardSearch ? graphReverseSegments : graphDirectSegments;
+				if (other.peekKey() > maxMeetingTime) {
+					break;
+				}
+				forwardSearch = !forwardSearch;
+				graphSegments = other;
+			}
 			RouteSegment segment = graphSegments.poll();
 			// use accumulative approach
 			ctx.memoryOverhead = (visitedDirectSegments.size() + visitedOppositeSegments.size()) * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -107,12 +439,25 @@ public class BinaryRoutePlanner {
 					log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
 					printMemoryConsumption("Memory occupied after calculation : ");
 				}
-				finalSegment = (FinalRouteSegment) segment;
 				if (TRACE_ROUTING) {
 					println("Final segment found");
 				}
-				break;
+				if (meetingsMatcher == null) {
+					finalSegment = (FinalRouteSegment) segment;
+					break;
+				}
+				if (finalSegment == null) {
+					finalSegment = (FinalRouteSegment) segment;
+					maxMeetingTime = finalSegment.distanceFromStart * meetingsMaxStretch;
+				}
+				meetingsMatcher.publish((FinalRouteSegment) segment);
+				if (meetingsMatcher.isCancelled()) {
+					break;
+				}
+				continue;
 			}
+			ctx.setFrontier(!forwardSearch, segment.getRoad().getPoint31XTile(segment.getSegmentStart()),
+					segment.getRoad().getPoint31YTile(segment.getSegmentStart()));
 			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95 && RoutingContext.SHOW_GC_SIZE) {
 				printMemoryConsumption("Memory occupied before exception : ");
 			}
@@ -125,22 +470,29 @@ public class BinaryRoutePlanner {
 			if (forwardSearch) {
 				boolean doNotAddIntersections = onlyBackward;
 				processRouteSegment(ctx, false, graphDirectSegments, visitedDirectSegments,
-						segment, visitedOppositeSegments, doNotAddIntersections);
+						segment, visitedOppositeSegments, doNotAddIntersections, false);
 			} else {
 				boolean doNotAddIntersections = onlyForward;
 				processRouteSegment(ctx, true, graphReverseSegments, visitedOppositeSegments, segment,
-						visitedDirectSegments, doNotAddIntersections);
+						visitedDirectSegments, doNotAddIntersections, keepReverseTree);
 			}
 			updateCalculationProgress(ctx, graphDirectSegments, graphReverseSegments);
 
-			checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() <= 0, graphReverseSegments, end, visitedOppositeSegments,
-					"Route is not found to selected target point.");
-			checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() >= 0, graphDirectSegments, start, visitedDirectSegments,
-					"Route is not found from selected start point.");
+			// kept reverse search continues through meetings and could visit all roads to target,
+			// then forward search continues alone until it meets them
+			boolean reverseCompleted = keepReverseTree && graphReverseSegments.isEmpty();
+			if (finalSegment == null) {
+				checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() <= 0 && !reverseCompleted, graphReverseSegments, end,
+						visitedOppositeSegments, "Route is not found to selected target point.");
+				checkIfGraphIsEmpty(ctx, ctx.getPlanRoadDirection() >= 0, graphDirectSegments, start, visitedDirectSegments,
+						"Route is not found from selected start point.");
+			}
 			if (ctx.planRouteIn2Directions()) {
-				if (graphDirectSegments.isEmpty() || graphReverseSegments.isEmpty()) {
+				if (graphDirectSegments.isEmpty() || (graphReverseSegments.isEmpty() && !reverseCompleted)) {
 					// can't proceed - so no route
 					break;
+				} else if (reverseCompleted) {
+					forwardSearch = true;
 				} else {
 					forwardSearch = nonHeuristicSegmentsComparator.compare(graphDirectSegments.peek(), graphReverseSegments.peek()) <= 0;
 				}
@@ -170,19 +522,180 @@ public class BinaryRoutePlanner {
 				throw new InterruptedException("Route calculation interrupted");
 			}
 		}
+		return finalSegment;
+	}
+
+	/**
+	 * Expands reverse frontier on a separate thread. Each direction pushes final segments to its own queue
+	 * when it meets visited segment of opposite direction and stops when min(f(x)) of its queue
+	 * is not better than the best meeting found by any direction.
+	 */
+	private FinalRouteSegment searchRouteInParallel(final RoutingContext ctx, final RouteSegmentPoint start,
+			final RouteSegmentPoint end, final RouteSegmentHeap graphDirectSegments,
+			final RouteSegmentHeap graphReverseSegments, final TLongObjectHashMap<RouteSegment> visitedDirectSegments,
+			final TLongObjectHashMap<RouteSegment> visitedOppositeSegments, final boolean keepReverseTree)
+			throws InterruptedException, IOException {
+		visitedLock = new Object();
+		final MeetingPoint meeting = new MeetingPoint();
+		Future<Integer> reverse = getReverseSearchExecutor().submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return searchOneDirection(ctx, true, end, graphReverseSegments, graphDirectSegments, visitedOppositeSegments,
+						visitedDirectSegments, meeting, keepReverseTree, "Route is not found to selected target point.");
+			}
+		});
+		boolean forwardCompleted = false;
+		int visited;
+		try {
+			visited = searchOneDirection(ctx, false, start, graphDirectSegments, graphReverseSegments, visitedDirectSegments,
+					visitedOppositeSegments, meeting, false, "Route is not found from selected start point.");
+			forwardCompleted = true;
+		} finally {
+			if (!forwardCompleted) {
+				meeting.stopped = true;
+			}
+		}
+		try {
+			visited += reverse.get();
+		} catch (ExecutionException e) {
+			Throwable t = e.getCause();
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			} else if (t instanceof InterruptedException) {
+				throw (InterruptedException) t;
+			} else if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw new IllegalStateException(t);
+		} finally {
+			visitedLock = null;
+		}
 		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
-			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
-			ctx.calculationProgress.directQueueSize += graphDirectSegments.size(); // Math.max(ctx.directQueueSize,
-																					// graphDirectSegments.size());
-			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
-			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+			ctx.calculationProgress.visitedSegments += visited;
+			meeting.copyReverseProgress(ctx.calculationProgress);
+		}
+		if (meeting.best != null && RoutingContext.SHOW_GC_SIZE) {
+			log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
+			printMemoryConsumption("Memory occupied after calculation : ");
+		}
+		return meeting.best;
+	}
+
+	/**
+	 * Context and calculation progress are updated only by forward direction, reverse direction publishes its
+	 * progress to meeting point.
+	 * @return number of visited segments
+	 */
+	private int searchOneDirection(final RoutingContext ctx, boolean reverseWaySearch, RouteSegmentPoint pnt,
+			RouteSegmentHeap graphSegments, RouteSegmentHeap oppositeGraphSegments, TLongObjectHashMap<RouteSegment> visitedSegments,
+			TLongObjectHashMap<RouteSegment> oppositeSegments, MeetingPoint meeting, boolean continueThroughOpposite,
+			String msg)
+			throws InterruptedException, IOException {
+		int visited = 0;
+		while (!meeting.stopped) {
+			if (graphSegments.isEmpty() && (meeting.best != null || continueThroughOpposite
+					|| !oppositeGraphSegments.isEmpty())) {
+				// opposite direction could still meet visited segments of this direction (it pushes final segments
+				// to its own queue), kept reverse search could visit all roads to target before forward search meets it
+				break;
+			}
+			checkIfGraphIsEmpty(ctx, true, graphSegments, pnt, visitedSegments, msg);
+			if (graphSegments.isEmpty()) {
+				if (meeting.best == null) {
+					// can't proceed - so no route
+					meeting.stopped = true;
+				}
+				break;
+			}
+			FinalRouteSegment best = meeting.best;
+			if (best != null && graphSegments.peekKey() >= best.distanceFromStart) {
+				break;
+			}
+			RouteSegment segment = graphSegments.poll();
+			if (TRACE_ROUTING) {
+				printRoad(">", segment, reverseWaySearch);
+			}
+			if (segment instanceof FinalRouteSegment) {
+				meeting.offer((FinalRouteSegment) segment);
+				if (TRACE_ROUTING) {
+					println("Final segment found");
+				}
+				continue;
+			}
+			ctx.setFrontier(reverseWaySearch, segment.getRoad().getPoint31XTile(segment.getSegmentStart()),
+					segment.getRoad().getPoint31YTile(segment.getSegmentStart()));
+			// sizes of opposite direction are read without lock (estimation)
+			int memoryOverhead = (visitedSegments.size() + oppositeSegments.size()) * STANDARD_ROAD_VISITED_OVERHEAD
+					+ (graphSegments.size() + oppositeGraphSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			if (!reverseWaySearch) {
+				ctx.memoryOverhead = memoryOverhead;
+			}
+			if (memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+				throw new IllegalStateException("There is not enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+			}
+			processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment, oppositeSegments, false,
+					continueThroughOpposite);
+			visited++;
+			if (reverseWaySearch) {
+				meeting.updateReverseProgress(graphSegments);
+			} else if (ctx.calculationProgress != null) {
+				updateDirectCalculationProgress(ctx, graphSegments);
+				meeting.copyReverseProgress(ctx.calculationProgress);
+			}
+			// check if interrupted
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+		return visited;
+	}
+
+	private static synchronized ExecutorService getReverseSearchExecutor() {
+		if (reverseSearchExecutor == null) {
+			reverseSearchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Reverse route search");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return reverseSearchExecutor;
+	}
+
+	private static class MeetingPoint {
+		volatile boolean stopped;
+		volatile FinalRouteSegment best;
+		// progress of reverse direction (copied to calculation progress by forward direction)
+		volatile int reverseQueueSize;
+		volatile float reverseDistance;
+
+		synchronized void offer(FinalRouteSegment segment) {
+			if (best == null || segment.distanceFromStart < best.distanceFromStart) {
+				best = segment;
+			}
+		}
+
+		void updateReverseProgress(RouteSegmentHeap graphSegments) {
+			reverseQueueSize = graphSegments.size();
+			RouteSegment peek = graphSegments.peek();
+			if (peek != null) {
+				reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+			}
+		}
+
+		void copyReverseProgress(RouteCalculationProgress progress) {
+			progress.reverseSegmentQueueSize = reverseQueueSize;
+			progress.reverseDistance = reverseDistance;
+			progress.distanceFromEnd = Math.max(reverseDistance, progress.distanceFromEnd);
 		}
-		return finalSegment;
 	}
 
 	protected void checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			PriorityQueue<RouteSegment> graphSegments, RouteSegmentPoint pnt, TLongObjectHashMap<RouteSegment> visited,
+			RouteSegmentHeap graphSegments, RouteSegmentPoint pnt, TLongObjectHashMap<RouteSegment> visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -205,11 +718,11 @@ public class BinaryRoutePlanner {
 						RouteSegment neg = next.initRouteSegment(false);
 						if (pos != null) {
 							pos.distanceToEnd = estimatedDistance;
-							graphSegments.add(pos);
+							graphSegments.push(pos);
 						}
 						if (neg != null) {
 							neg.distanceToEnd = estimatedDistance;
-							graphSegments.add(neg);
+							graphSegments.push(neg);
 						}
 						println("Reiterate point with new start/destination " + next.getRoad());
 						break;
@@ -252,13 +765,61 @@ public class BinaryRoutePlanner {
 	}
 
 
+	/**
+	 * Reverse search state kept in context after calculation, so next calculation to the same target
+	 * (recalculation after deviation) needs only forward search from new start that joins kept tree.
+	 * Tiles of visited segments are pinned while tree is kept.
+	 */
+	static class ReverseSearchTree {
+		final VehicleRouter router;
+		final long targetRoadId;
+		final int targetSegmentInd;
+		final RouteSegmentHeap graphSegments;
+		final TLongObjectHashMap<RouteSegment> visitedSegments;
+		final TLongHashSet tileIds = new TLongHashSet();
+
+		ReverseSearchTree(RoutingContext ctx, RouteSegment end, RouteSegmentHeap graphSegments,
+				TLongObjectHashMap<RouteSegment> visitedSegments) {
+			this.router = ctx.getRouter();
+			this.targetRoadId = end.getRoad().getId();
+			this.targetSegmentInd = end.getSegmentStart();
+			this.graphSegments = graphSegments;
+			this.visitedSegments = visitedSegments;
+			for (RouteSegment s : visitedSegments.valueCollection()) {
+				tileIds.add(ctx.getRoutingTileId(s.getRoad().getPoint31XTile(s.getSegmentStart()),
+						s.getRoad().getPoint31YTile(s.getSegmentStart())));
+			}
+		}
+
+		boolean isValidFor(RoutingContext ctx, RouteSegment end) {
+			return router == ctx.getRouter() && targetRoadId == end.getRoad().getId()
+					&& targetSegmentInd == end.getSegmentStart() && ctx.planRouteIn2Directions()
+					&& ctx.precalculatedRouteDirection == null;
+		}
+	}
+
+	// estimates of reverse frontier are calculated to previous start
+	private void updateReverseFrontier(final RoutingContext ctx, RouteSegmentHeap graphReverseSegments) {
+		List<RouteSegment> frontier = new ArrayList<RouteSegment>(graphReverseSegments.size());
+		while (!graphReverseSegments.isEmpty()) {
+			frontier.add(graphReverseSegments.poll());
+		}
+		for (RouteSegment s : frontier) {
+			// final segments were joined with previous forward search
+			if (!(s instanceof FinalRouteSegment)) {
+				s.distanceToEnd = h(ctx, s.getRoad().getPoint31XTile(s.getSegmentStart()),
+						s.getRoad().getPoint31YTile(s.getSegmentStart()), ctx.startX, ctx.startY);
+				graphReverseSegments.push(s, calculateRoutePointId(s));
+			}
+		}
+	}
+
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegment start, RouteSegment end,
-			RouteSegment recalculationEnd, PriorityQueue<RouteSegment> graphDirectSegments, PriorityQueue<RouteSegment> graphReverseSegments, 
-			TLongObjectHashMap<RouteSegment> visitedDirectSegments, TLongObjectHashMap<RouteSegment> visitedOppositeSegments) {
+			RouteSegment recalculationEnd, RouteSegmentHeap graphDirectSegments, RouteSegmentHeap graphReverseSegments) {
 		RouteSegment startPos = initRouteSegment(ctx, start, true);
 		RouteSegment startNeg = initRouteSegment(ctx, start, false);
-		RouteSegment endPos = initRouteSegment(ctx, end, true);
-		RouteSegment endNeg = initRouteSegment(ctx, end, false);
+		RouteSegment endPos = graphReverseSegments == null ? null : initRouteSegment(ctx, end, true);
+		RouteSegment endNeg = graphReverseSegments == null ? null : initRouteSegment(ctx, end, false);
 		// for start : f(start) = g(start) + h(start) = 0 + h(start) = h(start)
 		if (ctx.config.initialDirection != null) {
 			// mark here as positive for further check
@@ -281,22 +842,24 @@ public class BinaryRoutePlanner {
 		float estimatedDistance = (float) estimatedDistance(ctx, ctx.targetX, ctx.targetY, ctx.startX, ctx.startY);
 		if (startPos != null) {
 			startPos.distanceToEnd = estimatedDistance;
-			graphDirectSegments.add(startPos);
+			graphDirectSegments.push(startPos);
 		}
 		if (startNeg != null) {
 			startNeg.distanceToEnd = estimatedDistance;
-			graphDirectSegments.add(startNeg);
+			graphDirectSegments.push(startNeg);
 		}
-		if (recalculationEnd != null) {
-			graphReverseSegments.add(recalculationEnd);
+		if (graphReverseSegments == null) {
+			// reverse search is continued
+		} else if (recalculationEnd != null) {
+			graphReverseSegments.push(recalculationEnd);
 		} else {
 			if (endPos != null) {
 				endPos.distanceToEnd = estimatedDistance;
-				graphReverseSegments.add(endPos);
+				graphReverseSegments.push(endPos);
 			}
 			if (endNeg != null) {
 				endNeg.distanceToEnd = estimatedDistance;
-				graphReverseSegments.add(endNeg);
+				graphReverseSegments.push(endNeg);
 			}
 		}
 		if (TRACE_ROUTING) {
@@ -315,8 +878,18 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegment> graphDirectSegments,
-			PriorityQueue<RouteSegment> graphReverseSegments) {
+	private void updateDirectCalculationProgress(final RoutingContext ctx, RouteSegmentHeap graphSegments) {
+		ctx.calculationProgress.directSegmentQueueSize = graphSegments.size();
+		RouteSegment peek = graphSegments.peek();
+		if (peek != null) {
+			ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
+					ctx.calculationProgress.distanceFromBegin);
+			ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
+		}
+	}
+
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentHeap graphDirectSegments,
+			RouteSegmentHeap graphReverseSegments) {
 		if (ctx.calculationProgress != null) {
 			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
 			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
@@ -391,9 +964,16 @@ public class BinaryRoutePlanner {
 					+ maxLoadedTiles);
 			printInfo("Loaded tiles " + p.loadedTiles + " (distinct " + p.distinctLoadedTiles + "), unloaded tiles "
 					+ p.unloadedTiles + ", loaded more than once same tiles " + p.loadedPrevUnloadedTiles);
+			printInfo(String.format("Tiles memory: current %.1f MB, maximum %.1f MB, reloaded %d (policy %s)",
+					p.loadedTilesSize / (double) (1 << 20), p.maxLoadedTilesSize / (double) (1 << 20),
+					p.reloadedTiles, ctx.config.tileEvictionPolicy));
 			printInfo("Visited segments: " + ctx.getVisitedSegments() + ", relaxed roads " + p.relaxedSegments);
-			printInfo("Priority queues sizes : " + p.directQueueSize + "/" + p.oppositeQueueSize);
+			printInfo("Priority queues sizes : " + p.directQueueSize + "/" + p.oppositeQueueSize + ", updated in queues "
+					+ p.updatedQueueSegments);
 			printInfo("Visited interval sizes: " + p.visitedDirectSegments + "/" + p.visitedOppositeSegments);
+			if (p.reusedReverseSegments > 0) {
+				printInfo("Reused visited intervals of previous reverse search: " + p.reusedReverseSegments);
+			}
 		}
 
 	}
@@ -401,8 +981,9 @@ public class BinaryRoutePlanner {
 
 	@SuppressWarnings("unused")
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments, 
-            RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments, boolean doNotAddIntersections) throws IOException {
+			RouteSegmentHeap graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments, 
+            RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments, boolean doNotAddIntersections,
+            boolean continueThroughOpposite) throws IOException {
 		final RouteDataObject road = segment.road;
 		boolean initDirectionAllowed = checkIfInitialMovementAllowedOnSegment(ctx, reverseWaySearch, visitedSegments, segment, road);
 		if (TEST_SPECIFIC && road.getId() >> 6 == TEST_ID) {
@@ -439,10 +1020,7 @@ public class BinaryRoutePlanner {
 			// store <segment> in order to not have unique <segment, direction> in visitedSegments
 			long nextPntId = calculateRoutePointId(segment.getRoad(), prevSegmentPoint, segmentPoint);
 			RouteSegment toInsert = previous != null ? previous : segment;
-			RouteSegment existingSegment = visitedSegments.put(nextPntId, toInsert);
-			if (existingSegment != null && toInsert.distanceFromStart > existingSegment.distanceFromStart) {
-				// insert back original segment (test case with large area way)
-				visitedSegments.put(nextPntId, existingSegment);
+			if (!markVisited(visitedSegments, nextPntId, toInsert)) {
 				directionAllowed = false;
 				break;
 			}
@@ -475,7 +1053,7 @@ public class BinaryRoutePlanner {
 					prevSegmentPoint, segmentPoint, segmentDist, obstaclesTime);
 			obstaclesTime += obstacle;
 			obstaclesTime += heightObstacle;
-			if (alreadyVisited) {
+			if (alreadyVisited && !continueThroughOpposite) {
 				directionAllowed = false;
 				break;
 			}
@@ -515,6 +1093,36 @@ public class BinaryRoutePlanner {
 		}
 	}
 
+	private boolean markVisited(TLongObjectHashMap<RouteSegment> visitedSegments, long pntId, RouteSegment toInsert) {
+		Object lock = visitedLock;
+		if (lock != null) {
+			synchronized (lock) {
+				return putVisited(visitedSegments, pntId, toInsert);
+			}
+		}
+		return putVisited(visitedSegments, pntId, toInsert);
+	}
+
+	private boolean putVisited(TLongObjectHashMap<RouteSegment> visitedSegments, long pntId, RouteSegment toInsert) {
+		RouteSegment existingSegment = visitedSegments.put(pntId, toInsert);
+		if (existingSegment != null && toInsert.distanceFromStart > existingSegment.distanceFromStart) {
+			// insert back original segment (test case with large area way)
+			visitedSegments.put(pntId, existingSegment);
+			return false;
+		}
+		return true;
+	}
+
+	private RouteSegment getOppositeVisited(TLongObjectHashMap<RouteSegment> oppositeSegments, long pntId) {
+		Object lock = visitedLock;
+		if (lock != null) {
+			synchronized (lock) {
+				return oppositeSegments.get(pntId);
+			}
+		}
+		return oppositeSegments.get(pntId);
+	}
+
 	private boolean checkIfInitialMovementAllowedOnSegment(final RoutingContext ctx, boolean reverseWaySearch,
 			TLongObjectHashMap<RouteSegment> visitedSegments, RouteSegment segment, final RouteDataObject road) {
 		boolean directionAllowed;
@@ -578,12 +1186,12 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegment> graphSegments, RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments,
+			RouteSegmentHeap graphSegments, RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments,
 			int prevSegmentPoint, int segmentPoint, float segmentDist, float obstaclesTime) {
 		RouteDataObject road = segment.getRoad();
 		long opp = calculateRoutePointId(road, segmentPoint, prevSegmentPoint);
-		if (oppositeSegments.containsKey(opp)) {
-			RouteSegment opposite = oppositeSegments.get(opp);
+		RouteSegment opposite = getOppositeVisited(oppositeSegments, opp);
+		if (opposite != null) {
 			RouteSegment to = reverseWaySearch ? getParentDiffId(segment) : getParentDiffId(opposite);
 			RouteSegment from = !reverseWaySearch ? getParentDiffId(segment) : getParentDiffId(opposite);
 			if (checkViaRestrictions(from, to)) {
@@ -596,7 +1204,7 @@ public class BinaryRoutePlanner {
 				frs.distanceFromStart = opposite.distanceFromStart + distStartObstacles;
 				frs.distanceToEnd = 0;
 				frs.opposite = opposite;
-				graphSegments.add(frs);
+				graphSegments.push(frs);
 				if (TRACE_ROUTING) {
 					printRoad("  >> Final segment : ", frs, reverseWaySearch);
 				}
@@ -646,8 +1254,8 @@ public class BinaryRoutePlanner {
 				(parent == null || parent.getRoad().getRestrictionLength() == 0)) {
 			return false;
 		}
-		ctx.segmentsToVisitPrescripted.clear();
-		ctx.segmentsToVisitNotForbidden.clear();
+		getSegmentsToVisitPrescripted(ctx, reverseWay).clear();
+		getSegmentsToVisitNotForbidden(ctx, reverseWay).clear();
 		processRestriction(ctx, inputNext, reverseWay, 0, road);
 		if (parent != null) {
 			processRestriction(ctx, inputNext, reverseWay, road.id, parent.getRoad());
@@ -656,8 +1264,18 @@ public class BinaryRoutePlanner {
 	}
 
 
+	private static List<RouteSegment> getSegmentsToVisitPrescripted(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitPrescripted : ctx.segmentsToVisitPrescripted;
+	}
+
+	private static List<RouteSegment> getSegmentsToVisitNotForbidden(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitNotForbidden : ctx.segmentsToVisitNotForbidden;
+	}
+
 	protected void processRestriction(RoutingContext ctx, RouteSegment inputNext, boolean reverseWay, long viaId,
 			RouteDataObject road) {
+		List<RouteSegment> segmentsToVisitPrescripted = getSegmentsToVisitPrescripted(ctx, reverseWay);
+		List<RouteSegment> segmentsToVisitNotForbidden = getSegmentsToVisitNotForbidden(ctx, reverseWay);
 		boolean via = viaId != 0;
 		RouteSegment next = inputNext;
 		boolean exclusiveRestriction = false;
@@ -720,11 +1338,11 @@ public class BinaryRoutePlanner {
 					|| type == MapRenderingTypes.RESTRICTION_NO_STRAIGHT_ON || type == MapRenderingTypes.RESTRICTION_NO_U_TURN) {
 				// next = next.next; continue;
 				if (via) {
-					ctx.segmentsToVisitPrescripted.remove(next);
+					segmentsToVisitPrescripted.remove(next);
 				}
 			} else if (type == -1) {
 				// case no restriction
-				ctx.segmentsToVisitNotForbidden.add(next);
+				segmentsToVisitNotForbidden.add(next);
 			} else {
 				if (!via) {
 					// case exclusive restriction (only_right, only_straight, ...)
@@ -733,22 +1351,22 @@ public class BinaryRoutePlanner {
 					// 2. in case we are going forward we have one "in" and many "out"
 					if (!reverseWay) {
 						exclusiveRestriction = true;
-						ctx.segmentsToVisitNotForbidden.clear();
-						ctx.segmentsToVisitPrescripted.add(next);
+						segmentsToVisitNotForbidden.clear();
+						segmentsToVisitPrescripted.add(next);
 					} else {
-						ctx.segmentsToVisitNotForbidden.add(next);
+						segmentsToVisitNotForbidden.add(next);
 					}
 				}
 			}
 			next = next.next;
 		}
 		if (!via) {
-			ctx.segmentsToVisitPrescripted.addAll(ctx.segmentsToVisitNotForbidden);
+			segmentsToVisitPrescripted.addAll(segmentsToVisitNotForbidden);
 		}
 	}
 
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
+	private RouteSegment processIntersections(RoutingContext ctx, RouteSegmentHeap graphSegments,
 			TLongObjectHashMap<RouteSegment> visitedSegments,  float distFromStart, RouteSegment segment,
 			short segmentPoint, RouteSegment inputNext, boolean reverseWaySearch, boolean doNotAddIntersections, 
 			boolean[] processFurther) {
@@ -761,7 +1379,7 @@ public class BinaryRoutePlanner {
 		} else {
 			thereAreRestrictions = proccessRestrictions(ctx, segment, inputNext, reverseWaySearch);
 			if (thereAreRestrictions) {
-				nextIterator = ctx.segmentsToVisitPrescripted.iterator();
+				nextIterator = getSegmentsToVisitPrescripted(ctx, reverseWaySearch).iterator();
 				if (TRACE_ROUTING) {
 					println("  >> There are restrictions");
 				}
@@ -783,15 +1401,24 @@ public class BinaryRoutePlanner {
 				// find segment itself  
 				// (and process it as other with small exception that we don't add to graph segments and process immediately)
 				itself = next.initRouteSegment(segment.isPositive());
+				RouteSegment queued = itself == null ? null : graphSegments.get(calculateRoutePointId(itself));
 				if (itself == null) {
 					// do nothing
+				} else if (queued != null && roadPriorityComparator(queued.distanceFromStart, queued.distanceToEnd,
+						distFromStart, distanceToEnd, graphSegments.getHeuristicCoefficient()) <= 0) {
+					// same point in same direction is queued with better result, the road is continued from the queue
+					processFurther[0] = false;
 				} else if (itself.getParentRoute() == null
-						|| ctx.roadPriorityComparator(itself.distanceFromStart, itself.distanceToEnd, distFromStart,
-								distanceToEnd) > 0) {
+						|| roadPriorityComparator(itself.distanceFromStart, itself.distanceToEnd, distFromStart,
+								distanceToEnd, graphSegments.getHeuristicCoefficient()) > 0) {
 					itself.distanceFromStart = distFromStart;
 					itself.distanceToEnd = distanceToEnd;
 					itself.setParentRoute(segment);
 					itself.setParentSegmentEnd(segmentPoint);
+					if (queued != null) {
+						// road is continued here with better result, queued segment is not needed anymore
+						graphSegments.remove(queued);
+					}
 				} else {
 					// we already processed that segment earlier or it is in graph segments
 					// and we had better results (so we shouldn't process)
@@ -819,7 +1446,7 @@ public class BinaryRoutePlanner {
 
 
 	@SuppressWarnings("unused")
-	private void processOneRoadIntersection(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
+	private void processOneRoadIntersection(RoutingContext ctx, RouteSegmentHeap graphSegments,
 			TLongObjectHashMap<RouteSegment> visitedSegments, float distFromStart, float distanceToEnd,  RouteSegment segment,
 			int segmentPoint, RouteSegment next) {
 		if (next != null) {
@@ -833,7 +1460,13 @@ public class BinaryRoutePlanner {
 						" distToEnd=" + distanceToEnd +
 						" segmentPoint=" + segmentPoint + " -- ", next, true);
 			}
-			RouteSegment visIt = visitedSegments.get(calculateRoutePointId(next));
+			long pointId = calculateRoutePointId(next);
+			// tiles return new segment objects, so segment queued before is found by point id and updated in place
+			RouteSegment queued = graphSegments.get(pointId);
+			if (queued != null) {
+				next = queued;
+			}
+			RouteSegment visIt = visitedSegments.get(pointId);
 			boolean toAdd = true;
 			if (visIt != null) {
 				// the segment was already visited! We need to follow better route if it exists
@@ -842,12 +1475,11 @@ public class BinaryRoutePlanner {
 				// 2. because we process not small segments but the whole road, it could be that
 				// deviation from the road is faster than following the whole road itself!
 				if (TRACE_ROUTING) {
-					printRoad(">?", visitedSegments.get(calculateRoutePointId(next)),
-							next.isPositive());
+					printRoad(">?", visIt, next.isPositive());
 				}
-				if (distFromStart < visIt.distanceFromStart && next.getParentRoute() == null) {
+				if (distFromStart < visIt.distanceFromStart && (next.getParentRoute() == null || queued != null)) {
 					toAdd = true;
-					if (ctx.config.heuristicCoefficient <= 1) {
+					if (graphSegments.getHeuristicCoefficient() <= 1) {
 						System.err.println("! Alert distance from start " + distFromStart + " < "
 								+ visIt.distanceFromStart + " id=" + next.road.id);
 					}
@@ -855,8 +1487,8 @@ public class BinaryRoutePlanner {
 					toAdd = false;
 				}
 			}
-			if (toAdd && (next.getParentRoute() == null || ctx.roadPriorityComparator(next.distanceFromStart,
-					next.distanceToEnd, distFromStart, distanceToEnd) > 0)) {
+			if (toAdd && (next.getParentRoute() == null || roadPriorityComparator(next.distanceFromStart,
+					next.distanceToEnd, distFromStart, distanceToEnd, graphSegments.getHeuristicCoefficient()) > 0)) {
 				next.distanceFromStart = distFromStart;
 				next.distanceToEnd = distanceToEnd;
 				if (TRACE_ROUTING) {
@@ -865,7 +1497,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				next.setParentSegmentEnd(segmentPoint);
-				graphSegments.add(next);
+				graphSegments.push(next, pointId);
 			}
 		}
 	}
@@ -934,6 +1566,8 @@ public class BinaryRoutePlanner {
 		// distance measured in time (seconds)
 		float distanceFromStart = 0;
 		float distanceToEnd = 0;
+		// position in frontier heap (-1 not queued)
+		int heapIndex = -1;
 
 		public RouteSegment(RouteDataObject road, int segmentStart) {
 			this.road = road;
@@ -1044,6 +1678,16 @@ public class BinaryRoutePlanner {
 		}
 	}
 
+	private static class TargetSegment extends RouteSegment {
+
+		// indexes of targets on segment
+		final TIntArrayList targets = new TIntArrayList();
+
+		public TargetSegment(RouteDataObject road, int segmentStart) {
+			super(road, segmentStart);
+		}
+	}
+
 	static class FinalRouteSegment extends RouteSegment {
 
 		boolean reverseWaySearch;
@@ -0,0 +1,403 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Columnar point index of loaded routing tile. Instead of {@link BinaryRoutePlanner.RouteSegment}
+ * object per road point kept in hash map, tile stores points in primitive arrays sorted by
+ * point key (x31 << 31 + y31). Route segments are created on demand when planner requests point.
+ * <p>
+ * Packed tile also keeps roads in columns: ids, coordinates and restrictions of all roads in tile-wide
+ * primitive arrays and types as index in table of distinct type arrays. Names, point types and other
+ * rare data stay in small detail object of road, if road has them. {@link RouteDataObject} is created
+ * from columns when road is requested first time and kept while tile is loaded, so roads that planner
+ * doesn't visit take only their packed bytes. Tile is used by one context only.
+ * Roads shared between contexts (tile cache) are kept as is and are not modified.
+ */
+class CompactRoutingTile {
+
+	private RouteDataObject[] roads = new RouteDataObject[16];
+	private int roadsSize;
+
+	private long[] keys = new long[64];
+	private int[] pointRoads = new int[64];
+	private short[] pointIndexes = new short[64];
+	private int size;
+	private boolean sorted = true;
+
+	private final boolean packed;
+	// columns of packed roads
+	private RouteRegion region;
+	private long[] ids;
+	private int[] typesIndexes;
+	private int[][] typesTable;
+	// first point of road in pointsX / pointsY, last value is number of points
+	private int[] pointsStart;
+	private int[] pointsX;
+	private int[] pointsY;
+	private int pointsSize;
+	// first restriction of road (null if roads don't have restrictions)
+	private int[] restrictionsStart;
+	private long[] restrictions;
+	private int restrictionsSize;
+	// names, point types, via restrictions (null if road doesn't have them)
+	private RouteDataObject[] details;
+	private int detailsSize;
+	private int materializedSize;
+
+	private Map<TypesKey, Integer> types;
+	private List<int[]> typesList;
+
+	CompactRoutingTile() {
+		this(true);
+	}
+
+	CompactRoutingTile(boolean packed) {
+		this.packed = packed;
+		if (packed) {
+			ids = new long[16];
+			typesIndexes = new int[16];
+			pointsStart = new int[17];
+			pointsX = new int[64];
+			pointsY = new int[64];
+			types = new HashMap<TypesKey, Integer>();
+			typesList = new ArrayList<int[]>();
+		}
+	}
+
+	void add(RouteDataObject ro) {
+		if (roadsSize == roads.length) {
+			roads = Arrays.copyOf(roads, roadsSize * 2);
+		}
+		int roadIndex = roadsSize++;
+		if (packed) {
+			pack(roadIndex, ro);
+		} else {
+			roads[roadIndex] = ro;
+		}
+		int len = ro.getPointsLength();
+		ensureCapacity(size + len);
+		for (int i = 0; i < len; i++) {
+			long l = (((long) ro.getPoint31XTile(i)) << 31) + (long) ro.getPoint31YTile(i);
+			if (size > 0 && compare(l, roadIndex, i, size - 1) < 0) {
+				sorted = false;
+			}
+			keys[size] = l;
+			pointRoads[size] = roadIndex;
+			pointIndexes[size] = (short) i;
+			size++;
+		}
+	}
+
+	private void pack(int roadIndex, RouteDataObject ro) {
+		if (roadIndex == ids.length) {
+			int nl = roadIndex * 2;
+			ids = Arrays.copyOf(ids, nl);
+			typesIndexes = Arrays.copyOf(typesIndexes, nl);
+			pointsStart = Arrays.copyOf(pointsStart, nl + 1);
+			if (restrictionsStart != null) {
+				restrictionsStart = Arrays.copyOf(restrictionsStart, nl + 1);
+			}
+			if (details != null) {
+				details = Arrays.copyOf(details, nl);
+			}
+		}
+		if (roadIndex == 0) {
+			region = ro.region;
+		}
+		ids[roadIndex] = ro.id;
+		typesIndexes[roadIndex] = typesIndex(ro.types);
+		int len = ro.getPointsLength();
+		if (pointsSize + len > pointsX.length) {
+			int nl = Math.max(pointsSize + len, pointsX.length * 2);
+			pointsX = Arrays.copyOf(pointsX, nl);
+			pointsY = Arrays.copyOf(pointsY, nl);
+		}
+		System.arraycopy(ro.pointsX, 0, pointsX, pointsSize, len);
+		System.arraycopy(ro.pointsY, 0, pointsY, pointsSize, len);
+		pointsSize += len;
+		pointsStart[roadIndex + 1] = pointsSize;
+		if (ro.restrictions != null && ro.restrictions.length > 0) {
+			if (restrictionsStart == null) {
+				restrictionsStart = new int[ids.length + 1];
+				restrictions = new long[16];
+			}
+			if (restrictionsSize + ro.restrictions.length > restrictions.length) {
+				restrictions = Arrays.copyOf(restrictions,
+						Math.max(restrictionsSize + ro.restrictions.length, restrictions.length * 2));
+			}
+			System.arraycopy(ro.restrictions, 0, restrictions, restrictionsSize, ro.restrictions.length);
+			restrictionsSize += ro.restrictions.length;
+		}
+		if (restrictionsStart != null) {
+			// roads without restrictions are empty ranges
+			restrictionsStart[roadIndex + 1] = restrictionsSize;
+		}
+		if (hasDetails(ro)) {
+			if (details == null) {
+				details = new RouteDataObject[ids.length];
+			}
+			RouteDataObject d = new RouteDataObject(ro);
+			d.types = null;
+			d.pointsX = null;
+			d.pointsY = null;
+			d.restrictions = null;
+			d.heightDistanceArray = ro.heightDistanceArray;
+			details[roadIndex] = d;
+			detailsSize += RoutingMemoryUtils.routeDataObject(d);
+		}
+	}
+
+	private boolean hasDetails(RouteDataObject ro) {
+		return ro.region != region || ro.names != null || (ro.nameIds != null && ro.nameIds.length > 0)
+				|| ro.pointTypes != null || ro.pointNames != null || ro.pointNameTypes != null
+				|| ro.restrictionsVia != null || ro.heightDistanceArray != null;
+	}
+
+	private int typesIndex(int[] t) {
+		if (t == null) {
+			return -1;
+		}
+		TypesKey tk = new TypesKey(t);
+		Integer ind = types.get(tk);
+		if (ind == null) {
+			ind = typesList.size();
+			typesList.add(t);
+			types.put(tk, ind);
+		}
+		return ind;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > keys.length) {
+			int nl = Math.max(capacity, keys.length * 2);
+			keys = Arrays.copyOf(keys, nl);
+			pointRoads = Arrays.copyOf(pointRoads, nl);
+			pointIndexes = Arrays.copyOf(pointIndexes, nl);
+		}
+	}
+
+	/**
+	 * Release temporary structures of loading and trim arrays
+	 */
+	void finishLoading() {
+		roads = Arrays.copyOf(roads, roadsSize);
+		keys = Arrays.copyOf(keys, size);
+		pointRoads = Arrays.copyOf(pointRoads, size);
+		pointIndexes = Arrays.copyOf(pointIndexes, size);
+		if (packed) {
+			types = null;
+			typesTable = typesList.toArray(new int[typesList.size()][]);
+			typesList = null;
+			ids = Arrays.copyOf(ids, roadsSize);
+			typesIndexes = Arrays.copyOf(typesIndexes, roadsSize);
+			pointsStart = Arrays.copyOf(pointsStart, roadsSize + 1);
+			pointsX = Arrays.copyOf(pointsX, pointsSize);
+			pointsY = Arrays.copyOf(pointsY, pointsSize);
+			if (restrictionsStart != null) {
+				restrictionsStart = Arrays.copyOf(restrictionsStart, roadsSize + 1);
+				restrictions = Arrays.copyOf(restrictions, restrictionsSize);
+			}
+			if (details != null) {
+				details = Arrays.copyOf(details, roadsSize);
+			}
+		}
+		sort();
+	}
+
+	/**
+	 * @return first position of point with key or -1
+	 */
+	int find(long key) {
+		sort();
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid] < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo < size && keys[lo] == key ? lo : -1;
+	}
+
+	boolean isPacked() {
+		return packed;
+	}
+
+	/**
+	 * @return heap size of index arrays and packed roads including requested roads
+	 * (roads of not packed tile are not included)
+	 */
+	int getMemorySize() {
+		int sz = RoutingMemoryUtils.align(RoutingMemoryUtils.OBJECT_HEADER + 16 * RoutingMemoryUtils.REFERENCE + 4 * 6 + 2)
+				+ RoutingMemoryUtils.referenceArray(roads.length) + RoutingMemoryUtils.longArray(keys)
+				+ RoutingMemoryUtils.intArray(pointRoads)
+				+ RoutingMemoryUtils.align(RoutingMemoryUtils.ARRAY_HEADER + 2 * pointIndexes.length);
+		if (packed) {
+			sz += RoutingMemoryUtils.longArray(ids) + RoutingMemoryUtils.intArray(typesIndexes)
+					+ RoutingMemoryUtils.intArray(pointsStart) + RoutingMemoryUtils.intArray(pointsX)
+					+ RoutingMemoryUtils.intArray(pointsY) + RoutingMemoryUtils.intArray(restrictionsStart)
+					+ RoutingMemoryUtils.longArray(restrictions) + detailsSize + materializedSize;
+			if (typesTable != null) {
+				sz += RoutingMemoryUtils.intArrays(typesTable);
+			}
+			if (details != null) {
+				sz += RoutingMemoryUtils.referenceArray(details.length);
+			}
+		}
+		return sz;
+	}
+
+	/**
+	 * @return heap size of roads created from packed columns
+	 */
+	int getMaterializedSize() {
+		return materializedSize;
+	}
+
+	int getSize() {
+		return size;
+	}
+
+	long getKey(int pos) {
+		return keys[pos];
+	}
+
+	RouteDataObject getRoad(int pos) {
+		return getRoadByIndex(pointRoads[pos]);
+	}
+
+	int getPointIndex(int pos) {
+		return pointIndexes[pos];
+	}
+
+	int getRoadsSize() {
+		return roadsSize;
+	}
+
+	RouteDataObject getRoadByIndex(int roadIndex) {
+		RouteDataObject ro = roads[roadIndex];
+		if (ro == null) {
+			ro = materialize(roadIndex);
+			roads[roadIndex] = ro;
+		}
+		return ro;
+	}
+
+	private RouteDataObject materialize(int roadIndex) {
+		RouteDataObject d = details == null ? null : details[roadIndex];
+		RouteDataObject ro;
+		if (d != null) {
+			ro = new RouteDataObject(d);
+			ro.heightDistanceArray = d.heightDistanceArray;
+		} else {
+			ro = new RouteDataObject(region);
+		}
+		ro.id = ids[roadIndex];
+		int ti = typesIndexes[roadIndex];
+		ro.types = ti < 0 ? null : typesTable[ti];
+		int start = pointsStart[roadIndex];
+		int end = pointsStart[roadIndex + 1];
+		ro.pointsX = Arrays.copyOfRange(pointsX, start, end);
+		ro.pointsY = Arrays.copyOfRange(pointsY, start, end);
+		if (restrictionsStart != null && restrictionsStart[roadIndex] < restrictionsStart[roadIndex + 1]) {
+			ro.restrictions = Arrays.copyOfRange(restrictions, restrictionsStart[roadIndex],
+					restrictionsStart[roadIndex + 1]);
+		}
+		materializedSize += RoutingMemoryUtils.ROUTE_DATA_OBJECT + RoutingMemoryUtils.intArray(ro.pointsX)
+				+ RoutingMemoryUtils.intArray(ro.pointsY) + RoutingMemoryUtils.longArray(ro.restrictions);
+		return ro;
+	}
+
+	private void sort() {
+		if (!sorted) {
+			quickSort(0, size - 1);
+			sorted = true;
+		}
+	}
+
+	// points of the same key keep order of insertion
+	private int compare(long key, int road, int point, int pos) {
+		if (key != keys[pos]) {
+			return key < keys[pos] ? -1 : 1;
+		}
+		if (road != pointRoads[pos]) {
+			return road < pointRoads[pos] ? -1 : 1;
+		}
+		return point < pointIndexes[pos] ? -1 : (point == pointIndexes[pos] ? 0 : 1);
+	}
+
+	private void quickSort(int lo, int hi) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			long pk = keys[mid];
+			int pr = pointRoads[mid];
+			int pp = pointIndexes[mid];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (compare(pk, pr, pp, i) > 0) {
+					i++;
+				}
+				while (compare(pk, pr, pp, j) < 0) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			// recurse into smaller part
+			if (j - lo < hi - i) {
+				quickSort(lo, j);
+				lo = i;
+			} else {
+				quickSort(i, hi);
+				hi = j;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		long k = keys[i];
+		keys[i] = keys[j];
+		keys[j] = k;
+		int r = pointRoads[i];
+		pointRoads[i] = pointRoads[j];
+		pointRoads[j] = r;
+		short p = pointIndexes[i];
+		pointIndexes[i] = pointIndexes[j];
+		pointIndexes[j] = p;
+	}
+
+	private static class TypesKey {
+		private final int[] types;
+		private final int hash;
+
+		TypesKey(int[] types) {
+			this.types = types;
+			this.hash = Arrays.hashCode(types);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TypesKey && Arrays.equals(types, ((TypesKey) obj).types);
+		}
+	}
+}
@@ -0,0 +1,538 @@
+package net.osmand.router;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.iterator.TIntLongIterator;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntLongHashMap;
+import net.osmand.IndexConstants;
+import net.osmand.PlatformUtil;
+
+/**
+ * Contraction hierarchy (shortcut graph) built offline for one obf file and one routing profile
+ * by {@link ContractionHierarchyBuilder} and stored in sidecar file next to obf.
+ * Nodes are road points (intersections and road ends) identified by 31-tile coordinates,
+ * original edges reference road id and point indexes, shortcuts reference 2 child edges.
+ * Weights depend on router parameters and impassable roads, so they are stored with hierarchy and
+ * hierarchy is used only by router with the same ones (see {@link #isBuiltFor(GeneralRouter)}).
+ * Turn restrictions and turn penalties are not part of the hierarchy: route planner checks found path
+ * and calculates route regularly if path passes restriction or turn penalty.
+ * Hierarchy covers one obf file, routes between points of different files are calculated regularly.
+ * Besides point to point queries hierarchy answers many-to-many queries by bucket method
+ * (see {@link #queryMatrix(int[][], float[][], float[][], int[][], float[][], float[][], float[][], float[][])}).
+ */
+public class ContractionHierarchy {
+
+	private static final Log log = PlatformUtil.getLog(ContractionHierarchy.class);
+	private static final int MAGIC = 0x4f434831; // OCH1
+	private static final int VERSION = 3;
+
+	// loaded hierarchies of recently routed obf files (least recently used is dropped)
+	private static final int CACHE_SIZE = 4;
+
+	private static final Map<String, ContractionHierarchy> cache = new LinkedHashMap<String, ContractionHierarchy>(
+			CACHE_SIZE + 1, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ContractionHierarchy> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	final String profile;
+	// router parameters and sorted impassable roads used to build hierarchy
+	final Map<String, String> params;
+	final long[] impassableRoads;
+	final long obfSize;
+	final long obfLastModified;
+	// sorted (x31 << 31) + y31, index is node id
+	final long[] nodeKeys;
+	final int[] rank;
+	// edges
+	final int[] edgeFrom;
+	final int[] edgeTo;
+	final float[] edgeWeight;
+	// children of shortcut or -1 for original edge
+	final int[] edgeChild1;
+	final int[] edgeChild2;
+	// original edges only
+	final long[] edgeRoadId;
+	final int[] edgeStartPoint;
+	final int[] edgeEndPoint;
+	// meters of edge (stored for original edges, sum of children for shortcuts)
+	final float[] edgeDistance;
+	// upward adjacency (edge ids) : forward search edges u -> v with rank[v] > rank[u],
+	// backward search edges u -> v with rank[u] > rank[v] stored by v
+	final int[] upForwardStart;
+	final int[] upForward;
+	final int[] upBackwardStart;
+	final int[] upBackward;
+
+	ContractionHierarchy(String profile, Map<String, String> params, long[] impassableRoads, long obfSize,
+			long obfLastModified, long[] nodeKeys, int[] rank, int[] edgeFrom, int[] edgeTo, float[] edgeWeight,
+			int[] edgeChild1, int[] edgeChild2, long[] edgeRoadId, int[] edgeStartPoint, int[] edgeEndPoint,
+			float[] edgeDistance) {
+		this.profile = profile;
+		this.params = new TreeMap<String, String>(params);
+		this.impassableRoads = impassableRoads.clone();
+		Arrays.sort(this.impassableRoads);
+		this.obfSize = obfSize;
+		this.obfLastModified = obfLastModified;
+		this.nodeKeys = nodeKeys;
+		this.rank = rank;
+		this.edgeFrom = edgeFrom;
+		this.edgeTo = edgeTo;
+		this.edgeWeight = edgeWeight;
+		this.edgeChild1 = edgeChild1;
+		this.edgeChild2 = edgeChild2;
+		this.edgeRoadId = edgeRoadId;
+		this.edgeStartPoint = edgeStartPoint;
+		this.edgeEndPoint = edgeEndPoint;
+		this.edgeDistance = edgeDistance;
+		// children are added before shortcut
+		for (int e = 0; e < edgeFrom.length; e++) {
+			if (edgeChild1[e] >= 0) {
+				edgeDistance[e] = edgeDistance[edgeChild1[e]] + edgeDistance[edgeChild2[e]];
+			}
+		}
+		int n = nodeKeys.length;
+		upForwardStart = new int[n + 1];
+		upBackwardStart = new int[n + 1];
+		for (int e = 0; e < edgeFrom.length; e++) {
+			if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+				upForwardStart[edgeFrom[e] + 1]++;
+			} else {
+				upBackwardStart[edgeTo[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			upForwardStart[i + 1] += upForwardStart[i];
+			upBackwardStart[i + 1] += upBackwardStart[i];
+		}
+		upForward = new int[upForwardStart[n]];
+		upBackward = new int[upBackwardStart[n]];
+		int[] fpos = Arrays.copyOf(upForwardStart, n);
+		int[] bpos = Arrays.copyOf(upBackwardStart, n);
+		for (int e = 0; e < edgeFrom.length; e++) {
+			if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+				upForward[fpos[edgeFrom[e]]++] = e;
+			} else {
+				upBackward[bpos[edgeTo[e]]++] = e;
+			}
+		}
+	}
+
+	public static long nodeKey(int x31, int y31) {
+		return (((long) x31) << 31) + (long) y31;
+	}
+
+	public static File getHierarchyFile(File obf, String profile) {
+		return new File(obf.getParentFile(), obf.getName() + "." + profile + IndexConstants.ROUTING_HIERARCHY_EXT);
+	}
+
+	public int getNodesCount() {
+		return nodeKeys.length;
+	}
+
+	public int getEdgesCount() {
+		return edgeFrom.length;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return node id or -1 if point is not a node of hierarchy
+	 */
+	public int findNode(int x31, int y31) {
+		int ind = Arrays.binarySearch(nodeKeys, nodeKey(x31, y31));
+		return ind < 0 ? -1 : ind;
+	}
+
+	public int getNodeX(int node) {
+		return (int) (nodeKeys[node] >> 31);
+	}
+
+	public int getNodeY(int node) {
+		return (int) (nodeKeys[node] & ((1L << 31) - 1));
+	}
+
+	/**
+	 * @return true if router has the same parameters and impassable roads as router used to build hierarchy
+	 */
+	public boolean isBuiltFor(GeneralRouter router) {
+		long[] impassable = router.getImpassableRoadIds();
+		Arrays.sort(impassable);
+		return params.equals(router.getParameterValues()) && Arrays.equals(impassableRoads, impassable);
+	}
+
+	public Map<String, String> getParams() {
+		return Collections.unmodifiableMap(params);
+	}
+
+	public boolean isUpToDate(File obf) {
+		return obf.length() == obfSize && obf.lastModified() == obfLastModified;
+	}
+
+	/**
+	 * Returns hierarchy for obf file if sidecar file exists and was built for the current version of obf.
+	 * Loaded hierarchies are shared by all routing contexts, only few recently used are kept.
+	 */
+	public static ContractionHierarchy getHierarchy(File obf, String profile) {
+		if (obf == null || profile == null) {
+			return null;
+		}
+		File fl = getHierarchyFile(obf, profile);
+		String key = fl.getAbsolutePath();
+		synchronized (cache) {
+			ContractionHierarchy ch = cache.get(key);
+			if (ch != null && ch.isUpToDate(obf)) {
+				return ch;
+			}
+			cache.remove(key);
+			if (!fl.exists()) {
+				return null;
+			}
+			try {
+				ch = read(fl);
+			} catch (IOException e) {
+				log.error("Error reading routing hierarchy " + fl.getName(), e);
+				return null;
+			}
+			if (!ch.isUpToDate(obf)) {
+				log.warn("Routing hierarchy " + fl.getName() + " is outdated and will not be used");
+				return null;
+			}
+			cache.put(key, ch);
+			return ch;
+		}
+	}
+
+	public void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(profile);
+			out.writeInt(params.size());
+			for (Map.Entry<String, String> e : params.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeUTF(e.getValue());
+			}
+			out.writeInt(impassableRoads.length);
+			for (long id : impassableRoads) {
+				out.writeLong(id);
+			}
+			out.writeLong(obfSize);
+			out.writeLong(obfLastModified);
+			out.writeInt(nodeKeys.length);
+			for (int i = 0; i < nodeKeys.length; i++) {
+				out.writeLong(nodeKeys[i]);
+				out.writeInt(rank[i]);
+			}
+			out.writeInt(edgeFrom.length);
+			for (int e = 0; e < edgeFrom.length; e++) {
+				out.writeInt(edgeFrom[e]);
+				out.writeInt(edgeTo[e]);
+				out.writeFloat(edgeWeight[e]);
+				out.writeInt(edgeChild1[e]);
+				if (edgeChild1[e] >= 0) {
+					out.writeInt(edgeChild2[e]);
+				} else {
+					out.writeLong(edgeRoadId[e]);
+					out.writeInt(edgeStartPoint[e]);
+					out.writeInt(edgeEndPoint[e]);
+					out.writeFloat(edgeDistance[e]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public static ContractionHierarchy read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a routing hierarchy file " + file.getName());
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported routing hierarchy version " + version);
+			}
+			String profile = in.readUTF();
+			Map<String, String> params = new TreeMap<String, String>();
+			int paramsCount = in.readInt();
+			for (int i = 0; i < paramsCount; i++) {
+				String k = in.readUTF();
+				params.put(k, in.readUTF());
+			}
+			long[] impassableRoads = new long[in.readInt()];
+			for (int i = 0; i < impassableRoads.length; i++) {
+				impassableRoads[i] = in.readLong();
+			}
+			long obfSize = in.readLong();
+			long obfLastModified = in.readLong();
+			int n = in.readInt();
+			long[] nodeKeys = new long[n];
+			int[] rank = new int[n];
+			for (int i = 0; i < n; i++) {
+				nodeKeys[i] = in.readLong();
+				rank[i] = in.readInt();
+			}
+			int m = in.readInt();
+			int[] from = new int[m];
+			int[] to = new int[m];
+			float[] weight = new float[m];
+			int[] child1 = new int[m];
+			int[] child2 = new int[m];
+			long[] roadId = new long[m];
+			int[] startPoint = new int[m];
+			int[] endPoint = new int[m];
+			float[] distance = new float[m];
+			for (int e = 0; e < m; e++) {
+				from[e] = in.readInt();
+				to[e] = in.readInt();
+				weight[e] = in.readFloat();
+				child1[e] = in.readInt();
+				if (child1[e] >= 0) {
+					child2[e] = in.readInt();
+				} else {
+					child2[e] = -1;
+					roadId[e] = in.readLong();
+					startPoint[e] = in.readInt();
+					endPoint[e] = in.readInt();
+					distance[e] = in.readFloat();
+				}
+			}
+			return new ContractionHierarchy(profile, params, impassableRoads, obfSize, obfLastModified, nodeKeys, rank,
+					from, to, weight, child1, child2, roadId, startPoint, endPoint, distance);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Bidirectional upward Dijkstra between several weighted sources and targets.
+	 * @return original edges of the shortest path in travel order or null if there is no path
+	 */
+	public HierarchyPath query(int[] sources, float[] sourceCosts, int[] targets, float[] targetCosts) {
+		// node -> (dist bits << 32 | parent edge)
+		TIntLongHashMap forward = new TIntLongHashMap();
+		TIntLongHashMap backward = new TIntLongHashMap();
+		NodeHeap fq = new NodeHeap();
+		NodeHeap bq = new NodeHeap();
+		for (int i = 0; i < sources.length; i++) {
+			relax(forward, fq, sources[i], sourceCosts[i], -1);
+		}
+		for (int i = 0; i < targets.length; i++) {
+			relax(backward, bq, targets[i], targetCosts[i], -1);
+		}
+		float best = Float.POSITIVE_INFINITY;
+		int meeting = -1;
+		while (!fq.isEmpty() || !bq.isEmpty()) {
+			boolean fwd = !fq.isEmpty() && (bq.isEmpty() || fq.peekKey() <= bq.peekKey());
+			NodeHeap q = fwd ? fq : bq;
+			if (q.peekKey() >= best) {
+				if (fwd) {
+					fq.clear();
+				} else {
+					bq.clear();
+				}
+				continue;
+			}
+			float d = q.peekKey();
+			int node = q.poll();
+			TIntLongHashMap visited = fwd ? forward : backward;
+			TIntLongHashMap opposite = fwd ? backward : forward;
+			if (opposite.containsKey(node)) {
+				float total = d + dist(opposite.get(node));
+				if (total < best) {
+					best = total;
+					meeting = node;
+				}
+			}
+			int[] start = fwd ? upForwardStart : upBackwardStart;
+			int[] adj = fwd ? upForward : upBackward;
+			for (int i = start[node]; i < start[node + 1]; i++) {
+				int e = adj[i];
+				int next = fwd ? edgeTo[e] : edgeFrom[e];
+				relax(visited, q, next, d + edgeWeight[e], e);
+			}
+		}
+		if (meeting == -1) {
+			return null;
+		}
+		HierarchyPath path = new HierarchyPath();
+		path.cost = best;
+		TIntArrayList upEdges = new TIntArrayList();
+		int node = meeting;
+		int e;
+		while ((e = parentEdge(forward.get(node))) >= 0) {
+			upEdges.add(e);
+			node = edgeFrom[e];
+		}
+		path.sourceNode = node;
+		upEdges.reverse();
+		node = meeting;
+		while ((e = parentEdge(backward.get(node))) >= 0) {
+			upEdges.add(e);
+			node = edgeTo[e];
+		}
+		path.targetNode = node;
+		for (int i = 0; i < upEdges.size(); i++) {
+			unpack(upEdges.get(i), path.edges);
+		}
+		return path;
+	}
+
+	/**
+	 * Many-to-many query by bucket method: backward upward search from every target puts (target, time, distance)
+	 * to bucket of every node it reaches, then forward upward search from every source scans buckets of nodes
+	 * it reaches. So M + N searches are done instead of M * N and each search is limited by upward graph.
+	 * Sources and targets are attached to several nodes with costs (seconds) and distances (meters),
+	 * null nodes of point mean that point is not attached. Times and distances of not found routes are not changed.
+	 * @param times [source][target] times (seconds) to fill
+	 * @param distances [source][target] distances (meters) of fastest routes to fill
+	 */
+	public void queryMatrix(int[][] sources, float[][] sourceCosts, float[][] sourceDistances, int[][] targets,
+			float[][] targetCosts, float[][] targetDistances, float[][] times, float[][] distances) {
+		// buckets : linked lists of entries, head entry of node
+		TIntIntHashMap bucketHeads = new TIntIntHashMap(64, 0.5f, -1, -1);
+		TIntArrayList bucketNext = new TIntArrayList();
+		TIntArrayList bucketTarget = new TIntArrayList();
+		TFloatArrayList bucketTime = new TFloatArrayList();
+		TFloatArrayList bucketDistance = new TFloatArrayList();
+		TIntLongHashMap visited = new TIntLongHashMap();
+		NodeHeap queue = new NodeHeap();
+		for (int t = 0; t < targets.length; t++) {
+			if (targets[t] == null) {
+				continue;
+			}
+			searchUpward(false, targets[t], targetCosts[t], targetDistances[t], visited, queue);
+			TIntLongIterator it = visited.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				int entry = bucketTarget.size();
+				bucketNext.add(bucketHeads.put(it.key(), entry));
+				bucketTarget.add(t);
+				bucketTime.add(time(it.value()));
+				bucketDistance.add(distance(it.value()));
+			}
+		}
+		for (int s = 0; s < sources.length; s++) {
+			if (sources[s] == null) {
+				continue;
+			}
+			searchUpward(true, sources[s], sourceCosts[s], sourceDistances[s], visited, queue);
+			TIntLongIterator it = visited.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				float time = time(it.value());
+				for (int entry = bucketHeads.get(it.key()); entry >= 0; entry = bucketNext.get(entry)) {
+					int t = bucketTarget.get(entry);
+					float total = time + bucketTime.get(entry);
+					if (times[s][t] < 0 || total < times[s][t]) {
+						times[s][t] = total;
+						distances[s][t] = distance(it.value()) + bucketDistance.get(entry);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra over upward edges without stop condition.
+	 * @param visited filled with node -> (time bits << 32 | distance bits)
+	 */
+	private void searchUpward(boolean fwd, int[] nodes, float[] costs, float[] dists, TIntLongHashMap visited,
+			NodeHeap queue) {
+		visited.clear();
+		queue.clear();
+		for (int i = 0; i < nodes.length; i++) {
+			relaxUpward(visited, queue, nodes[i], costs[i], dists[i]);
+		}
+		int[] start = fwd ? upForwardStart : upBackwardStart;
+		int[] adj = fwd ? upForward : upBackward;
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			long v = visited.get(node);
+			for (int i = start[node]; i < start[node + 1]; i++) {
+				int e = adj[i];
+				int next = fwd ? edgeTo[e] : edgeFrom[e];
+				relaxUpward(visited, queue, next, time(v) + edgeWeight[e], distance(v) + edgeDistance[e]);
+			}
+		}
+	}
+
+	private static void relaxUpward(TIntLongHashMap visited, NodeHeap q, int node, float time, float distance) {
+		if (!visited.containsKey(node) || time < time(visited.get(node))) {
+			visited.put(node, ((long) Float.floatToIntBits(time) << 32)
+					| (Float.floatToIntBits(distance) & 0xffffffffL));
+			q.push(node, time);
+		}
+	}
+
+	private static float time(long v) {
+		return Float.intBitsToFloat((int) (v >>> 32));
+	}
+
+	private static float distance(long v) {
+		return Float.intBitsToFloat((int) v);
+	}
+
+	private void unpack(int edge, TIntArrayList result) {
+		TIntArrayList stack = new TIntArrayList();
+		stack.add(edge);
+		while (!stack.isEmpty()) {
+			int e = stack.removeAt(stack.size() - 1);
+			if (edgeChild1[e] < 0) {
+				result.add(e);
+			} else {
+				stack.add(edgeChild2[e]);
+				stack.add(edgeChild1[e]);
+			}
+		}
+	}
+
+	private static void relax(TIntLongHashMap visited, NodeHeap q, int node, float d, int parentEdge) {
+		if (!visited.containsKey(node) || d < dist(visited.get(node))) {
+			visited.put(node, ((long) Float.floatToIntBits(d) << 32) | (parentEdge & 0xffffffffL));
+			q.push(node, d);
+		}
+	}
+
+	private static float dist(long v) {
+		return Float.intBitsToFloat((int) (v >>> 32));
+	}
+
+	private static int parentEdge(long v) {
+		return (int) v;
+	}
+
+	public static class HierarchyPath {
+		public float cost;
+		public int sourceNode;
+		public int targetNode;
+		// original edges in travel order
+		public TIntArrayList edges = new TIntArrayList();
+	}
+}
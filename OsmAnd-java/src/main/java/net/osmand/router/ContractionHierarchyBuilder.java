@@ -0,0 +1,432 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+/**
+ * Offline preprocessing that reads routing section of obf file and builds {@link ContractionHierarchy}
+ * for one routing profile and its parameters. Usage: ContractionHierarchyBuilder file.obf [profile] [param=value ...]
+ */
+public class ContractionHierarchyBuilder {
+
+	private static final Log log = PlatformUtil.getLog(ContractionHierarchyBuilder.class);
+
+	// limits of local witness search
+	private static final int WITNESS_SETTLED_LIMIT = 500;
+
+	private final RoutingConfiguration config;
+	private final GeneralRouter router;
+
+	// graph under construction
+	private long[] nodeKeys;
+	private TIntArrayList[] out;
+	private TIntArrayList[] in;
+	private int edgesCount;
+	private int[] edgeFrom = new int[1024];
+	private int[] edgeTo = new int[1024];
+	private float[] edgeWeight = new float[1024];
+	private int[] edgeChild1 = new int[1024];
+	private int[] edgeChild2 = new int[1024];
+	private long[] edgeRoadId = new long[1024];
+	private int[] edgeStartPoint = new int[1024];
+	private int[] edgeEndPoint = new int[1024];
+	private float[] edgeDistance = new float[1024];
+
+	// contraction state
+	private boolean[] contracted;
+	private int[] deletedNeighbours;
+	private float[] witnessDist;
+	private TIntArrayList witnessTouched = new TIntArrayList();
+	private NodeHeap witnessQueue = new NodeHeap();
+
+	public ContractionHierarchyBuilder(RoutingConfiguration config) {
+		this.config = config;
+		this.router = config.router;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: ContractionHierarchyBuilder file.obf [profile] [param=value ...]");
+			return;
+		}
+		File obf = new File(args[0]);
+		String profile = args.length > 1 ? args[1] : "car";
+		// hierarchy is used only by routers with the same parameters
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		for (int i = 2; i < args.length; i++) {
+			int eq = args[i].indexOf('=');
+			if (eq > 0) {
+				params.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+			}
+		}
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(profile,
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 10, params);
+		RandomAccessFile raf = new RandomAccessFile(obf, "r");
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, obf);
+		try {
+			long time = System.currentTimeMillis();
+			ContractionHierarchy ch = new ContractionHierarchyBuilder(config).build(reader, profile);
+			File out = ContractionHierarchy.getHierarchyFile(obf, profile);
+			ch.write(out);
+			System.out.println(String.format("Routing hierarchy %s: %d nodes, %d edges in %.1f s", out.getName(),
+					ch.getNodesCount(), ch.getEdgesCount(), (System.currentTimeMillis() - time) / 1e3));
+		} finally {
+			reader.close();
+		}
+	}
+
+	public ContractionHierarchy build(BinaryMapIndexReader reader, String profile) throws IOException {
+		List<RouteDataObject> roads = loadRoads(reader);
+		log.info("Roads loaded " + roads.size());
+		buildGraph(roads);
+		log.info("Graph built: nodes " + nodeKeys.length + ", edges " + edgesCount);
+		int[] rank = contract();
+		log.info("Graph contracted: edges with shortcuts " + edgesCount);
+		File file = reader.getFile();
+		return new ContractionHierarchy(profile, router.getParameterValues(), router.getImpassableRoadIds(),
+				file.length(), file.lastModified(), nodeKeys, rank,
+				Arrays.copyOf(edgeFrom, edgesCount), Arrays.copyOf(edgeTo, edgesCount),
+				Arrays.copyOf(edgeWeight, edgesCount), Arrays.copyOf(edgeChild1, edgesCount),
+				Arrays.copyOf(edgeChild2, edgesCount), Arrays.copyOf(edgeRoadId, edgesCount),
+				Arrays.copyOf(edgeStartPoint, edgesCount), Arrays.copyOf(edgeEndPoint, edgesCount),
+				Arrays.copyOf(edgeDistance, edgesCount));
+	}
+
+	private List<RouteDataObject> loadRoads(BinaryMapIndexReader reader) throws IOException {
+		RoutingContext ctx = new RoutingContext(config, null, new BinaryMapIndexReader[] { reader },
+				RouteCalculationMode.NORMAL);
+		TLongObjectHashMap<RouteDataObject> roads = new TLongObjectHashMap<RouteDataObject>();
+		List<RouteDataObject> noIdRoads = new ArrayList<RouteDataObject>();
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			for (RouteSubregion sub : reg.getSubregions()) {
+				for (RoutingSubregionTile tile : ctx.loadAllSubregionTiles(reader, sub)) {
+					for (RouteDataObject ro : reader.loadRouteIndexData(tile.subregion)) {
+						if (ro == null || ro.getPointsLength() < 2 || !router.acceptLine(ro)) {
+							continue;
+						}
+						if (ro.getId() <= 0) {
+							noIdRoads.add(ro);
+						} else {
+							RouteDataObject existing = roads.get(ro.getId());
+							if (existing == null || existing.getPointsLength() < ro.getPointsLength()) {
+								roads.put(ro.getId(), ro);
+							}
+						}
+					}
+				}
+			}
+		}
+		noIdRoads.addAll(roads.valueCollection());
+		return noIdRoads;
+	}
+
+	private void buildGraph(List<RouteDataObject> roads) {
+		TLongHashSet visited = new TLongHashSet();
+		TLongHashSet nodes = new TLongHashSet();
+		for (RouteDataObject road : roads) {
+			int len = road.getPointsLength();
+			for (int i = 0; i < len; i++) {
+				long key = ContractionHierarchy.nodeKey(road.getPoint31XTile(i), road.getPoint31YTile(i));
+				if (!visited.add(key) || i == 0 || i == len - 1) {
+					nodes.add(key);
+				}
+			}
+		}
+		visited = null;
+		nodeKeys = nodes.toArray();
+		Arrays.sort(nodeKeys);
+		int n = nodeKeys.length;
+		out = new TIntArrayList[n];
+		in = new TIntArrayList[n];
+		for (int i = 0; i < n; i++) {
+			out[i] = new TIntArrayList(4);
+			in[i] = new TIntArrayList(4);
+		}
+		for (RouteDataObject road : roads) {
+			int oneway = router.isOneWay(road);
+			int prevInd = 0;
+			int prevNode = findNode(road, 0);
+			for (int i = 1; i < road.getPointsLength(); i++) {
+				int node = findNode(road, i);
+				if (node < 0) {
+					continue;
+				}
+				if (node != prevNode) {
+					float distance = calculateDistance(road, prevInd, i);
+					if (oneway >= 0) {
+						float w = calculateWeight(road, prevInd, i);
+						if (w >= 0) {
+							addEdge(prevNode, node, w, -1, -1, road.getId(), prevInd, i, distance);
+						}
+					}
+					if (oneway <= 0) {
+						float w = calculateWeight(road, i, prevInd);
+						if (w >= 0) {
+							addEdge(node, prevNode, w, -1, -1, road.getId(), i, prevInd, distance);
+						}
+					}
+				}
+				prevNode = node;
+				prevInd = i;
+			}
+		}
+	}
+
+	private int findNode(RouteDataObject road, int ind) {
+		long key = ContractionHierarchy.nodeKey(road.getPoint31XTile(ind), road.getPoint31YTile(ind));
+		int node = Arrays.binarySearch(nodeKeys, key);
+		return node < 0 ? -1 : node;
+	}
+
+	/**
+	 * Meters between point indexes of road
+	 */
+	private float calculateDistance(RouteDataObject road, int start, int end) {
+		float distance = 0;
+		int step = end > start ? 1 : -1;
+		for (int i = start; i != end; i += step) {
+			distance += BinaryRoutePlanner.squareRootDist(road.getPoint31XTile(i), road.getPoint31YTile(i),
+					road.getPoint31XTile(i + step), road.getPoint31YTile(i + step));
+		}
+		return distance;
+	}
+
+	/**
+	 * Time to pass road from start to end point index (same formula as route planner) or -1 if not passable
+	 */
+	private float calculateWeight(RouteDataObject road, int start, int end) {
+		boolean positive = end > start;
+		float distance = 0;
+		float obstaclesTime = 0;
+		int i = start;
+		while (i != end) {
+			int next = positive ? i + 1 : i - 1;
+			distance += BinaryRoutePlanner.squareRootDist(road.getPoint31XTile(i), road.getPoint31YTile(i),
+					road.getPoint31XTile(next), road.getPoint31YTile(next));
+			float obstacle = router.defineRoutingObstacle(road, next, positive);
+			if (obstacle < 0) {
+				return -1;
+			}
+			double heightObstacle = router.defineHeightObstacle(road, (short) i, (short) next);
+			if (heightObstacle < 0) {
+				return -1;
+			}
+			obstaclesTime += obstacle + heightObstacle;
+			i = next;
+		}
+		float priority = router.defineSpeedPriority(road);
+		float speed = router.defineRoutingSpeed(road) * priority;
+		if (speed == 0) {
+			speed = router.getDefaultSpeed() * priority;
+		}
+		if (speed > router.getMaxSpeed()) {
+			speed = router.getMaxSpeed();
+		}
+		if (speed <= 0) {
+			return -1;
+		}
+		return obstaclesTime + distance / speed;
+	}
+
+	private int addEdge(int from, int to, float weight, int child1, int child2, long roadId, int startPoint, int endPoint,
+			float distance) {
+		if (edgesCount == edgeFrom.length) {
+			int capacity = edgesCount * 2;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeChild1 = Arrays.copyOf(edgeChild1, capacity);
+			edgeChild2 = Arrays.copyOf(edgeChild2, capacity);
+			edgeRoadId = Arrays.copyOf(edgeRoadId, capacity);
+			edgeStartPoint = Arrays.copyOf(edgeStartPoint, capacity);
+			edgeEndPoint = Arrays.copyOf(edgeEndPoint, capacity);
+			edgeDistance = Arrays.copyOf(edgeDistance, capacity);
+		}
+		int e = edgesCount++;
+		edgeFrom[e] = from;
+		edgeTo[e] = to;
+		edgeWeight[e] = weight;
+		edgeChild1[e] = child1;
+		edgeChild2[e] = child2;
+		edgeRoadId[e] = roadId;
+		edgeStartPoint[e] = startPoint;
+		edgeEndPoint[e] = endPoint;
+		edgeDistance[e] = distance;
+		out[from].add(e);
+		in[to].add(e);
+		return e;
+	}
+
+	private int[] contract() {
+		int n = nodeKeys.length;
+		int[] rank = new int[n];
+		contracted = new boolean[n];
+		deletedNeighbours = new int[n];
+		witnessDist = new float[n];
+		Arrays.fill(witnessDist, Float.POSITIVE_INFINITY);
+		NodeHeap queue = new NodeHeap(n);
+		for (int node = 0; node < n; node++) {
+			queue.push(node, priority(node));
+		}
+		int order = 0;
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			// lazy update : recalculate priority and postpone if it is not minimal anymore
+			float p = priority(node);
+			if (!queue.isEmpty() && p > queue.peekKey()) {
+				queue.push(node, p);
+				continue;
+			}
+			processShortcuts(node, true);
+			contracted[node] = true;
+			rank[node] = order++;
+			for (int i = 0; i < out[node].size(); i++) {
+				deletedNeighbours[edgeTo[out[node].get(i)]]++;
+			}
+			for (int i = 0; i < in[node].size(); i++) {
+				deletedNeighbours[edgeFrom[in[node].get(i)]]++;
+			}
+			if (order % 100000 == 0) {
+				log.info("Contracted " + order + " of " + n + " nodes, edges " + edgesCount);
+			}
+		}
+		return rank;
+	}
+
+	private float priority(int node) {
+		int shortcuts = processShortcuts(node, false);
+		int removed = 0;
+		for (int i = 0; i < out[node].size(); i++) {
+			if (!contracted[edgeTo[out[node].get(i)]]) {
+				removed++;
+			}
+		}
+		for (int i = 0; i < in[node].size(); i++) {
+			if (!contracted[edgeFrom[in[node].get(i)]]) {
+				removed++;
+			}
+		}
+		return shortcuts - removed + deletedNeighbours[node];
+	}
+
+	/**
+	 * Counts (and adds if needed) shortcuts required to contract node
+	 */
+	private int processShortcuts(int node, boolean add) {
+		int shortcuts = 0;
+		TIntArrayList inEdges = in[node];
+		TIntArrayList outEdges = out[node];
+		for (int i = 0; i < inEdges.size(); i++) {
+			int e1 = inEdges.get(i);
+			int u = edgeFrom[e1];
+			if (contracted[u] || u == node) {
+				continue;
+			}
+			float maxCost = -1;
+			for (int j = 0; j < outEdges.size(); j++) {
+				int e2 = outEdges.get(j);
+				int x = edgeTo[e2];
+				if (!contracted[x] && x != u && x != node) {
+					maxCost = Math.max(maxCost, edgeWeight[e1] + edgeWeight[e2]);
+				}
+			}
+			if (maxCost < 0) {
+				continue;
+			}
+			witnessSearch(u, node, maxCost);
+			for (int j = 0; j < outEdges.size(); j++) {
+				int e2 = outEdges.get(j);
+				int x = edgeTo[e2];
+				if (contracted[x] || x == u || x == node) {
+					continue;
+				}
+				float cost = edgeWeight[e1] + edgeWeight[e2];
+				if (witnessDist[x] > cost) {
+					shortcuts++;
+					if (add && !hasEdge(u, x, cost)) {
+						// distance of shortcut is sum of children
+						addEdge(u, x, cost, e1, e2, 0, 0, 0, 0);
+						// shortcut is a witness for next pairs of the same source
+						if (witnessDist[x] == Float.POSITIVE_INFINITY) {
+							witnessTouched.add(x);
+						}
+						witnessDist[x] = cost;
+					}
+				}
+			}
+		}
+		resetWitness();
+		return shortcuts;
+	}
+
+	private boolean hasEdge(int from, int to, float maxWeight) {
+		TIntArrayList edges = out[from];
+		for (int i = 0; i < edges.size(); i++) {
+			int e = edges.get(i);
+			if (edgeTo[e] == to && edgeWeight[e] <= maxWeight) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void witnessSearch(int source, int excluded, float maxCost) {
+		resetWitness();
+		NodeHeap queue = witnessQueue;
+		queue.clear();
+		witnessDist[source] = 0;
+		witnessTouched.add(source);
+		queue.push(source, 0);
+		int settled = 0;
+		while (!queue.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+			float d = queue.peekKey();
+			int node = queue.poll();
+			if (d > maxCost) {
+				break;
+			}
+			settled++;
+			TIntArrayList edges = out[node];
+			for (int i = 0; i < edges.size(); i++) {
+				int e = edges.get(i);
+				int next = edgeTo[e];
+				if (next == excluded || contracted[next]) {
+					continue;
+				}
+				float nd = d + edgeWeight[e];
+				if (nd < witnessDist[next]) {
+					if (witnessDist[next] == Float.POSITIVE_INFINITY) {
+						witnessTouched.add(next);
+					}
+					witnessDist[next] = nd;
+					queue.push(next, nd);
+				}
+			}
+		}
+	}
+
+	private void resetWitness() {
+		for (int i = 0; i < witnessTouched.size(); i++) {
+			witnessDist[witnessTouched.get(i)] = Float.POSITIVE_INFINITY;
+		}
+		witnessTouched.resetQuick();
+	}
+}
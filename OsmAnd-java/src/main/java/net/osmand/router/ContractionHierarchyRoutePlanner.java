@@ -0,0 +1,335 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.osm.MapRenderingTypes;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.ContractionHierarchy.HierarchyPath;
+
+/**
+ * Answers route queries using precalculated {@link ContractionHierarchy} and unpacks shortcuts
+ * back to road segments loaded through {@link RoutingContext}.
+ * Hierarchy is not used (route is calculated regularly) if it was built with other router parameters
+ * or impassable roads, if found path passes turn restriction or turn penalty which are not part
+ * of hierarchy, or if points are in different obf files (hierarchy covers one file).
+ */
+class ContractionHierarchyRoutePlanner {
+
+	private static final Log log = PlatformUtil.getLog(ContractionHierarchyRoutePlanner.class);
+
+	/**
+	 * @return route segments (not prepared) or null if hierarchy is not available for these points
+	 */
+	List<RouteSegmentResult> searchRoute(RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end) {
+		boolean sourceAttached = false;
+		boolean targetAttached = false;
+		for (Entry<BinaryMapIndexReader, List<RouteSubregion>> e : ctx.map.entrySet()) {
+			File file = e.getKey().getFile();
+			ContractionHierarchy ch = ContractionHierarchy.getHierarchy(file, ctx.config.routerName);
+			if (ch == null) {
+				continue;
+			}
+			if (!ch.isBuiltFor(ctx.config.router)) {
+				log.info("Routing hierarchy of " + file.getName() + " is built with other router parameters "
+						+ ch.getParams() + " or impassable roads");
+				continue;
+			}
+			Attachment source = attach(ctx, ch, start, true);
+			Attachment target = attach(ctx, ch, end, false);
+			sourceAttached |= source.size > 0;
+			targetAttached |= target.size > 0;
+			if (source.size == 0 || target.size == 0) {
+				continue;
+			}
+			HierarchyPath path = ch.query(source.getNodes(), source.getCosts(), target.getNodes(), target.getCosts());
+			if (path == null) {
+				continue;
+			}
+			List<RouteSegmentResult> res = convertPath(ctx, ch, path, source, target);
+			if (res != null && !isRestricted(ctx, res)) {
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.routingCalculatedTime += path.cost;
+				}
+				ctx.routingTime += path.cost;
+				return res;
+			}
+		}
+		if (sourceAttached && targetAttached) {
+			log.info("Route points are in different files, routing hierarchy covers only one file");
+		}
+		return null;
+	}
+
+	/**
+	 * Fills matrix by many-to-many query of hierarchy (bucket method). Times are calculated between precise points,
+	 * turn restrictions and turn penalties are not taken into account (they are not part of hierarchy).
+	 * @return false if there is no hierarchy for router to which all found points are attached
+	 * (matrix is not changed)
+	 */
+	boolean searchRouteMatrix(RoutingContext ctx, List<RouteSegmentPoint> sources, List<RouteSegmentPoint> targets,
+			RouteMatrix matrix) {
+		for (BinaryMapIndexReader reader : ctx.map.keySet()) {
+			File file = reader.getFile();
+			ContractionHierarchy ch = ContractionHierarchy.getHierarchy(file, ctx.config.routerName);
+			if (ch == null || !ch.isBuiltFor(ctx.config.router)) {
+				continue;
+			}
+			int[][] sourceNodes = new int[sources.size()][];
+			float[][] sourceCosts = new float[sources.size()][];
+			float[][] sourceDistances = new float[sources.size()][];
+			int[][] targetNodes = new int[targets.size()][];
+			float[][] targetCosts = new float[targets.size()][];
+			float[][] targetDistances = new float[targets.size()][];
+			if (!attachAll(ctx, ch, sources, true, sourceNodes, sourceCosts, sourceDistances)
+					|| !attachAll(ctx, ch, targets, false, targetNodes, targetCosts, targetDistances)) {
+				continue;
+			}
+			float[][] times = new float[sources.size()][];
+			float[][] distances = new float[sources.size()][];
+			for (int i = 0; i < sources.size(); i++) {
+				times[i] = matrix.getTimes(i);
+				distances[i] = matrix.getDistances(i);
+				Arrays.fill(times[i], -1);
+				Arrays.fill(distances[i], -1);
+			}
+			ch.queryMatrix(sourceNodes, sourceCosts, sourceDistances, targetNodes, targetCosts, targetDistances,
+					times, distances);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean attachAll(RoutingContext ctx, ContractionHierarchy ch, List<RouteSegmentPoint> points,
+			boolean source, int[][] nodes, float[][] costs, float[][] distances) {
+		for (int i = 0; i < points.size(); i++) {
+			RouteSegmentPoint p = points.get(i);
+			if (p == null) {
+				continue;
+			}
+			Attachment a = attach(ctx, ch, p, source);
+			if (a.size == 0) {
+				// point is in other file
+				return false;
+			}
+			nodes[i] = a.getNodes();
+			costs[i] = a.getCosts();
+			distances[i] = a.getDistances();
+		}
+		return true;
+	}
+
+	/**
+	 * Checks turns of path which are not part of hierarchy (same rules as route planner).
+	 * @return true if path passes turn restriction or turn penalty
+	 */
+	private boolean isRestricted(RoutingContext ctx, List<RouteSegmentResult> res) {
+		VehicleRouter router = ctx.getRouter();
+		RouteDataObject viaRoad = null;
+		for (int i = 1; i < res.size(); i++) {
+			RouteSegmentResult prev = res.get(i - 1);
+			RouteSegmentResult next = res.get(i);
+			RouteDataObject from = prev.getObject();
+			RouteDataObject to = next.getObject();
+			if (from.getId() == to.getId()) {
+				continue;
+			}
+			if (router.restrictionsAware() && (isRestricted(from, 0, to) || (viaRoad != null
+					&& isRestricted(viaRoad, from.getId(), to)))) {
+				log.info("Path of routing hierarchy passes turn restriction " + from.getId() + " -> " + to.getId());
+				return true;
+			}
+			RouteSegment segment = new RouteSegment(to, next.getStartPointIndex());
+			RouteSegment prevSegment = new RouteSegment(from, prev.getStartPointIndex());
+			if (router.calculateTurnTime(segment, next.getEndPointIndex(), prevSegment, prev.getEndPointIndex()) > 0) {
+				log.info("Path of routing hierarchy passes turn penalty " + from.getId() + " -> " + to.getId());
+				return true;
+			}
+			viaRoad = from;
+		}
+		return false;
+	}
+
+	private boolean isRestricted(RouteDataObject from, long viaId, RouteDataObject to) {
+		for (int k = 0; k < from.getRestrictionLength(); k++) {
+			if (from.getRestrictionVia(k) != viaId) {
+				continue;
+			}
+			int type = from.getRestrictionType(k);
+			boolean only = type == MapRenderingTypes.RESTRICTION_ONLY_LEFT_TURN
+					|| type == MapRenderingTypes.RESTRICTION_ONLY_RIGHT_TURN
+					|| type == MapRenderingTypes.RESTRICTION_ONLY_STRAIGHT_ON;
+			if (from.getRestrictionId(k) == to.getId() ? !only : only) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// closest hierarchy nodes in both directions of the road
+	private static class Attachment {
+		RouteSegmentPoint point;
+		int size;
+		int[] nodes = new int[2];
+		float[] costs = new float[2];
+		float[] distances = new float[2];
+		// index of node on the road
+		int[] roadIndexes = new int[2];
+
+		void add(int node, float cost, float distance, int roadIndex) {
+			nodes[size] = node;
+			costs[size] = cost;
+			distances[size] = distance;
+			roadIndexes[size] = roadIndex;
+			size++;
+		}
+
+		int getRoadIndex(int node) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					return roadIndexes[i];
+				}
+			}
+			return -1;
+		}
+
+		int[] getNodes() {
+			return Arrays.copyOf(nodes, size);
+		}
+
+		float[] getCosts() {
+			return Arrays.copyOf(costs, size);
+		}
+
+		float[] getDistances() {
+			return Arrays.copyOf(distances, size);
+		}
+	}
+
+	private Attachment attach(RoutingContext ctx, ContractionHierarchy ch, RouteSegmentPoint pnt, boolean source) {
+		Attachment a = new Attachment();
+		a.point = pnt;
+		RouteDataObject road = pnt.getRoad();
+		int oneway = ctx.getRouter().isOneWay(road);
+		int ind = pnt.getSegmentStart();
+		float speed = calculateSpeed(ctx, road);
+		// source : move away from point, target : move towards point
+		if (source ? oneway >= 0 : oneway <= 0) {
+			attachDirection(ch, a, road, ind, 1, speed);
+		}
+		if (source ? oneway <= 0 : oneway >= 0) {
+			attachDirection(ch, a, road, ind - 1, -1, speed);
+		}
+		return a;
+	}
+
+	private void attachDirection(ContractionHierarchy ch, Attachment a, RouteDataObject road, int ind, int step, float speed) {
+		int px = a.point.preciseX;
+		int py = a.point.preciseY;
+		double dist = 0;
+		for (int i = ind; i >= 0 && i < road.getPointsLength(); i += step) {
+			int x = road.getPoint31XTile(i);
+			int y = road.getPoint31YTile(i);
+			dist += BinaryRoutePlanner.squareRootDist(px, py, x, y);
+			int node = ch.findNode(x, y);
+			if (node >= 0) {
+				a.add(node, (float) (dist / speed), (float) dist, i);
+				return;
+			}
+			px = x;
+			py = y;
+		}
+	}
+
+	private float calculateSpeed(RoutingContext ctx, RouteDataObject road) {
+		VehicleRouter router = ctx.getRouter();
+		float priority = router.defineSpeedPriority(road);
+		float speed = router.defineRoutingSpeed(road) * priority;
+		if (speed == 0) {
+			speed = router.getDefaultSpeed() * priority;
+		}
+		if (speed > router.getMaxSpeed()) {
+			speed = router.getMaxSpeed();
+		}
+		return speed <= 0 ? router.getMinSpeed() : speed;
+	}
+
+	private List<RouteSegmentResult> convertPath(RoutingContext ctx, ContractionHierarchy ch, HierarchyPath path,
+			Attachment source, Attachment target) {
+		List<RouteSegmentResult> res = new ArrayList<RouteSegmentResult>();
+		int sind = source.getRoadIndex(path.sourceNode);
+		RouteDataObject sroad = source.point.getRoad();
+		int sstart = sind >= source.point.getSegmentStart() ? source.point.getSegmentStart() - 1
+				: source.point.getSegmentStart();
+		addSegment(res, new RouteSegmentResult(sroad, sstart, sind));
+		for (int i = 0; i < path.edges.size(); i++) {
+			RouteSegmentResult r = loadEdge(ctx, ch, path.edges.get(i));
+			if (r == null) {
+				log.warn("Road of routing hierarchy is not found " + ch.edgeRoadId[path.edges.get(i)]);
+				return null;
+			}
+			addSegment(res, r);
+		}
+		int tind = target.getRoadIndex(path.targetNode);
+		RouteDataObject troad = target.point.getRoad();
+		int tend = tind >= target.point.getSegmentStart() ? target.point.getSegmentStart() - 1
+				: target.point.getSegmentStart();
+		addSegment(res, new RouteSegmentResult(troad, tind, tend));
+		return res;
+	}
+
+	private void addSegment(List<RouteSegmentResult> res, RouteSegmentResult r) {
+		if (r.getStartPointIndex() == r.getEndPointIndex()) {
+			return;
+		}
+		if (!res.isEmpty()) {
+			RouteSegmentResult last = res.get(res.size() - 1);
+			boolean samePlus = (last.getEndPointIndex() > last.getStartPointIndex()) == (r.getEndPointIndex() > r.getStartPointIndex());
+			if (last.getObject().getId() == r.getObject().getId() && samePlus
+					&& last.getEndPointIndex() == r.getStartPointIndex()) {
+				last.setEndPointIndex(r.getEndPointIndex());
+				return;
+			}
+		}
+		res.add(r);
+	}
+
+	private RouteSegmentResult loadEdge(RoutingContext ctx, ContractionHierarchy ch, int e) {
+		int from = ch.edgeFrom[e];
+		int to = ch.edgeTo[e];
+		int fx = ch.getNodeX(from);
+		int fy = ch.getNodeY(from);
+		RouteSegment s = ctx.loadRouteSegment(fx, fy, 0);
+		RouteSegment found = null;
+		while (s != null) {
+			if (s.getRoad().getId() == ch.edgeRoadId[e] && (found == null
+					|| Math.abs(s.getSegmentStart() - ch.edgeStartPoint[e]) < Math.abs(found.getSegmentStart() - ch.edgeStartPoint[e]))) {
+				found = s;
+			}
+			s = s.getNext();
+		}
+		if (found == null) {
+			return null;
+		}
+		RouteDataObject road = found.getRoad();
+		int step = ch.edgeEndPoint[e] > ch.edgeStartPoint[e] ? 1 : -1;
+		int tx = ch.getNodeX(to);
+		int ty = ch.getNodeY(to);
+		for (int i = found.getSegmentStart() + step; i >= 0 && i < road.getPointsLength(); i += step) {
+			if (road.getPoint31XTile(i) == tx && road.getPoint31YTile(i) == ty) {
+				return new RouteSegmentResult(road, found.getSegmentStart(), i);
+			}
+		}
+		return null;
+	}
+}
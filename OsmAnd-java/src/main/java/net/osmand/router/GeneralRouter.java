@@ -4,7 +4,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -12,8 +12,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
@@ -49,17 +52,20 @@ public class GeneralRouter implements VehicleRouter {
 	private final RouteAttributeContext[] objectAttributes;
 	public final Map<String, String> attributes;
 	private final Map<String, RoutingParameter> parameters;
+	// parameters of built router (sorted by name)
+	private final Map<String, String> parameterValues;
 	private final Map<String, Integer> universalRules;
 	private final List<String> universalRulesById;
-	private final Map<String, BitSet> tagRuleMask;
-	private final ArrayList<Object> ruleToValue;
+	// bit sets are replaced on change and never modified after put
+	private final ConcurrentHashMap<String, BitSet> tagRuleMask;
+	private final RuleValues ruleToValue;
 	private boolean shortestRoute;
 	private boolean heightObstacles;
 	private boolean allowPrivate;
 	private String filename = null;
 	private String profileName = "";
 
-	private Map<RouteRegion, Map<Integer, Integer>> regionConvert = new LinkedHashMap<RouteRegion, Map<Integer,Integer>>();
+	private ConcurrentHashMap<RouteRegion, Map<Integer, Integer>> regionConvert = new ConcurrentHashMap<RouteRegion, Map<Integer,Integer>>();
 	
 	// cached values
 	private boolean restrictionsAware = true;
@@ -79,8 +85,28 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private GeneralRouterProfile profile;
 	
-	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;	
+	// evaluated attributes per region (shared by forward and reverse search threads)
+	private final ConcurrentHashMap<RouteRegion, RegionAttributeTable> attributeTables = new ConcurrentHashMap<RouteRegion, RegionAttributeTable>();
+	private volatile RegionAttributeTable lastAttributeTable;
 	
+	/**
+	 * Values parsed from tags by rule id. Map is copied on write and published through volatile field,
+	 * so lookups are lock free and keys are not boxed. New rules are rare after first routes.
+	 */
+	private static class RuleValues {
+		private volatile TIntObjectHashMap<Object> values = new TIntObjectHashMap<Object>();
+
+		Object get(int id) {
+			return values.get(id);
+		}
+
+		synchronized void put(int id, Object value) {
+			TIntObjectHashMap<Object> copy = new TIntObjectHashMap<Object>(values);
+			copy.put(id, value);
+			values = copy;
+		}
+	}
+
 	public enum RouteDataObjectAttribute {
 		ROAD_SPEED("speed"),
 		ROAD_PRIORITIES("priority"),
@@ -135,6 +161,7 @@ public class GeneralRouter implements VehicleRouter {
 		tagRuleMask = parent.tagRuleMask;
 		ruleToValue = parent.ruleToValue;
 		parameters = parent.parameters;
+		parameterValues = Collections.unmodifiableMap(new TreeMap<String, String>(params));
 		
 		objectAttributes = new RouteAttributeContext[RouteDataObjectAttribute.values().length];
 		for (int i = 0; i < objectAttributes.length; i++) {
@@ -156,7 +183,6 @@ public class GeneralRouter implements VehicleRouter {
 		if (shortestRoute) {
 			maxSpeed = Math.min(CAR_SHORTEST_DEFAULT_SPEED, maxSpeed);
 		}
-		initCaches();
 	}
 	
 	public GeneralRouter(GeneralRouterProfile profile, Map<String, String> attributes) {
@@ -173,21 +199,10 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		universalRules = new LinkedHashMap<String, Integer>();
 		universalRulesById = new ArrayList<String>();
-		tagRuleMask = new LinkedHashMap<String, BitSet>();
-		ruleToValue = new ArrayList<Object>();
+		tagRuleMask = new ConcurrentHashMap<String, BitSet>();
+		ruleToValue = new RuleValues();
 		parameters = new LinkedHashMap<String, GeneralRouter.RoutingParameter>();
-		
-		initCaches();
-
-	}
-
-	@SuppressWarnings("unchecked")
-	private void initCaches() {
-		int l = RouteDataObjectAttribute.values().length;
-		evalCache = new Map[l];
-		for (int i = 0; i < l; i++) {
-			evalCache[i] = new HashMap<>();
-		}
+		parameterValues = Collections.emptyMap();
 	}
 
 	public String getFilename() {
@@ -219,6 +234,13 @@ public class GeneralRouter implements VehicleRouter {
 		return parameters;
 	}
 
+	/**
+	 * @return parameter values router was built with (empty for router of profile)
+	 */
+	public Map<String, String> getParameterValues() {
+		return parameterValues;
+	}
+
 	public void addAttribute(String k, String v) {
 		attributes.put(k, v);
 		if (k.equals("restrictionsAware")) {
@@ -268,8 +290,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public boolean acceptLine(RouteDataObject way) {
-		Float res = getCache(RouteDataObjectAttribute.ACCESS, way);
-		if (res == null) {
+		float res = getCache(RouteDataObjectAttribute.ACCESS, way);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
 			putCache(RouteDataObjectAttribute.ACCESS, way, res);
 		}
@@ -292,17 +314,23 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public int registerTagValueAttribute(String tag, String value) {
 		String key = tag +"$"+value;
-		if(universalRules.containsKey(key)) {
-			return universalRules.get(key);
-		}
-		int id = universalRules.size();
-		universalRulesById.add(key);
-		universalRules.put(key, id);
-		if(!tagRuleMask.containsKey(tag)) {
-			tagRuleMask.put(tag, new BitSet());
+		// rules are shared between routers built from the same parent
+		synchronized (universalRules) {
+			if (universalRules.containsKey(key)) {
+				return universalRules.get(key);
+			}
+			int id = universalRules.size();
+			universalRulesById.add(key);
+			universalRules.put(key, id);
+			BitSet mask = new BitSet();
+			BitSet prev = tagRuleMask.get(tag);
+			if (prev != null) {
+				mask.or(prev);
+			}
+			mask.set(id);
+			tagRuleMask.put(tag, mask);
+			return id;
 		}
-		tagRuleMask.get(tag).set(id);
-		return id;
 	}
 	
 	
@@ -329,18 +357,18 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	private Object parseValueFromTag(int id, String type) {
-		while (ruleToValue.size() <= id) {
-			ruleToValue.add(null);
-		}
 		Object res = ruleToValue.get(id);
 		if (res == null) {
-			String v = universalRulesById.get(id);
+			String v;
+			synchronized (universalRules) {
+				v = universalRulesById.get(id);
+			}
 			String value = v.substring(v.indexOf('$') + 1);
 			res = parseValue(value, type);
 			if (res == null) {
 				res = "";
 			}
-			ruleToValue.set(id, res);
+			ruleToValue.put(id, res);
 		}
 		if ("".equals(res)) {
 			return null;
@@ -348,6 +376,10 @@ public class GeneralRouter implements VehicleRouter {
 		return res;
 	}
 	
+	/**
+	 * Router with resolved parameters. Built router could be shared by concurrent route calculations,
+	 * evaluation doesn't modify rules and caches are concurrent.
+	 */
 	@Override
 	public GeneralRouter build(Map<String, String> params) {
 		return new GeneralRouter(this, params);
@@ -362,28 +394,28 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, dir);
-			if(obst == null) {
+			int combinationId = road.region.getTypesCombinationId(pointTypes);
+			float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, combinationId, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, combinationId, dir, obst);
 			}
 			return obst;
 		}
 		return 0;
 	}
 	
-	TIntArrayList filteredRules = new TIntArrayList();
-	
 	@Override
 	public float defineRoutingObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, dir);
-			if(obst == null) {
+			int combinationId = road.region.getTypesCombinationId(pointTypes);
+			float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, combinationId, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.ROUTING_OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, combinationId, dir, obst);
 			}
 			return obst;
 		}
@@ -446,8 +478,8 @@ public class GeneralRouter implements VehicleRouter {
 				int percentIncl = (int) (incl * 100);
 				percentIncl = (percentIncl + 2)/ 3 * 3 - 2; // 1, 4, 7, 10, .   
 				if(percentIncl >= 1) {
-					objContext.paramContext.incline = diff > 0 ? percentIncl : -percentIncl;
-					sum += objContext.evaluateFloat(road, 0) * (diff > 0? diff : -diff );
+					int incline = diff > 0 ? percentIncl : -percentIncl;
+					sum += objContext.evaluateFloat(road, incline, 0) * (diff > 0? diff : -diff );
 				}
 			}
 		}
@@ -457,12 +489,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public int isOneWay(RouteDataObject road) {
-		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
-		if(res == null) {
+		float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.ONEWAY, road, res);
 		}
-		return res.intValue();
+		return (int) res;
 	}
 	
 	@Override
@@ -472,8 +504,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float getPenaltyTransition(RouteDataObject road) {
-		Float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
-		if (vl == null) {
+		float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
+		if (Float.isNaN(vl)) {
 			vl = (float) getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road, vl);
 		}
@@ -482,8 +514,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public float defineRoutingSpeed(RouteDataObject road) {
-		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road);
-		if (definedSpd == null) {
+		float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road);
+		if (Float.isNaN(definedSpd)) {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
 			putCache(RouteDataObjectAttribute.ROAD_SPEED, road, definedSpd);
@@ -498,8 +530,8 @@ public class GeneralRouter implements VehicleRouter {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 		}
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road);
-		if (sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road);
+		if (Float.isNaN(sp)) {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 			putCache(RouteDataObjectAttribute.ROAD_SPEED, road, sp);
@@ -509,85 +541,103 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineSpeedPriority(RouteDataObject road) {
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road);
+		if (Float.isNaN(sp)) {
 			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road, 1f);
-			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp, false);
+			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp);
 		}
 		return sp;
 	}
 
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
-		putCache(attr, road.region, road.types, val, false);
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val) {
+		putCache(attr, road.region, road.getTypesCombinationId(), false, val);
 	}
-	
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val, boolean extra) {
-		putCache(attr, road.region, road.types, val, extra);
-	}
-	
-	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
-//		TIMER -= System.nanoTime();
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
+
+	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int combinationId, boolean extra, float val) {
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				rM = new HashMap<IntHolder, Float>();
-				ch.put(reg, rM);
-			}
-			rM.put(new IntHolder(types, extra), val);
+			getAttributeTable(reg).put(attr.ordinal(), combinationId * 2 + (extra ? 1 : 0), val);
 		}
-//		TIMER += System.nanoTime();
 	}
-	
-	class IntHolder {
-		private final int[] array;
-		private final boolean extra;
 
-		IntHolder(int[] ts, boolean extra) {
-			array = ts;
-			this.extra = extra;
-		}
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
+		return getCache(attr, road.region, road.getTypesCombinationId(), false);
+	}
 
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(array) + (extra ? 1 : 0);
+	/**
+	 * @return cached value or NaN
+	 */
+	private float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int combinationId, boolean extra) {
+		if (USE_CACHE) {
+			return getAttributeTable(reg).get(attr.ordinal(), combinationId * 2 + (extra ? 1 : 0));
 		}
+		return Float.NaN;
+	}
 
-		@Override
-		public boolean equals(Object other) {
-			if (array == other) {
-				return true;
-			}
-			if (!(other instanceof IntHolder)) {
-				return false;
+	private RegionAttributeTable getAttributeTable(RouteRegion reg) {
+		RegionAttributeTable t = lastAttributeTable;
+		if (t != null && t.region == reg) {
+			return t;
+		}
+		t = attributeTables.get(reg);
+		if (t == null) {
+			t = new RegionAttributeTable(reg, RouteDataObjectAttribute.values().length);
+			RegionAttributeTable prev = attributeTables.putIfAbsent(reg, t);
+			if (prev != null) {
+				t = prev;
 			}
-			if (((IntHolder) other).extra != this.extra) {
-				return false;
-			}
-			// noinspection unchecked
-			return Arrays.equals(array, ((IntHolder) other).array);
 		}
+		lastAttributeTable = t;
+		return t;
 	}
 
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
-		return getCache(attr, road.region, road.types, false);
-	}
-	
-	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-//		TIMER -= System.nanoTime();
-		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				return null;
+	/**
+	 * Evaluated attributes of region indexed by types combination id (2 values per combination:
+	 * without and with extra flag). Not evaluated values are NaN. Values written concurrently could be lost
+	 * when table grows, they are evaluated again then.
+	 */
+	static class RegionAttributeTable {
+		final RouteRegion region;
+		private volatile float[][] values;
+
+		RegionAttributeTable(RouteRegion region, int attributes) {
+			this.region = region;
+			float[][] vls = new float[attributes][];
+			int initial = Math.max(64, 2 * region.getTypesCombinationsCount());
+			for (int i = 0; i < attributes; i++) {
+				vls[i] = newArray(initial);
 			}
-			Float vl = rM.get(new IntHolder(types, extra));
-			if(vl != null) {
-//				TIMER += System.nanoTime();
-				return vl;
+			values = vls;
+		}
+
+		private static float[] newArray(int size) {
+			float[] a = new float[size];
+			Arrays.fill(a, Float.NaN);
+			return a;
+		}
+
+		float get(int attr, int index) {
+			float[] a = values[attr];
+			return index < a.length ? a[index] : Float.NaN;
+		}
+
+		void put(int attr, int index, float val) {
+			float[] a = values[attr];
+			if (index >= a.length) {
+				synchronized (this) {
+					float[][] vls = values;
+					a = vls[attr];
+					if (index >= a.length) {
+						float[][] nvls = vls.clone();
+						float[] na = newArray(Math.max(index + 1, a.length * 2));
+						System.arraycopy(a, 0, na, 0, a.length);
+						nvls[attr] = na;
+						values = nvls;
+						a = na;
+					}
+				}
 			}
+			a[index] = val;
 		}
-		return null;
 	}
 
 	@Override
@@ -734,9 +784,15 @@ public class GeneralRouter implements VehicleRouter {
 	}
 	
 	
+	// immutable, evaluation with incline uses own instance
 	private class ParameterContext {
-		private Map<String, String> vars;
-		private double incline = 0;
+		private final Map<String, String> vars;
+		private final double incline;
+
+		ParameterContext(Map<String, String> vars, double incline) {
+			this.vars = vars;
+			this.incline = incline;
+		}
 	}
 	
 	public class RouteAttributeContext {
@@ -747,12 +803,11 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		public RouteAttributeContext(RouteAttributeContext original, Map<String, String> params){
 			if (params != null) {
-				paramContext = new ParameterContext();
-				paramContext.vars = params;
+				paramContext = new ParameterContext(params, 0);
 			}
 			for(RouteAttributeEvalRule rt : original.rules){
 				if(checkParameter(rt)){
-					rules.add(rt);
+					rules.add(rt.resolve(paramContext));
 				}
 			}
 		}
@@ -797,6 +852,10 @@ public class GeneralRouter implements VehicleRouter {
 		}
 
 		private Object evaluate(BitSet types) {
+			return evaluate(types, paramContext);
+		}
+
+		private Object evaluate(BitSet types, ParameterContext paramContext) {
 			for (int k = 0; k < rules.size(); k++) {
 				RouteAttributeEvalRule r = rules.get(k);
 				Object o = r.eval(types, paramContext);
@@ -858,6 +917,15 @@ public class GeneralRouter implements VehicleRouter {
 			return ((Number)o).floatValue();
 		}
 		
+		public float evaluateFloat(RouteDataObject ro, double incline, float defValue) {
+			ParameterContext inclineContext = new ParameterContext(paramContext == null ? null : paramContext.vars, incline);
+			Object o = evaluate(convert(ro.region, ro.types), inclineContext);
+			if(!(o instanceof Number)) {
+				return defValue;
+			}
+			return ((Number)o).floatValue();
+		}
+		
 		public float evaluateFloat(RouteRegion region, int[] types, float defValue) {
 			Object o = evaluate(convert(region, types));
 			if(!(o instanceof Number)) {
@@ -878,8 +946,11 @@ public class GeneralRouter implements VehicleRouter {
 			BitSet b = new BitSet(universalRules.size());
 			Map<Integer, Integer> map = regionConvert.get(reg);
 			if(map == null){
-				map = new HashMap<Integer, Integer>();
-				regionConvert.put(reg, map);
+				map = new ConcurrentHashMap<Integer, Integer>();
+				Map<Integer, Integer> prev = regionConvert.putIfAbsent(reg, map);
+				if (prev != null) {
+					map = prev;
+				}
 			}
 			for(int k = 0; k < types.length; k++) {
 				Integer nid = map.get(types[k]);
@@ -956,10 +1027,10 @@ public class GeneralRouter implements VehicleRouter {
 					o = parseValueFromTag(v, valueType);
 				}
 			} else if (value instanceof String && value.equals(":incline")) {
-				return paramContext.incline;
+				return paramContext != null ? paramContext.incline : 0;
 			} else if (value instanceof String && value.toString().startsWith(":")) {
 				String p = ((String) value).substring(1);
-				if (paramContext != null && paramContext.vars.containsKey(p)) {
+				if (paramContext != null && paramContext.vars != null && paramContext.vars.containsKey(p)) {
 					o = parseValue(paramContext.vars.get(p), valueType);
 				}
 			}
@@ -984,7 +1055,6 @@ public class GeneralRouter implements VehicleRouter {
 		protected String selectType = null;
 		protected BitSet filterTypes = new BitSet();
 		protected BitSet filterNotTypes = new BitSet();
-		protected BitSet evalFilterTypes = new BitSet();
 		
 		protected Set<String> onlyTags = new LinkedHashSet<String>();
 		protected Set<String> onlyNotTags = new LinkedHashSet<String>();
@@ -1100,12 +1170,41 @@ public class GeneralRouter implements VehicleRouter {
 			parameters.add(param);
 		}
 
-		public synchronized Object eval(BitSet types, ParameterContext paramContext) {
+		public Object eval(BitSet types, ParameterContext paramContext) {
 			if (matches(types, paramContext)) {
 				return calcSelectValue(types, paramContext);
 			}
 			return null;
 		}
+
+		/**
+		 * @return rule with select value of parameter (:param) resolved for router parameters, rule itself
+		 * if select value is not parameter. Rules are shared between routers and never modified during evaluation.
+		 */
+		RouteAttributeEvalRule resolve(ParameterContext paramContext) {
+			if (!(selectValue instanceof String && selectValue.toString().startsWith(":"))) {
+				return this;
+			}
+			RouteAttributeEvalRule r = new RouteAttributeEvalRule();
+			r.parameters = parameters;
+			r.tagValueCondDefTag = tagValueCondDefTag;
+			r.tagValueCondDefValue = tagValueCondDefValue;
+			r.tagValueCondDefNot = tagValueCondDefNot;
+			r.selectValueDef = selectValueDef;
+			r.selectType = selectType;
+			r.filterTypes = filterTypes;
+			r.filterNotTypes = filterNotTypes;
+			r.onlyTags = onlyTags;
+			r.onlyNotTags = onlyNotTags;
+			r.expressions = expressions;
+			String p = ((String) selectValue).substring(1);
+			if (paramContext != null && paramContext.vars.containsKey(p)) {
+				r.selectValue = parseValue(paramContext.vars.get(p), selectType);
+			} else {
+				r.selectValue = null;
+			}
+			return r;
+		}
 		
 
 		protected Object calcSelectValue(BitSet types, ParameterContext paramContext) {
@@ -1119,9 +1218,10 @@ public class GeneralRouter implements VehicleRouter {
 					return parseValueFromTag(value, selectType);
 				}
 			} else if (selectValue instanceof String && selectValue.toString().startsWith(":")) {
+				// not resolved for router parameters
 				String p = ((String) selectValue).substring(1);
-				if (paramContext != null && paramContext.vars.containsKey(p)) {
-					selectValue = parseValue(paramContext.vars.get(p), selectType);
+				if (paramContext != null && paramContext.vars != null && paramContext.vars.containsKey(p)) {
+					return parseValue(paramContext.vars.get(p), selectType);
 				} else {
 					return null;
 				}
@@ -1185,14 +1285,11 @@ public class GeneralRouter implements VehicleRouter {
 		}
 
 		private boolean checkAllTypesShouldBePresent(BitSet types) {
-			// Bitset method subset is missing "filterTypes.isSubset(types)"    
-			// reset previous evaluation
-			// evalFilterTypes.clear(); // not needed same as or()
-			evalFilterTypes.or(filterTypes);
-			// evaluate bit intersection and check if filterTypes contained as set in types
-			evalFilterTypes.and(types);
-			if(!evalFilterTypes.equals(filterTypes)) {
-				return false;
+			// Bitset method subset is missing "filterTypes.isSubset(types)"
+			for (int i = filterTypes.nextSetBit(0); i >= 0; i = filterTypes.nextSetBit(i + 1)) {
+				if (!types.get(i)) {
+					return false;
+				}
 			}
 			return true;
 		}
@@ -0,0 +1,365 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPoint;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutePlannerFrontEnd.GpxRouteApproximation;
+import net.osmand.util.MapUtils;
+
+/**
+ * Map matching of gpx points with hidden Markov model: road projections of point are hidden states,
+ * transitions between states of consecutive points are routes of bounded one to many search.
+ * Most probable sequence is found by Viterbi algorithm over sliding window, so decision for old points
+ * is made (and their route is prepared) while track is processed.
+ */
+class GpxHmmMatcher {
+
+	// points to find road candidates at once (in parallel)
+	private static final int CANDIDATES_BATCH = 64;
+	// zoom of area around point to look for roads
+	private static final int CANDIDATES_ZOOM = 17;
+
+	private static ExecutorService candidatesExecutor;
+
+	static class State {
+		final GpxPoint point;
+		final RouteSegmentPoint pnt;
+		// log probability of point to be measured at projection
+		final double emission;
+		double score = Double.NEGATIVE_INFINITY;
+		State prev;
+		// route from previous state (null if both projections are on same road segment)
+		FinalRouteSegment route;
+
+		State(GpxPoint point, RouteSegmentPoint pnt, double emission) {
+			this.point = point;
+			this.pnt = pnt;
+			this.emission = emission;
+		}
+	}
+
+	private final RoutePlannerFrontEnd frontEnd;
+	private final GpxRouteApproximation gctx;
+	private final RoutingContext ctx;
+	private final BinaryRoutePlanner planner = new BinaryRoutePlanner();
+	// layers of points which are not decided yet
+	private final Deque<List<State>> window = new ArrayDeque<List<State>>();
+	// decided part of currently matched chain
+	private State chainStart;
+	private State chainEnd;
+	private List<RouteSegmentResult> chainRoute;
+
+	GpxHmmMatcher(RoutePlannerFrontEnd frontEnd, GpxRouteApproximation gctx) {
+		this.frontEnd = frontEnd;
+		this.gctx = gctx;
+		this.ctx = gctx.ctx;
+	}
+
+	/**
+	 * Sets route to target for first point of each matched chain, points outside chains are not matched.
+	 */
+	void match(List<GpxPoint> gpxPoints) throws IOException, InterruptedException {
+		RouteCalculationProgress progress = ctx.calculationProgress;
+		progress.totalIterations = gpxPoints.size() / CANDIDATES_BATCH + 1;
+		GpxPoint lastSelected = null;
+		for (int b = 0; b < gpxPoints.size() && !progress.isCancelled; b += CANDIDATES_BATCH) {
+			progress.iteration = b / CANDIDATES_BATCH;
+			// points within GPS error of previous one don't add information
+			List<GpxPoint> batch = new ArrayList<GpxPoint>();
+			for (int i = b; i < Math.min(b + CANDIDATES_BATCH, gpxPoints.size()); i++) {
+				GpxPoint p = gpxPoints.get(i);
+				if (lastSelected == null || i == gpxPoints.size() - 1
+						|| p.cumDist - lastSelected.cumDist >= 2 * gctx.HMM_GPS_SIGMA) {
+					batch.add(p);
+					lastSelected = p;
+				}
+			}
+			for (List<State> layer : findCandidates(batch)) {
+				if (progress.isCancelled) {
+					return;
+				}
+				if (!layer.isEmpty()) {
+					addLayer(layer);
+				}
+			}
+		}
+		finishChain();
+	}
+
+	private void addLayer(List<State> layer) throws IOException, InterruptedException {
+		List<State> last = window.peekLast();
+		boolean connected = false;
+		if (last != null && layer.get(0).point.cumDist - last.get(0).point.cumDist <= gctx.MAXIMUM_STEP_APPROXIMATION) {
+			connected = calculateTransitions(last, layer);
+		}
+		if (!connected) {
+			// HMM break: decide current chain and start new one
+			finishChain();
+			for (State s : layer) {
+				s.score = s.emission;
+			}
+		}
+		window.addLast(layer);
+		if (window.size() > gctx.HMM_WINDOW) {
+			decideFirstLayer();
+		}
+	}
+
+	private boolean calculateTransitions(List<State> from, List<State> to) throws IOException, InterruptedException {
+		GpxPoint fromPoint = from.get(0).point;
+		GpxPoint toPoint = to.get(0).point;
+		double straightDist = MapUtils.getDistance(fromPoint.loc, toPoint.loc);
+		float maxDistance = (float) (1.5 * (toPoint.cumDist - fromPoint.cumDist) + 2 * gctx.MINIMUM_POINT_APPROXIMATION);
+		float[] times = new float[to.size()];
+		float[] distances = new float[to.size()];
+		FinalRouteSegment[] routes = new FinalRouteSegment[to.size()];
+		List<RouteSegmentPoint> targets = new ArrayList<RouteSegmentPoint>(to.size());
+		boolean connected = false;
+		for (State p : from) {
+			if (p.score == Double.NEGATIVE_INFINITY) {
+				continue;
+			}
+			targets.clear();
+			for (State t : to) {
+				targets.add(onSameSegment(p, t) ? null : t.pnt);
+			}
+			RouteSegmentPoint start = new RouteSegmentPoint(p.pnt);
+			ctx.initStartAndTargetPoints(start, to.get(0).pnt);
+			planner.searchRouteToTargets(ctx, start, targets, times, distances, maxDistance, routes);
+			gctx.routeCalculations++;
+			gctx.routeDistCalculations += (toPoint.cumDist - fromPoint.cumDist);
+			for (int j = 0; j < to.size(); j++) {
+				State t = to.get(j);
+				double routeDist;
+				if (targets.get(j) == null) {
+					routeDist = MapUtils.squareRootDist31(p.pnt.preciseX, p.pnt.preciseY, t.pnt.preciseX, t.pnt.preciseY);
+				} else if (distances[j] >= 0) {
+					routeDist = distances[j];
+				} else {
+					continue;
+				}
+				double score = p.score + t.emission - Math.abs(routeDist - straightDist) / gctx.HMM_TRANSITION_BETA;
+				if (score > t.score) {
+					t.score = score;
+					t.prev = p;
+					t.route = targets.get(j) == null ? null : routes[j];
+					connected = true;
+				}
+			}
+		}
+		return connected;
+	}
+
+	private static boolean onSameSegment(State s1, State s2) {
+		return s1.pnt.getRoad().getId() == s2.pnt.getRoad().getId()
+				&& s1.pnt.getSegmentStart() == s2.pnt.getSegmentStart();
+	}
+
+	private void decideFirstLayer() throws IOException {
+		State s = getBestState(window.peekLast());
+		for (int i = window.size() - 1; i > 0; i--) {
+			s = s.prev;
+		}
+		window.removeFirst();
+		decide(s);
+		// states which continue other states of decided layer are not possible anymore
+		Iterator<List<State>> it = window.iterator();
+		List<State> prevLayer = null;
+		while (it.hasNext()) {
+			List<State> layer = it.next();
+			for (State n : layer) {
+				boolean possible = prevLayer == null ? n.prev == s
+						: n.prev != null && n.prev.score != Double.NEGATIVE_INFINITY;
+				if (!possible) {
+					n.score = Double.NEGATIVE_INFINITY;
+					n.prev = null;
+					n.route = null;
+				}
+			}
+			prevLayer = layer;
+		}
+	}
+
+	private void finishChain() throws IOException {
+		if (!window.isEmpty()) {
+			List<State> path = new ArrayList<State>(window.size());
+			State s = getBestState(window.peekLast());
+			for (int i = 0; i < window.size(); i++) {
+				path.add(s);
+				s = s.prev;
+			}
+			window.clear();
+			for (int i = path.size() - 1; i >= 0; i--) {
+				decide(path.get(i));
+			}
+		}
+		if (chainRoute != null && !chainRoute.isEmpty()) {
+			frontEnd.makeSegmentPointPrecise(chainRoute.get(0), chainStart.point.loc, true);
+			frontEnd.makeSegmentPointPrecise(chainRoute.get(chainRoute.size() - 1), chainEnd.point.loc, false);
+			new RouteResultPreparation().prepareResult(ctx, chainRoute, false);
+			chainStart.point.pnt = chainStart.pnt;
+			chainStart.point.routeToTarget = chainRoute;
+			chainStart.point.targetInd = chainEnd.point.ind;
+		}
+		chainStart = null;
+		chainEnd = null;
+		chainRoute = null;
+	}
+
+	private void decide(State s) {
+		if (s.prev == null) {
+			chainStart = s;
+			chainRoute = new ArrayList<RouteSegmentResult>();
+		} else {
+			List<RouteSegmentResult> res = s.route == null ? Collections.<RouteSegmentResult>emptyList()
+					: new RouteResultPreparation().convertFinalSegmentToResults(ctx, s.route);
+			if (chainRoute.isEmpty() && res.isEmpty()) {
+				// route starts from this point
+				chainStart = s;
+			} else {
+				appendRoute(res);
+			}
+		}
+		chainEnd = s;
+		// release search tree of route
+		s.prev = null;
+		s.route = null;
+	}
+
+	private void appendRoute(List<RouteSegmentResult> res) {
+		int size = res.size();
+		if (size > 1) {
+			// route reaches target from the end of its road segment and returns back
+			RouteSegmentResult last = res.get(size - 1);
+			RouteSegmentResult beforeLast = res.get(size - 2);
+			if (last.getObject().getId() == beforeLast.getObject().getId()
+					&& last.getStartPointIndex() == beforeLast.getEndPointIndex()
+					&& last.isForwardDirection() != beforeLast.isForwardDirection()) {
+				res.remove(size - 1);
+			}
+		}
+		if (!chainRoute.isEmpty() && !res.isEmpty()) {
+			// start point of route could shift to +-1 due to direction
+			RouteSegmentResult last = chainRoute.get(chainRoute.size() - 1);
+			RouteSegmentResult first = res.get(0);
+			if (last.getObject().getId() == first.getObject().getId()) {
+				first.setStartPointIndex(last.getEndPointIndex());
+				if (first.getStartPointIndex() == first.getEndPointIndex()) {
+					res.remove(0);
+				}
+			}
+		}
+		chainRoute.addAll(res);
+	}
+
+	private static State getBestState(List<State> layer) {
+		State best = null;
+		for (State s : layer) {
+			if (best == null || s.score > best.score) {
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	private List<List<State>> findCandidates(List<GpxPoint> points) throws InterruptedException {
+		// tiles of all points are loaded at once in order of file position,
+		// only projections to roads (which don't use routing context) are calculated in parallel
+		TLongHashSet tileIds = new TLongHashSet();
+		for (GpxPoint p : points) {
+			ctx.getTileIdsAround(MapUtils.get31TileNumberX(p.loc.getLongitude()),
+					MapUtils.get31TileNumberY(p.loc.getLatitude()), CANDIDATES_ZOOM, tileIds);
+		}
+		ctx.loadRoutingTiles(tileIds);
+		List<Callable<List<State>>> tasks = new ArrayList<Callable<List<State>>>(points.size());
+		for (final GpxPoint p : points) {
+			final List<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
+			gctx.routePointsSearched++;
+			ctx.loadTileData(MapUtils.get31TileNumberX(p.loc.getLongitude()),
+					MapUtils.get31TileNumberY(p.loc.getLatitude()), CANDIDATES_ZOOM, dataObjects);
+			tasks.add(new Callable<List<State>>() {
+				@Override
+				public List<State> call() {
+					return findCandidates(p, dataObjects);
+				}
+			});
+		}
+		List<List<State>> res = new ArrayList<List<State>>(points.size());
+		for (Future<List<State>> f : getCandidatesExecutor().invokeAll(tasks)) {
+			try {
+				res.add(f.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return res;
+	}
+
+	private List<State> findCandidates(GpxPoint p, List<RouteDataObject> dataObjects) {
+		int px = MapUtils.get31TileNumberX(p.loc.getLongitude());
+		int py = MapUtils.get31TileNumberY(p.loc.getLatitude());
+		List<State> candidates = new ArrayList<State>();
+		for (RouteDataObject r : dataObjects) {
+			double minDist = gctx.MINIMUM_POINT_APPROXIMATION;
+			RouteSegmentPoint road = null;
+			for (int j = 1; j < r.getPointsLength(); j++) {
+				QuadPoint pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(j - 1),
+						r.getPoint31YTile(j - 1), r.getPoint31XTile(j), r.getPoint31YTile(j));
+				double dist = MapUtils.squareRootDist31((int) pr.x, (int) pr.y, px, py);
+				if (dist <= minDist) {
+					minDist = dist;
+					road = new RouteSegmentPoint(r, j, dist * dist);
+					road.preciseX = (int) pr.x;
+					road.preciseY = (int) pr.y;
+				}
+			}
+			if (road != null) {
+				double z = minDist / gctx.HMM_GPS_SIGMA;
+				candidates.add(new State(p, road, -0.5 * z * z));
+			}
+		}
+		Collections.sort(candidates, new Comparator<State>() {
+			@Override
+			public int compare(State o1, State o2) {
+				return Double.compare(o1.pnt.distSquare, o2.pnt.distSquare);
+			}
+		});
+		if (candidates.size() > gctx.HMM_MAX_CANDIDATES) {
+			candidates = new ArrayList<State>(candidates.subList(0, gctx.HMM_MAX_CANDIDATES));
+		}
+		return candidates;
+	}
+
+	private static synchronized ExecutorService getCandidatesExecutor() {
+		if (candidatesExecutor == null) {
+			candidatesExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Gpx road candidates");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return candidatesExecutor;
+	}
+}
@@ -0,0 +1,146 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+/**
+ * Indexed 4-ary min heap with float keys in primitive array. Subclasses keep elements in their own
+ * arrays and track position of every element, so key of queued element could be updated in place
+ * (decrease / increase key) instead of adding duplicates.
+ */
+abstract class IndexedMinHeap {
+
+	private static final int ARITY_SHIFT = 2;
+	private static final int ARITY = 1 << ARITY_SHIFT;
+
+	protected float[] keys;
+	protected int size;
+
+	IndexedMinHeap(int initialCapacity) {
+		keys = new float[Math.max(initialCapacity, ARITY)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public float peekKey() {
+		return size == 0 ? Float.POSITIVE_INFINITY : keys[0];
+	}
+
+	/**
+	 * Grows element arrays of subclass to capacity.
+	 */
+	protected abstract void grow(int capacity);
+
+	/**
+	 * Moves element from one position to another and updates its position.
+	 */
+	protected abstract void move(int from, int to);
+
+	/**
+	 * Keeps element of position aside while it is sifted (position is overwritten by moves).
+	 */
+	protected abstract void hold(int ind);
+
+	/**
+	 * Puts held element to position and updates its position.
+	 */
+	protected abstract void place(int ind);
+
+	/**
+	 * Clears position (element at it was removed).
+	 */
+	protected abstract void release(int ind);
+
+	/**
+	 * @return position for new element (element should be put there by subclass, then {@link #siftUp(int)})
+	 */
+	protected int add(float key) {
+		if (size == keys.length) {
+			int capacity = size + (size >> 1);
+			keys = Arrays.copyOf(keys, capacity);
+			grow(capacity);
+		}
+		int ind = size++;
+		keys[ind] = key;
+		return ind;
+	}
+
+	protected void update(int ind, float key) {
+		float old = keys[ind];
+		keys[ind] = key;
+		if (key < old) {
+			siftUp(ind);
+		} else if (key > old) {
+			siftDown(ind);
+		}
+	}
+
+	/**
+	 * Removes element of position (subclass has already unindexed it).
+	 */
+	protected void removeAt(int ind) {
+		int last = --size;
+		if (ind == last) {
+			release(last);
+			return;
+		}
+		float removedKey = keys[ind];
+		keys[ind] = keys[last];
+		move(last, ind);
+		release(last);
+		if (keys[ind] < removedKey) {
+			siftUp(ind);
+		} else {
+			siftDown(ind);
+		}
+	}
+
+	protected void siftUp(int ind) {
+		float key = keys[ind];
+		hold(ind);
+		while (ind > 0) {
+			int parent = (ind - 1) >> ARITY_SHIFT;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[ind] = keys[parent];
+			move(parent, ind);
+			ind = parent;
+		}
+		keys[ind] = key;
+		place(ind);
+	}
+
+	protected void siftDown(int ind) {
+		float key = keys[ind];
+		hold(ind);
+		while (true) {
+			int first = (ind << ARITY_SHIFT) + 1;
+			if (first >= size) {
+				break;
+			}
+			int last = Math.min(first + ARITY, size);
+			int min = first;
+			float minKey = keys[first];
+			for (int c = first + 1; c < last; c++) {
+				if (keys[c] < minKey) {
+					min = c;
+					minKey = keys[c];
+				}
+			}
+			if (minKey >= key) {
+				break;
+			}
+			keys[ind] = minKey;
+			move(min, ind);
+			ind = min;
+		}
+		keys[ind] = key;
+		place(ind);
+	}
+}
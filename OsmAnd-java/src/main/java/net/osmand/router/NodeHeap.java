@@ -0,0 +1,82 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Indexed min heap of int node ids with float keys (nodes of {@link ContractionHierarchy}).
+ * Node is present only once, pushing queued node again updates its key.
+ */
+class NodeHeap extends IndexedMinHeap {
+
+	private int[] nodes;
+	private final TIntIntHashMap positions = new TIntIntHashMap(64, 0.5f, -1, -1);
+	private int heldNode;
+
+	NodeHeap() {
+		this(64);
+	}
+
+	NodeHeap(int initialCapacity) {
+		super(initialCapacity);
+		nodes = new int[keys.length];
+	}
+
+	public boolean contains(int node) {
+		return positions.get(node) >= 0;
+	}
+
+	/**
+	 * Adds node to the heap or updates its key if it is already present (decrease / increase key).
+	 */
+	public void push(int node, float key) {
+		int ind = positions.get(node);
+		if (ind >= 0) {
+			update(ind, key);
+			return;
+		}
+		ind = add(key);
+		nodes[ind] = node;
+		positions.put(node, ind);
+		siftUp(ind);
+	}
+
+	public int poll() {
+		int top = nodes[0];
+		positions.remove(top);
+		removeAt(0);
+		return top;
+	}
+
+	public void clear() {
+		size = 0;
+		positions.clear();
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		nodes = Arrays.copyOf(nodes, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		nodes[to] = nodes[from];
+		positions.put(nodes[to], to);
+	}
+
+	@Override
+	protected void hold(int ind) {
+		heldNode = nodes[ind];
+	}
+
+	@Override
+	protected void place(int ind) {
+		nodes[ind] = heldNode;
+		positions.put(heldNode, ind);
+	}
+
+	@Override
+	protected void release(int ind) {
+	}
+}
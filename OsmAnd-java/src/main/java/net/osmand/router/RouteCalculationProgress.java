@@ -23,6 +23,7 @@ public class RouteCalculationProgress {
 	public int visitedOppositeSegments = 0;
 	public int directQueueSize = 0;
 	public int oppositeQueueSize = 0;
+	public int updatedQueueSegments = 0;
 	
 	public int totalIterations = 1;
 	public int iteration = -1;
@@ -38,6 +39,10 @@ public class RouteCalculationProgress {
 	public int loadedPrevUnloadedTiles = 0;
 	public int unloadedTiles = 0;
 	public int loadedTiles = 0;
+	public int reloadedTiles = 0;
+	public long loadedTilesSize = 0;
+	public long maxLoadedTilesSize = 0;
+	public int reusedReverseSegments = 0;
 	
 	public boolean isCancelled;
 	public boolean requestPrivateAccessRouting;
@@ -70,6 +75,30 @@ public class RouteCalculationProgress {
 		return Math.min(progress * 100f, 99);
 	}
 
+	/**
+	 * Adds counters of finished calculation (e.g. route leg calculated in own context)
+	 */
+	public void add(RouteCalculationProgress p) {
+		relaxedSegments += p.relaxedSegments;
+		visitedSegments += p.visitedSegments;
+		visitedDirectSegments += p.visitedDirectSegments;
+		visitedOppositeSegments += p.visitedOppositeSegments;
+		directQueueSize += p.directQueueSize;
+		oppositeQueueSize += p.oppositeQueueSize;
+		updatedQueueSegments += p.updatedQueueSegments;
+		timeToLoad += p.timeToLoad;
+		timeToLoadHeaders += p.timeToLoadHeaders;
+		timeToCalculate += p.timeToCalculate;
+		distinctLoadedTiles += p.distinctLoadedTiles;
+		maxLoadedTiles = Math.max(maxLoadedTiles, p.maxLoadedTiles);
+		loadedPrevUnloadedTiles += p.loadedPrevUnloadedTiles;
+		unloadedTiles += p.unloadedTiles;
+		loadedTiles += p.loadedTiles;
+		reloadedTiles += p.reloadedTiles;
+		maxLoadedTilesSize = Math.max(maxLoadedTilesSize, p.maxLoadedTilesSize);
+		reusedReverseSegments += p.reusedReverseSegments;
+	}
+
 	public void nextIteration() {
 		iteration++;
 		totalEstimatedDistance = 0;
@@ -0,0 +1,63 @@
+package net.osmand.router;
+
+/**
+ * Travel times (seconds) and distances (meters) between sources (rows) and targets (columns).
+ * Not reachable pairs have negative values.
+ */
+public class RouteMatrix {
+
+	private final float[][] times;
+	private final float[][] distances;
+
+	public RouteMatrix(int sources, int targets) {
+		times = new float[sources][targets];
+		distances = new float[sources][targets];
+	}
+
+	public int getSourcesCount() {
+		return times.length;
+	}
+
+	public int getTargetsCount() {
+		return times.length == 0 ? 0 : times[0].length;
+	}
+
+	public float getTime(int source, int target) {
+		return times[source][target];
+	}
+
+	public float getDistance(int source, int target) {
+		return distances[source][target];
+	}
+
+	public boolean isReachable(int source, int target) {
+		return times[source][target] >= 0;
+	}
+
+	float[] getTimes(int source) {
+		return times[source];
+	}
+
+	float[] getDistances(int source) {
+		return distances[source];
+	}
+
+	/**
+	 * Cost matrix for TSP solvers ({@link net.osmand.TspAnt}, {@link net.osmand.TspHeldKarp})
+	 */
+	public double[][] toCostMatrix(boolean time, double unreachableCost) {
+		double[][] cost = new double[getSourcesCount()][getTargetsCount()];
+		for (int i = 0; i < cost.length; i++) {
+			for (int j = 0; j < cost[i].length; j++) {
+				if (i == j && cost.length == cost[i].length) {
+					cost[i][j] = 0;
+				} else if (isReachable(i, j)) {
+					cost[i][j] = time ? times[i][j] : distances[i][j];
+				} else {
+					cost[i][j] = unreachableCost;
+				}
+			}
+		}
+		return cost;
+	}
+}
@@ -10,6 +10,7 @@ import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.LatLon;
 import net.osmand.data.QuadPoint;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.util.MapUtils;
@@ -23,8 +24,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TLongHashSet;
 
 public class RoutePlannerFrontEnd {
 
@@ -33,6 +43,8 @@ public class RoutePlannerFrontEnd {
 	protected static final double GPS_POSSIBLE_ERROR = 7;
 	public boolean useSmartRouteRecalculation = true;
 	public static final boolean USE_NATIVE_APPROXIMATION = true;
+	private static ExecutorService routeLegsExecutor;
+	private static final long ROUTE_LEG_CANCEL_CHECK_MS = 100;
 
 	
 	public RoutePlannerFrontEnd() {
@@ -41,7 +53,9 @@ public class RoutePlannerFrontEnd {
 	public enum RouteCalculationMode {
 		BASE,
 		NORMAL,
-		COMPLEX
+		COMPLEX,
+		// long routes are answered by precalculated contraction hierarchy (see ContractionHierarchyBuilder)
+		CONTRACTION_HIERARCHY
 	}
 	
 	public static class GpxRouteApproximation {
@@ -53,6 +67,14 @@ public class RoutePlannerFrontEnd {
 		public double MINIMUM_STEP_APPROXIMATION = 100;
 		// Parameter to smoother the track itself (could be 0 if it's not recorded track)
 		public double SMOOTHEN_POINTS_NO_ROUTE = 5;
+		// HMM matcher: GPS error (m) of probability that point is measured at road projection
+		public double HMM_GPS_SIGMA = 10;
+		// HMM matcher: difference (m) of route and straight distances between points making transition less probable
+		public double HMM_TRANSITION_BETA = 50;
+		// HMM matcher: maximum road projections considered for each point
+		public int HMM_MAX_CANDIDATES = 8;
+		// HMM matcher: points after which road of older point is decided (sliding window)
+		public int HMM_WINDOW = 30;
 		
 		public final RoutingContext ctx;
 		public int routeCalculations = 0;
@@ -318,6 +340,30 @@ public class RoutePlannerFrontEnd {
 		return gctx;
 	}
 
+	/**
+	 * Alternative to {@link #searchGpxRoute} matching points with hidden Markov model (see {@link GpxHmmMatcher}):
+	 * routes are calculated only between road projections of consecutive points with short bounded searches.
+	 */
+	public GpxRouteApproximation searchGpxRouteHmm(GpxRouteApproximation gctx, List<GpxPoint> gpxPoints,
+			ResultMatcher<GpxRouteApproximation> resultMatcher) throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
+		if (gctx.ctx.calculationProgress == null) {
+			gctx.ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		new GpxHmmMatcher(this, gctx).match(gpxPoints);
+		gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+		BinaryRoutePlanner.printDebugMemoryInformation(gctx.ctx);
+		calculateGpxRoute(gctx, gpxPoints);
+		if (!gctx.result.isEmpty() && !gctx.ctx.calculationProgress.isCancelled) {
+			new RouteResultPreparation().printResults(gctx.ctx, gpxPoints.get(0).loc, gpxPoints.get(gpxPoints.size() - 1).loc, gctx.result);
+			System.out.println(gctx);
+		}
+		if (resultMatcher != null) {
+			resultMatcher.publish(gctx.ctx.calculationProgress.isCancelled ? null : gctx);
+		}
+		return gctx;
+	}
+
 	private boolean stepBackAndFindPrevPointInRoute(GpxRouteApproximation gctx,
 			List<GpxPoint> gpxPoints, GpxPoint start, GpxPoint next) throws IOException {
 		// step back to find to be sure 
@@ -670,6 +716,189 @@ public class RoutePlannerFrontEnd {
 		return res;
 	}
 
+	/**
+	 * Calculate road segments reachable from start within time (seconds) and/or distance (meters) budget.
+	 * Budget <= 0 is not limited, at least one budget should be set.
+	 * @return null if start point is not found
+	 */
+	public RouteReachableArea searchReachableArea(final RoutingContext ctx, LatLon start, float maxTime, float maxDistance)
+			throws IOException, InterruptedException {
+		if (maxTime <= 0 && maxDistance <= 0) {
+			throw new IllegalArgumentException("Time or distance budget should be set");
+		}
+		long timeToCalculate = System.nanoTime();
+		if (ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		RouteSegmentPoint startPoint = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+		if (startPoint == null) {
+			return null;
+		}
+		ctx.initStartAndTargetPoints(startPoint, startPoint);
+		RouteReachableArea area = new BinaryRoutePlanner().searchReachableArea(ctx, startPoint, maxTime, maxDistance);
+		ctx.calculationProgress.timeToCalculate += (System.nanoTime() - timeToCalculate);
+		return area;
+	}
+
+	/**
+	 * Calculate travel times and distances from each source to all targets.
+	 * In {@link RouteCalculationMode#CONTRACTION_HIERARCHY} mode matrix is calculated by many-to-many bucket method
+	 * of routing hierarchy if all points are in one obf file with hierarchy built for router (turn restrictions
+	 * and penalties are not taken into account then). Otherwise it is a convenience wrapper over one multi-target
+	 * search per source (N searches instead of N * M point to point searches), loaded tiles are shared by all sources.
+	 */
+	public RouteMatrix searchRouteMatrix(final RoutingContext ctx, List<LatLon> sources, List<LatLon> targets)
+			throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
+		if (ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		RouteMatrix matrix = new RouteMatrix(sources.size(), targets.size());
+		List<RouteSegmentPoint> targetPoints = findRouteSegments(ctx, targets);
+		List<RouteSegmentPoint> sourcePoints = findRouteSegments(ctx, sources);
+		if (ctx.calculationMode == RouteCalculationMode.CONTRACTION_HIERARCHY
+				&& new ContractionHierarchyRoutePlanner().searchRouteMatrix(ctx, sourcePoints, targetPoints, matrix)) {
+			ctx.calculationProgress.timeToCalculate += (System.nanoTime() - timeToCalculate);
+			return matrix;
+		}
+		RouteSegmentPoint anyTarget = null;
+		for (RouteSegmentPoint p : targetPoints) {
+			if (anyTarget == null) {
+				anyTarget = p;
+			}
+		}
+		BinaryRoutePlanner planner = new BinaryRoutePlanner();
+		for (int i = 0; i < sources.size(); i++) {
+			RouteSegmentPoint start = sourcePoints.get(i);
+			if (start == null || anyTarget == null) {
+				Arrays.fill(matrix.getTimes(i), -1);
+				Arrays.fill(matrix.getDistances(i), -1);
+				continue;
+			}
+			ctx.initStartAndTargetPoints(start, anyTarget);
+			planner.searchRouteToTargets(ctx, start, targetPoints, matrix.getTimes(i), matrix.getDistances(i));
+		}
+		ctx.calculationProgress.timeToCalculate += (System.nanoTime() - timeToCalculate);
+		return matrix;
+	}
+
+	private List<RouteSegmentPoint> findRouteSegments(RoutingContext ctx, List<LatLon> points) throws IOException {
+		List<RouteSegmentPoint> res = new ArrayList<RouteSegmentPoint>();
+		for (LatLon p : points) {
+			res.add(findRouteSegment(p.getLatitude(), p.getLongitude(), ctx, null));
+		}
+		return res;
+	}
+
+	/**
+	 * Calculate best route and up to maxAlternatives alternative routes by one bidirectional search (via segment method).
+	 * Search continues after best route is found and every meeting of forward and reverse search is a candidate
+	 * route. Candidate is accepted if its time is within {@link RoutingConfiguration#alternativeRouteMaxStretch}
+	 * of best route, it shares less than {@link RoutingConfiguration#alternativeRouteMaxSharing} of its length with
+	 * every accepted route and it doesn't pass same road segment twice. Native routing is not used.
+	 * @return best route followed by alternatives, null if route is not found
+	 */
+	public List<List<RouteSegmentResult>> searchRouteAlternatives(final RoutingContext ctx, LatLon start, LatLon end,
+			int maxAlternatives) throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
+		if (ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
+		if (!addSegment(start, ctx, 0, points, ctx.startTransportStop)
+				|| !addSegment(end, ctx, 1, points, ctx.targetTransportStop)) {
+			return null;
+		}
+		RouteSegmentPoint startPoint = points.get(0);
+		RouteSegmentPoint endPoint = points.get(1);
+		ctx.initStartAndTargetPoints(startPoint, endPoint);
+		refreshProgressDistance(ctx);
+		ctx.calculationProgress.nextIteration();
+		AlternativeRoutesMatcher matcher = new AlternativeRoutesMatcher(ctx, maxAlternatives);
+		float routingTime = ctx.routingTime;
+		FinalRouteSegment best = new BinaryRoutePlanner().searchRouteAlternatives(ctx, startPoint, endPoint,
+				ctx.config.alternativeRouteMaxStretch, matcher);
+		if (best == null || matcher.routes.isEmpty()) {
+			return null;
+		}
+		// time of best route only
+		ctx.routingTime = routingTime + best.distanceFromStart;
+		RouteResultPreparation preparation = new RouteResultPreparation();
+		for (List<RouteSegmentResult> res : matcher.routes) {
+			preparation.prepareResult(ctx, res, false);
+			makeStartEndPointsPrecise(res, start, end, null);
+		}
+		ctx.calculationProgress.timeToCalculate = (System.nanoTime() - timeToCalculate);
+		BinaryRoutePlanner.printDebugMemoryInformation(ctx);
+		log.info("Alternative routes: " + (matcher.routes.size() - 1) + " of " + (matcher.meetings - 1) + " meetings");
+		return matcher.routes;
+	}
+
+	/**
+	 * Accepts meetings of bidirectional search as alternative routes (see searchRouteAlternatives),
+	 * cancels search when enough routes are accepted.
+	 */
+	private static class AlternativeRoutesMatcher implements ResultMatcher<FinalRouteSegment> {
+		private final RoutingContext ctx;
+		private final int maxRoutes;
+		private final RouteResultPreparation preparation = new RouteResultPreparation();
+		final List<List<RouteSegmentResult>> routes = new ArrayList<List<RouteSegmentResult>>();
+		// road intervals (road id and min point index) of accepted routes
+		private final List<TLongHashSet> intervals = new ArrayList<TLongHashSet>();
+		int meetings;
+
+		AlternativeRoutesMatcher(RoutingContext ctx, int maxAlternatives) {
+			this.ctx = ctx;
+			this.maxRoutes = maxAlternatives + 1;
+		}
+
+		@Override
+		public boolean publish(FinalRouteSegment meeting) {
+			meetings++;
+			float routingTime = ctx.routingTime;
+			List<RouteSegmentResult> res = preparation.convertFinalSegmentToResults(ctx, meeting);
+			ctx.routingTime = routingTime;
+			TLongHashSet routeIntervals = new TLongHashSet();
+			double length = 0;
+			double[] shared = new double[intervals.size()];
+			for (RouteSegmentResult r : res) {
+				RouteDataObject o = r.getObject();
+				int d = r.isForwardDirection() ? 1 : -1;
+				for (int i = r.getStartPointIndex(); i != r.getEndPointIndex(); i += d) {
+					long key = (o.getId() << 16) + Math.min(i, i + d);
+					if (!routeIntervals.add(key)) {
+						// passes same road twice (u-turn at meeting segment)
+						return false;
+					}
+					double dist = MapUtils.squareRootDist31(o.getPoint31XTile(i), o.getPoint31YTile(i),
+							o.getPoint31XTile(i + d), o.getPoint31YTile(i + d));
+					length += dist;
+					for (int k = 0; k < shared.length; k++) {
+						if (intervals.get(k).contains(key)) {
+							shared[k] += dist;
+						}
+					}
+				}
+			}
+			if (res.isEmpty()) {
+				return false;
+			}
+			for (int k = 0; k < shared.length; k++) {
+				if (shared[k] >= ctx.config.alternativeRouteMaxSharing * length) {
+					return false;
+				}
+			}
+			routes.add(res);
+			intervals.add(routeIntervals);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return routes.size() >= maxRoutes;
+		}
+	}
+
 	public List<RouteSegmentResult> searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates,
 	                                            PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
 		long timeToCalculate = System.nanoTime();
@@ -704,6 +933,16 @@ public class RoutePlannerFrontEnd {
 			}
 			routeDirection = PrecalculatedRouteDirection.build(ls, RoutingConfiguration.DEVIATION_RADIUS, ctx.getRouter().getMaxSpeed());
 		}
+		if (ctx.calculationMode == RouteCalculationMode.CONTRACTION_HIERARCHY && routeDirection == null
+				&& maxDistance > RoutingConfiguration.DEVIATION_RADIUS * 6) {
+			List<RouteSegmentResult> res = searchRouteByHierarchy(ctx, start, end, intermediates);
+			if (res != null) {
+				ctx.calculationProgress.timeToCalculate = (System.nanoTime() - timeToCalculate);
+				new RouteResultPreparation().printResults(ctx, start, end, res);
+				return res;
+			}
+			log.info("Routing hierarchy is not available for route, use regular calculation");
+		}
 		List<RouteSegmentResult> res ;
 		if (intermediatesEmpty && ctx.nativeLib != null) {
 			ctx.startX = MapUtils.get31TileNumberX(start.getLongitude());
@@ -750,6 +989,35 @@ public class RoutePlannerFrontEnd {
 		return res;
 	}
 
+	private List<RouteSegmentResult> searchRouteByHierarchy(final RoutingContext ctx, LatLon start, LatLon end,
+			List<LatLon> intermediates) throws IOException {
+		List<RouteSegmentPoint> points = new ArrayList<RouteSegmentPoint>();
+		List<LatLon> latLons = new ArrayList<LatLon>();
+		latLons.add(start);
+		if (intermediates != null) {
+			latLons.addAll(intermediates);
+		}
+		latLons.add(end);
+		for (int i = 0; i < latLons.size(); i++) {
+			if (!addSegment(latLons.get(i), ctx, i, points, false)) {
+				return null;
+			}
+		}
+		ContractionHierarchyRoutePlanner planner = new ContractionHierarchyRoutePlanner();
+		List<RouteSegmentResult> results = new ArrayList<RouteSegmentResult>();
+		for (int i = 0; i < points.size() - 1; i++) {
+			ctx.initStartAndTargetPoints(points.get(i), points.get(i + 1));
+			List<RouteSegmentResult> res = planner.searchRoute(ctx, points.get(i), points.get(i + 1));
+			if (res == null) {
+				return null;
+			}
+			new RouteResultPreparation().prepareResult(ctx, res, false);
+			makeStartEndPointsPrecise(res, points.get(i).getPreciseLatLon(), points.get(i + 1).getPreciseLatLon(), null);
+			results.addAll(res);
+		}
+		return results;
+	}
+
 	protected void makeStartEndPointsPrecise(List<RouteSegmentResult> res, LatLon start, LatLon end, List<LatLon> intermediates) {
 		if (res.size() > 0) {
 			makeSegmentPointPrecise(res.get(0), start, true);
@@ -767,7 +1035,7 @@ public class RoutePlannerFrontEnd {
 		return currentsDist;
 	}
 
-	private void makeSegmentPointPrecise(RouteSegmentResult routeSegmentResult, LatLon point, boolean st) {
+	void makeSegmentPointPrecise(RouteSegmentResult routeSegmentResult, LatLon point, boolean st) {
 		int px = MapUtils.get31TileNumberX(point.getLongitude());
 		int py = MapUtils.get31TileNumberY(point.getLatitude());
 		int pind = st ? routeSegmentResult.getStartPointIndex() : routeSegmentResult.getEndPointIndex();
@@ -846,7 +1114,11 @@ public class RoutePlannerFrontEnd {
 
 	private List<RouteSegmentResult> searchRouteInternalPrepare(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
 	                                                            PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
-		RouteSegment recalculationEnd = getRecalculationEnd(ctx);
+		RouteSegment recalculationEnd = null;
+		if (ctx.reverseSearchTree == null || routeDirection != null || !ctx.reverseSearchTree.isValidFor(ctx, end)) {
+			// reverse search kept from previous calculation is better than previous route
+			recalculationEnd = getRecalculationEnd(ctx);
+		}
 		if (recalculationEnd != null) {
 			ctx.initStartAndTargetPoints(start, recalculationEnd);
 		} else {
@@ -987,6 +1259,12 @@ public class RoutePlannerFrontEnd {
 				}
 			}
 		}
+		if (ctx.config.parallelRouteLegs && restPartRecalculatedRoute == null && ctx.nativeLib == null
+				&& ctx.visitor == null && ctx.config.getDirectionPoints() == null) {
+			List<RouteSegmentResult> results = searchRouteLegsInParallel(ctx, points, routeDirection);
+			ctx.unloadAllData();
+			return results;
+		}
 		List<RouteSegmentResult> results = new ArrayList<RouteSegmentResult>();
 		for (int i = 0; i < points.size() - 1; i++) {
 			RoutingContext local = new RoutingContext(ctx);
@@ -997,7 +1275,15 @@ public class RoutePlannerFrontEnd {
 			}
 			local.visitor = ctx.visitor;
 			local.calculationProgress = ctx.calculationProgress;
-			List<RouteSegmentResult> res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
+			List<RouteSegmentResult> res;
+			try {
+				res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
+			} finally {
+				if (ctx.config.tileCache != null) {
+					// return shared tiles to cache
+					local.unloadAllData();
+				}
+			}
 			makeStartEndPointsPrecise(res, points.get(i).getPreciseLatLon(), points.get(i + 1).getPreciseLatLon(), null);
 			results.addAll(res);
 			ctx.routingTime += local.routingTime;
@@ -1012,6 +1298,124 @@ public class RoutePlannerFrontEnd {
 
 	}
 
+	/**
+	 * Calculates routes between consecutive points in separate contexts (map readers are shared)
+	 * and joins them in order the same way as sequential calculation. Each leg has own progress,
+	 * shared progress is updated and checked for cancellation only by calling thread.
+	 */
+	private List<RouteSegmentResult> searchRouteLegsInParallel(final RoutingContext ctx, List<RouteSegmentPoint> points,
+			PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		RouteCalculationProgress progress = ctx.calculationProgress;
+		List<RoutingContext> contexts = new ArrayList<RoutingContext>();
+		List<Future<List<RouteSegmentResult>>> legs = new ArrayList<Future<List<RouteSegmentResult>>>();
+		float[] legDistances = new float[points.size() - 1];
+		ExecutorService executor = getRouteLegsExecutor();
+		for (int i = 0; i < points.size() - 1; i++) {
+			final RoutingContext local = new RoutingContext(ctx);
+			local.calculationProgress = new RouteCalculationProgress();
+			final RouteSegmentPoint start = points.get(i);
+			final RouteSegmentPoint end = points.get(i + 1);
+			if (routeDirection != null) {
+				// route direction is not thread safe, leg gets own adopted copy
+				local.initStartAndTargetPoints(start, end);
+				local.precalculatedRouteDirection = routeDirection.adopt(local);
+			}
+			legDistances[i] = (float) MapUtils.squareRootDist31(start.road.getPoint31XTile(start.getSegmentStart()),
+					start.road.getPoint31YTile(start.getSegmentStart()), end.road.getPoint31XTile(end.getSegmentStart()),
+					end.road.getPoint31YTile(end.getSegmentStart())) / (0.9f * ctx.config.router.getMaxSpeed());
+			contexts.add(local);
+			legs.add(executor.submit(new Callable<List<RouteSegmentResult>>() {
+				@Override
+				public List<RouteSegmentResult> call() throws Exception {
+					try {
+						List<RouteSegmentResult> res = searchRouteInternalPrepare(local, start, end, null);
+						makeStartEndPointsPrecise(res, start.getPreciseLatLon(), end.getPreciseLatLon(), null);
+						return res;
+					} finally {
+						if (local.config.tileCache != null) {
+							// return shared tiles to cache
+							local.unloadAllData();
+						}
+					}
+				}
+			}));
+		}
+		if (progress != null) {
+			progress.distanceFromBegin = 0;
+			progress.distanceFromEnd = 0;
+			progress.totalEstimatedDistance = 0;
+			for (float d : legDistances) {
+				progress.totalEstimatedDistance += d;
+			}
+		}
+		List<RouteSegmentResult> results = new ArrayList<RouteSegmentResult>();
+		boolean finished = false;
+		try {
+			for (int i = 0; i < legs.size(); i++) {
+				results.addAll(waitForLeg(legs.get(i), progress, contexts));
+				RoutingContext local = contexts.get(i);
+				ctx.routingTime += local.routingTime;
+				if (progress != null) {
+					progress.add(local.calculationProgress);
+					progress.distanceFromBegin += legDistances[i];
+				}
+			}
+			finished = true;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			if (!finished) {
+				// stop legs which are still calculated, legs are not interrupted: interrupted read
+				// closes file channel of thread safe readers for all threads
+				for (RoutingContext local : contexts) {
+					local.calculationProgress.isCancelled = true;
+				}
+				for (Future<List<RouteSegmentResult>> f : legs) {
+					f.cancel(false);
+				}
+			}
+		}
+		return results;
+	}
+
+	private List<RouteSegmentResult> waitForLeg(Future<List<RouteSegmentResult>> leg, RouteCalculationProgress progress,
+			List<RoutingContext> contexts) throws InterruptedException, ExecutionException {
+		while (true) {
+			try {
+				return leg.get(ROUTE_LEG_CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (progress != null && progress.isCancelled) {
+					for (RoutingContext local : contexts) {
+						local.calculationProgress.isCancelled = true;
+					}
+				}
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getRouteLegsExecutor() {
+		if (routeLegsExecutor == null) {
+			routeLegsExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Route leg calculation");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return routeLegsExecutor;
+	}
+
 	private void pringGC(final RoutingContext ctx, boolean before) {
 		if (RoutingContext.SHOW_GC_SIZE && before) {
 			long h1 = RoutingContext.runGCUsedMemory();
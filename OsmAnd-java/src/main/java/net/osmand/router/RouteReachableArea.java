@@ -0,0 +1,149 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.util.MapUtils;
+
+/**
+ * Road segments reachable from start point within time or distance budget (isochrone).
+ */
+public class RouteReachableArea {
+
+	public static class ReachableSegment {
+		private final RouteDataObject road;
+		private final int startPoint;
+		private final int endPoint;
+		private final float[] times;
+		private final float[] distances;
+
+		ReachableSegment(RouteDataObject road, int startPoint, int endPoint, float[] times, float[] distances) {
+			this.road = road;
+			this.startPoint = startPoint;
+			this.endPoint = endPoint;
+			this.times = times;
+			this.distances = distances;
+		}
+
+		public RouteDataObject getRoad() {
+			return road;
+		}
+
+		public int getStartPoint() {
+			return startPoint;
+		}
+
+		public int getEndPoint() {
+			return endPoint;
+		}
+
+		/**
+		 * @return arrival time (seconds) at points from start to end point (inclusive)
+		 */
+		public float[] getTimes() {
+			return times;
+		}
+
+		/**
+		 * @return distance (meters) of fastest route to points from start to end point (inclusive)
+		 */
+		public float[] getDistances() {
+			return distances;
+		}
+
+		public float getStartTime() {
+			return times[0];
+		}
+
+		public float getEndTime() {
+			return times[times.length - 1];
+		}
+	}
+
+	private final float maxTime;
+	private final float maxDistance;
+	private final List<ReachableSegment> segments = new ArrayList<ReachableSegment>();
+
+	RouteReachableArea(float maxTime, float maxDistance) {
+		this.maxTime = maxTime;
+		this.maxDistance = maxDistance;
+	}
+
+	void addSegment(ReachableSegment s) {
+		segments.add(s);
+	}
+
+	public float getMaxTime() {
+		return maxTime;
+	}
+
+	public float getMaxDistance() {
+		return maxDistance;
+	}
+
+	public List<ReachableSegment> getSegments() {
+		return segments;
+	}
+
+	/**
+	 * @return convex hull of reachable road points, empty if less than 3 points
+	 */
+	public List<LatLon> getPolygon() {
+		List<int[]> pnts = new ArrayList<int[]>();
+		for (ReachableSegment s : segments) {
+			int inc = s.endPoint >= s.startPoint ? 1 : -1;
+			for (int i = s.startPoint; i != s.endPoint + inc; i += inc) {
+				pnts.add(new int[] { s.road.getPoint31XTile(i), s.road.getPoint31YTile(i) });
+			}
+		}
+		List<LatLon> res = new ArrayList<LatLon>();
+		for (int[] p : convexHull(pnts)) {
+			res.add(new LatLon(MapUtils.get31LatitudeY(p[1]), MapUtils.get31LongitudeX(p[0])));
+		}
+		return res;
+	}
+
+	static List<int[]> convexHull(List<int[]> pnts) {
+		if (pnts.size() < 3) {
+			return Collections.emptyList();
+		}
+		int[][] p = pnts.toArray(new int[pnts.size()][]);
+		Arrays.sort(p, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] o1, int[] o2) {
+				if (o1[0] != o2[0]) {
+					return o1[0] < o2[0] ? -1 : 1;
+				}
+				return o1[1] < o2[1] ? -1 : (o1[1] == o2[1] ? 0 : 1);
+			}
+		});
+		// monotone chain
+		int[][] hull = new int[2 * p.length][];
+		int k = 0;
+		for (int i = 0; i < p.length; i++) {
+			while (k >= 2 && cross(hull[k - 2], hull[k - 1], p[i]) <= 0) {
+				k--;
+			}
+			hull[k++] = p[i];
+		}
+		for (int i = p.length - 2, t = k + 1; i >= 0; i--) {
+			while (k >= t && cross(hull[k - 2], hull[k - 1], p[i]) <= 0) {
+				k--;
+			}
+			hull[k++] = p[i];
+		}
+		if (k - 1 < 3) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(Arrays.copyOf(hull, k - 1));
+	}
+
+	private static long cross(int[] o, int[] a, int[] b) {
+		return ((long) a[0] - o[0]) * ((long) b[1] - o[1]) - ((long) a[1] - o[1]) * ((long) b[0] - o[0]);
+	}
+}
@@ -14,6 +14,12 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.logging.Log;
 import org.xmlpull.v1.XmlPullParser;
@@ -21,6 +27,7 @@ import org.xmlpull.v1.XmlPullParserException;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
@@ -49,6 +56,9 @@ public class RouteResultPreparation {
 	public static final int SHIFT_ID = 6;
 	private Log log = PlatformUtil.getLog(RouteResultPreparation.class);
 	public static final String UNMATCHED_HIGHWAY_TYPE = "unmatched";
+	// minimal number of segments processed on several threads (see RoutingConfiguration.parallelResultPreparation)
+	private static final int PARALLEL_MIN_SEGMENTS = 64;
+	private static ExecutorService preparationExecutor;
 	/**
 	 * Helper method to prepare final result 
 	 */
@@ -181,13 +191,101 @@ public class RouteResultPreparation {
 		combineWayPointsForAreaRouting(ctx, result);
 		validateAllPointsConnected(result);
 		splitRoadsAndAttachRoadSegments(ctx, result, recalculation);
-		for (int i = 0; i < result.size(); i++) {
-			filterMinorStops(result.get(i));
+		if (isParallel(ctx, result)) {
+			prepareSegmentsParallel(ctx, result);
+		} else {
+			for (int i = 0; i < result.size(); i++) {
+				filterMinorStops(result.get(i));
+			}
+			calculateTimeSpeed(ctx, result);
 		}
-		calculateTimeSpeed(ctx, result);
 		prepareTurnResults(ctx, result);
 		return result;
 	}
+
+	private boolean isParallel(RoutingContext ctx, List<RouteSegmentResult> result) {
+		return ctx.config.parallelResultPreparation && result.size() >= PARALLEL_MIN_SEGMENTS
+				&& Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	private void prepareSegmentsParallel(final RoutingContext ctx, final List<RouteSegmentResult> result) {
+		final boolean usePedestrianHeight = isPedestrianHeight(ctx);
+		if (usePedestrianHeight) {
+			// height array is not safely published by road object
+			for (int i = 0; i < result.size(); i++) {
+				result.get(i).getObject().calculateHeightArray();
+			}
+		}
+		runInChunks(result.size(), new ChunkTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					RouteSegmentResult rr = filterMinorStops(result.get(i));
+					calculateTimeSpeed(ctx, rr, usePedestrianHeight);
+				}
+			}
+		});
+	}
+
+	private interface ChunkTask {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Splits range [0, size) into chunks and runs them on preparation executor, waits for all chunks.
+	 */
+	private static void runInChunks(int size, final ChunkTask task) {
+		ExecutorService executor = getPreparationExecutor();
+		int chunks = Math.min(Runtime.getRuntime().availableProcessors() * 4, size);
+		int chunkSize = (size + chunks - 1) / chunks;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		try {
+			for (int start = 0; start < size; start += chunkSize) {
+				final int from = start;
+				final int to = Math.min(size, start + chunkSize);
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						task.run(from, to);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Future<Void> f : futures) {
+				f.cancel(false);
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getPreparationExecutor() {
+		if (preparationExecutor == null) {
+			preparationExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Route result preparation");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return preparationExecutor;
+	}
 	
 	public RouteSegmentResult filterMinorStops(RouteSegmentResult seg) {
 		List<Integer> stops = null;
@@ -210,12 +308,20 @@ public class RouteResultPreparation {
 		}
 
 		if (stops != null) {
+			boolean copied = false;
 			for (int stop : stops) {
 				List<RouteSegmentResult> attachedRoutes = seg.getAttachedRoutes(stop);
 				for (RouteSegmentResult attached : attachedRoutes) {
 					int attStopPriority = highwaySpeakPriority(attached.getObject().getHighway());
 					int segStopPriority = highwaySpeakPriority(seg.getObject().getHighway());
 					if (segStopPriority < attStopPriority) {
+						if (!copied) {
+							// road object could be shared with routing tiles of other contexts
+							RouteDataObject obj = new RouteDataObject(seg.getObject());
+							obj.pointTypes = obj.pointTypes.clone();
+							seg.setObject(obj);
+							copied = true;
+						}
 						seg.getObject().removePointType(stop, seg.getObject().region.stopSign);
 						break;
 					}
@@ -226,10 +332,7 @@ public class RouteResultPreparation {
 	}
 
 	public void prepareTurnResults(RoutingContext ctx, List<RouteSegmentResult> result) {
-		for (int i = 0; i < result.size(); i ++) {
-			TurnType turnType = getTurnInfo(result, i, ctx.leftSideNavigation);
-			result.get(i).setTurnType(turnType);
-		}
+		calculateTurnInfo(ctx.leftSideNavigation, result, isParallel(ctx, result));
 		
 		determineTurnsToMerge(ctx.leftSideNavigation, result);
 		ignorePrecedingStraightsOnSameIntersection(ctx.leftSideNavigation, result);
@@ -237,6 +340,41 @@ public class RouteResultPreparation {
 		addTurnInfoDescriptions(result);
 	}
 
+	void calculateTurnInfo(boolean leftSide, List<RouteSegmentResult> result, boolean parallel) {
+		if (parallel) {
+			calculateTurnInfoParallel(leftSide, result);
+		} else {
+			for (int i = 0; i < result.size(); i++) {
+				TurnType turnType = getTurnInfo(result, i, leftSide);
+				result.get(i).setTurnType(turnType);
+			}
+		}
+	}
+
+	private void calculateTurnInfoParallel(final boolean leftSide, final List<RouteSegmentResult> result) {
+		// turn of segment depends on previous turn only when lanes are taken from it (see getTurnLanesInfo)
+		final boolean[] dependent = new boolean[result.size()];
+		for (int i = 1; i < result.size(); i++) {
+			RouteSegmentResult prev = result.get(i - 1);
+			dependent[i] = prev.getDistance() < 100 && getTurnLanesString(prev) == null;
+		}
+		runInChunks(result.size(), new ChunkTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					if (!dependent[i]) {
+						result.get(i).setTurnType(getTurnInfo(result, i, leftSide));
+					}
+				}
+			}
+		});
+		for (int i = 1; i < result.size(); i++) {
+			if (dependent[i]) {
+				result.get(i).setTurnType(getTurnInfo(result, i, leftSide));
+			}
+		}
+	}
+
 	protected void ignorePrecedingStraightsOnSameIntersection(boolean leftside, List<RouteSegmentResult> result) {
 		//Issue 2571: Ignore TurnType.C if immediately followed by another turn in non-motorway cases, as these likely belong to the very same intersection
 		RouteSegmentResult nextSegment = null;
@@ -289,69 +427,79 @@ public class RouteResultPreparation {
 	
 	public static void calculateTimeSpeed(RoutingContext ctx, List<RouteSegmentResult> result) {
 		//for Naismith
-		boolean usePedestrianHeight = ((((GeneralRouter) ctx.getRouter()).getProfile() == GeneralRouterProfile.PEDESTRIAN) && ((GeneralRouter) ctx.getRouter()).getHeightObstacles());
+		boolean usePedestrianHeight = isPedestrianHeight(ctx);
 
 		for (int i = 0; i < result.size(); i++) {
-			RouteSegmentResult rr = result.get(i);
-			RouteDataObject road = rr.getObject();
-			double distOnRoadToPass = 0;
-			double speed = ctx.getRouter().defineVehicleSpeed(road);
-			if (speed == 0) {
-				speed = ctx.getRouter().getDefaultSpeed();
-			} else {
-				if (speed > SLOW_DOWN_SPEED_THRESHOLD) {
-					speed = speed - (speed / SLOW_DOWN_SPEED_THRESHOLD - 1) * SLOW_DOWN_SPEED;
-				}
+			calculateTimeSpeed(ctx, result.get(i), usePedestrianHeight);
+		}
+	}
+
+	private static boolean isPedestrianHeight(RoutingContext ctx) {
+		return ((((GeneralRouter) ctx.getRouter()).getProfile() == GeneralRouterProfile.PEDESTRIAN) && ((GeneralRouter) ctx.getRouter()).getHeightObstacles());
+	}
+
+	private static void calculateTimeSpeed(RoutingContext ctx, RouteSegmentResult rr, boolean usePedestrianHeight) {
+		RouteDataObject road = rr.getObject();
+		double distOnRoadToPass = 0;
+		double speed = ctx.getRouter().defineVehicleSpeed(road);
+		if (speed == 0) {
+			speed = ctx.getRouter().getDefaultSpeed();
+		} else {
+			if (speed > SLOW_DOWN_SPEED_THRESHOLD) {
+				speed = speed - (speed / SLOW_DOWN_SPEED_THRESHOLD - 1) * SLOW_DOWN_SPEED;
 			}
-			boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
-			int next;
-			double distance = 0;
+		}
+		boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
+		int next;
+		double distance = 0;
 
-			//for Naismith
-			float prevHeight = -99999.0f;
-			float[] heightDistanceArray = null;
-			if (usePedestrianHeight) {
-				road.calculateHeightArray();
-				heightDistanceArray = road.heightDistanceArray;
+		//for Naismith
+		float prevHeight = -99999.0f;
+		float[] heightDistanceArray = null;
+		if (usePedestrianHeight) {
+			road.calculateHeightArray();
+			heightDistanceArray = road.heightDistanceArray;
+		}
+
+		for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
+			next = plus ? j + 1 : j - 1;
+			double d = measuredDist(road.getPoint31XTile(j), road.getPoint31YTile(j), road.getPoint31XTile(next),
+					road.getPoint31YTile(next));
+			distance += d;
+			double obstacle = ctx.getRouter().defineObstacle(road, j, plus);
+			if (obstacle < 0) {
+				obstacle = 0;
 			}
+			distOnRoadToPass += d / speed + obstacle;  //this is time in seconds
 
-			for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
-				next = plus ? j + 1 : j - 1;
-				double d = measuredDist(road.getPoint31XTile(j), road.getPoint31YTile(j), road.getPoint31XTile(next),
-						road.getPoint31YTile(next));
-				distance += d;
-				double obstacle = ctx.getRouter().defineObstacle(road, j, plus);
-				if (obstacle < 0) {
-					obstacle = 0;
-				}
-				distOnRoadToPass += d / speed + obstacle;  //this is time in seconds
-
-				//for Naismith
-				if (usePedestrianHeight) {
-					int heightIndex = 2 * j + 1;
-					if (heightDistanceArray != null && heightIndex < heightDistanceArray.length) {
-						float height = heightDistanceArray[heightIndex];
-						if (prevHeight != -99999.0f) {
-							float heightDiff = height - prevHeight;
-							if (heightDiff > 0) { // ascent only
-								distOnRoadToPass += heightDiff * 6.0f; // Naismith's rule: add 1 hour per every 600m of
-																		// ascent
-							}
+			//for Naismith
+			if (usePedestrianHeight) {
+				int heightIndex = 2 * j + 1;
+				if (heightDistanceArray != null && heightIndex < heightDistanceArray.length) {
+					float height = heightDistanceArray[heightIndex];
+					if (prevHeight != -99999.0f) {
+						float heightDiff = height - prevHeight;
+						if (heightDiff > 0) { // ascent only
+							distOnRoadToPass += heightDiff * 6.0f; // Naismith's rule: add 1 hour per every 600m of
+																	// ascent
 						}
-						prevHeight = height;
 					}
+					prevHeight = height;
 				}
 			}
-
-			// last point turn time can be added
-			// if(i + 1 < result.size()) { distOnRoadToPass += ctx.getRouter().calculateTurnTime(); }
-			rr.setSegmentTime((float) distOnRoadToPass);
-			rr.setSegmentSpeed((float) speed);
-			rr.setDistance((float) distance);
 		}
+
+		// last point turn time can be added
+		// if(i + 1 < result.size()) { distOnRoadToPass += ctx.getRouter().calculateTurnTime(); }
+		rr.setSegmentTime((float) distOnRoadToPass);
+		rr.setSegmentSpeed((float) speed);
+		rr.setDistance((float) distance);
 	}
 
 	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, boolean recalculation) throws IOException {
+		if (ctx.config.parallelResultPreparation && (recalculation || ctx.nativeLib == null)) {
+			prefetchRoutingTiles(ctx, result);
+		}
 		for (int i = 0; i < result.size(); i++) {
 			if (ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
 				ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
@@ -415,6 +563,27 @@ public class RouteResultPreparation {
 		}
 	}
 
+	/**
+	 * Loads all tiles touched by route in one pass (ordered by file position) instead of tile by tile
+	 * while attaching road segments. Enabled together with {@link RoutingConfiguration#parallelResultPreparation}.
+	 */
+	private void prefetchRoutingTiles(RoutingContext ctx, List<RouteSegmentResult> result) {
+		TLongHashSet tileIds = new TLongHashSet();
+		for (RouteSegmentResult rr : result) {
+			RouteDataObject road = rr.getObject();
+			boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
+			for (int j = rr.getStartPointIndex(); ; j = plus ? j + 1 : j - 1) {
+				if (rr.getPreAttachedRoutes(j) == null) {
+					tileIds.add(ctx.getRoutingTileId(road.getPoint31XTile(j), road.getPoint31YTile(j)));
+				}
+				if (j == rr.getEndPointIndex()) {
+					break;
+				}
+			}
+		}
+		ctx.loadRoutingTiles(tileIds);
+	}
+
 	private void checkAndInitRouteRegion(RoutingContext ctx, RouteDataObject road) throws IOException {
 		BinaryMapIndexReader reader = ctx.reverseMap.get(road.region);
 		if (reader != null) {
@@ -434,7 +603,7 @@ public class RouteResultPreparation {
 		}
 	}
 
-	private List<RouteSegmentResult> convertFinalSegmentToResults(RoutingContext ctx, FinalRouteSegment finalSegment) {
+	List<RouteSegmentResult> convertFinalSegmentToResults(RoutingContext ctx, FinalRouteSegment finalSegment) {
 		List<RouteSegmentResult> result = new ArrayList<RouteSegmentResult>();
 		if (finalSegment != null) {
 			ctx.routingTime += finalSegment.distanceFromStart;
@@ -0,0 +1,168 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Indexed 4-ary min heap of route segments used as A* frontier.
+ * Priority f = g + heuristicCoefficient * h is computed once on insert / update and stored
+ * in a primitive array, so sifting doesn't call comparators or do double arithmetic.
+ * Position of segment in the heap is kept in {@link RouteSegment#heapIndex} that allows
+ * real decrease-key instead of adding duplicates. Segment could be present only in one heap at a time.
+ * Tiles create new segment objects on every load, so segments pushed with road point id
+ * ({@link #push(RouteSegment, long)}) are also indexed by it and could be found with {@link #get(long)}.
+ */
+class RouteSegmentHeap extends IndexedMinHeap {
+
+	static final long NO_POINT_ID = Long.MIN_VALUE;
+
+	private final float heuristicCoefficient;
+	private RouteSegment[] segments;
+	private long[] pointIds;
+	private final TLongObjectHashMap<RouteSegment> queuedPoints = new TLongObjectHashMap<RouteSegment>();
+	private int updates;
+	private RouteSegment heldSegment;
+	private long heldPointId;
+
+	RouteSegmentHeap(float heuristicCoefficient) {
+		this(heuristicCoefficient, 64);
+	}
+
+	RouteSegmentHeap(float heuristicCoefficient, int initialCapacity) {
+		super(initialCapacity);
+		this.heuristicCoefficient = heuristicCoefficient;
+		this.segments = new RouteSegment[keys.length];
+		this.pointIds = new long[keys.length];
+	}
+
+	public float getHeuristicCoefficient() {
+		return heuristicCoefficient;
+	}
+
+	/**
+	 * @return number of in place key updates of queued segments
+	 */
+	public int getUpdates() {
+		return updates;
+	}
+
+	/**
+	 * @return queued segment pushed with road point id
+	 */
+	public RouteSegment get(long pointId) {
+		return queuedPoints.get(pointId);
+	}
+
+	public boolean contains(RouteSegment segment) {
+		int ind = segment.heapIndex;
+		return ind >= 0 && ind < size && segments[ind] == segment;
+	}
+
+	public RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	/**
+	 * Adds segment to the heap or updates its position if it is already present (decrease / increase key).
+	 * Priority is recalculated from current distanceFromStart / distanceToEnd.
+	 */
+	public void push(RouteSegment segment) {
+		push(segment, NO_POINT_ID);
+	}
+
+	/**
+	 * Adds segment indexed by road point id (id of queued segment doesn't change on update).
+	 */
+	public void push(RouteSegment segment, long pointId) {
+		float key = priority(segment);
+		if (contains(segment)) {
+			updates++;
+			update(segment.heapIndex, key);
+			return;
+		}
+		int ind = add(key);
+		segments[ind] = segment;
+		pointIds[ind] = pointId;
+		segment.heapIndex = ind;
+		if (pointId != NO_POINT_ID) {
+			queuedPoints.put(pointId, segment);
+		}
+		siftUp(ind);
+	}
+
+	public RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment top = segments[0];
+		unindex(0);
+		removeAt(0);
+		top.heapIndex = -1;
+		return top;
+	}
+
+	public boolean remove(RouteSegment segment) {
+		if (!contains(segment)) {
+			return false;
+		}
+		unindex(segment.heapIndex);
+		removeAt(segment.heapIndex);
+		segment.heapIndex = -1;
+		return true;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			segments[i].heapIndex = -1;
+			segments[i] = null;
+		}
+		size = 0;
+		queuedPoints.clear();
+	}
+
+	private void unindex(int ind) {
+		long pointId = pointIds[ind];
+		// other segment could be pushed later with same id
+		if (pointId != NO_POINT_ID && queuedPoints.get(pointId) == segments[ind]) {
+			queuedPoints.remove(pointId);
+		}
+	}
+
+	float priority(RouteSegment segment) {
+		return segment.distanceFromStart + heuristicCoefficient * segment.distanceToEnd;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		segments = Arrays.copyOf(segments, capacity);
+		pointIds = Arrays.copyOf(pointIds, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		segments[to] = segments[from];
+		pointIds[to] = pointIds[from];
+		segments[to].heapIndex = to;
+	}
+
+	@Override
+	protected void hold(int ind) {
+		heldSegment = segments[ind];
+		heldPointId = pointIds[ind];
+	}
+
+	@Override
+	protected void place(int ind) {
+		segments[ind] = heldSegment;
+		pointIds[ind] = heldPointId;
+		heldSegment.heapIndex = ind;
+		heldSegment = null;
+	}
+
+	@Override
+	protected void release(int ind) {
+		segments[ind] = null;
+	}
+}
@@ -57,6 +57,33 @@ public class RoutingConfiguration {
 	
 	// 1.6 Time to calculate all access restrictions based on conditions
 	public long routeCalculationTime = 0;
+
+	// 1.7 Expand forward and reverse frontiers on separate threads (only for 2 ways search)
+	public boolean parallelBidirectionalSearch = false;
+
+	// 1.8 Decoded routing tiles shared with other routing contexts (not used if null)
+	public RoutingTileCache tileCache;
+
+	// 1.9 Keep loaded tiles in columnar layout (less memory, segments created on request)
+	public boolean compactTiles = false;
+
+	// 1.10 Order of unloading tiles when memory limit is exceeded
+	public TileEvictionPolicy tileEvictionPolicy = TileEvictionPolicy.Standard.ACCESS_AGE;
+
+	// 1.11 Keep reverse search of calculation in context to continue it when route to same target is recalculated
+	// (without precalculated route direction), tiles of kept search are not unloaded
+	public boolean reuseReverseSearchTree = false;
+
+	// 1.12 Calculate routes between intermediate points concurrently (each in own context, memory limit is per route)
+	public boolean parallelRouteLegs = false;
+
+	// 1.13 Analyze turns and calculate segment times of long route results on several threads,
+	// prefetch tiles along result in one pass
+	public boolean parallelResultPreparation = false;
+
+	// 1.14 Alternative routes: max time relative to best route and max part of length shared with other routes
+	public float alternativeRouteMaxStretch = 1.3f;
+	public float alternativeRouteMaxSharing = 0.7f;
 	
 	
 	// extra points to be inserted in ways (quad tree is based on 31 coords)
@@ -121,6 +148,7 @@ public class RoutingConfiguration {
 		private Map<String, String> attributes = new LinkedHashMap<>();
 		private Set<Long> impassableRoadLocations = new HashSet<>();
 		private QuadTree<Node> directionPointsBuilder;
+		private RoutingTileCache tileCache;
 
 		public Builder() {
 		}
@@ -171,6 +199,18 @@ public class RoutingConfiguration {
 				i.memoryLimitation = memoryLimitMB * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.parallelBidirectionalSearch = Boolean.parseBoolean(getAttribute(i.router, "parallelBidirectionalSearch"));
+			i.tileCache = tileCache;
+			i.compactTiles = Boolean.parseBoolean(getAttribute(i.router, "compactTiles"));
+			i.tileEvictionPolicy = TileEvictionPolicy.Standard.parse(getAttribute(i.router, "tileEvictionPolicy"),
+					i.tileEvictionPolicy);
+			i.reuseReverseSearchTree = Boolean.parseBoolean(getAttribute(i.router, "reuseReverseSearchTree"));
+			i.parallelRouteLegs = Boolean.parseBoolean(getAttribute(i.router, "parallelRouteLegs"));
+			i.parallelResultPreparation = Boolean.parseBoolean(getAttribute(i.router, "parallelResultPreparation"));
+			i.alternativeRouteMaxStretch = parseSilentFloat(getAttribute(i.router, "alternativeRouteMaxStretch"),
+					i.alternativeRouteMaxStretch);
+			i.alternativeRouteMaxSharing = parseSilentFloat(getAttribute(i.router, "alternativeRouteMaxSharing"),
+					i.alternativeRouteMaxSharing);
 			if (directionPointsBuilder != null) {
 				QuadRect rect = new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
 				List<net.osmand.osm.edit.Node> lst = directionPointsBuilder.queryInBox(rect, new ArrayList<Node>());
@@ -191,6 +231,15 @@ public class RoutingConfiguration {
 			return this;
 		}
 
+		public Builder setTileCache(RoutingTileCache tileCache) {
+			this.tileCache = tileCache;
+			return this;
+		}
+
+		public RoutingTileCache getTileCache() {
+			return tileCache;
+		}
+
 		public Set<Long> getImpassableRoadLocations() {
 			return impassableRoadLocations;
 		}
@@ -6,11 +6,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 
@@ -74,6 +76,8 @@ public class RoutingContext {
 	public RouteCalculationProgress calculationProgress;
 	public boolean leftSideNavigation;
 	public List<RouteSegmentResult> previouslyCalculatedRoute;
+	// reverse search of last calculation (see RoutingConfiguration.reuseReverseSearchTree)
+	BinaryRoutePlanner.ReverseSearchTree reverseSearchTree;
 	public PrecalculatedRouteDirection precalculatedRouteDirection;
 	
 	
@@ -86,6 +90,9 @@ public class RoutingContext {
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	// reverse search keeps own lists so both directions could be processed concurrently
+	ArrayList<RouteSegment> reverseSegmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	ArrayList<RouteSegment> reverseSegmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	
 	
 	// 5. debug information (package accessor)
@@ -93,6 +100,11 @@ public class RoutingContext {
 	// updated by route planner in bytes
 	public int memoryOverhead = 0;
 	public float routingTime = 0;
+	// counter to order tile accesses
+	long tileAccessTime = 0;
+	// last expanded points of forward [0] and reverse [1] search
+	final int[] frontierX = new int[2];
+	final int[] frontierY = new int[2];
 
 	// callback of processing segments
 	RouteSegmentVisitor visitor = null;
@@ -200,6 +212,7 @@ public class RoutingContext {
 		initTargetPoint(end);
 		startX = start.road.getPoint31XTile(start.getSegmentStart());
 		startY = start.road.getPoint31YTile(start.getSegmentStart());
+		setFrontier(false, startX, startY);
 		startRoadId = start.road.getId();
 		startSegmentInd = start.getSegmentStart();
 	}
@@ -209,6 +222,7 @@ public class RoutingContext {
 		targetY = end.road.getPoint31YTile(end.getSegmentStart());
 		targetRoadId = end.road.getId();
 		targetSegmentInd = end.getSegmentStart();
+		setFrontier(true, targetX, targetY);
 	}
 	
 	public void unloadAllData() {
@@ -227,6 +241,7 @@ public class RoutingContext {
 				}
 			}
 		}
+		updateLoadedTilesSize();
 		subregionTiles.clear();
 		indexedSubregions.clear();
 	}
@@ -257,7 +272,7 @@ public class RoutingContext {
 	}
 	
 	
-	public RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit) {
+	public synchronized RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit) {
 		long tileId = getRoutingTile(x31, y31, memoryLimit);
 		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		RouteSegment original = null;
@@ -297,8 +312,20 @@ public class RoutingContext {
 
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
-				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				List<RouteDataObject> res;
+				// shared objects should stay unmodified
+				boolean sharedObjects = config.tileCache != null && toLoad == null && config.routeCalculationTime == 0
+						&& points.isEmpty();
+				ts.setLoadedNonNative(config.compactTiles, !sharedObjects);
+				if (sharedObjects) {
+					ts.sharedTile = config.tileCache.acquire(reader, ts.subregion);
+					res = ts.sharedTile.getObjects();
+				} else {
+					// reader could be used by other contexts (parallel route legs)
+					synchronized (reader) {
+						res = reader.loadRouteIndexData(ts.subregion);
+					}
+				}
 				
 				if (toLoad != null) {
 					toLoad.addAll(res);
@@ -326,6 +353,7 @@ public class RoutingContext {
 							}
 						}
 					}
+					ts.finishLoading();
 				}
 			} catch (IOException e) {
 				throw new RuntimeException("Loading data exception", e);
@@ -348,6 +376,9 @@ public class RoutingContext {
 		}
 		
 		if (wasUnloaded) {
+			if (calculationProgress != null) {
+				calculationProgress.reloadedTiles++;
+			}
 			if(ucount == 1) {
 				if(calculationProgress != null) {
 					calculationProgress.loadedPrevUnloadedTiles++;
@@ -363,6 +394,35 @@ public class RoutingContext {
 			}
 		}
 		global.size += ts.tileStatistics.size;
+		updateLoadedTilesSize();
+	}
+
+	private void updateLoadedTilesSize() {
+		if (calculationProgress != null) {
+			calculationProgress.loadedTilesSize = global.size;
+			calculationProgress.maxLoadedTilesSize = Math.max(calculationProgress.maxLoadedTilesSize, global.size);
+		}
+	}
+
+	/**
+	 * Last expanded point of forward or reverse search (used by eviction policy)
+	 */
+	public void setFrontier(boolean reverseWaySearch, int x31, int y31) {
+		int ind = reverseWaySearch ? 1 : 0;
+		frontierX[ind] = x31;
+		frontierY[ind] = y31;
+	}
+
+	double getDistanceToFrontier(RoutingSubregionTile tile) {
+		long cx = ((long) tile.subregion.left + tile.subregion.right) / 2;
+		long cy = ((long) tile.subregion.top + tile.subregion.bottom) / 2;
+		double dist = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < frontierX.length; i++) {
+			double dx = cx - frontierX[i];
+			double dy = cy - frontierY[i];
+			dist = Math.min(dist, dx * dx + dy * dy);
+		}
+		return dist;
 	}
 
 	
@@ -401,7 +461,10 @@ public class RoutingContext {
 		List<RoutingSubregionTile> list = new ArrayList<RoutingContext.RoutingSubregionTile>();
 		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0,
 				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
-		List<RouteSubregion> subregs = reader.searchRouteIndexTree(request, Collections.singletonList(reg));
+		List<RouteSubregion> subregs;
+		synchronized (reader) {
+			subregs = reader.searchRouteIndexTree(request, Collections.singletonList(reg));
+		}
 		for(RouteSubregion s : subregs) {
 			list.add(new RoutingSubregionTile(s));
 		}
@@ -418,7 +481,11 @@ public class RoutingContext {
 				if (r.getValue().size() > 0) {
 					long now = System.nanoTime();
 					// int rg = r.getValue().get(0).routeReg.regionsRead;
-					List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					List<RouteSubregion> subregs;
+					// subregions are shared with copied contexts and read lazily
+					synchronized (r.getKey()) {
+						subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					}
 					if(subregs.size() > 0) {
 						checkOldRoutingFiles(r.getKey());
 					}
@@ -477,13 +544,81 @@ public class RoutingContext {
 		}
 	}
 	
-	@SuppressWarnings("unused")
-	private long getRoutingTile(int x31, int y31, long memoryLimit) {
-		// long now = System.nanoTime();
+	public long getRoutingTileId(int x31, int y31) {
 		int zmShift = 31 - config.ZOOM_TO_LOAD_TILES;
 		long xloc = x31 >> zmShift;
 		long yloc = y31 >> zmShift;
-		long tileId = (xloc << config.ZOOM_TO_LOAD_TILES) + yloc;
+		return (xloc << config.ZOOM_TO_LOAD_TILES) + yloc;
+	}
+
+	/**
+	 * Adds ids of tiles which are loaded by {@link #loadTileData(int, int, int, List)} (to prefetch them)
+	 */
+	public void getTileIdsAround(int x31, int y31, int zoomAround, TLongHashSet tileIds) {
+		int t = config.ZOOM_TO_LOAD_TILES - zoomAround;
+		int coordinatesShift = (1 << (31 - config.ZOOM_TO_LOAD_TILES));
+		if (t <= 0) {
+			t = 1;
+			coordinatesShift = (1 << (31 - zoomAround));
+		} else {
+			t = 1 << t;
+		}
+		for (int i = -t; i <= t; i++) {
+			for (int j = -t; j <= t; j++) {
+				tileIds.add(getRoutingTileId(x31 + i * coordinatesShift, y31 + j * coordinatesShift));
+			}
+		}
+	}
+
+	/**
+	 * Loads tiles in one pass: headers of all tiles are read first and then data of not loaded subregions
+	 * in order of data position in files. Loading stops when memory limit becomes critical,
+	 * the rest of tiles are loaded on request as usual.
+	 */
+	public synchronized void loadRoutingTiles(TLongHashSet tileIds) {
+		int zoomToLoad = 31 - config.ZOOM_TO_LOAD_TILES;
+		long mask = (1L << config.ZOOM_TO_LOAD_TILES) - 1;
+		List<List<RoutingSubregionTile>> toLoad = new ArrayList<List<RoutingSubregionTile>>();
+		TLongIterator it = tileIds.iterator();
+		while (it.hasNext()) {
+			long tileId = it.next();
+			if (!indexedSubregions.containsKey(tileId)) {
+				indexedSubregions.put(tileId, loadTileHeaders(zoomToLoad, (int) (tileId >> config.ZOOM_TO_LOAD_TILES),
+						(int) (tileId & mask)));
+			}
+			List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
+			if (subregions != null && getUnloadedDataPosition(subregions) != Integer.MAX_VALUE) {
+				toLoad.add(subregions);
+			}
+		}
+		Collections.sort(toLoad, new Comparator<List<RoutingSubregionTile>>() {
+			@Override
+			public int compare(List<RoutingSubregionTile> o1, List<RoutingSubregionTile> o2) {
+				return Integer.compare(getUnloadedDataPosition(o1), getUnloadedDataPosition(o2));
+			}
+		});
+		for (List<RoutingSubregionTile> subregions : toLoad) {
+			if (checkIfMemoryLimitCritical(config.memoryLimitation)) {
+				break;
+			}
+			loadSubregionTiles(subregions);
+		}
+	}
+
+	private static int getUnloadedDataPosition(List<RoutingSubregionTile> subregions) {
+		int pos = Integer.MAX_VALUE;
+		for (RoutingSubregionTile ts : subregions) {
+			if (!ts.isLoaded()) {
+				pos = Math.min(pos, ts.subregion.filePointer + ts.subregion.shiftToData);
+			}
+		}
+		return pos;
+	}
+
+	@SuppressWarnings("unused")
+	private long getRoutingTile(int x31, int y31, long memoryLimit) {
+		// long now = System.nanoTime();
+		long tileId = getRoutingTileId(x31, y31);
 		if (memoryLimit == 0) {
 			memoryLimit = config.memoryLimitation;
 		}
@@ -519,27 +654,31 @@ public class RoutingContext {
 		}
 		List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
 		if (subregions != null) {
-			boolean load = false;
+			loadSubregionTiles(subregions);
+		}
+		// timeToLoad += (System.nanoTime() - now);
+		return tileId;
+	}
+
+	private void loadSubregionTiles(List<RoutingSubregionTile> subregions) {
+		boolean load = false;
+		for (RoutingSubregionTile ts : subregions) {
+			if (!ts.isLoaded()) {
+				load = true;
+			}
+		}
+		if (load) {
+			TLongHashSet excludeIds = new TLongHashSet();
 			for (RoutingSubregionTile ts : subregions) {
 				if (!ts.isLoaded()) {
-					load = true;
-				}
-			}
-			if (load) {
-				TLongHashSet excludeIds = new TLongHashSet();
-				for (RoutingSubregionTile ts : subregions) {
-					if (!ts.isLoaded()) {
-						loadSubregionTile(ts, true, null, excludeIds);
-					} else {
-						if (ts.excludedIds != null) {
-							excludeIds.addAll(ts.excludedIds);
-						}
+					loadSubregionTile(ts, true, null, excludeIds);
+				} else {
+					if (ts.excludedIds != null) {
+						excludeIds.addAll(ts.excludedIds);
 					}
 				}
 			}
 		}
-		// timeToLoad += (System.nanoTime() - now);
-		return tileId;
 	}
 
 	
@@ -678,31 +817,20 @@ public class RoutingContext {
 	public void unloadUnusedTiles(long memoryLimit) {
 		float desirableSize = memoryLimit * 0.7f;
 		List<RoutingSubregionTile> list = new ArrayList<RoutingSubregionTile>(subregionTiles.size() / 2);
+		Set<RoutingSubregionTile> pinned = getReverseSearchTreeTiles();
 		int loaded = 0;
 		for(RoutingSubregionTile t : subregionTiles) {
 			if(t.isLoaded()) {
-				list.add(t);
+				if (!pinned.contains(t)) {
+					list.add(t);
+				}
 				loaded++;
 			}
 		}
 		if(calculationProgress != null) {
 			calculationProgress.maxLoadedTiles = Math.max(calculationProgress.maxLoadedTiles, getCurrentlyLoadedTiles());
 		}
-		Collections.sort(list, new Comparator<RoutingSubregionTile>() {
-			private int pow(int base, int pw) {
-				int r = 1;
-				for (int i = 0; i < pw; i++) {
-					r *= base;
-				}
-				return r;
-			}
-			@Override
-			public int compare(RoutingSubregionTile o1, RoutingSubregionTile o2) {
-				int v1 = (o1.access + 1) * pow(10, o1.getUnloadCont() -1);
-				int v2 = (o2.access + 1) * pow(10, o2.getUnloadCont() -1);
-				return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
-			}
-		});
+		config.tileEvictionPolicy.sortForEviction(this, list);
 		int i = 0;
 		while(getCurrentEstimatedSize() >= desirableSize && (list.size() - i) > loaded / 5 && i < list.size()) {
 			RoutingSubregionTile unload = list.get(i);
@@ -713,6 +841,7 @@ public class RoutingContext {
 				calculationProgress.unloadedTiles ++;
 			}
 			global.size -= unload.tileStatistics.size;
+			updateLoadedTilesSize();
 			// tile could be cleaned from routing tiles and deleted from whole list
 			
 		}
@@ -721,6 +850,22 @@ public class RoutingContext {
 		}
 	}
 	
+	// tiles of kept reverse search are not unloaded, so continued search doesn't reload them
+	private Set<RoutingSubregionTile> getReverseSearchTreeTiles() {
+		if (reverseSearchTree == null) {
+			return Collections.emptySet();
+		}
+		Set<RoutingSubregionTile> res = Collections.newSetFromMap(new IdentityHashMap<RoutingSubregionTile, Boolean>());
+		TLongIterator it = reverseSearchTree.tileIds.iterator();
+		while (it.hasNext()) {
+			List<RoutingSubregionTile> subregions = indexedSubregions.get(it.next());
+			if (subregions != null) {
+				res.addAll(subregions);
+			}
+		}
+		return res;
+	}
+
 	private void getAllObjects(long tileId, final List<RouteDataObject> toFillIn, TLongObjectHashMap<RouteDataObject> excludeDuplications) {
 		List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
 		if (subregions != null) {
@@ -760,12 +905,18 @@ public class RoutingContext {
 		public final RouteSubregion subregion;
 		// make it without get/set for fast access
 		public int access;
+		// all accesses since tile was loaded
+		public int totalAccess;
+		// order of last access within context
+		public long lastAccess;
 		public TileStatistics tileStatistics = new TileStatistics();
 		
 		private NativeRouteSearchResult searchResult = null;
 		private int isLoaded = 0;
-		private TLongObjectMap<RouteSegment> routes = null;
+		private TLongObjectHashMap<RouteSegment> routes = null;
 		private TLongHashSet excludedIds = null;
+		private RoutingTileCache.SharedTile sharedTile = null;
+		private CompactRoutingTile compact = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -776,7 +927,17 @@ public class RoutingContext {
 		}
 		
 		public void loadAllObjects(final List<RouteDataObject> toFillIn, RoutingContext ctx, TLongObjectHashMap<RouteDataObject> excludeDuplications) {
-			if(routes != null) {
+			if (compact != null) {
+				int materialized = compact.getMaterializedSize();
+				for (int i = 0; i < compact.getRoadsSize(); i++) {
+					RouteDataObject ro = compact.getRoadByIndex(i);
+					if (!excludeDuplications.contains(ro.id)) {
+						excludeDuplications.put(ro.id, ro);
+						toFillIn.add(ro);
+					}
+				}
+				addMaterializedSize(ctx, materialized);
+			} else if(routes != null) {
 				Iterator<RouteSegment> it = routes.valueCollection().iterator();
 				while(it.hasNext()){
 					RouteSegment rs = it.next();
@@ -805,7 +966,27 @@ public class RoutingContext {
 		private RouteSegment loadRouteSegment(int x31, int y31, RoutingContext ctx,
 				TLongObjectHashMap<RouteDataObject> excludeDuplications, RouteSegment original, List<RoutingSubregionTile> subregions, int subregionIndex) {
 			access++;
-			if (routes != null) {
+			totalAccess++;
+			lastAccess = ++ctx.tileAccessTime;
+			if (compact != null) {
+				long l = (((long) x31) << 31) + (long) y31;
+				int pos = compact.find(l);
+				int materialized = compact.getMaterializedSize();
+				while (pos >= 0 && pos < compact.getSize() && compact.getKey(pos) == l) {
+					RouteDataObject ro = compact.getRoad(pos);
+					int segmentStart = compact.getPointIndex(pos);
+					RouteDataObject toCmp = excludeDuplications.get(calcRouteId(ro, segmentStart));
+					if (!isExcluded(ro.id, subregions, subregionIndex)
+							&& (toCmp == null || toCmp.getPointsLength() < ro.getPointsLength())) {
+						excludeDuplications.put(calcRouteId(ro, segmentStart), ro);
+						RouteSegment s = new RouteSegment(ro, segmentStart);
+						s.next = original;
+						original = s;
+					}
+					pos++;
+				}
+				addMaterializedSize(ctx, materialized);
+			} else if (routes != null) {
 				long l = (((long) x31) << 31) + (long) y31;
 				RouteSegment segment = routes.get(l);
 				while (segment != null) {
@@ -826,6 +1007,16 @@ public class RoutingContext {
 			return original;
 		}
 
+		private void addMaterializedSize(RoutingContext ctx, int before) {
+			int added = compact.getMaterializedSize() - before;
+			if (added > 0) {
+				tileStatistics.size += added;
+				if (ctx.global != null) {
+					ctx.global.size += added;
+				}
+			}
+		}
+
 		private static boolean isExcluded(long id, List<RoutingSubregionTile> subregions, int subregionIndex) {
 			for (int i = 0; i < subregionIndex; i++ ) {
 				if (subregions.get(i).excludedIds != null && subregions.get(i).excludedIds.contains(id)) {
@@ -858,16 +1049,55 @@ public class RoutingContext {
 			}
 			searchResult = null;
 			routes = null;
+			compact = null;
 			excludedIds = null;
+			if (sharedTile != null) {
+				sharedTile.release();
+				sharedTile = null;
+			}
 		}
 		
 		public void setLoadedNonNative(){
+			setLoadedNonNative(false);
+		}
+
+		public void setLoadedNonNative(boolean compactTile) {
+			setLoadedNonNative(compactTile, true);
+		}
+
+		public void setLoadedNonNative(boolean compactTile, boolean packRoads) {
 			isLoaded = Math.abs(isLoaded) + 1;
-			routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+			totalAccess = 0;
+			if (compactTile) {
+				compact = new CompactRoutingTile(packRoads);
+			} else {
+				routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+			}
 			tileStatistics = new TileStatistics();
 		}
+
+		public void finishLoading() {
+			if (compact != null) {
+				compact.finishLoading();
+				if (compact.isPacked()) {
+					// roads are kept only in packed columns of tile
+					tileStatistics.size = compact.getMemorySize();
+				} else {
+					tileStatistics.size += compact.getMemorySize();
+				}
+			} else if (routes != null) {
+				// segment per point and hash map
+				tileStatistics.size += tileStatistics.coordinates / 2 * RoutingMemoryUtils.ROUTE_SEGMENT
+						+ RoutingMemoryUtils.longHashMap(routes);
+			}
+		}
 		
 		public void add(RouteDataObject ro) {
+			if (compact != null) {
+				compact.add(ro);
+				tileStatistics.addObject(ro);
+				return;
+			}
 			tileStatistics.addObject(ro);
 			for (int i = 0; i < ro.pointsX.length; i++) {
 				int x31 = ro.getPoint31XTile(i);
@@ -888,15 +1118,21 @@ public class RoutingContext {
 		
 		public void setLoadedNative(NativeRouteSearchResult r, RoutingContext ctx) {
 			isLoaded = Math.abs(isLoaded) + 1;
+			totalAccess = 0;
 			tileStatistics = new TileStatistics();
 			if (r.objects != null) {
 				searchResult = null;
-				routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+				if (ctx.config.compactTiles) {
+					compact = new CompactRoutingTile();
+				} else {
+					routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+				}
 				for (RouteDataObject ro : r.objects) {
 					if (ro != null && ctx.config.router.acceptLine(ro)) {
 						add(ro);
 					}
 				}
+				finishLoading();
 			} else {
 				searchResult = r;
 				tileStatistics.size += 100;
@@ -905,36 +1141,7 @@ public class RoutingContext {
 	}
 	
 	static int getEstimatedSize(RouteDataObject o) {
-		// calculate size
-		int sz = 0;
-		sz += 8 + 4; // overhead
-		if (o.names != null) {
-			sz += 12;
-			TIntObjectIterator<String> it = o.names.iterator();
-			while(it.hasNext()) {
-				it.advance();
-				String vl = it.value();
-				sz += 12 + vl.length();
-			}
-			sz += 12 + o.names.size() * 25;
-		}
-		sz += 8; // id
-		// coordinates
-		sz += (8 + 4 + 4 * o.getPointsLength()) * 4;
-		sz += o.types == null ? 4 : (8 + 4 + 4 * o.types.length);
-		sz += o.restrictions == null ? 4 : (8 + 4 + 8 * o.restrictions.length);
-		sz += 4;
-		if (o.pointTypes != null) {
-			sz += 8 + 4 * o.pointTypes.length;
-			for (int i = 0; i < o.pointTypes.length; i++) {
-				sz += 4;
-				if (o.pointTypes[i] != null) {
-					sz += 8 + 8 * o.pointTypes[i].length;
-				}
-			}
-		}
-		// Standard overhead?
-		return  (int) (sz * 3.5);
+		return RoutingMemoryUtils.routeDataObject(o);
 	}
 	
 	protected static class TileStatistics {
@@ -0,0 +1,104 @@
+package net.osmand.router;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Heap size of routing tile structures calculated when tile is loaded.
+ * Layout of 64-bit JVM with compressed references: 12 bytes object header,
+ * 16 bytes array header, 4 bytes reference, 8 bytes alignment.
+ */
+class RoutingMemoryUtils {
+
+	static final int OBJECT_HEADER = 12;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+
+	// header, region, 10 array references, names, types combination, id, heightByCurrentLocation
+	static final int ROUTE_DATA_OBJECT = align(OBJECT_HEADER + 13 * REFERENCE + 8 + 4);
+	// header, segStart, road, next, opposite, parent, parentSegmentEnd, direction, 2 distances, heap index
+	static final int ROUTE_SEGMENT = align(OBJECT_HEADER + 2 + 4 * REFERENCE + 2 + 1 + 8 + 4);
+	// header and fields of trove hash map (arrays are calculated separately)
+	static final int HASH_MAP = align(OBJECT_HEADER + 40);
+
+	static int align(int size) {
+		return (size + 7) & ~7;
+	}
+
+	static int intArray(int[] a) {
+		return a == null ? 0 : align(ARRAY_HEADER + 4 * a.length);
+	}
+
+	static int longArray(long[] a) {
+		return a == null ? 0 : align(ARRAY_HEADER + 8 * a.length);
+	}
+
+	static int referenceArray(int length) {
+		return align(ARRAY_HEADER + REFERENCE * length);
+	}
+
+	static int string(String s) {
+		// header, value, hash + char array (UTF-16 as on Android)
+		return s == null ? 0 : align(OBJECT_HEADER + REFERENCE + 4) + align(ARRAY_HEADER + 2 * s.length());
+	}
+
+	static int intArrays(int[][] a) {
+		if (a == null) {
+			return 0;
+		}
+		int sz = referenceArray(a.length);
+		for (int[] ai : a) {
+			sz += intArray(ai);
+		}
+		return sz;
+	}
+
+	static int routeDataObject(RouteDataObject o) {
+		int sz = ROUTE_DATA_OBJECT;
+		sz += intArray(o.types);
+		sz += intArray(o.pointsX);
+		sz += intArray(o.pointsY);
+		sz += longArray(o.restrictions);
+		sz += longArray(o.restrictionsVia);
+		sz += intArrays(o.pointTypes);
+		sz += intArrays(o.pointNameTypes);
+		if (o.pointNames != null) {
+			sz += referenceArray(o.pointNames.length);
+			for (String[] names : o.pointNames) {
+				if (names != null) {
+					sz += referenceArray(names.length);
+					for (String s : names) {
+						sz += string(s);
+					}
+				}
+			}
+		}
+		sz += intArray(o.nameIds);
+		if (o.names != null) {
+			sz += intHashMap(o.names);
+			TIntObjectIterator<String> it = o.names.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				sz += string(it.value());
+			}
+		}
+		if (o.heightDistanceArray != null) {
+			sz += align(ARRAY_HEADER + 4 * o.heightDistanceArray.length);
+		}
+		return sz;
+	}
+
+	static int intHashMap(TIntObjectHashMap<?> map) {
+		// int keys, values, byte states
+		int cap = map.capacity();
+		return HASH_MAP + align(ARRAY_HEADER + 4 * cap) + referenceArray(cap) + align(ARRAY_HEADER + cap);
+	}
+
+	static int longHashMap(TLongObjectHashMap<?> map) {
+		// long keys, values, byte states
+		int cap = map.capacity();
+		return HASH_MAP + align(ARRAY_HEADER + 8 * cap) + referenceArray(cap) + align(ARRAY_HEADER + cap);
+	}
+}
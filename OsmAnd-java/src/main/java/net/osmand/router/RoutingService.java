@@ -0,0 +1,403 @@
+package net.osmand.router;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.util.MapUtils;
+
+/**
+ * In-process routing service calculating routes of many requests on bounded thread pool.
+ * Requests are grouped by routing region of start point, profile and parameters: routing contexts
+ * (with loaded tiles) of finished requests are kept and reused by requests of the same group.
+ * Submission blocks when all threads are busy and queue is full (back-pressure).
+ *
+ * Map readers are shared by all contexts, set {@link RoutingConfiguration.Builder#setTileCache} to share decoded tiles too.
+ */
+public class RoutingService {
+
+	private static final Log log = PlatformUtil.getLog(RoutingService.class);
+
+	public static class RouteRequest {
+		private final String profile;
+		private final LatLon start;
+		private final LatLon end;
+		private List<LatLon> intermediates;
+		private Map<String, String> params;
+		private RouteCalculationMode mode = RouteCalculationMode.NORMAL;
+
+		public RouteRequest(String profile, LatLon start, LatLon end) {
+			this.profile = profile;
+			this.start = start;
+			this.end = end;
+		}
+
+		public RouteRequest setIntermediates(List<LatLon> intermediates) {
+			this.intermediates = intermediates;
+			return this;
+		}
+
+		public RouteRequest setParams(Map<String, String> params) {
+			this.params = params;
+			return this;
+		}
+
+		public RouteRequest setMode(RouteCalculationMode mode) {
+			this.mode = mode;
+			return this;
+		}
+
+		public String getProfile() {
+			return profile;
+		}
+
+		public LatLon getStart() {
+			return start;
+		}
+
+		public LatLon getEnd() {
+			return end;
+		}
+
+		public List<LatLon> getIntermediates() {
+			return intermediates;
+		}
+
+		public Map<String, String> getParams() {
+			return params;
+		}
+
+		public RouteCalculationMode getMode() {
+			return mode;
+		}
+	}
+
+	public static class RouteResponse {
+		private final RouteRequest request;
+		private List<RouteSegmentResult> result;
+		private Exception error;
+		private RouteCalculationProgress progress;
+		private long queueTime;
+		private long calculationTime;
+		private boolean warmContext;
+
+		RouteResponse(RouteRequest request) {
+			this.request = request;
+		}
+
+		public RouteRequest getRequest() {
+			return request;
+		}
+
+		/**
+		 * @return route or null if route is not found or calculation failed
+		 */
+		public List<RouteSegmentResult> getResult() {
+			return result;
+		}
+
+		public Exception getError() {
+			return error;
+		}
+
+		public boolean isSuccessful() {
+			return error == null && result != null;
+		}
+
+		/**
+		 * @return progress of calculation with detailed timings (load, headers, initial segments)
+		 */
+		public RouteCalculationProgress getProgress() {
+			return progress;
+		}
+
+		/**
+		 * @return time in nanoseconds request waited in queue
+		 */
+		public long getQueueTime() {
+			return queueTime;
+		}
+
+		/**
+		 * @return time in nanoseconds of calculation including context preparation
+		 */
+		public long getCalculationTime() {
+			return calculationTime;
+		}
+
+		/**
+		 * @return true if context of previous request of same group was reused
+		 */
+		public boolean isWarmContext() {
+			return warmContext;
+		}
+	}
+
+	private final RoutingConfiguration.Builder configBuilder;
+	private final BinaryMapIndexReader[] readers;
+	private final int memoryLimitMB;
+	private final RoutePlannerFrontEnd frontEnd = new RoutePlannerFrontEnd();
+	private final ThreadPoolExecutor executor;
+	// running and queued requests
+	private final Semaphore slots;
+	private final int maxIdleContexts;
+	// idle contexts by group in least recently used order
+	private final LinkedHashMap<String, Deque<RoutingContext>> idleContexts = new LinkedHashMap<String, Deque<RoutingContext>>(16, 0.75f, true);
+	private int idleContextsCount;
+
+	/**
+	 * @param threads number of routes calculated at once
+	 * @param queueSize number of requests waiting for thread before submission blocks
+	 * @param memoryLimitMB memory limit of each routing context
+	 */
+	public RoutingService(RoutingConfiguration.Builder configBuilder, BinaryMapIndexReader[] readers, int threads,
+			int queueSize, int memoryLimitMB) {
+		this.configBuilder = configBuilder;
+		this.readers = readers;
+		this.memoryLimitMB = memoryLimitMB;
+		this.slots = new Semaphore(threads + queueSize);
+		this.maxIdleContexts = threads * 2;
+		this.frontEnd.setUseFastRecalculation(false);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "Routing service");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Submits request, waits while queue is full.
+	 */
+	public Future<RouteResponse> submit(RouteRequest request) throws InterruptedException {
+		slots.acquire();
+		return execute(request, getGroup(request));
+	}
+
+	/**
+	 * Submits request if queue is not full.
+	 * @return null if request is not accepted
+	 */
+	public Future<RouteResponse> trySubmit(RouteRequest request) {
+		if (!slots.tryAcquire()) {
+			return null;
+		}
+		return execute(request, getGroup(request));
+	}
+
+	/**
+	 * Submits requests ordered by group (requests of one group are calculated one after another on warm contexts),
+	 * waits while queue is full.
+	 * @return responses in order of requests
+	 */
+	public List<Future<RouteResponse>> submitAll(Collection<RouteRequest> requests) throws InterruptedException {
+		final Map<RouteRequest, String> groups = new IdentityHashMap<RouteRequest, String>();
+		List<RouteRequest> ordered = new ArrayList<RouteRequest>(requests);
+		for (RouteRequest r : ordered) {
+			groups.put(r, getGroup(r));
+		}
+		Collections.sort(ordered, new Comparator<RouteRequest>() {
+			@Override
+			public int compare(RouteRequest o1, RouteRequest o2) {
+				return groups.get(o1).compareTo(groups.get(o2));
+			}
+		});
+		Map<RouteRequest, Future<RouteResponse>> futures = new IdentityHashMap<RouteRequest, Future<RouteResponse>>();
+		for (RouteRequest r : ordered) {
+			slots.acquire();
+			futures.put(r, execute(r, groups.get(r)));
+		}
+		List<Future<RouteResponse>> res = new ArrayList<Future<RouteResponse>>(requests.size());
+		for (RouteRequest r : requests) {
+			res.add(futures.get(r));
+		}
+		return res;
+	}
+
+	public int getQueuedRequests() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveRequests() {
+		return executor.getActiveCount();
+	}
+
+	public synchronized int getIdleContexts() {
+		return idleContextsCount;
+	}
+
+	/**
+	 * Stops accepting requests, already submitted requests are calculated.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		List<RoutingContext> toUnload = new ArrayList<RoutingContext>();
+		synchronized (this) {
+			for (Deque<RoutingContext> l : idleContexts.values()) {
+				toUnload.addAll(l);
+			}
+			idleContexts.clear();
+			idleContextsCount = 0;
+		}
+		for (RoutingContext ctx : toUnload) {
+			ctx.unloadAllData();
+		}
+	}
+
+	private Future<RouteResponse> execute(final RouteRequest request, final String group) {
+		final long submitted = System.nanoTime();
+		try {
+			return executor.submit(new Callable<RouteResponse>() {
+				@Override
+				public RouteResponse call() {
+					try {
+						return calculate(request, group, submitted);
+					} finally {
+						slots.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			slots.release();
+			throw e;
+		}
+	}
+
+	String getGroup(RouteRequest request) {
+		int x31 = MapUtils.get31TileNumberX(request.start.getLongitude());
+		int y31 = MapUtils.get31TileNumberY(request.start.getLatitude());
+		String region = "";
+		regions: for (BinaryMapIndexReader reader : readers) {
+			for (RouteRegion reg : reader.getRoutingIndexes()) {
+				if (reg.contains(x31, y31)) {
+					region = reg.getName();
+					break regions;
+				}
+			}
+		}
+		Map<String, String> params = request.params == null ? Collections.<String, String>emptyMap()
+				: new TreeMap<String, String>(request.params);
+		return region + "|" + request.profile + "|" + request.mode + "|" + params;
+	}
+
+	private RouteResponse calculate(RouteRequest request, String group, long submitted) {
+		RouteResponse response = new RouteResponse(request);
+		long start = System.nanoTime();
+		response.queueTime = start - submitted;
+		RoutingContext ctx = takeContext(group);
+		response.warmContext = ctx != null;
+		boolean reuse = false;
+		try {
+			if (ctx == null) {
+				ctx = createContext(request);
+			}
+			prepareContext(ctx);
+			response.progress = ctx.calculationProgress;
+			response.result = frontEnd.searchRoute(ctx, request.start, request.end, request.intermediates);
+			reuse = true;
+		} catch (Exception e) {
+			log.error("Route calculation failed " + request.start + " -> " + request.end, e);
+			response.error = e;
+		} finally {
+			response.calculationTime = System.nanoTime() - start;
+			if (ctx != null) {
+				if (reuse) {
+					returnContext(group, ctx);
+				} else {
+					ctx.unloadAllData();
+				}
+			}
+		}
+		return response;
+	}
+
+	private RoutingContext createContext(RouteRequest request) {
+		RoutingConfiguration config;
+		synchronized (configBuilder) {
+			config = configBuilder.build(request.profile, memoryLimitMB, request.params);
+		}
+		return frontEnd.buildRoutingContext(config, null, readers, request.mode);
+	}
+
+	private void prepareContext(RoutingContext ctx) {
+		// clear state of previous calculation, loaded tiles are kept
+		ctx.calculationProgress = new RouteCalculationProgress();
+		ctx.previouslyCalculatedRoute = null;
+		ctx.precalculatedRouteDirection = null;
+		ctx.finalRouteSegment = null;
+		ctx.reverseSearchTree = null;
+		ctx.startTransportStop = false;
+		ctx.targetTransportStop = false;
+		ctx.routingTime = 0;
+	}
+
+	private synchronized RoutingContext takeContext(String group) {
+		Deque<RoutingContext> l = idleContexts.get(group);
+		if (l == null) {
+			return null;
+		}
+		RoutingContext ctx = l.pollLast();
+		idleContextsCount--;
+		if (l.isEmpty()) {
+			idleContexts.remove(group);
+		}
+		return ctx;
+	}
+
+	private void returnContext(String group, RoutingContext ctx) {
+		List<RoutingContext> toUnload = new ArrayList<RoutingContext>();
+		synchronized (this) {
+			if (executor.isShutdown()) {
+				toUnload.add(ctx);
+			} else {
+				Deque<RoutingContext> l = idleContexts.get(group);
+				if (l == null) {
+					l = new ArrayDeque<RoutingContext>();
+					idleContexts.put(group, l);
+				}
+				l.addLast(ctx);
+				idleContextsCount++;
+			}
+			// least recently used groups first
+			Iterator<Deque<RoutingContext>> it = idleContexts.values().iterator();
+			while (idleContextsCount > maxIdleContexts && it.hasNext()) {
+				Deque<RoutingContext> d = it.next();
+				toUnload.add(d.pollFirst());
+				idleContextsCount--;
+				if (d.isEmpty()) {
+					it.remove();
+				}
+			}
+		}
+		for (RoutingContext c : toUnload) {
+			c.unloadAllData();
+		}
+	}
+}
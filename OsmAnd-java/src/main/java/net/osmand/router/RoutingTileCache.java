@@ -0,0 +1,227 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Process wide store of decoded routing tiles which could be shared by many {@link RoutingContext}s.
+ * Tiles are keyed by file and {@link RouteSubregion#filePointer}, reference counted by the contexts
+ * which have them loaded and evicted in least recently used order when unreferenced tiles
+ * don't fit into byte budget.
+ *
+ * Objects of shared tiles are read-only: tiles are not shared if context modifies loaded objects
+ * (conditional tags, direction points).
+ *
+ * Context returns its tiles when they are unloaded, so contexts using cache should be unloaded
+ * with {@link RoutingContext#unloadAllData()} when they are not needed anymore.
+ */
+public class RoutingTileCache {
+
+	private static final Log log = PlatformUtil.getLog(RoutingTileCache.class);
+
+	private final long maxBytes;
+	// access ordered
+	private final LinkedHashMap<TileKey, SharedTile> tiles = new LinkedHashMap<TileKey, SharedTile>(64, 0.75f, true);
+	private long bytes;
+	private int hits;
+	private int misses;
+	private int evictions;
+
+	public RoutingTileCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns tile with decoded objects (loaded with reader if it is not in cache).
+	 * Tile should be released with {@link SharedTile#release()} when it is not needed.
+	 */
+	public SharedTile acquire(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		File file = reader.getFile();
+		String fileName = file == null ? reader.toString() : file.getAbsolutePath();
+		return acquire(fileName, subregion.filePointer, reader, subregion);
+	}
+
+	SharedTile acquire(String fileName, int filePointer, BinaryMapIndexReader reader, RouteSubregion subregion)
+			throws IOException {
+		TileKey key = new TileKey(fileName, filePointer);
+		SharedTile tile;
+		synchronized (this) {
+			tile = tiles.get(key);
+			if (tile == null) {
+				tile = new SharedTile(key);
+				tiles.put(key, tile);
+			}
+			tile.references++;
+		}
+		boolean loaded = false;
+		try {
+			// only one context decodes the tile, others wait for it
+			synchronized (tile) {
+				if (tile.objects == null) {
+					List<RouteDataObject> objects = loadTile(reader, subregion);
+					int size = 0;
+					for (RouteDataObject o : objects) {
+						if (o != null) {
+							size += RoutingContext.getEstimatedSize(o);
+						}
+					}
+					tile.size = size;
+					tile.objects = Collections.unmodifiableList(objects);
+					synchronized (this) {
+						bytes += size;
+						misses++;
+					}
+				} else {
+					synchronized (this) {
+						hits++;
+					}
+				}
+			}
+			loaded = true;
+		} finally {
+			if (!loaded) {
+				release(tile);
+			}
+		}
+		return tile;
+	}
+
+	protected List<RouteDataObject> loadTile(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		// reader is not thread safe and could be used by other contexts
+		synchronized (reader) {
+			return reader.loadRouteIndexData(subregion);
+		}
+	}
+
+	synchronized void release(SharedTile tile) {
+		tile.references--;
+		if (tile.references < 0) {
+			log.error("Routing tile is released more times than acquired " + tile.key);
+			tile.references = 0;
+		}
+		if (tile.references == 0 && tile.objects == null) {
+			// failed to load
+			tiles.remove(tile.key);
+		}
+		evict();
+	}
+
+	private void evict() {
+		Iterator<SharedTile> it = tiles.values().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			SharedTile t = it.next();
+			if (t.references == 0 && t.objects != null) {
+				it.remove();
+				bytes -= t.size;
+				evictions++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		Iterator<SharedTile> it = tiles.values().iterator();
+		while (it.hasNext()) {
+			SharedTile t = it.next();
+			if (t.references == 0 && t.objects != null) {
+				it.remove();
+				bytes -= t.size;
+			}
+		}
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public synchronized int getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Routing tiles %d, %.2f MB of %.2f MB, hits %d, misses %d, evictions %d", tiles.size(),
+				bytes / (float) (1 << 20), maxBytes / (float) (1 << 20), hits, misses, evictions);
+	}
+
+	private static class TileKey {
+		private final String fileName;
+		private final int filePointer;
+
+		TileKey(String fileName, int filePointer) {
+			this.fileName = fileName;
+			this.filePointer = filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return fileName.hashCode() * 31 + filePointer;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return filePointer == other.filePointer && fileName.equals(other.fileName);
+		}
+
+		@Override
+		public String toString() {
+			return fileName + ":" + filePointer;
+		}
+	}
+
+	public class SharedTile {
+		private final TileKey key;
+		private int references;
+		private int size;
+		private volatile List<RouteDataObject> objects;
+
+		SharedTile(TileKey key) {
+			this.key = key;
+		}
+
+		public List<RouteDataObject> getObjects() {
+			return objects;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public void release() {
+			RoutingTileCache.this.release(this);
+		}
+	}
+}
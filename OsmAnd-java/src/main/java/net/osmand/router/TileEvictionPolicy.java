@@ -0,0 +1,98 @@
+package net.osmand.router;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+/**
+ * Order in which loaded routing tiles are unloaded when {@link RoutingContext} exceeds memory limit.
+ */
+public interface TileEvictionPolicy {
+
+	/**
+	 * Sorts loaded tiles, first tiles are unloaded first
+	 */
+	void sortForEviction(RoutingContext ctx, List<RoutingSubregionTile> loadedTiles);
+
+	enum Standard implements TileEvictionPolicy {
+		/**
+		 * Rarely accessed tiles first, tiles unloaded before are kept (access decays after each eviction)
+		 */
+		ACCESS_AGE {
+			@Override
+			public void sortForEviction(RoutingContext ctx, List<RoutingSubregionTile> loadedTiles) {
+				Collections.sort(loadedTiles, new Comparator<RoutingSubregionTile>() {
+					private int pow(int base, int pw) {
+						int r = 1;
+						for (int i = 0; i < pw; i++) {
+							r *= base;
+						}
+						return r;
+					}
+
+					@Override
+					public int compare(RoutingSubregionTile o1, RoutingSubregionTile o2) {
+						int v1 = (o1.access + 1) * pow(10, o1.getUnloadCont() - 1);
+						int v2 = (o2.access + 1) * pow(10, o2.getUnloadCont() - 1);
+						return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+					}
+				});
+			}
+		},
+		/**
+		 * Least recently accessed tiles first
+		 */
+		LRU {
+			@Override
+			public void sortForEviction(RoutingContext ctx, List<RoutingSubregionTile> loadedTiles) {
+				Collections.sort(loadedTiles, new Comparator<RoutingSubregionTile>() {
+					@Override
+					public int compare(RoutingSubregionTile o1, RoutingSubregionTile o2) {
+						return o1.lastAccess < o2.lastAccess ? -1 : (o1.lastAccess == o2.lastAccess ? 0 : 1);
+					}
+				});
+			}
+		},
+		/**
+		 * Least frequently accessed tiles first (all accesses since tile was loaded)
+		 */
+		LFU {
+			@Override
+			public void sortForEviction(RoutingContext ctx, List<RoutingSubregionTile> loadedTiles) {
+				Collections.sort(loadedTiles, new Comparator<RoutingSubregionTile>() {
+					@Override
+					public int compare(RoutingSubregionTile o1, RoutingSubregionTile o2) {
+						return o1.totalAccess < o2.totalAccess ? -1 : (o1.totalAccess == o2.totalAccess ? 0 : 1);
+					}
+				});
+			}
+		},
+		/**
+		 * Tiles far from last expanded points of forward and reverse search first
+		 */
+		DISTANCE_FROM_FRONTIER {
+			@Override
+			public void sortForEviction(final RoutingContext ctx, List<RoutingSubregionTile> loadedTiles) {
+				Collections.sort(loadedTiles, new Comparator<RoutingSubregionTile>() {
+					@Override
+					public int compare(RoutingSubregionTile o1, RoutingSubregionTile o2) {
+						return Double.compare(ctx.getDistanceToFrontier(o2), ctx.getDistanceToFrontier(o1));
+					}
+				});
+			}
+		};
+
+		public static TileEvictionPolicy parse(String name, TileEvictionPolicy def) {
+			if (name != null) {
+				for (Standard s : values()) {
+					if (s.name().equalsIgnoreCase(name)) {
+						return s;
+					}
+				}
+			}
+			return def;
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+/**
+ * Transport network packed into primitive arrays for round based search (RAPTOR).
+ * Stops are identified by index, route stops, trips, routes of stop and transfers are stored in flat arrays
+ * indexed by offset arrays (offsets[i]..offsets[i + 1] - 1 belong to element i).
+ * All times are in seconds, departures of trips are relative to configured time of day.
+ */
+public class TransportRaptorNetwork {
+
+	final TransportRoutingConfiguration cfg;
+
+	// stops
+	final int stopsCount;
+	final int[] stopX31;
+	final int[] stopY31;
+
+	// routes
+	final int routesCount;
+	final TransportRoute[] routes;
+	final int[] routeStopsOffset;
+	// per route stop (position): stop index, route index, time and distance (meters) from the first stop of route
+	final int[] routeStops;
+	final int[] routeStopRoutes;
+	final int[] routeStopTimes;
+	final int[] routeStopDists;
+	// departures from the first stop (sorted), used only with schedule, otherwise route could be boarded at any time
+	final int[] routeTripsOffset;
+	final int[] tripDepartures;
+
+	// routes of stop as positions in route stops
+	final int[] stopRoutesOffset;
+	final int[] stopRoutePositions;
+
+	// transfers: target stop and walk distance in meters
+	final int[] transfersOffset;
+	final int[] transferStops;
+	final int[] transferDists;
+
+	private TransportRaptorNetwork(TransportRoutingConfiguration cfg, Builder b) {
+		this.cfg = cfg;
+		stopsCount = b.stopX31.size();
+		stopX31 = b.stopX31.toArray();
+		stopY31 = b.stopY31.toArray();
+		routesCount = b.routes.size();
+		routes = b.routes.toArray(new TransportRoute[routesCount]);
+		routeStopsOffset = b.routeStopsOffset.toArray();
+		routeStops = b.routeStops.toArray();
+		routeStopRoutes = b.routeStopRoutes.toArray();
+		routeStopTimes = b.routeStopTimes.toArray();
+		routeStopDists = b.routeStopDists.toArray();
+		routeTripsOffset = b.routeTripsOffset.toArray();
+		tripDepartures = b.tripDepartures.toArray();
+
+		stopRoutesOffset = new int[stopsCount + 1];
+		for (int p = 0; p < routeStops.length; p++) {
+			stopRoutesOffset[routeStops[p] + 1]++;
+		}
+		for (int i = 0; i < stopsCount; i++) {
+			stopRoutesOffset[i + 1] += stopRoutesOffset[i];
+		}
+		stopRoutePositions = new int[routeStops.length];
+		int[] fill = Arrays.copyOf(stopRoutesOffset, stopsCount);
+		for (int p = 0; p < routeStops.length; p++) {
+			stopRoutePositions[fill[routeStops[p]]++] = p;
+		}
+
+		TIntArrayList tStops = new TIntArrayList();
+		TIntArrayList tDists = new TIntArrayList();
+		transfersOffset = new int[stopsCount + 1];
+		int radius31 = Math.max(1, (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31)));
+		TLongObjectHashMap<TIntArrayList> grid = new TLongObjectHashMap<TIntArrayList>();
+		for (int i = 0; i < stopsCount; i++) {
+			long cell = gridCell(stopX31[i] / radius31, stopY31[i] / radius31);
+			TIntArrayList l = grid.get(cell);
+			if (l == null) {
+				l = new TIntArrayList(4);
+				grid.put(cell, l);
+			}
+			l.add(i);
+		}
+		for (int i = 0; i < stopsCount; i++) {
+			int cx = stopX31[i] / radius31;
+			int cy = stopY31[i] / radius31;
+			for (int x = cx - 1; x <= cx + 1; x++) {
+				for (int y = cy - 1; y <= cy + 1; y++) {
+					TIntArrayList l = grid.get(gridCell(x, y));
+					if (l == null) {
+						continue;
+					}
+					for (int k = 0; k < l.size(); k++) {
+						int j = l.getQuick(k);
+						if (j == i) {
+							continue;
+						}
+						double d = MapUtils.measuredDist31(stopX31[i], stopY31[i], stopX31[j], stopY31[j]);
+						if (d <= cfg.walkChangeRadius) {
+							tStops.add(j);
+							tDists.add((int) d);
+						}
+					}
+				}
+			}
+			transfersOffset[i + 1] = tStops.size();
+		}
+		transferStops = tStops.toArray();
+		transferDists = tDists.toArray();
+	}
+
+	private static long gridCell(int x, int y) {
+		return (((long) x) << 32) + y;
+	}
+
+	public int getStopsCount() {
+		return stopsCount;
+	}
+
+	public int getRoutesCount() {
+		return routesCount;
+	}
+
+	public int getTransfersCount() {
+		return transferStops.length;
+	}
+
+	/**
+	 * Finds stops within radius of location, distances are in meters.
+	 */
+	void findStops(LatLon loc, double radius, TIntArrayList stops, TIntArrayList dists) {
+		int x31 = MapUtils.get31TileNumberX(loc.getLongitude());
+		int y31 = MapUtils.get31TileNumberY(loc.getLatitude());
+		for (int i = 0; i < stopsCount; i++) {
+			double d = MapUtils.measuredDist31(x31, y31, stopX31[i], stopY31[i]);
+			if (d <= radius) {
+				stops.add(i);
+				dists.add((int) d);
+			}
+		}
+	}
+
+	/**
+	 * @return index of first trip departing from route stop (position) not earlier than time, -1 if there is none
+	 */
+	int findTrip(int route, int position, int time) {
+		int from = routeTripsOffset[route];
+		int to = routeTripsOffset[route + 1] - 1;
+		int t = time - routeStopTimes[position];
+		if (from > to || tripDepartures[to] < t) {
+			return -1;
+		}
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (tripDepartures[mid] < t) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * Builds network of routes, routes with zero speed (or without schedule if schedule is used) are skipped.
+	 */
+	public static TransportRaptorNetwork build(TransportRoutingConfiguration cfg, Collection<TransportRoute> routes) {
+		Builder b = new Builder(cfg);
+		for (TransportRoute r : routes) {
+			b.addRoute(r);
+		}
+		return new TransportRaptorNetwork(cfg, b);
+	}
+
+	private static class Builder {
+		final TransportRoutingConfiguration cfg;
+		final TLongObjectHashMap<Integer> stopIds = new TLongObjectHashMap<Integer>();
+		final TIntArrayList stopX31 = new TIntArrayList();
+		final TIntArrayList stopY31 = new TIntArrayList();
+		final List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		final TIntArrayList routeStopsOffset = new TIntArrayList();
+		final TIntArrayList routeStops = new TIntArrayList();
+		final TIntArrayList routeStopRoutes = new TIntArrayList();
+		final TIntArrayList routeStopTimes = new TIntArrayList();
+		final TIntArrayList routeStopDists = new TIntArrayList();
+		final TIntArrayList routeTripsOffset = new TIntArrayList();
+		final TIntArrayList tripDepartures = new TIntArrayList();
+
+		Builder(TransportRoutingConfiguration cfg) {
+			this.cfg = cfg;
+			routeStopsOffset.add(0);
+			routeTripsOffset.add(0);
+		}
+
+		void addRoute(TransportRoute r) {
+			List<TransportStop> stops = r.getForwardStops();
+			float speed = cfg.getSpeedByRouteType(r.getType());
+			TransportSchedule schedule = r.getSchedule();
+			if (stops.size() < 2 || speed == 0 || (cfg.useSchedule && schedule == null)) {
+				return;
+			}
+			int time = 0;
+			double dist = 0;
+			LatLon prev = null;
+			for (int i = 0; i < stops.size(); i++) {
+				TransportStop s = stops.get(i);
+				LatLon loc = s.getLocation();
+				if (prev != null) {
+					double d = MapUtils.getDistance(prev, loc);
+					dist += d;
+					if (cfg.useSchedule) {
+						time += schedule.avgStopIntervals.size() > i - 1 ? schedule.avgStopIntervals.get(i - 1) * 10 : 0;
+					} else {
+						time += (int) (cfg.stopTime + d / speed);
+					}
+				}
+				routeStops.add(getStop(s, loc));
+				routeStopRoutes.add(routes.size());
+				routeStopTimes.add(time);
+				routeStopDists.add((int) dist);
+				prev = loc;
+			}
+			if (cfg.useSchedule) {
+				TIntArrayList ti = schedule.tripIntervals;
+				int t = 0;
+				for (int i = 0; i < ti.size(); i++) {
+					t += ti.getQuick(i);
+					tripDepartures.add((t - cfg.scheduleTimeOfDay) * 10);
+				}
+				tripDepartures.sort(routeTripsOffset.get(routes.size()), tripDepartures.size());
+			}
+			routes.add(r);
+			routeStopsOffset.add(routeStops.size());
+			routeTripsOffset.add(tripDepartures.size());
+		}
+
+		int getStop(TransportStop s, LatLon loc) {
+			long id = s.getId() == null ? -(stopX31.size() + 1) : s.getId();
+			Integer ind = stopIds.get(id);
+			if (ind != null) {
+				return ind;
+			}
+			ind = stopX31.size();
+			stopIds.put(id, ind);
+			stopX31.add(MapUtils.get31TileNumberX(loc.getLongitude()));
+			stopY31.add(MapUtils.get31TileNumberY(loc.getLatitude()));
+			return ind;
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Public transport routing with round based algorithm (RAPTOR) over {@link TransportRaptorNetwork}.
+ * Round k finds earliest arrivals with k routes: routes serving stops improved in previous round are scanned once,
+ * then walking transfers from improved stops are relaxed. Result contains the best journey of each number
+ * of changes which is faster than journeys with fewer changes.
+ *
+ * Costs are the same as in {@link TransportRoutePlanner}: walk speed, stop, change and boarding times, schedule if used.
+ */
+public class TransportRaptorPlanner {
+
+	private static final int INF = Integer.MAX_VALUE;
+	// network is loaded in bbox of start and end extended by part of distance between them (at least walk radius)
+	private static final double AREA_EXTENSION = 0.25;
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException {
+		ctx.startCalcTime = System.currentTimeMillis();
+		TransportRaptorNetwork network = buildNetwork(ctx, start, end);
+		return buildRoute(ctx, network, start, end);
+	}
+
+	public TransportRaptorNetwork buildNetwork(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException {
+		double ext = Math.max(ctx.cfg.walkRadius, MapUtils.getDistance(start, end) * AREA_EXTENSION);
+		int ext31 = (int) (ext / MapUtils.getTileDistanceWidth(31));
+		int sx = MapUtils.get31TileNumberX(start.getLongitude());
+		int sy = MapUtils.get31TileNumberY(start.getLatitude());
+		int ex = MapUtils.get31TileNumberX(end.getLongitude());
+		int ey = MapUtils.get31TileNumberY(end.getLatitude());
+		Collection<TransportRoute> routes = ctx.getTransportRoutes(Math.max(0, Math.min(sx, ex) - ext31),
+				Math.max(0, Math.min(sy, ey) - ext31), Math.min(Integer.MAX_VALUE - 1, Math.max(sx, ex) + ext31),
+				Math.min(Integer.MAX_VALUE - 1, Math.max(sy, ey) + ext31));
+		return TransportRaptorNetwork.build(ctx.cfg, routes);
+	}
+
+	/**
+	 * @return journeys ordered by time or null if calculation is cancelled
+	 */
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, TransportRaptorNetwork n, LatLon start, LatLon end) {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		double totalDistance = MapUtils.getDistance(start, end);
+		double finishTime = cfg.maxRouteTime;
+		ctx.finishTimeSeconds = cfg.finishTimeSeconds;
+		if (totalDistance > cfg.maxRouteDistance && cfg.maxRouteIncreaseSpeed > 0) {
+			int increaseTime = (int) ((totalDistance - cfg.maxRouteDistance) * 3.6 / cfg.maxRouteIncreaseSpeed);
+			finishTime += increaseTime;
+			ctx.finishTimeSeconds += increaseTime / 6;
+		}
+		int maxTime = (int) Math.min(INF - 1, finishTime + ctx.finishTimeSeconds);
+		double maxTravelTimeCmpToWalk = totalDistance / cfg.walkSpeed - cfg.changeTime / 2;
+		int changePenalty = cfg.getChangeTime() + cfg.getBoardingTime();
+		int rounds = cfg.maxNumberOfChanges + 1;
+		int ns = n.stopsCount;
+
+		// labels of round k and stop p are stored at k * ns + p
+		int[] arrivals = new int[(rounds + 1) * ns];
+		int[] transitArrivals = new int[(rounds + 1) * ns];
+		int[] boardPositions = new int[(rounds + 1) * ns];
+		int[] alightPositions = new int[(rounds + 1) * ns];
+		int[] boardRounds = new int[(rounds + 1) * ns];
+		int[] trips = new int[(rounds + 1) * ns];
+		int[] walkFrom = new int[(rounds + 1) * ns];
+		// walk distance from previous stop (from start in round 0)
+		float[] walkDists = new float[(rounds + 1) * ns];
+		Arrays.fill(arrivals, INF);
+		Arrays.fill(transitArrivals, INF);
+		Arrays.fill(walkFrom, -1);
+		int[] best = new int[ns];
+		int[] bestRounds = new int[ns];
+		int[] ready = new int[ns];
+		int[] readyRounds = new int[ns];
+		Arrays.fill(best, INF);
+		boolean[] marked = new boolean[ns];
+		TIntArrayList markedStops = new TIntArrayList();
+		TIntArrayList transitStops = new TIntArrayList();
+		int[] routeStart = new int[n.routesCount];
+		Arrays.fill(routeStart, -1);
+		TIntArrayList queuedRoutes = new TIntArrayList();
+
+		TIntArrayList startStops = new TIntArrayList();
+		TIntArrayList startDists = new TIntArrayList();
+		n.findStops(start, cfg.walkRadius, startStops, startDists);
+		for (int i = 0; i < startStops.size(); i++) {
+			int p = startStops.get(i);
+			int arr = (int) (startDists.get(i) / cfg.walkSpeed);
+			if (arr < best[p]) {
+				arrivals[p] = arr;
+				walkDists[p] = startDists.get(i);
+				best[p] = arr;
+				if (!marked[p]) {
+					marked[p] = true;
+					markedStops.add(p);
+				}
+			}
+		}
+		TIntArrayList targetStops = new TIntArrayList();
+		TIntArrayList targetDists = new TIntArrayList();
+		n.findStops(end, cfg.walkRadius, targetStops, targetDists);
+
+		int targetBest = INF;
+		List<TransportRouteResult> results = new ArrayList<TransportRouteResult>();
+		for (int k = 1; k <= rounds && !markedStops.isEmpty(); k++) {
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				return null;
+			}
+			int offset = k * ns;
+			for (int p = 0; p < ns; p++) {
+				ready[p] = best[p] == INF ? INF : best[p] + (bestRounds[p] > 0 ? changePenalty : 0);
+				readyRounds[p] = bestRounds[p];
+			}
+			// collect routes with the first improved stop
+			for (int i = 0; i < markedStops.size(); i++) {
+				int p = markedStops.getQuick(i);
+				marked[p] = false;
+				for (int j = n.stopRoutesOffset[p]; j < n.stopRoutesOffset[p + 1]; j++) {
+					int pos = n.stopRoutePositions[j];
+					int r = n.routeStopRoutes[pos];
+					if (routeStart[r] == -1) {
+						queuedRoutes.add(r);
+						routeStart[r] = pos;
+					} else if (pos < routeStart[r]) {
+						routeStart[r] = pos;
+					}
+				}
+			}
+			markedStops.clear();
+			ctx.visitedRoutesCount += queuedRoutes.size();
+			for (int i = 0; i < queuedRoutes.size(); i++) {
+				int r = queuedRoutes.getQuick(i);
+				int routeEnd = n.routeStopsOffset[r + 1];
+				int boardPos = -1;
+				int boardRound = 0;
+				int trip = -1;
+				// departure from the first stop of route (without schedule)
+				int base = 0;
+				for (int pos = routeStart[r]; pos < routeEnd; pos++) {
+					int p = n.routeStops[pos];
+					ctx.visitedStops++;
+					if (boardPos != -1) {
+						int arr = (cfg.useSchedule ? n.tripDepartures[trip] : base) + n.routeStopTimes[pos];
+						if (arr < best[p] && arr < targetBest && arr <= maxTime) {
+							arrivals[offset + p] = arr;
+							transitArrivals[offset + p] = arr;
+							boardPositions[offset + p] = boardPos;
+							alightPositions[offset + p] = pos;
+							boardRounds[offset + p] = boardRound;
+							trips[offset + p] = trip;
+							walkFrom[offset + p] = -1;
+							best[p] = arr;
+							bestRounds[p] = k;
+							if (!marked[p]) {
+								marked[p] = true;
+								markedStops.add(p);
+							}
+						}
+					}
+					if (ready[p] != INF && pos < routeEnd - 1) {
+						if (cfg.useSchedule) {
+							int t = n.findTrip(r, pos, ready[p]);
+							if (t != -1 && (trip == -1 || t < trip)) {
+								trip = t;
+								boardPos = pos;
+								boardRound = readyRounds[p];
+							}
+						} else {
+							int b = ready[p] - n.routeStopTimes[pos];
+							if (boardPos == -1 || b < base) {
+								base = b;
+								boardPos = pos;
+								boardRound = readyRounds[p];
+							}
+						}
+					}
+				}
+				routeStart[r] = -1;
+			}
+			queuedRoutes.clear();
+
+			// walking transfers from stops improved by transport
+			transitStops.addAll(markedStops);
+			for (int i = 0; i < transitStops.size(); i++) {
+				int p = transitStops.getQuick(i);
+				int from = transitArrivals[offset + p];
+				for (int j = n.transfersOffset[p]; j < n.transfersOffset[p + 1]; j++) {
+					int q = n.transferStops[j];
+					int arr = from + (int) (n.transferDists[j] / cfg.walkSpeed);
+					if (arr < best[q] && arr < targetBest && arr <= maxTime) {
+						arrivals[offset + q] = arr;
+						walkFrom[offset + q] = p;
+						walkDists[offset + q] = n.transferDists[j];
+						best[q] = arr;
+						bestRounds[q] = k;
+						if (!marked[q]) {
+							marked[q] = true;
+							markedStops.add(q);
+						}
+					}
+				}
+			}
+			transitStops.clear();
+
+			int target = -1;
+			float targetDist = 0;
+			for (int i = 0; i < targetStops.size(); i++) {
+				int p = targetStops.getQuick(i);
+				if (arrivals[offset + p] != INF) {
+					int arr = arrivals[offset + p] + (int) (targetDists.getQuick(i) / cfg.walkSpeed);
+					if (arr < targetBest) {
+						targetBest = arr;
+						target = p;
+						targetDist = targetDists.getQuick(i);
+					}
+				}
+			}
+			if (target != -1) {
+				results.add(prepareResult(ctx, n, k, target, targetDist, targetBest, arrivals, boardPositions,
+						alightPositions, boardRounds, trips, walkFrom, walkDists));
+			}
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.directSegmentQueueSize = markedStops.size();
+			}
+		}
+		return filterResults(ctx, results, maxTravelTimeCmpToWalk);
+	}
+
+	private TransportRouteResult prepareResult(TransportRoutingContext ctx, TransportRaptorNetwork n, int k, int p,
+			float targetDist, int time, int[] arrivals, int[] boardPositions, int[] alightPositions, int[] boardRounds,
+			int[] trips, int[] walkFrom, float[] walkDists) {
+		int ns = n.stopsCount;
+		TransportRouteResult route = new TransportRouteResult(ctx);
+		route.routeTime = time;
+		route.finishWalkDist = targetDist;
+		TransportRouteResultSegment next = null;
+		while (true) {
+			int ind = k * ns + p;
+			float walk = 0;
+			if (k == 0) {
+				walk = walkDists[ind];
+			} else if (walkFrom[ind] != -1) {
+				walk = walkDists[ind];
+				p = walkFrom[ind];
+				ind = k * ns + p;
+			}
+			if (next == null) {
+				route.finishWalkDist += walk;
+			} else {
+				next.walkDist = walk;
+				next.walkTime = walk / ctx.cfg.walkSpeed;
+			}
+			if (k == 0) {
+				break;
+			}
+			int board = boardPositions[ind];
+			int alight = alightPositions[ind];
+			int r = n.routeStopRoutes[board];
+			TransportRouteResultSegment sg = new TransportRouteResultSegment();
+			sg.route = n.routes[r];
+			sg.start = board - n.routeStopsOffset[r];
+			sg.end = alight - n.routeStopsOffset[r];
+			sg.travelTime = n.routeStopTimes[alight] - n.routeStopTimes[board];
+			sg.travelDistApproximate = n.routeStopDists[alight] - n.routeStopDists[board];
+			sg.depTime = ctx.cfg.useSchedule ? ctx.cfg.scheduleTimeOfDay
+					+ (n.tripDepartures[trips[ind]] + n.routeStopTimes[board]) / 10 : -1;
+			route.segments.add(0, sg);
+			next = sg;
+			p = n.routeStops[board];
+			k = boardRounds[ind];
+		}
+		return route;
+	}
+
+	private List<TransportRouteResult> filterResults(TransportRoutingContext ctx, List<TransportRouteResult> results,
+			double maxTravelTimeCmpToWalk) {
+		Collections.sort(results, new Comparator<TransportRouteResult>() {
+			@Override
+			public int compare(TransportRouteResult o1, TransportRouteResult o2) {
+				return Double.compare(o1.getRouteTime(), o2.getRouteTime());
+			}
+		});
+		List<TransportRouteResult> lst = new ArrayList<TransportRouteResult>();
+		for (TransportRouteResult r : results) {
+			if (lst.isEmpty() || (r.getRouteTime() < maxTravelTimeCmpToWalk
+					&& r.getRouteTime() < lst.get(0).getRouteTime() + ctx.finishTimeSeconds)) {
+				lst.add(r);
+			}
+		}
+		System.out.println(String.format(Locale.US, "Calculated %.1f seconds (raptor), found %d results, visited %d routes / %d stops, loaded %d tiles (%d ms read, %d ms total)",
+				(System.currentTimeMillis() - ctx.startCalcTime) / 1000.0, lst.size(), ctx.visitedRoutesCount,
+				ctx.visitedStops, ctx.quadTree.size(), ctx.readTime / (1000 * 1000), ctx.loadTime / (1000 * 1000)));
+		return lst;
+	}
+}
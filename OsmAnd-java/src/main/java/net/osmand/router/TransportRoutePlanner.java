@@ -31,6 +31,9 @@ public class TransportRoutePlanner {
 	public static final long STOPS_WAY_ID = -2;
 
 	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException, InterruptedException {
+		if (ctx.cfg.useRaptor) {
+			return new TransportRaptorPlanner().buildRoute(ctx, start, end);
+		}
 		ctx.startCalcTime = System.currentTimeMillis();
 		double totalDistance = MapUtils.getDistance(start, end);
 		List<TransportRouteSegment> startStops = ctx.getTransportStops(start);
@@ -1,5 +1,6 @@
 package net.osmand.router;
 
+import java.io.File;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,6 +36,10 @@ public class TransportRoutingConfiguration {
 	public int boardingTime = 180;
 	
 	public boolean useSchedule;
+	// round based search over packed network (see TransportRaptorPlanner)
+	public boolean useRaptor;
+	// directory of persistent stops indexes of files (see TransportStopsIndex), stops are read from files if null
+	public File stopsIndexDir;
 	// 10 seconds based
 	public int scheduleTimeOfDay = 12 * 60 * 6; // 12:00 - 60*6*12
 	public int scheduleMaxTime = 50 * 6; // TODO not appropriate variable, should be dynamic
@@ -90,6 +95,7 @@ public class TransportRoutingConfiguration {
 			maxRouteIncreaseSpeed =  router.getIntAttribute("maxRouteIncreaseSpeed", maxRouteIncreaseSpeed);
 			maxRouteDistance =  router.getIntAttribute("maxRouteDistance", maxRouteDistance);
 			finishTimeSeconds =  router.getIntAttribute("delayForAlternativesRoutes", finishTimeSeconds);
+			useRaptor = Boolean.parseBoolean(router.getAttribute("useRaptor"));
 			String mn = params.get("max_num_changes");
 			maxNumberOfChanges = (int) RoutingConfiguration.parseSilentFloat(mn, maxNumberOfChanges);
 			
@@ -1,7 +1,9 @@
 package net.osmand.router;
 
 import net.osmand.NativeLibrary;
+import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.TransportStopsIndex;
 import net.osmand.data.LatLon;
 import net.osmand.data.TransportRoute;
 import net.osmand.data.TransportStop;
@@ -20,8 +22,12 @@ import java.util.Map;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TLongObjectHashMap;
 
+import org.apache.commons.logging.Log;
+
 public class TransportRoutingContext {
 
+	private static final Log log = PlatformUtil.getLog(TransportRoutingContext.class);
+
 	public NativeLibrary library;
 	public RouteCalculationProgress calculationProgress;
 	public TLongObjectHashMap<TransportRouteSegment> visitedSegments = new TLongObjectHashMap<TransportRouteSegment>();
@@ -55,6 +61,17 @@ public class TransportRoutingContext {
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
 		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		if (cfg.stopsIndexDir != null) {
+			for (BinaryMapIndexReader r : readers) {
+				if (r.hasTransportData() && r.getFile() != null) {
+					try {
+						transportStopsReader.setStopsIndex(r, TransportStopsIndex.getIndex(r, cfg.stopsIndexDir));
+					} catch (IOException e) {
+						log.error("Transport stops index of " + r.getFile().getName() + " is not available", e);
+					}
+				}
+			}
+		}
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -98,6 +115,30 @@ public class TransportRoutingContext {
 	}
 
 
+	/**
+	 * Loads (or takes already loaded) tiles intersecting bbox and returns all routes passing through their stops.
+	 */
+	public Collection<TransportRoute> getTransportRoutes(int left31, int top31, int right31, int bottom31) throws IOException {
+		long nanoTime = System.nanoTime();
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+		int pz = 31 - cfg.ZOOM_TO_LOAD_TILES;
+		for (int x = left31 >> pz; x <= right31 >> pz; x++) {
+			for (int y = top31 >> pz; y <= bottom31 >> pz; y++) {
+				long tileId = (((long) x) << (cfg.ZOOM_TO_LOAD_TILES + 1)) + y;
+				List<TransportRouteSegment> list = quadTree.get(tileId);
+				if (list == null) {
+					list = loadTile(x, y);
+					quadTree.put(tileId, list);
+				}
+				for (TransportRouteSegment r : list) {
+					routes.put(r.road.getId(), r.road);
+				}
+			}
+		}
+		loadTime += System.nanoTime() - nanoTime;
+		return routes.valueCollection();
+	}
+
 	private List<TransportRouteSegment> loadTile(int x, int y) throws IOException {
 		long nanoTime = System.nanoTime();
 		List<TransportRouteSegment> lst = new ArrayList<TransportRouteSegment>();
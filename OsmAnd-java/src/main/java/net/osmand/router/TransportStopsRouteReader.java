@@ -3,6 +3,7 @@ package net.osmand.router;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -17,6 +18,7 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.binary.TransportStopsIndex;
 import net.osmand.data.IncompleteTransportRoute;
 import net.osmand.data.LatLon;
 import net.osmand.data.TransportRoute;
@@ -29,6 +31,7 @@ public class TransportStopsRouteReader {
 	TLongObjectHashMap<TransportRoute> combinedRoutesCache = new TLongObjectHashMap<TransportRoute>();
 	Map<BinaryMapIndexReader, TIntObjectHashMap<TransportRoute>> routesFilesCache = new LinkedHashMap<BinaryMapIndexReader, 
 			TIntObjectHashMap<TransportRoute>>();
+	Map<BinaryMapIndexReader, TransportStopsIndex> stopsIndexes = new HashMap<BinaryMapIndexReader, TransportStopsIndex>();
 	
 	
 	public TransportStopsRouteReader(Collection<BinaryMapIndexReader> fls) {
@@ -36,13 +39,21 @@ public class TransportStopsRouteReader {
 			routesFilesCache.put(r, new TIntObjectHashMap<TransportRoute>());
 		}
 	}
+
+	/**
+	 * Stops of file will be read from index instead of file (stops are without names, missing stops are flagged).
+	 */
+	public void setStopsIndex(BinaryMapIndexReader reader, TransportStopsIndex index) {
+		stopsIndexes.put(reader, index);
+	}
 	
 	public Collection<TransportStop> readMergedTransportStops(SearchRequest<TransportStop> sr) throws IOException {
 		TLongObjectHashMap<TransportStop> loadedTransportStops = new TLongObjectHashMap<TransportStop>();
 
 		for (BinaryMapIndexReader r : routesFilesCache.keySet()) {
 			sr.clearSearchResults();
-			List<TransportStop> stops = r.searchTransportIndex(sr);
+			TransportStopsIndex index = stopsIndexes.get(r);
+			List<TransportStop> stops = index != null ? index.searchTransportIndex(sr) : r.searchTransportIndex(sr);
 			TIntObjectHashMap<TransportRoute> routesToLoad = mergeTransportStops(r, loadedTransportStops, stops);
 			loadRoutes(r, routesToLoad);
 			for (TransportStop stop : stops) {
@@ -0,0 +1,207 @@
+package com.google.protobuf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares streams over memory mapped file split into small windows with
+ * stream over random access file, so reads cross window boundaries often.
+ */
+public class CodedInputStreamMappedTest {
+
+	private static final int RECORDS = 2000;
+	private static final int OPERATIONS = 20000;
+
+	private File file;
+	private RandomAccessFile expectedRaf;
+	private RandomAccessFile mappedRaf;
+	// positions of records in file
+	private List<Integer> records = new ArrayList<Integer>();
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("coded", ".bin");
+		Random rnd = new Random(7);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			CodedOutputStream cos = CodedOutputStream.newInstance(out);
+			int pos = 0;
+			for (int i = 0; i < RECORDS; i++) {
+				records.add(pos);
+				// varint64, varint32 and length delimited string or bytes
+				long l = rnd.nextLong() >>> rnd.nextInt(64);
+				int v = rnd.nextInt() >>> rnd.nextInt(32);
+				byte[] bytes;
+				if (rnd.nextBoolean()) {
+					StringBuilder sb = new StringBuilder();
+					int len = rnd.nextInt(100);
+					for (int k = 0; k < len; k++) {
+						sb.append(rnd.nextInt(10) == 0 ? (char) (0x400 + rnd.nextInt(0x100)) : (char) ('a' + rnd.nextInt(26)));
+					}
+					bytes = sb.toString().getBytes("UTF-8");
+				} else {
+					bytes = new byte[rnd.nextInt(rnd.nextInt(10) == 0 ? 3000 : 100)];
+					rnd.nextBytes(bytes);
+				}
+				cos.writeRawVarint64(l);
+				cos.writeRawVarint32(v);
+				cos.writeRawVarint32(bytes.length);
+				cos.writeRawBytes(bytes);
+				pos += CodedOutputStream.computeRawVarint64Size(l) + CodedOutputStream.computeRawVarint32Size(v)
+						+ CodedOutputStream.computeRawVarint32Size(bytes.length) + bytes.length;
+			}
+			cos.flush();
+		} finally {
+			out.close();
+		}
+		expectedRaf = new RandomAccessFile(file, "r");
+		mappedRaf = new RandomAccessFile(file, "r");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		expectedRaf.close();
+		mappedRaf.close();
+		file.delete();
+	}
+
+	@Test
+	public void testWindowsOf64Bytes() throws IOException {
+		compare(6, 1);
+	}
+
+	@Test
+	public void testWindowsOf1Kb() throws IOException {
+		compare(10, 2);
+	}
+
+	@Test
+	public void testWindowsMappedAgainAfterClose() throws IOException {
+		CodedInputStream expected = CodedInputStream.newInstance(expectedRaf);
+		CodedInputStream mapped = CodedInputStream.newMappedInstance(mappedRaf, 8);
+		expected.setSizeLimit(Integer.MAX_VALUE);
+		mapped.setSizeLimit(Integer.MAX_VALUE);
+		for (int i = 0; i < RECORDS; i++) {
+			Assert.assertEquals(expected.readRawVarint64(), mapped.readRawVarint64());
+			mapped.close();
+			Assert.assertEquals(expected.readRawVarint32(), mapped.readRawVarint32());
+			Assert.assertEquals(expected.readBytes(), mapped.readBytes());
+			Assert.assertEquals(expected.getTotalBytesRead(), mapped.getTotalBytesRead());
+		}
+		Assert.assertTrue(mapped.isAtEnd());
+		mapped.close();
+	}
+
+	private void compare(int windowShift, long seed) throws IOException {
+		CodedInputStream expected = CodedInputStream.newInstance(expectedRaf);
+		CodedInputStream mapped = CodedInputStream.newMappedInstance(mappedRaf, windowShift);
+		expected.setSizeLimit(Integer.MAX_VALUE);
+		mapped.setSizeLimit(Integer.MAX_VALUE);
+		Random rnd = new Random(seed);
+		List<Integer> limits = new ArrayList<Integer>();
+		int length = (int) file.length();
+		boolean failed = false;
+		for (int i = 0; i < OPERATIONS; i++) {
+			// positions of streams could differ after failed read
+			int type = failed ? 0 : rnd.nextInt(8);
+			failed = false;
+			String op = "operation " + i + " (" + type + ") at " + expected.getTotalBytesRead();
+			if (type == 0 || (type == 1 && limits.isEmpty())) {
+				// seek to record (limits are checked only by reads)
+				while (!limits.isEmpty()) {
+					int limit = limits.remove(limits.size() - 1);
+					expected.popLimit(limit);
+					mapped.popLimit(limit);
+				}
+				int pos = rnd.nextInt(10) == 0 ? length : records.get(rnd.nextInt(records.size()));
+				expected.seek(pos);
+				mapped.seek(pos);
+			} else if (type == 1) {
+				int limit = limits.remove(limits.size() - 1);
+				expected.popLimit(limit);
+				mapped.popLimit(limit);
+			} else if (type == 2) {
+				int byteLimit = rnd.nextInt(rnd.nextBoolean() ? 50 : 5000);
+				try {
+					int limit = expected.pushLimit(byteLimit);
+					Assert.assertEquals(op, limit, mapped.pushLimit(byteLimit));
+					limits.add(limit);
+				} catch (InvalidProtocolBufferException e) {
+					assertFails(op, e, mapped, byteLimit, type);
+					failed = true;
+				}
+			} else {
+				int size = rnd.nextInt(rnd.nextBoolean() ? 100 : 5000);
+				if (type == 5) {
+					// random access file skips to the end of file without failure
+					size = Math.min(size, length - expected.getTotalBytesRead());
+				}
+				Object res;
+				try {
+					res = read(expected, type, size);
+				} catch (IOException e) {
+					assertFails(op, e, mapped, size, type);
+					failed = true;
+					continue;
+				}
+				Object mappedRes;
+				try {
+					mappedRes = read(mapped, type, size);
+				} catch (IOException e) {
+					throw new AssertionError(op + " of " + size + " failed: " + e);
+				}
+				if (res instanceof byte[]) {
+					Assert.assertArrayEquals(op, (byte[]) res, (byte[]) mappedRes);
+				} else {
+					Assert.assertEquals(op, res, mappedRes);
+				}
+			}
+			Assert.assertEquals(op, expected.getTotalBytesRead(), mapped.getTotalBytesRead());
+			Assert.assertEquals(op, expected.getBytesUntilLimit(), mapped.getBytesUntilLimit());
+		}
+		mapped.close();
+	}
+
+	private void assertFails(String op, IOException e, CodedInputStream mapped, int size, int type) {
+		try {
+			if (type == 2) {
+				mapped.pushLimit(size);
+			} else {
+				read(mapped, type, size);
+			}
+		} catch (IOException me) {
+			if (e instanceof InvalidProtocolBufferException) {
+				Assert.assertEquals(op, e.getMessage(), me.getMessage());
+			}
+			// random access file fails by EOFException at the end of file
+			return;
+		}
+		Assert.fail(op + " of " + size + " should fail: " + e);
+	}
+
+	private Object read(CodedInputStream is, int type, int size) throws IOException {
+		switch (type) {
+		case 3:
+			return is.readRawVarint32();
+		case 4:
+			return is.readRawVarint64();
+		case 5:
+			is.skipRawBytes(size);
+			return null;
+		case 6:
+			return is.readRawBytes(size);
+		default:
+			return is.readString();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.data.Amenity;
+
+public class BinaryBlockCacheTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+
+	private SyntheticMapFixture map;
+	private int x31;
+	private int y31;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		x31 = map.getX31();
+		y31 = map.getY31();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		BinaryMapIndexReader.BLOCK_CACHE = null;
+		map.close();
+	}
+
+	@Test
+	public void testCachedReadsAreSame() throws IOException {
+		List<String> expected = search();
+		Assert.assertFalse(expected.isEmpty());
+		BinaryBlockCache cache = new BinaryBlockCache(16 << 20);
+		BinaryMapIndexReader.BLOCK_CACHE = cache;
+		Assert.assertEquals(expected, search());
+		long misses = cache.getMisses();
+		Assert.assertTrue(misses > 0);
+		Assert.assertEquals(Math.min(map.getFile().length(), misses * BinaryBlockCache.BLOCK_SIZE), cache.getCachedBytes(),
+				BinaryBlockCache.BLOCK_SIZE);
+
+		// second reader of same file reads only from cache
+		Assert.assertEquals(expected, search());
+		Assert.assertEquals(misses, cache.getMisses());
+		Assert.assertTrue(cache.getHitRatio() > 0.5);
+	}
+
+	@Test
+	public void testBudgetIsKept() throws IOException {
+		List<String> expected = search();
+		BinaryBlockCache cache = new BinaryBlockCache(2 * BinaryBlockCache.BLOCK_SIZE);
+		BinaryMapIndexReader.BLOCK_CACHE = cache;
+		Assert.assertEquals(expected, search());
+		Assert.assertTrue(cache.getCachedBytes() <= cache.getMaxBytes());
+		Assert.assertTrue(cache.getCachedBlocks() <= 2);
+	}
+
+	private List<String> search() throws IOException {
+		BinaryMapIndexReader r = map.openReader();
+		try {
+			List<String> res = new ArrayList<String>();
+			for (BinaryMapDataObject o : r.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(x31 - RADIUS_31,
+					x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15, null))) {
+				res.add(o.getId() + " " + o.getName() + " " + o.getPointsLength());
+			}
+			for (Amenity a : r.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(x31 - RADIUS_31,
+					x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15,
+					BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null))) {
+				res.add(a.getId() + " " + a.getName() + " " + a.getSubType());
+			}
+			return res;
+		} finally {
+			r.close();
+		}
+	}
+}
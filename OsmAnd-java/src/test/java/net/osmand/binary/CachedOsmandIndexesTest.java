@@ -0,0 +1,161 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.IProgress;
+import net.osmand.data.Amenity;
+import net.osmand.util.MapUtils;
+
+public class CachedOsmandIndexesTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+	private static final double LAT = SyntheticMapFixture.LAT;
+	private static final double LON = SyntheticMapFixture.LON;
+
+	private SyntheticMapFixture map;
+	private File cacheFile;
+	private List<File> files = new ArrayList<File>();
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		cacheFile = new File(map.getDir(), "indexes.cache");
+		for (int i = 0; i < 3; i++) {
+			files.add(map.generate("Synthetic_" + i + ".obf", LAT + i * 0.1, LON, 5, i));
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testCachedReadersAreSame() throws IOException {
+		CachedOsmandIndexes cache = new CachedOsmandIndexes();
+		Map<File, BinaryMapIndexReader> readers = cache.getReaders(files, Collections.<File>emptyList(), 3);
+		Assert.assertEquals(files, new ArrayList<File>(readers.keySet()));
+		cache.writeToFile(cacheFile);
+		Assert.assertTrue(cacheFile.exists());
+
+		CachedOsmandIndexes cached = new CachedOsmandIndexes();
+		cached.readFromFile(cacheFile, CachedOsmandIndexes.VERSION);
+		Map<File, BinaryMapIndexReader> cachedReaders = cached.getReaders(files, Collections.<File>emptyList(), 3);
+		for (int i = 0; i < files.size(); i++) {
+			File f = files.get(i);
+			Assert.assertEquals(pois(readers.get(f), i), pois(cachedReaders.get(f), i));
+			Assert.assertEquals(readers.get(f).getIndexes().size(), cachedReaders.get(f).getIndexes().size());
+		}
+		long length = cacheFile.length();
+		cached.writeToFile(cacheFile);
+		Assert.assertEquals(length, cacheFile.length());
+		close(readers);
+		close(cachedReaders);
+	}
+
+	@Test
+	public void testChangedFileIsAppended() throws IOException {
+		CachedOsmandIndexes cache = new CachedOsmandIndexes();
+		close(cache.getReaders(files, Collections.<File>emptyList(), 3));
+		cache.writeToFile(cacheFile);
+		long length = cacheFile.length();
+
+		// same size, other modification time
+		File changed = files.get(1);
+		Assert.assertTrue(changed.setLastModified(changed.lastModified() - 10000));
+		CachedOsmandIndexes cached = new CachedOsmandIndexes();
+		cached.readFromFile(cacheFile, CachedOsmandIndexes.VERSION);
+		close(cached.getReaders(files, Collections.<File>emptyList(), 3));
+		cached.writeToFile(cacheFile);
+		long appendedLength = cacheFile.length();
+		Assert.assertTrue(appendedLength > length);
+		Assert.assertTrue(appendedLength < 2 * length);
+
+		// appended entry is used, file is not indexed again
+		CachedOsmandIndexes reread = new CachedOsmandIndexes();
+		reread.readFromFile(cacheFile, CachedOsmandIndexes.VERSION);
+		BinaryMapIndexReader reader = reread.getReader(changed, true);
+		BinaryMapIndexReader direct = new BinaryMapIndexReader(new RandomAccessFile(changed, "r"), changed);
+		Assert.assertEquals(pois(direct, 1), pois(reader, 1));
+		direct.close();
+		reader.close();
+		reread.writeToFile(cacheFile);
+		Assert.assertEquals(appendedLength, cacheFile.length());
+	}
+
+	@Test
+	public void testInterruptIsKept() throws IOException {
+		CachedOsmandIndexes cache = new CachedOsmandIndexes();
+		Thread.currentThread().interrupt();
+		// readers which are opened before interrupt is noticed are returned
+		close(cache.getReaders(files, Collections.<File>emptyList(), 3));
+		Assert.assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	public void testProgressPerFile() throws IOException {
+		final Set<String> tasks = new HashSet<String>();
+		IProgress progress = new IProgress() {
+			@Override
+			public void startTask(String taskName, int work) {
+				tasks.add(taskName);
+			}
+
+			@Override
+			public void startWork(int work) {}
+
+			@Override
+			public void progress(int deltaWork) {}
+
+			@Override
+			public void remaining(int remainingWork) {}
+
+			@Override
+			public void finishTask() {}
+
+			@Override
+			public boolean isIndeterminate() {return true;}
+
+			@Override
+			public boolean isInterrupted() {return false;}
+
+			@Override
+			public void setGeneralProgress(String genProgress) {}
+		};
+		close(new CachedOsmandIndexes().getReaders(files, Collections.<File>emptyList(), 3, progress, "Indexing"));
+		for (File f : files) {
+			Assert.assertTrue(tasks.contains("Indexing " + f.getName()));
+		}
+	}
+
+	private List<String> pois(BinaryMapIndexReader r, int i) throws IOException {
+		int x31 = MapUtils.get31TileNumberX(LON);
+		int y31 = MapUtils.get31TileNumberY(LAT + i * 0.1);
+		List<String> res = new ArrayList<String>();
+		for (Amenity a : r.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(x31 - RADIUS_31, x31 + RADIUS_31,
+				y31 - RADIUS_31, y31 + RADIUS_31, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null))) {
+			res.add(a.getId() + " " + a.getName());
+		}
+		Assert.assertFalse(res.isEmpty());
+		return res;
+	}
+
+	private static void close(Map<File, BinaryMapIndexReader> readers) throws IOException {
+		for (BinaryMapIndexReader r : readers.values()) {
+			r.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedOutputStream;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+public class LazyMapDataObjectTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+
+	private SyntheticMapFixture map;
+	private BinaryMapIndexReader reader;
+	private int x31;
+	private int y31;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		reader = map.getReader();
+		x31 = map.getX31();
+		y31 = map.getY31();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testLazyDecodingIsSame() throws IOException {
+		List<String> expected = search(null, false);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, search(null, true));
+	}
+
+	@Test
+	public void testLazyDecodingWithFilter() throws IOException {
+		SearchFilter filter = new SearchFilter() {
+			@Override
+			public boolean accept(TIntArrayList types, MapIndex index) {
+				// accept every second type to reject some objects before coordinates are decoded
+				return types.size() > 0 && types.get(0) % 2 == 0;
+			}
+		};
+		List<String> expected = search(filter, false);
+		Assert.assertEquals(expected, search(filter, true));
+		Assert.assertTrue(expected.size() < search(null, false).size());
+	}
+
+	@Test
+	public void testLazyInnerPolygons() throws IOException {
+		BinaryMapDataObject o = new BinaryMapDataObject();
+		int base = 1 << 20;
+		o.rawBaseX = base;
+		o.rawBaseY = base;
+		o.rawInnerCoordinates = new byte[][] { encode(1, 2, 3, -1), encode() };
+		int[][] inner = o.getPolygonInnerCoordinates();
+		int s = BinaryMapIndexReader.SHIFT_COORDINATES;
+		Assert.assertEquals(2, inner.length);
+		Assert.assertArrayEquals(new int[] { base + (1 << s), base + (2 << s), base + (4 << s), base + (1 << s) },
+				inner[0]);
+		Assert.assertEquals(0, inner[1].length);
+		Assert.assertSame(inner, o.getPolygonInnerCoordinates());
+	}
+
+	private static byte[] encode(int... deltas) throws IOException {
+		ByteArrayOutputStream bous = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bous);
+		for (int d : deltas) {
+			out.writeSInt32NoTag(d);
+		}
+		out.flush();
+		return bous.toByteArray();
+	}
+
+	private List<String> search(SearchFilter filter, boolean lazy) throws IOException {
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(x31 - RADIUS_31,
+				x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15, filter);
+		req.setLazyDecoding(lazy);
+		List<String> res = new ArrayList<String>();
+		for (BinaryMapDataObject o : reader.searchMapIndex(req)) {
+			res.add(o.getId() + " " + Arrays.toString(o.getTypes()) + " " + Arrays.toString(o.getCoordinates()) + " "
+					+ o.getOrderedObjectNames() + " " + o.getPolygonInnerCoordinates().length + " " + o.getName());
+		}
+		return res;
+	}
+}
@@ -0,0 +1,110 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+import net.osmand.data.TransportStop;
+
+public class MemoryMappedReaderTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+
+	private SyntheticMapFixture map;
+	private BinaryMapIndexReader reader;
+	private BinaryMapIndexReader mappedReader;
+	private int x31;
+	private int y31;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		reader = map.getReader();
+		BinaryMapIndexReader.USE_MEMORY_MAPPED_FILES = true;
+		try {
+			mappedReader = map.openReader();
+		} finally {
+			BinaryMapIndexReader.USE_MEMORY_MAPPED_FILES = false;
+		}
+		x31 = map.getX31();
+		y31 = map.getY31();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testSameMapAndRouteData() throws IOException {
+		Assert.assertEquals(reader.getIndexes().size(), mappedReader.getIndexes().size());
+		List<String> expected = new ArrayList<String>();
+		for (BinaryMapDataObject o : reader.searchMapIndex(mapRequest())) {
+			expected.add(o.getId() + " " + o.getName() + " " + o.getPointsLength() + " " + o.getPoint31XTile(0));
+		}
+		List<String> actual = new ArrayList<String>();
+		for (BinaryMapDataObject o : mappedReader.searchMapIndex(mapRequest())) {
+			actual.add(o.getId() + " " + o.getName() + " " + o.getPointsLength() + " " + o.getPoint31XTile(0));
+		}
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(roads(reader), roads(mappedReader));
+	}
+
+	@Test
+	public void testSamePoiAndTransportData() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		for (Amenity a : reader.searchPoi(poiRequest())) {
+			expected.add(a.getId() + " " + a.getName() + " " + a.getOpeningHours());
+		}
+		List<String> actual = new ArrayList<String>();
+		for (Amenity a : mappedReader.searchPoi(poiRequest())) {
+			actual.add(a.getId() + " " + a.getName() + " " + a.getOpeningHours());
+		}
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+		List<TransportStop> stops = reader.searchTransportIndex(transportRequest());
+		List<TransportStop> mappedStops = mappedReader.searchTransportIndex(transportRequest());
+		Assert.assertEquals(stops.size(), mappedStops.size());
+		for (int i = 0; i < stops.size(); i++) {
+			Assert.assertEquals(stops.get(i).getName(), mappedStops.get(i).getName());
+			Assert.assertArrayEquals(stops.get(i).getReferencesToRoutes(), mappedStops.get(i).getReferencesToRoutes());
+		}
+	}
+
+	private List<String> roads(BinaryMapIndexReader r) throws IOException {
+		List<String> res = new ArrayList<String>();
+		List<RouteSubregion> subregions = r.searchRouteIndexTree(BinaryMapIndexReader.buildSearchRouteRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, null),
+				r.getRoutingIndexes().get(0).getSubregions());
+		for (RouteSubregion sub : subregions) {
+			for (RouteDataObject road : r.loadRouteIndexData(sub)) {
+				res.add(road.getId() + " " + road.getName() + " " + road.getPointsLength() + " "
+						+ road.getRestrictionLength());
+			}
+		}
+		return res;
+	}
+
+	private BinaryMapIndexReader.SearchRequest<BinaryMapDataObject> mapRequest() {
+		return BinaryMapIndexReader.buildSearchRequest(x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31,
+				y31 + RADIUS_31, 15, null);
+	}
+
+	private BinaryMapIndexReader.SearchRequest<Amenity> poiRequest() {
+		return BinaryMapIndexReader.buildSearchPoiRequest(x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31,
+				y31 + RADIUS_31, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+	}
+
+	private BinaryMapIndexReader.SearchRequest<TransportStop> transportRequest() {
+		return BinaryMapIndexReader.buildSearchTransportRequest(x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31,
+				y31 + RADIUS_31, -1, null);
+	}
+}
@@ -0,0 +1,112 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.util.MapUtils;
+
+/**
+ * Synthetic map shared by tests: obf generated by {@link SyntheticObfGenerator} around ({@link #LAT}, {@link #LON})
+ * in own temporary folder. Create it in setUp and call {@link #close()} in tearDown, readers opened through
+ * fixture are closed together with it.
+ */
+public class SyntheticMapFixture {
+
+	public static final double LAT = 52.0;
+	public static final double LON = 5.0;
+	public static final int RADIUS_31 = 1 << 16;
+	public static final String POI_TYPES = "src/test/resources/synthetic_poi_types.xml";
+
+	private static boolean poiTypesLoaded;
+
+	private final File dir;
+	private final File file;
+	private final int x31;
+	private final int y31;
+	private BinaryMapIndexReader reader;
+	private final List<BinaryMapIndexReader> readers = new ArrayList<BinaryMapIndexReader>();
+
+	public SyntheticMapFixture() throws IOException {
+		initPoiTypes();
+		dir = File.createTempFile("synthetic", "");
+		dir.delete();
+		dir.mkdirs();
+		file = generate("Synthetic.obf", LAT, LON, 20, 1);
+		x31 = MapUtils.get31TileNumberX(LON);
+		y31 = MapUtils.get31TileNumberY(LAT);
+	}
+
+	/**
+	 * Poi readers use {@link MapPoiTypes#getDefault()}, so default types are loaded once from test-only
+	 * types of synthetic poi (poi_types.xml is copied by collectTestResources and is missing offline).
+	 */
+	public static synchronized void initPoiTypes() {
+		if (!poiTypesLoaded) {
+			MapPoiTypes.setDefault(new MapPoiTypes(POI_TYPES));
+			poiTypesLoaded = true;
+		}
+	}
+
+	/**
+	 * Generates one more map in fixture folder
+	 */
+	public File generate(String name, double lat, double lon, double area, long seed) throws IOException {
+		File f = new File(dir, name);
+		new SyntheticObfGenerator().setCenter(lat, lon).setArea(area).setSeed(seed).generate(f);
+		return f;
+	}
+
+	public File getDir() {
+		return dir;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getX31() {
+		return x31;
+	}
+
+	public int getY31() {
+		return y31;
+	}
+
+	/**
+	 * @return reader of map shared by the test
+	 */
+	public BinaryMapIndexReader getReader() throws IOException {
+		if (reader == null) {
+			reader = openReader();
+		}
+		return reader;
+	}
+
+	/**
+	 * @return new reader of map (closed with fixture)
+	 */
+	public BinaryMapIndexReader openReader() throws IOException {
+		BinaryMapIndexReader r = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		readers.add(r);
+		return r;
+	}
+
+	public void close() throws IOException {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+		readers.clear();
+		reader = null;
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+}
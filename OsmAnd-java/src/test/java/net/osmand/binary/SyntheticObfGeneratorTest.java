@@ -0,0 +1,108 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+import net.osmand.data.City;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+public class SyntheticObfGeneratorTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+
+	private SyntheticMapFixture map;
+	private BinaryMapIndexReader reader;
+	private int x31;
+	private int y31;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		reader = map.getReader();
+		x31 = map.getX31();
+		y31 = map.getY31();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testMapAndRouteSections() throws IOException {
+		List<BinaryMapDataObject> objects = reader.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15, null));
+		Assert.assertFalse(objects.isEmpty());
+		Assert.assertNotNull(objects.get(0).getName());
+
+		List<RouteSubregion> subregions = reader.searchRouteIndexTree(
+				BinaryMapIndexReader.buildSearchRouteRequest(x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31,
+						y31 + RADIUS_31, null),
+				reader.getRoutingIndexes().get(0).getSubregions());
+		Assert.assertFalse(subregions.isEmpty());
+		int restrictions = 0;
+		for (RouteSubregion sub : subregions) {
+			List<RouteDataObject> roads = reader.loadRouteIndexData(sub);
+			Assert.assertFalse(roads.isEmpty());
+			for (RouteDataObject road : roads) {
+				Assert.assertNotNull(road.getHighway());
+				restrictions += road.getRestrictionLength();
+			}
+		}
+		Assert.assertTrue(restrictions > 0);
+	}
+
+	@Test
+	public void testPoiSection() throws IOException {
+		List<Amenity> amenities = reader.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(x31 - RADIUS_31,
+				x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER,
+				null));
+		Assert.assertFalse(amenities.isEmpty());
+		Assert.assertNotNull(amenities.get(0).getOpeningHours());
+
+		List<Amenity> byName = reader.searchPoiByName(BinaryMapIndexReader.buildSearchPoiRequest(x31, y31, "Cafe",
+				0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null));
+		Assert.assertFalse(byName.isEmpty());
+		Assert.assertTrue(byName.get(0).getName().startsWith("Cafe"));
+	}
+
+	@Test
+	public void testAddressSection() throws IOException {
+		List<City> cities = reader.getCities(BinaryMapIndexReader.<City>buildAddressRequest(null),
+				BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+		Assert.assertFalse(cities.isEmpty());
+		City city = cities.get(0);
+		reader.preloadStreets(city, null);
+		Assert.assertFalse(city.getStreets().isEmpty());
+		Street street = city.getStreets().get(0);
+		reader.preloadBuildings(street, null);
+		Assert.assertFalse(street.getBuildings().isEmpty());
+		Assert.assertTrue(MapUtils.getDistance(street.getLocation(), street.getBuildings().get(0).getLocation()) < 5000);
+
+		List<MapObject> found = reader.searchAddressDataByName(BinaryMapIndexReader.<MapObject>buildAddressByNameRequest(
+				null, street.getName(), StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+		Assert.assertFalse(found.isEmpty());
+		Assert.assertEquals(street.getName(), found.get(0).getName());
+	}
+
+	@Test
+	public void testTransportSection() throws IOException {
+		List<TransportStop> stops = reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, -1, null));
+		Assert.assertFalse(stops.isEmpty());
+		int[] routes = stops.get(0).getReferencesToRoutes();
+		Assert.assertTrue(routes.length > 0);
+		Assert.assertEquals(routes.length, reader.getTransportRoutes(routes).size());
+	}
+}
@@ -0,0 +1,123 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+import net.osmand.data.TransportStop;
+
+public class ThreadSafeReaderTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+	private static final int THREADS = 4;
+	private static final int ITERATIONS = 20;
+
+	private SyntheticMapFixture map;
+	private BinaryMapIndexReader reader;
+	private int x31;
+	private int y31;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		x31 = map.getX31();
+		y31 = map.getY31();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testConcurrentSearches() throws Exception {
+		final List<String> expected = search(map.openReader());
+		Assert.assertFalse(expected.isEmpty());
+
+		reader = map.openReader();
+		reader.setThreadSafe(true);
+		Assert.assertTrue(reader.isThreadSafe());
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+			for (int i = 0; i < THREADS * ITERATIONS; i++) {
+				futures.add(executor.submit(new Callable<List<String>>() {
+					@Override
+					public List<String> call() throws Exception {
+						return search(reader);
+					}
+				}));
+			}
+			for (Future<List<String>> f : futures) {
+				Assert.assertEquals(expected, f.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testInterruptedSearch() throws Exception {
+		final List<String> expected = search(map.openReader());
+		reader = map.openReader();
+		reader.setThreadSafe(true);
+		RandomAccessFile raf = reader.getRaf();
+		final Exception[] error = new Exception[1];
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				// interrupted read closes file channel
+				Thread.currentThread().interrupt();
+				try {
+					search(reader);
+				} catch (Exception e) {
+					error[0] = e;
+				}
+			}
+		});
+		t.start();
+		t.join();
+		Assert.assertTrue(error[0] instanceof ClosedByInterruptException);
+		// file is opened again for other threads
+		Assert.assertEquals(expected, search(reader));
+		Assert.assertNotSame(raf, reader.getRaf());
+	}
+
+	private List<String> search(BinaryMapIndexReader r) throws IOException {
+		List<String> res = new ArrayList<String>();
+		for (BinaryMapDataObject o : r.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(x31 - RADIUS_31,
+				x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, 15, null))) {
+			res.add(o.getId() + " " + o.getName() + " " + o.getPointsLength());
+		}
+		List<RouteSubregion> subregions = r.searchRouteIndexTree(BinaryMapIndexReader.buildSearchRouteRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, null),
+				r.getRoutingIndexes().get(0).getSubregions());
+		for (RouteSubregion sub : subregions) {
+			for (RouteDataObject road : r.loadRouteIndexData(sub)) {
+				res.add(road.getId() + " " + road.getName() + " " + road.getPointsLength());
+			}
+		}
+		for (Amenity a : r.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(x31 - RADIUS_31, x31 + RADIUS_31,
+				y31 - RADIUS_31, y31 + RADIUS_31, 15, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null))) {
+			res.add(a.getId() + " " + a.getName() + " " + a.getSubType());
+		}
+		for (TransportStop s : r.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, -1, null))) {
+			res.add(s.getId() + " " + s.getName() + " " + s.getReferencesToRoutes().length);
+		}
+		return res;
+	}
+}
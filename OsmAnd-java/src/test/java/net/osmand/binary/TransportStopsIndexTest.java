@@ -0,0 +1,114 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.data.TransportStop;
+
+public class TransportStopsIndexTest {
+
+	private static final int RADIUS_31 = SyntheticMapFixture.RADIUS_31;
+
+	private SyntheticMapFixture map;
+	private File file;
+	private File dir;
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		map = new SyntheticMapFixture();
+		file = map.getFile();
+		dir = map.getDir();
+		reader = map.getReader();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testSameStopsAsFile() throws IOException {
+		TransportStopsIndex index = TransportStopsIndex.getIndex(reader, dir);
+		Assert.assertTrue(new File(dir, file.getName() + TransportStopsIndex.EXTENSION).exists());
+		int x31 = map.getX31();
+		int y31 = map.getY31();
+		List<TransportStop> expected = reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, -1, null));
+		List<TransportStop> actual = index.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+				x31 - RADIUS_31, x31 + RADIUS_31, y31 - RADIUS_31, y31 + RADIUS_31, -1, null));
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected.size(), actual.size());
+		for (TransportStop e : expected) {
+			TransportStop a = find(actual, e.getId());
+			Assert.assertNotNull(a);
+			Assert.assertEquals(e.x31, a.x31);
+			Assert.assertEquals(e.y31, a.y31);
+			Assert.assertArrayEquals(e.getReferencesToRoutes(), a.getReferencesToRoutes());
+			Assert.assertTrue(Arrays.equals(e.getRoutesIds(), a.getRoutesIds()));
+		}
+	}
+
+	@Test
+	public void testRebuiltWhenFileChanged() throws IOException {
+		TransportStopsIndex index = TransportStopsIndex.getIndex(reader, dir);
+		Assert.assertSame(index, TransportStopsIndex.getIndex(reader, dir));
+		Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+		TransportStopsIndex rebuilt = TransportStopsIndex.getIndex(reader, dir);
+		Assert.assertNotSame(index, rebuilt);
+		Assert.assertEquals(index.getStopsCount(), rebuilt.getStopsCount());
+	}
+
+	@Test
+	public void testMissingStops() throws IOException {
+		File f = new File(dir, "Missing.obf");
+		new SyntheticObfGenerator().setCenter(SyntheticMapFixture.LAT, SyntheticMapFixture.LON).setArea(20).setSeed(1)
+				.setMissingStopsRatio(0.3).generate(f);
+		BinaryMapIndexReader r = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		try {
+			TransportStopsIndex index = TransportStopsIndex.getIndex(r, dir);
+			List<TransportStop> expected = r.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(0,
+					Integer.MAX_VALUE, 0, Integer.MAX_VALUE, -1, null));
+			List<TransportStop> actual = index.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(0,
+					Integer.MAX_VALUE, 0, Integer.MAX_VALUE, -1, null));
+			Assert.assertEquals(expected.size(), actual.size());
+			int missing = 0;
+			for (TransportStop e : expected) {
+				Assert.assertEquals(e.isMissingStop(), find(actual, e.getId()).isMissingStop());
+				if (e.isMissingStop()) {
+					missing++;
+				}
+			}
+			Assert.assertTrue(missing > 0);
+			Assert.assertTrue(missing < expected.size());
+		} finally {
+			r.close();
+		}
+	}
+
+	@Test
+	public void testReleasedWhenFileClosed() throws IOException {
+		BinaryMapIndexReader r = map.openReader();
+		TransportStopsIndex index = TransportStopsIndex.getIndex(r, dir);
+		Assert.assertSame(index, TransportStopsIndex.getIndex(reader, dir));
+		r.close();
+		Assert.assertNotSame(index, TransportStopsIndex.getIndex(reader, dir));
+	}
+
+	private static TransportStop find(List<TransportStop> stops, long id) {
+		for (TransportStop s : stops) {
+			if (s.getId() == id) {
+				return s;
+			}
+		}
+		return null;
+	}
+}
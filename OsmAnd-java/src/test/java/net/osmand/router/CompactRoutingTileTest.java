@@ -0,0 +1,133 @@
+package net.osmand.router;
+
+import java.util.Random;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactRoutingTileTest {
+
+	private static RouteDataObject road(long id, int[] types, int... xy) {
+		RouteDataObject ro = new RouteDataObject((RouteRegion) null);
+		ro.id = id;
+		ro.types = types;
+		ro.pointsX = new int[xy.length / 2];
+		ro.pointsY = new int[xy.length / 2];
+		for (int i = 0; i < xy.length / 2; i++) {
+			ro.pointsX[i] = xy[2 * i];
+			ro.pointsY[i] = xy[2 * i + 1];
+		}
+		return ro;
+	}
+
+	private static long key(int x, int y) {
+		return (((long) x) << 31) + y;
+	}
+
+	@Test
+	public void testPointsOfSameKeyKeepInsertionOrder() {
+		CompactRoutingTile tile = new CompactRoutingTile();
+		RouteDataObject r1 = road(1, new int[] { 1, 2 }, 5, 5, 3, 3, 1, 1);
+		RouteDataObject r2 = road(2, new int[] { 1, 2 }, 3, 3, 4, 4);
+		RouteDataObject r3 = road(3, new int[] { 3 }, 7, 7, 3, 3);
+		tile.add(r1);
+		tile.add(r2);
+		tile.add(r3);
+		tile.finishLoading();
+		Assert.assertEquals(3, tile.getRoadsSize());
+		Assert.assertEquals(-1, tile.find(key(2, 2)));
+		int pos = tile.find(key(3, 3));
+		Assert.assertEquals(1, tile.getRoad(pos).id);
+		Assert.assertEquals(1, tile.getPointIndex(pos));
+		Assert.assertEquals(2, tile.getRoad(pos + 1).id);
+		Assert.assertEquals(0, tile.getPointIndex(pos + 1));
+		Assert.assertSame(tile.getRoad(pos).types, tile.getRoad(pos + 1).types);
+		Assert.assertEquals(3, tile.getRoad(pos + 2).id);
+		Assert.assertEquals(1, tile.getPointIndex(pos + 2));
+		Assert.assertTrue(pos + 3 == tile.getSize() || tile.getKey(pos + 3) != key(3, 3));
+	}
+
+	@Test
+	public void testSharedRoadsAreNotModified() {
+		CompactRoutingTile tile = new CompactRoutingTile(false);
+		RouteDataObject r1 = road(1, new int[] { 1, 2 }, 5, 5, 3, 3);
+		RouteDataObject r2 = road(2, new int[] { 1, 2 }, 3, 3, 4, 4);
+		int[] types = r2.types;
+		tile.add(r1);
+		tile.add(r2);
+		tile.finishLoading();
+		Assert.assertSame(types, r2.types);
+		Assert.assertSame(r2, tile.getRoadByIndex(1));
+		Assert.assertEquals(0, tile.getMaterializedSize());
+	}
+
+	@Test
+	public void testPackedRoadsAreRestored() {
+		CompactRoutingTile tile = new CompactRoutingTile();
+		RouteDataObject r1 = road(1, new int[] { 1, 2 }, 5, 5, 3, 3, 1, 1);
+		RouteDataObject r2 = road(2, null, 3, 3, 4, 4);
+		r2.restrictions = new long[] { 17, 18 };
+		r2.restrictionsVia = new long[] { 0, 21 };
+		r2.nameIds = new int[] { 4 };
+		r2.pointTypes = new int[][] { null, { 7 } };
+		RouteDataObject r3 = road(3, new int[] { 1, 2 }, 7, 7, 3, 3);
+		r3.restrictions = new long[] { 19 };
+		tile.add(r1);
+		tile.add(r2);
+		tile.add(r3);
+		tile.finishLoading();
+		int packedSize = tile.getMemorySize();
+		RouteDataObject[] originals = { r1, r2, r3 };
+		for (int i = 0; i < originals.length; i++) {
+			RouteDataObject ro = tile.getRoadByIndex(i);
+			RouteDataObject o = originals[i];
+			Assert.assertNotSame(o, ro);
+			Assert.assertSame(ro, tile.getRoadByIndex(i));
+			Assert.assertEquals(o.id, ro.id);
+			Assert.assertArrayEquals(o.types, ro.types);
+			Assert.assertArrayEquals(o.pointsX, ro.pointsX);
+			Assert.assertArrayEquals(o.pointsY, ro.pointsY);
+			Assert.assertArrayEquals(o.restrictions, ro.restrictions);
+			Assert.assertArrayEquals(o.restrictionsVia, ro.restrictionsVia);
+			Assert.assertArrayEquals(o.nameIds, ro.nameIds);
+			Assert.assertSame(o.pointTypes, ro.pointTypes);
+		}
+		Assert.assertSame(tile.getRoadByIndex(0).types, tile.getRoadByIndex(2).types);
+		Assert.assertTrue(tile.getMaterializedSize() > 0);
+		Assert.assertEquals(packedSize + tile.getMaterializedSize(), tile.getMemorySize());
+	}
+
+	@Test
+	public void testFindAllPoints() {
+		Random r = new Random(11);
+		CompactRoutingTile tile = new CompactRoutingTile();
+		RouteDataObject[] roads = new RouteDataObject[200];
+		for (int i = 0; i < roads.length; i++) {
+			int[] xy = new int[2 * (2 + r.nextInt(10))];
+			for (int j = 0; j < xy.length; j++) {
+				xy[j] = r.nextInt(50);
+			}
+			roads[i] = road(i, new int[] { r.nextInt(5) }, xy);
+			tile.add(roads[i]);
+		}
+		tile.finishLoading();
+		for (int i = 1; i < tile.getSize(); i++) {
+			Assert.assertTrue(tile.getKey(i - 1) <= tile.getKey(i));
+		}
+		for (RouteDataObject ro : roads) {
+			for (int k = 0; k < ro.getPointsLength(); k++) {
+				long l = key(ro.getPoint31XTile(k), ro.getPoint31YTile(k));
+				boolean found = false;
+				for (int pos = tile.find(l); pos >= 0 && pos < tile.getSize() && tile.getKey(pos) == l; pos++) {
+					if (tile.getRoad(pos).id == ro.id && tile.getPointIndex(pos) == k) {
+						found = true;
+					}
+				}
+				Assert.assertTrue(found);
+			}
+		}
+	}
+}
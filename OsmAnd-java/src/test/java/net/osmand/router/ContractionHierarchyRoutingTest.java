@@ -0,0 +1,120 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+public class ContractionHierarchyRoutingTest {
+
+	private static final List<LatLon> POINTS = Arrays.asList(SyntheticRoutingFixture.START, SyntheticRoutingFixture.END,
+			new LatLon(51.995, 5.01), new LatLon(52.01, 4.98));
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+		RoutingConfiguration config = routing.buildConfig();
+		ContractionHierarchy ch = new ContractionHierarchyBuilder(config).build(routing.getReader(), config.routerName);
+		ch.write(ContractionHierarchy.getHierarchyFile(routing.getMap().getFile(), config.routerName));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testSameCostAsAStar() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		for (LatLon start : POINTS) {
+			for (LatLon end : POINTS) {
+				if (start == end) {
+					continue;
+				}
+				RoutingContext astar = routing.buildContext();
+				List<RouteSegmentResult> route = fe.searchRoute(astar, start, end, null);
+				Assert.assertFalse(route.isEmpty());
+
+				RoutingContext ctx = routing.buildContext();
+				RouteSegmentPoint s = fe.findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+				RouteSegmentPoint e = fe.findRouteSegment(end.getLatitude(), end.getLongitude(), ctx, null);
+				ctx.initStartAndTargetPoints(s, e);
+				Assert.assertNotNull(new ContractionHierarchyRoutePlanner().searchRoute(ctx, s, e));
+				// route result starts and ends at road points, hierarchy is attached at precise points
+				RouteSegmentResult first = route.get(0);
+				RouteSegmentResult last = route.get(route.size() - 1);
+				float ends = first.getDistance() / ctx.getRouter().defineRoutingSpeed(first.getObject())
+						+ last.getDistance() / ctx.getRouter().defineRoutingSpeed(last.getObject());
+				Assert.assertTrue(ctx.routingTime <= astar.routingTime + 0.1);
+				Assert.assertTrue(ctx.routingTime >= astar.routingTime - ends);
+			}
+		}
+	}
+
+	@Test
+	public void testMatrixByHierarchy() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = fe.buildRoutingContext(routing.buildConfig(), null,
+				new BinaryMapIndexReader[] { routing.getReader() }, RouteCalculationMode.CONTRACTION_HIERARCHY);
+		RouteMatrix matrix = fe.searchRouteMatrix(ctx, POINTS, POINTS);
+		for (int i = 0; i < POINTS.size(); i++) {
+			for (int j = 0; j < POINTS.size(); j++) {
+				if (i == j) {
+					continue;
+				}
+				RoutingContext astar = routing.buildContext();
+				List<RouteSegmentResult> route = fe.searchRoute(astar, POINTS.get(i), POINTS.get(j), null);
+				Assert.assertTrue(matrix.isReachable(i, j));
+				// turn penalties are not part of hierarchy
+				Assert.assertTrue(matrix.getTime(i, j) <= astar.routingTime + 0.1);
+				float distance = 0;
+				for (RouteSegmentResult r : route) {
+					distance += r.getDistance();
+				}
+				float ends = route.get(0).getDistance() + route.get(route.size() - 1).getDistance();
+				Assert.assertTrue(matrix.getDistance(i, j) <= distance + ends);
+				Assert.assertTrue(matrix.getDistance(i, j) > 0);
+			}
+		}
+	}
+
+	@Test
+	public void testNotUsedWithOtherParameters() throws IOException, InterruptedException {
+		Assert.assertNotNull(searchByHierarchy(routing.buildConfig()));
+		Map<String, String> params = new HashMap<String, String>();
+		params.put(GeneralRouter.USE_SHORTEST_WAY, "true");
+		Assert.assertNull(searchByHierarchy(routing.getBuilder().build("car", 256, params)));
+	}
+
+	@Test
+	public void testNotUsedWithImpassableRoads() throws IOException, InterruptedException {
+		routing.getBuilder().addImpassableRoad(1);
+		Assert.assertNull(searchByHierarchy(routing.buildConfig()));
+	}
+
+	private List<RouteSegmentResult> searchByHierarchy(RoutingConfiguration config) throws IOException,
+			InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = routing.buildContext(config);
+		LatLon start = SyntheticRoutingFixture.START;
+		LatLon end = SyntheticRoutingFixture.END;
+		RouteSegmentPoint s = fe.findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+		RouteSegmentPoint e = fe.findRouteSegment(end.getLatitude(), end.getLongitude(), ctx, null);
+		ctx.initStartAndTargetPoints(s, e);
+		return new ContractionHierarchyRoutePlanner().searchRoute(ctx, s, e);
+	}
+}
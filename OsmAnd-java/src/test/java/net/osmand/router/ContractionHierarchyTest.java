@@ -0,0 +1,132 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import net.osmand.router.ContractionHierarchy.HierarchyPath;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContractionHierarchyTest {
+
+	// line 0 -> 1 -> 2 -> 3 plus slow direct road 0 -> 3, nodes 1 and 2 are contracted first
+	private static ContractionHierarchy buildLine() {
+		return buildLine(1, 2);
+	}
+
+	private static ContractionHierarchy buildLine(long obfSize, long obfLastModified) {
+		long[] keys = new long[] { ContractionHierarchy.nodeKey(10, 10), ContractionHierarchy.nodeKey(20, 10),
+				ContractionHierarchy.nodeKey(30, 10), ContractionHierarchy.nodeKey(40, 10) };
+		int[] rank = new int[] { 2, 0, 1, 3 };
+		int[] from = new int[] { 0, 1, 2, 0, 0, 0 };
+		int[] to = new int[] { 1, 2, 3, 3, 2, 3 };
+		float[] weight = new float[] { 1, 1, 1, 10, 2, 3 };
+		int[] child1 = new int[] { -1, -1, -1, -1, 0, 4 };
+		int[] child2 = new int[] { -1, -1, -1, -1, 1, 2 };
+		long[] roadId = new long[] { 100, 100, 101, 102, 0, 0 };
+		int[] startPoint = new int[] { 0, 1, 0, 0, 0, 0 };
+		int[] endPoint = new int[] { 1, 2, 1, 1, 0, 0 };
+		float[] distance = new float[] { 100, 100, 100, 1000, 0, 0 };
+		Map<String, String> params = Collections.singletonMap(GeneralRouter.USE_SHORTEST_WAY, "true");
+		return new ContractionHierarchy("car", params, new long[] { 7, 5 }, obfSize, obfLastModified, keys, rank, from,
+				to, weight, child1, child2, roadId, startPoint, endPoint, distance);
+	}
+
+	@Test
+	public void testQueryUnpacksShortcuts() {
+		ContractionHierarchy ch = buildLine();
+		Assert.assertEquals(2, ch.findNode(30, 10));
+		Assert.assertEquals(-1, ch.findNode(31, 10));
+		Assert.assertEquals(30, ch.getNodeX(2));
+		Assert.assertEquals(10, ch.getNodeY(2));
+		HierarchyPath path = ch.query(new int[] { 0 }, new float[] { 0 }, new int[] { 3 }, new float[] { 0 });
+		Assert.assertNotNull(path);
+		Assert.assertEquals(3, path.cost, 1e-6);
+		Assert.assertEquals(0, path.sourceNode);
+		Assert.assertEquals(3, path.targetNode);
+		Assert.assertArrayEquals(new int[] { 0, 1, 2 }, path.edges.toArray());
+	}
+
+	@Test
+	public void testQueryChoosesCheapestSource() {
+		ContractionHierarchy ch = buildLine();
+		HierarchyPath path = ch.query(new int[] { 0, 2 }, new float[] { 5, 0.5f }, new int[] { 3 }, new float[] { 0 });
+		Assert.assertNotNull(path);
+		Assert.assertEquals(1.5f, path.cost, 1e-6);
+		Assert.assertEquals(2, path.sourceNode);
+		Assert.assertArrayEquals(new int[] { 2 }, path.edges.toArray());
+		Assert.assertNull(ch.query(new int[] { 3 }, new float[] { 0 }, new int[] { 0 }, new float[] { 0 }));
+	}
+
+	@Test
+	public void testQueryMatrix() {
+		ContractionHierarchy ch = buildLine();
+		float[][] times = new float[][] { { -1, -1 }, { -1, -1 }, { -1, -1 } };
+		float[][] distances = new float[][] { { -1, -1 }, { -1, -1 }, { -1, -1 } };
+		// second source is not attached
+		ch.queryMatrix(new int[][] { { 0 }, null, { 2, 3 } }, new float[][] { { 0 }, null, { 0.5f, 4 } },
+				new float[][] { { 0 }, null, { 5, 40 } }, new int[][] { { 3 }, { 0 } }, new float[][] { { 1 }, { 0 } },
+				new float[][] { { 10 }, { 0 } }, times, distances);
+		Assert.assertEquals(4, times[0][0], 1e-6);
+		Assert.assertEquals(310, distances[0][0], 1e-3);
+		Assert.assertEquals(0, times[0][1], 1e-6);
+		Assert.assertEquals(0, distances[0][1], 1e-6);
+		Assert.assertEquals(-1, times[1][0], 1e-6);
+		Assert.assertEquals(2.5f, times[2][0], 1e-6);
+		Assert.assertEquals(115, distances[2][0], 1e-3);
+		Assert.assertEquals(-1, times[2][1], 1e-6);
+		Assert.assertEquals(-1, distances[2][1], 1e-6);
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+		ContractionHierarchy ch = buildLine();
+		File fl = File.createTempFile("routing", ".ch");
+		try {
+			ch.write(fl);
+			ContractionHierarchy read = ContractionHierarchy.read(fl);
+			Assert.assertEquals("car", read.getProfile());
+			Assert.assertEquals(ch.getParams(), read.getParams());
+			Assert.assertArrayEquals(new long[] { 5, 7 }, read.impassableRoads);
+			Assert.assertEquals(4, read.getNodesCount());
+			Assert.assertEquals(6, read.getEdgesCount());
+			HierarchyPath path = read.query(new int[] { 0 }, new float[] { 0 }, new int[] { 3 }, new float[] { 0 });
+			Assert.assertArrayEquals(new int[] { 0, 1, 2 }, path.edges.toArray());
+			Assert.assertEquals(300, read.edgeDistance[5], 1e-3);
+		} finally {
+			fl.delete();
+		}
+	}
+
+	@Test
+	public void testLoadedHierarchiesAreLimited() throws IOException {
+		File dir = File.createTempFile("routing", "");
+		dir.delete();
+		dir.mkdirs();
+		File[] obfs = new File[10];
+		ContractionHierarchy[] loaded = new ContractionHierarchy[obfs.length];
+		try {
+			for (int i = 0; i < obfs.length; i++) {
+				obfs[i] = new File(dir, "map" + i + ".obf");
+				new FileOutputStream(obfs[i]).close();
+				buildLine(obfs[i].length(), obfs[i].lastModified())
+						.write(ContractionHierarchy.getHierarchyFile(obfs[i], "car"));
+				loaded[i] = ContractionHierarchy.getHierarchy(obfs[i], "car");
+				Assert.assertNotNull(loaded[i]);
+				// first map is used often and stays loaded
+				Assert.assertSame(loaded[0], ContractionHierarchy.getHierarchy(obfs[0], "car"));
+			}
+			Assert.assertSame(loaded[obfs.length - 1], ContractionHierarchy.getHierarchy(obfs[obfs.length - 1], "car"));
+			Assert.assertNotSame(loaded[1], ContractionHierarchy.getHierarchy(obfs[1], "car"));
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+}
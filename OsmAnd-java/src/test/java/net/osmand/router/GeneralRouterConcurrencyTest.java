@@ -0,0 +1,70 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.GeneralRouter.GeneralRouterProfile;
+import net.osmand.router.GeneralRouter.RouteDataObjectAttribute;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeneralRouterConcurrencyTest {
+
+	private static GeneralRouter parent() {
+		GeneralRouter r = new GeneralRouter(GeneralRouterProfile.CAR, Collections.<String, String>emptyMap());
+		r.getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).registerNewRule(":prio", "");
+		return r;
+	}
+
+	private static RouteDataObject road() {
+		RouteDataObject ro = new RouteDataObject(new RouteRegion());
+		ro.types = new int[0];
+		return ro;
+	}
+
+	@Test
+	public void testParameterIsResolvedPerRouter() {
+		GeneralRouter parent = parent();
+		GeneralRouter r1 = parent.build(Collections.singletonMap("prio", "2"));
+		GeneralRouter r2 = parent.build(Collections.singletonMap("prio", "3"));
+		Assert.assertEquals(2f, r1.defineSpeedPriority(road()), 0);
+		Assert.assertEquals(3f, r2.defineSpeedPriority(road()), 0);
+		// default value without parameter
+		Assert.assertEquals(1f, parent.defineSpeedPriority(road()), 0);
+	}
+
+	@Test
+	public void testSharedRouterEvaluatedConcurrently() throws Exception {
+		final GeneralRouter router = parent().build(Collections.singletonMap("prio", "5"));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> res = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				res.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int i = 0; i < 1000; i++) {
+							if (router.defineSpeedPriority(road()) != 5f) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> f : res) {
+				Assert.assertTrue(f.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.LocationsHolder;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutePlannerFrontEnd.GpxRouteApproximation;
+import net.osmand.util.MapUtils;
+
+public class GpxHmmMatcherTest {
+
+	// distance between generated track points (m)
+	private static final double TRACK_STEP = 20;
+	// shift of track points from road (about 3 m)
+	private static final double GPS_SHIFT = 0.00003;
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testTrackIsMatchedToRoads() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		List<RouteSegmentResult> route = fe.searchRoute(routing.buildContext(), SyntheticRoutingFixture.START,
+				SyntheticRoutingFixture.END, null);
+		Assert.assertFalse(route.isEmpty());
+		List<LatLon> track = generateTrack(route);
+
+		GpxRouteApproximation gctx = new GpxRouteApproximation(routing.buildContext());
+		List<GpxPoint> gpxPoints = fe.generateGpxPoints(gctx, new LocationsHolder(track));
+		gctx = fe.searchGpxRouteHmm(gctx, gpxPoints, null);
+		Assert.assertFalse(gctx.result.isEmpty());
+		Assert.assertTrue(gctx.routePointsSearched > 0);
+		// points before the first route segment are not matched
+		Assert.assertTrue(gctx.routeDistanceUnmatched < 0.05 * gctx.routeDistance);
+		Assert.assertEquals(roads(route), roads(gctx.result));
+	}
+
+	private static List<LatLon> generateTrack(List<RouteSegmentResult> route) {
+		List<LatLon> track = new ArrayList<LatLon>();
+		LatLon prev = null;
+		for (RouteSegmentResult r : route) {
+			int d = r.isForwardDirection() ? 1 : -1;
+			for (int i = r.getStartPointIndex(); i != r.getEndPointIndex() + d; i += d) {
+				LatLon p = r.getPoint(i);
+				if (prev != null) {
+					int steps = (int) (MapUtils.getDistance(prev, p) / TRACK_STEP);
+					for (int k = 1; k < steps; k++) {
+						double t = ((double) k) / steps;
+						track.add(new LatLon(prev.getLatitude() + t * (p.getLatitude() - prev.getLatitude()) + GPS_SHIFT,
+								prev.getLongitude() + t * (p.getLongitude() - prev.getLongitude())));
+					}
+				}
+				track.add(new LatLon(p.getLatitude() + GPS_SHIFT, p.getLongitude()));
+				prev = p;
+			}
+		}
+		return track;
+	}
+
+	private static Set<Long> roads(List<RouteSegmentResult> route) {
+		Set<Long> res = new LinkedHashSet<Long>();
+		for (RouteSegmentResult r : route) {
+			if (r.getObject().getId() >= 0) {
+				res.add(r.getObject().getId());
+			}
+		}
+		return res;
+	}
+}
@@ -0,0 +1,54 @@
+package net.osmand.router;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NodeHeapTest {
+
+	@Test
+	public void testPollOrder() {
+		Random r = new Random(17);
+		float[] keys = new float[1000];
+		NodeHeap heap = new NodeHeap(4);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = r.nextFloat() * 1000;
+			heap.push(i, keys[i]);
+		}
+		// change half of keys in place
+		for (int i = 0; i < keys.length; i += 2) {
+			keys[i] = r.nextFloat() * 1000;
+			heap.push(i, keys[i]);
+		}
+		Assert.assertEquals(keys.length, heap.size());
+		float prev = -1;
+		while (!heap.isEmpty()) {
+			float key = heap.peekKey();
+			int node = heap.poll();
+			Assert.assertEquals(keys[node], key, 0);
+			Assert.assertTrue(key >= prev);
+			Assert.assertFalse(heap.contains(node));
+			prev = key;
+		}
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		NodeHeap heap = new NodeHeap();
+		heap.push(1, 20);
+		heap.push(2, 12);
+		heap.push(3, 30);
+		heap.push(1, 2);
+		Assert.assertEquals(3, heap.size());
+		Assert.assertEquals(1, heap.poll());
+		heap.push(3, 50);
+		Assert.assertEquals(2, heap.poll());
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+		heap.push(1, 5);
+		heap.clear();
+		Assert.assertFalse(heap.contains(1));
+		Assert.assertEquals(Float.POSITIVE_INFINITY, heap.peekKey(), 0);
+	}
+}
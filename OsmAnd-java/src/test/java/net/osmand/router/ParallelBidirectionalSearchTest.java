@@ -0,0 +1,56 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+
+public class ParallelBidirectionalSearchTest {
+
+	private static final List<LatLon> POINTS = Arrays.asList(SyntheticRoutingFixture.START, SyntheticRoutingFixture.END,
+			new LatLon(51.995, 5.01), new LatLon(52.01, 4.98));
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testSameCostAsSequential() throws IOException, InterruptedException {
+		for (LatLon start : POINTS) {
+			for (LatLon end : POINTS) {
+				if (start == end) {
+					continue;
+				}
+				RoutingContext sequential = routing.buildContext();
+				search(sequential, start, end);
+				RoutingContext parallel = routing.buildContext();
+				parallel.config.parallelBidirectionalSearch = true;
+				search(parallel, start, end);
+				Assert.assertEquals(sequential.routingTime, parallel.routingTime, 0.1);
+				Assert.assertTrue(parallel.calculationProgress.visitedSegments > 0);
+				Assert.assertTrue(parallel.calculationProgress.distanceFromBegin > 0);
+			}
+		}
+	}
+
+	private static void search(RoutingContext ctx, LatLon start, LatLon end) throws IOException, InterruptedException {
+		ctx.calculationProgress = new RouteCalculationProgress();
+		List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, start, end, null);
+		Assert.assertFalse(route.isEmpty());
+	}
+}
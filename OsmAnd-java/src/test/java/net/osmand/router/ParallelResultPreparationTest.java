@@ -0,0 +1,74 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+
+public class ParallelResultPreparationTest {
+
+	// route goes forth and back to have many turns
+	private static final List<LatLon> INTERMEDIATES = Arrays.asList(SyntheticRoutingFixture.END,
+			SyntheticRoutingFixture.START, new LatLon(52.015, 4.975), new LatLon(51.985, 5.025),
+			SyntheticRoutingFixture.START, SyntheticRoutingFixture.END, new LatLon(51.995, 5.01),
+			new LatLon(52.01, 4.98));
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testSameTurnsAsSequential() throws IOException, InterruptedException {
+		// legs are prepared separately and are shorter than parallel preparation minimum, so turns of whole route
+		// are calculated directly
+		List<RouteSegmentResult> route = search();
+		RouteResultPreparation preparation = new RouteResultPreparation();
+		preparation.calculateTurnInfo(false, route, false);
+		List<String> expected = turns(route);
+		for (RouteSegmentResult r : route) {
+			r.setTurnType(null);
+		}
+		preparation.calculateTurnInfo(false, route, true);
+		Assert.assertEquals(expected, turns(route));
+	}
+
+	private List<RouteSegmentResult> search() throws IOException, InterruptedException {
+		RoutingContext ctx = routing.buildContext();
+		List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, SyntheticRoutingFixture.START,
+				SyntheticRoutingFixture.END, INTERMEDIATES, null);
+		Assert.assertFalse(route.isEmpty());
+		return route;
+	}
+
+	private static List<String> turns(List<RouteSegmentResult> route) {
+		List<String> res = new ArrayList<String>();
+		int turns = 0;
+		for (RouteSegmentResult r : route) {
+			TurnType t = r.getTurnType();
+			if (t == null) {
+				res.add("-");
+			} else {
+				res.add(t.getValue() + " " + Arrays.toString(t.getLanes()) + " " + t.getTurnAngle());
+				turns++;
+			}
+		}
+		Assert.assertTrue(turns > 1);
+		return res;
+	}
+}
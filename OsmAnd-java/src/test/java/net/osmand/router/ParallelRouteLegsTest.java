@@ -0,0 +1,91 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+
+public class ParallelRouteLegsTest {
+
+	private static final List<LatLon> INTERMEDIATES = Arrays.asList(new LatLon(51.995, 5.01), new LatLon(52.005, 4.99));
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testSameRouteAsSequential() throws IOException, InterruptedException {
+		assertSameRoute(null);
+	}
+
+	@Test
+	public void testSameRouteWithRouteDirection() throws IOException, InterruptedException {
+		RoutingContext ctx = routing.buildContext();
+		List<RouteSegmentResult> previous = new RoutePlannerFrontEnd().searchRoute(ctx, SyntheticRoutingFixture.START,
+				SyntheticRoutingFixture.END, null);
+		Assert.assertFalse(previous.isEmpty());
+		assertSameRoute(PrecalculatedRouteDirection.build(previous, 5000, ctx.getRouter().getMaxSpeed()));
+	}
+
+	@Test
+	public void testProgressOfLegsIsAdded() throws IOException, InterruptedException {
+		RoutingContext sequential = routing.buildContext();
+		search(sequential, null);
+		RoutingContext parallel = routing.buildContext();
+		parallel.config.parallelRouteLegs = true;
+		search(parallel, null);
+		Assert.assertEquals(sequential.calculationProgress.visitedSegments, parallel.calculationProgress.visitedSegments);
+		Assert.assertEquals(parallel.calculationProgress.totalEstimatedDistance,
+				parallel.calculationProgress.distanceFromBegin, 1);
+	}
+
+	@Test
+	public void testSharedTilesAreReleased() throws IOException, InterruptedException {
+		// unreferenced tiles are evicted at once
+		RoutingTileCache cache = new RoutingTileCache(0);
+		routing.getBuilder().setTileCache(cache);
+		search(routing.buildContext(), null);
+		Assert.assertTrue(cache.getMisses() > 0);
+		Assert.assertEquals(0, cache.getTilesCount());
+
+		RoutingContext parallel = routing.buildContext();
+		parallel.config.parallelRouteLegs = true;
+		search(parallel, null);
+		Assert.assertEquals(0, cache.getTilesCount());
+	}
+
+	private void assertSameRoute(PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		RoutingContext sequential = routing.buildContext();
+		List<RouteSegmentResult> expected = search(sequential, routeDirection);
+		RoutingContext parallel = routing.buildContext();
+		parallel.config.parallelRouteLegs = true;
+		List<RouteSegmentResult> actual = search(parallel, routeDirection);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(SyntheticRoutingFixture.segments(expected), SyntheticRoutingFixture.segments(actual));
+		Assert.assertEquals(SyntheticRoutingFixture.routingTime(expected), SyntheticRoutingFixture.routingTime(actual),
+				0.1);
+		Assert.assertEquals(sequential.routingTime, parallel.routingTime, 0.1);
+	}
+
+	private List<RouteSegmentResult> search(RoutingContext ctx, PrecalculatedRouteDirection routeDirection)
+			throws IOException, InterruptedException {
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return new RoutePlannerFrontEnd().searchRoute(ctx, SyntheticRoutingFixture.START, SyntheticRoutingFixture.END,
+				INTERMEDIATES, routeDirection);
+	}
+}
@@ -0,0 +1,39 @@
+package net.osmand.router;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.GeneralRouter.RegionAttributeTable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegionAttributeTableTest {
+
+	@Test
+	public void testEqualTypesShareCombination() {
+		RouteRegion reg = new RouteRegion();
+		RouteDataObject r1 = new RouteDataObject(reg);
+		r1.types = new int[] { 1, 5 };
+		RouteDataObject r2 = new RouteDataObject(reg);
+		r2.types = new int[] { 1, 5 };
+		RouteDataObject r3 = new RouteDataObject(reg);
+		r3.types = new int[] { 5, 1 };
+		Assert.assertEquals(r1.getTypesCombinationId(), r2.getTypesCombinationId());
+		Assert.assertNotEquals(r1.getTypesCombinationId(), r3.getTypesCombinationId());
+		Assert.assertEquals(2, reg.getTypesCombinationsCount());
+		r2.types = new int[] { 5, 1 };
+		Assert.assertEquals(r3.getTypesCombinationId(), r2.getTypesCombinationId());
+	}
+
+	@Test
+	public void testTableGrows() {
+		RegionAttributeTable table = new RegionAttributeTable(new RouteRegion(), 2);
+		Assert.assertTrue(Float.isNaN(table.get(0, 5)));
+		table.put(0, 5, 3f);
+		table.put(1, 1000, 7f);
+		Assert.assertEquals(3f, table.get(0, 5), 0);
+		Assert.assertEquals(7f, table.get(1, 1000), 0);
+		Assert.assertTrue(Float.isNaN(table.get(0, 1000)));
+		Assert.assertTrue(Float.isNaN(table.get(1, 5)));
+	}
+}
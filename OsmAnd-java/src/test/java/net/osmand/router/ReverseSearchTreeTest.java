@@ -0,0 +1,95 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import gnu.trove.iterator.TLongIterator;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+public class ReverseSearchTreeTest {
+
+	// start after deviation from route
+	private static final LatLon MOVED_START = new LatLon(51.99, 4.985);
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testRecalculationIsSameAsFreshSearch() throws IOException, InterruptedException {
+		assertRecalculationIsSameAsFreshSearch(false);
+	}
+
+	@Test
+	public void testRecalculationWithParallelSearch() throws IOException, InterruptedException {
+		assertRecalculationIsSameAsFreshSearch(true);
+	}
+
+	@Test
+	public void testTilesOfKeptTreeAreNotUnloaded() throws IOException, InterruptedException {
+		RoutingContext ctx = buildContext();
+		search(ctx, SyntheticRoutingFixture.START);
+		BinaryRoutePlanner.ReverseSearchTree tree = ctx.reverseSearchTree;
+		Assert.assertFalse(tree.tileIds.isEmpty());
+		int loaded = ctx.getCurrentlyLoadedTiles();
+		ctx.unloadUnusedTiles(0);
+		TLongIterator it = tree.tileIds.iterator();
+		while (it.hasNext()) {
+			List<RoutingSubregionTile> subregions = ctx.indexedSubregions.get(it.next());
+			for (RoutingSubregionTile t : subregions) {
+				Assert.assertTrue(t.isLoaded());
+			}
+		}
+		Assert.assertTrue(ctx.getCurrentlyLoadedTiles() <= loaded);
+	}
+
+	private void assertRecalculationIsSameAsFreshSearch(boolean parallel) throws IOException, InterruptedException {
+		RoutingContext ctx = buildContext();
+		ctx.config.parallelBidirectionalSearch = parallel;
+		search(ctx, SyntheticRoutingFixture.START);
+		Assert.assertNotNull(ctx.reverseSearchTree);
+		// routing time is added up by calculations on same context
+		ctx.routingTime = 0;
+		List<RouteSegmentResult> recalculated = search(ctx, MOVED_START);
+		Assert.assertTrue(ctx.calculationProgress.reusedReverseSegments > 0);
+
+		RoutingContext fresh = routing.buildContext();
+		List<RouteSegmentResult> expected = search(fresh, MOVED_START);
+		Assert.assertEquals(0, fresh.calculationProgress.reusedReverseSegments);
+		Assert.assertEquals(fresh.routingTime, ctx.routingTime, 0.1);
+		if (!parallel) {
+			// parallel search could take other route with same time (around block of grid)
+			Assert.assertEquals(SyntheticRoutingFixture.segments(expected), SyntheticRoutingFixture.segments(recalculated));
+		}
+	}
+
+	private RoutingContext buildContext() throws IOException {
+		RoutingConfiguration config = routing.buildConfig();
+		config.reuseReverseSearchTree = true;
+		return routing.buildContext(config);
+	}
+
+	private static List<RouteSegmentResult> search(RoutingContext ctx, LatLon start)
+			throws IOException, InterruptedException {
+		ctx.calculationProgress = new RouteCalculationProgress();
+		List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, start,
+				SyntheticRoutingFixture.END, null);
+		Assert.assertFalse(route.isEmpty());
+		return route;
+	}
+}
@@ -0,0 +1,62 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+
+public class RouteAlternativesTest {
+
+	private static final LatLon START = SyntheticRoutingFixture.START;
+	private static final LatLon END = SyntheticRoutingFixture.END;
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testAlternativesOfOneSearch() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		List<RouteSegmentResult> best = fe.searchRoute(routing.buildContext(), START, END, null);
+		RoutingContext ctx = routing.buildContext();
+		List<List<RouteSegmentResult>> routes = fe.searchRouteAlternatives(ctx, START, END, 2);
+		Assert.assertNotNull(routes);
+		Assert.assertEquals(3, routes.size());
+		float bestTime = SyntheticRoutingFixture.routingTime(best);
+		Assert.assertEquals(bestTime, SyntheticRoutingFixture.routingTime(routes.get(0)), 1);
+		Set<String> first = intervals(routes.get(0));
+		for (List<RouteSegmentResult> alt : routes.subList(1, routes.size())) {
+			Assert.assertTrue(SyntheticRoutingFixture.routingTime(alt) <= bestTime * ctx.config.alternativeRouteMaxStretch);
+			Set<String> alternative = intervals(alt);
+			alternative.retainAll(first);
+			Assert.assertNotEquals(first.size(), alternative.size());
+		}
+	}
+
+	private static Set<String> intervals(List<RouteSegmentResult> route) {
+		Set<String> res = new HashSet<String>();
+		for (RouteSegmentResult r : route) {
+			int d = r.isForwardDirection() ? 1 : -1;
+			for (int i = r.getStartPointIndex(); i != r.getEndPointIndex(); i += d) {
+				res.add(r.getObject().getId() + ":" + Math.min(i, i + d));
+			}
+		}
+		return res;
+	}
+}
@@ -0,0 +1,59 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+
+public class RouteMatrixTest {
+
+	private static final List<LatLon> SOURCES = Arrays.asList(SyntheticRoutingFixture.START, new LatLon(52.005, 4.99));
+	private static final List<LatLon> TARGETS = Arrays.asList(SyntheticRoutingFixture.END, new LatLon(51.995, 5.01),
+			new LatLon(52.01, 4.98));
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testMatrixIsSameAsRoutes() throws IOException, InterruptedException {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		RoutingContext ctx = routing.buildContext();
+		float heuristicCoefficient = ctx.config.heuristicCoefficient;
+		RouteMatrix matrix = fe.searchRouteMatrix(ctx, SOURCES, TARGETS);
+		// search doesn't change routing config
+		Assert.assertEquals(heuristicCoefficient, ctx.config.heuristicCoefficient, 0);
+		for (int i = 0; i < SOURCES.size(); i++) {
+			for (int j = 0; j < TARGETS.size(); j++) {
+				RoutingContext single = routing.buildContext();
+				List<RouteSegmentResult> route = fe.searchRoute(single, SOURCES.get(i), TARGETS.get(j), null);
+				Assert.assertFalse(route.isEmpty());
+				Assert.assertTrue(matrix.isReachable(i, j));
+				Assert.assertEquals(single.routingTime, matrix.getTime(i, j), 0.1);
+				// route result starts and ends at road points, matrix distance is measured between precise points
+				float distance = 0;
+				for (RouteSegmentResult r : route) {
+					distance += r.getDistance();
+				}
+				float ends = route.get(0).getDistance() + route.get(route.size() - 1).getDistance();
+				Assert.assertTrue(matrix.getDistance(i, j) <= distance);
+				Assert.assertTrue(matrix.getDistance(i, j) >= distance - ends);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteReachableArea.ReachableSegment;
+
+public class RouteReachableAreaTest {
+
+	private static final LatLon START = new LatLon(52.0, 5.0);
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testTimeLimitIsRespected() throws IOException, InterruptedException {
+		RouteReachableArea small = search(60, 0);
+		RouteReachableArea large = search(120, 0);
+		Assert.assertTrue(maxTime(small) <= 60);
+		Assert.assertTrue(maxTime(small) > 30);
+		Assert.assertTrue(maxTime(large) <= 120);
+		Assert.assertTrue(large.getSegments().size() > small.getSegments().size());
+	}
+
+	@Test
+	public void testDistanceLimitIsRespected() throws IOException, InterruptedException {
+		RouteReachableArea area = search(0, 1500);
+		float maxDistance = 0;
+		for (ReachableSegment s : area.getSegments()) {
+			for (float d : s.getDistances()) {
+				maxDistance = Math.max(maxDistance, d);
+			}
+		}
+		Assert.assertTrue(maxDistance <= 1500);
+		Assert.assertTrue(maxDistance > 750);
+	}
+
+	private RouteReachableArea search(float maxTime, float maxDistance) throws IOException, InterruptedException {
+		RoutingContext ctx = routing.buildContext();
+		float heuristicCoefficient = ctx.config.heuristicCoefficient;
+		RouteReachableArea area = new RoutePlannerFrontEnd().searchReachableArea(ctx, START, maxTime, maxDistance);
+		// search doesn't change routing config
+		Assert.assertEquals(heuristicCoefficient, ctx.config.heuristicCoefficient, 0);
+		Assert.assertFalse(area.getSegments().isEmpty());
+		Assert.assertFalse(area.getPolygon().isEmpty());
+		for (ReachableSegment s : area.getSegments()) {
+			Assert.assertTrue(s.getStartTime() <= s.getEndTime());
+		}
+		return area;
+	}
+
+	private static float maxTime(RouteReachableArea area) {
+		float res = 0;
+		for (ReachableSegment s : area.getSegments()) {
+			for (float t : s.getTimes()) {
+				res = Math.max(res, t);
+			}
+		}
+		return res;
+	}
+
+	@Test
+	public void testConvexHullSkipsInnerPoints() {
+		List<int[]> pnts = new ArrayList<int[]>();
+		pnts.add(new int[] { 0, 0 });
+		pnts.add(new int[] { 10, 0 });
+		pnts.add(new int[] { 5, 5 });
+		pnts.add(new int[] { 10, 10 });
+		pnts.add(new int[] { 0, 10 });
+		pnts.add(new int[] { 5, 0 });
+		List<int[]> hull = RouteReachableArea.convexHull(pnts);
+		Assert.assertEquals(4, hull.size());
+		for (int[] p : hull) {
+			Assert.assertTrue((p[0] == 0 || p[0] == 10) && (p[1] == 0 || p[1] == 10));
+		}
+	}
+
+	@Test
+	public void testConvexHullOfLine() {
+		List<int[]> pnts = new ArrayList<int[]>();
+		pnts.add(new int[] { 0, 0 });
+		pnts.add(new int[] { 1, 1 });
+		pnts.add(new int[] { 2, 2 });
+		Assert.assertTrue(RouteReachableArea.convexHull(pnts).isEmpty());
+	}
+}
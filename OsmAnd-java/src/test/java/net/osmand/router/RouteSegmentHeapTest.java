@@ -0,0 +1,118 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Random;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class RouteSegmentHeapTest {
+
+	private static RouteSegment segment(float distanceFromStart, float distanceToEnd) {
+		RouteSegment s = new RouteSegment(null, 0);
+		s.distanceFromStart = distanceFromStart;
+		s.distanceToEnd = distanceToEnd;
+		return s;
+	}
+
+	@Test
+	public void testPollOrder() {
+		Random r = new Random(17);
+		RouteSegmentHeap heap = new RouteSegmentHeap(1, 4);
+		for (int i = 0; i < 1000; i++) {
+			heap.push(segment(r.nextFloat() * 1000, r.nextFloat() * 1000));
+		}
+		Assert.assertEquals(1000, heap.size());
+		float prev = -1;
+		while (!heap.isEmpty()) {
+			RouteSegment s = heap.poll();
+			float f = s.distanceFromStart + s.distanceToEnd;
+			Assert.assertTrue(f >= prev);
+			Assert.assertFalse(heap.contains(s));
+			prev = f;
+		}
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		RouteSegmentHeap heap = new RouteSegmentHeap(1);
+		RouteSegment a = segment(10, 10);
+		RouteSegment b = segment(6, 6);
+		RouteSegment c = segment(30, 0);
+		heap.push(a);
+		heap.push(b);
+		heap.push(c);
+		a.distanceFromStart = 1;
+		heap.push(a);
+		Assert.assertEquals(3, heap.size());
+		Assert.assertSame(a, heap.poll());
+		c.distanceFromStart = 50;
+		heap.push(c);
+		Assert.assertSame(b, heap.poll());
+		Assert.assertSame(c, heap.poll());
+		Assert.assertNull(heap.poll());
+	}
+
+	@Test
+	public void testHeuristicCoefficientAndRemove() {
+		RouteSegmentHeap heap = new RouteSegmentHeap(0.5f);
+		RouteSegment a = segment(10, 10);
+		RouteSegment b = segment(12, 4);
+		RouteSegment c = segment(0, 100);
+		heap.push(a);
+		heap.push(b);
+		heap.push(c);
+		Assert.assertEquals(14f, heap.peekKey(), 0);
+		Assert.assertTrue(heap.remove(b));
+		Assert.assertFalse(heap.remove(b));
+		Assert.assertSame(a, heap.poll());
+		Assert.assertSame(c, heap.poll());
+	}
+
+	@Test
+	public void testIndexedByPointId() {
+		RouteSegmentHeap heap = new RouteSegmentHeap(1);
+		RouteSegment a = segment(10, 10);
+		RouteSegment b = segment(6, 6);
+		heap.push(a, 1);
+		heap.push(b, 2);
+		Assert.assertSame(a, heap.get(1));
+		a.distanceFromStart = 1;
+		heap.push(heap.get(1), 1);
+		Assert.assertEquals(2, heap.size());
+		Assert.assertEquals(1, heap.getUpdates());
+		Assert.assertSame(a, heap.poll());
+		Assert.assertNull(heap.get(1));
+		Assert.assertTrue(heap.remove(b));
+		Assert.assertNull(heap.get(2));
+	}
+
+	@Test
+	public void testQueuedSegmentsUpdatedInRouteSearch() throws IOException, XmlPullParserException,
+			InterruptedException {
+		SyntheticRoutingFixture routing = new SyntheticRoutingFixture();
+		try {
+			LatLon[] points = new LatLon[] { SyntheticRoutingFixture.START, SyntheticRoutingFixture.END,
+					new LatLon(51.995, 5.01), new LatLon(52.01, 4.98) };
+			RouteCalculationProgress progress = new RouteCalculationProgress();
+			for (LatLon start : points) {
+				for (LatLon end : points) {
+					if (start != end) {
+						RoutingContext ctx = routing.buildContext();
+						ctx.calculationProgress = new RouteCalculationProgress();
+						Assert.assertFalse(new RoutePlannerFrontEnd().searchRoute(ctx, start, end, null).isEmpty());
+						progress.add(ctx.calculationProgress);
+					}
+				}
+			}
+			// improved segments are updated in queue instead of being added again
+			Assert.assertTrue(progress.updatedQueueSegments > 0);
+		} finally {
+			routing.close();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutingService.RouteRequest;
+import net.osmand.router.RoutingService.RouteResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class RoutingServiceTest {
+
+	private static final LatLon OTHER_END = new LatLon(52.01, 4.98);
+
+	private SyntheticRoutingFixture routing;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		routing = new SyntheticRoutingFixture();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		routing.close();
+	}
+
+	@Test
+	public void testGroupByProfileAndParams() {
+		RoutingService service = new RoutingService(new RoutingConfiguration.Builder(), new BinaryMapIndexReader[0], 1, 1, 10);
+		Map<String, String> p1 = new HashMap<String, String>();
+		p1.put("short_way", "true");
+		p1.put("avoid_toll", "true");
+		Map<String, String> p2 = new HashMap<String, String>();
+		p2.put("avoid_toll", "true");
+		p2.put("short_way", "true");
+		LatLon a = new LatLon(52.1, 4.3);
+		LatLon b = new LatLon(52.2, 4.4);
+		String g1 = service.getGroup(new RouteRequest("car", a, b).setParams(p1));
+		Assert.assertEquals(g1, service.getGroup(new RouteRequest("car", b, a).setParams(p2)));
+		Assert.assertNotEquals(g1, service.getGroup(new RouteRequest("car", a, b)));
+		Assert.assertNotEquals(g1, service.getGroup(new RouteRequest("bicycle", a, b).setParams(p1)));
+		service.shutdown();
+	}
+
+	@Test
+	public void testResponsesInRequestOrder() throws Exception {
+		RoutingService service = new RoutingService(new RoutingConfiguration.Builder(), new BinaryMapIndexReader[0], 2, 1, 10);
+		List<RouteRequest> requests = Arrays.asList(new RouteRequest("car", new LatLon(1, 1), new LatLon(1, 2)),
+				new RouteRequest("bicycle", new LatLon(1, 1), new LatLon(1, 2)),
+				new RouteRequest("car", new LatLon(2, 1), new LatLon(2, 2)));
+		List<Future<RouteResponse>> responses = service.submitAll(requests);
+		for (int i = 0; i < requests.size(); i++) {
+			RouteResponse r = responses.get(i).get();
+			Assert.assertSame(requests.get(i), r.getRequest());
+			Assert.assertFalse(r.isSuccessful());
+		}
+		service.shutdown();
+	}
+
+	@Test
+	public void testWarmContextIsReused() throws Exception {
+		RoutingService service = createService(1, 4);
+		RouteResponse cold = service.submit(new RouteRequest("car", SyntheticRoutingFixture.START,
+				SyntheticRoutingFixture.END)).get();
+		Assert.assertTrue(cold.isSuccessful());
+		Assert.assertFalse(cold.isWarmContext());
+		Assert.assertEquals(1, service.getIdleContexts());
+
+		RouteResponse warm = service.submit(new RouteRequest("car", SyntheticRoutingFixture.START, OTHER_END)).get();
+		Assert.assertTrue(warm.isSuccessful());
+		Assert.assertTrue(warm.isWarmContext());
+		Assert.assertEquals(1, service.getIdleContexts());
+		// tiles are loaded by previous calculation
+		Assert.assertTrue(warm.getProgress().loadedTiles < cold.getProgress().loadedTiles);
+		List<RouteSegmentResult> expected = new RoutePlannerFrontEnd().searchRoute(routing.buildContext(),
+				SyntheticRoutingFixture.START, OTHER_END, null);
+		Assert.assertEquals(SyntheticRoutingFixture.segments(expected), SyntheticRoutingFixture.segments(warm.getResult()));
+
+		// other routing parameters are calculated in other context
+		RouteResponse other = service.submit(new RouteRequest("car", SyntheticRoutingFixture.START, OTHER_END)
+				.setParams(Collections.singletonMap("short_way", "true"))).get();
+		Assert.assertTrue(other.isSuccessful());
+		Assert.assertFalse(other.isWarmContext());
+		Assert.assertEquals(2, service.getIdleContexts());
+		service.shutdown();
+		Assert.assertEquals(0, service.getIdleContexts());
+	}
+
+	@Test
+	public void testQueueBackPressure() throws Exception {
+		final RoutingService service = createService(1, 1);
+		final RouteRequest request = new RouteRequest("car", SyntheticRoutingFixture.START, SyntheticRoutingFixture.END);
+		BinaryMapIndexReader reader = routing.getReader();
+		Future<RouteResponse> first;
+		Future<RouteResponse> second;
+		final AtomicReference<Future<RouteResponse>> blocked = new AtomicReference<Future<RouteResponse>>();
+		Thread submitter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					blocked.set(service.submit(request));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		// tiles are loaded under lock of reader, so calculation waits till lock is released
+		synchronized (reader) {
+			first = service.trySubmit(request);
+			second = service.trySubmit(request);
+			Assert.assertNotNull(first);
+			Assert.assertNotNull(second);
+			// one request is calculated, one is queued
+			Assert.assertNull(service.trySubmit(request));
+			submitter.start();
+			long timeout = System.currentTimeMillis() + 5000;
+			while (submitter.getState() != Thread.State.WAITING && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(Thread.State.WAITING, submitter.getState());
+			Assert.assertNull(blocked.get());
+		}
+		Assert.assertTrue(first.get().isSuccessful());
+		Assert.assertTrue(second.get().isSuccessful());
+		submitter.join();
+		Assert.assertTrue(blocked.get().get().isSuccessful());
+		Future<RouteResponse> next = service.trySubmit(request);
+		Assert.assertNotNull(next);
+		Assert.assertTrue(next.get().isSuccessful());
+		service.shutdown();
+	}
+
+	private RoutingService createService(int threads, int queueSize) throws IOException {
+		return new RoutingService(routing.getBuilder(), new BinaryMapIndexReader[] { routing.getReader() }, threads,
+				queueSize, 256);
+	}
+}
@@ -0,0 +1,75 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingTileCache.SharedTile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RoutingTileCacheTest {
+
+	private static class TestTileCache extends RoutingTileCache {
+		int loads;
+
+		TestTileCache(long maxBytes) {
+			super(maxBytes);
+		}
+
+		@Override
+		protected List<RouteDataObject> loadTile(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+			loads++;
+			List<RouteDataObject> res = new ArrayList<RouteDataObject>();
+			RouteDataObject o = new RouteDataObject((RouteRegion) null);
+			o.pointsX = new int[10];
+			o.pointsY = new int[10];
+			res.add(o);
+			return res;
+		}
+	}
+
+	@Test
+	public void testTileIsSharedAndEvictedWhenUnused() throws IOException {
+		TestTileCache cache = new TestTileCache(0);
+		SharedTile t1 = cache.acquire("a.obf", 10, null, null);
+		SharedTile t2 = cache.acquire("a.obf", 10, null, null);
+		Assert.assertSame(t1, t2);
+		Assert.assertSame(t1.getObjects(), t2.getObjects());
+		Assert.assertEquals(1, cache.loads);
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(t1.getSize(), cache.getBytes());
+		t1.release();
+		// still used by second context
+		Assert.assertEquals(1, cache.getTilesCount());
+		t2.release();
+		Assert.assertEquals(0, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getBytes());
+		Assert.assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws IOException {
+		TestTileCache probe = new TestTileCache(0);
+		SharedTile t = probe.acquire("a.obf", 1, null, null);
+		int size = t.getSize();
+
+		TestTileCache cache = new TestTileCache(2 * size);
+		cache.acquire("a.obf", 1, null, null).release();
+		cache.acquire("a.obf", 2, null, null).release();
+		// touch first tile
+		cache.acquire("a.obf", 1, null, null).release();
+		cache.acquire("b.obf", 1, null, null).release();
+		Assert.assertEquals(2, cache.getTilesCount());
+		Assert.assertEquals(3, cache.loads);
+		cache.acquire("a.obf", 1, null, null).release();
+		Assert.assertEquals(3, cache.loads);
+		cache.acquire("a.obf", 2, null, null).release();
+		Assert.assertEquals(4, cache.loads);
+	}
+}
@@ -0,0 +1,86 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.SyntheticMapFixture;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+
+/**
+ * Car routing on synthetic map ({@link SyntheticMapFixture}) with minimal routing config.
+ */
+public class SyntheticRoutingFixture {
+
+	public static final String CONFIG = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\" minDefaultSpeed=\"10\" maxDefaultSpeed=\"130\">"
+			+ "<way attribute=\"access\"><select value=\"1\" t=\"highway\"/></way>"
+			+ "<way attribute=\"speed\"><select value=\"60\" t=\"highway\" v=\"primary\"/>"
+			+ "<select value=\"30\" t=\"highway\" v=\"residential\"/></way>"
+			+ "<way attribute=\"priority\"><select value=\"1\"/></way>"
+			+ "</routingProfile></osmand_routing_config>";
+
+	public static final LatLon START = new LatLon(51.985, 4.975);
+	public static final LatLon END = new LatLon(52.015, 5.025);
+
+	private final SyntheticMapFixture map;
+	private final RoutingConfiguration.Builder builder;
+
+	public SyntheticRoutingFixture() throws IOException, XmlPullParserException {
+		map = new SyntheticMapFixture();
+		builder = RoutingConfiguration.parseFromInputStream(new ByteArrayInputStream(CONFIG.getBytes("UTF-8")));
+	}
+
+	public SyntheticMapFixture getMap() {
+		return map;
+	}
+
+	public BinaryMapIndexReader getReader() throws IOException {
+		return map.getReader();
+	}
+
+	public RoutingConfiguration.Builder getBuilder() {
+		return builder;
+	}
+
+	public RoutingConfiguration buildConfig() {
+		return builder.build("car", 256);
+	}
+
+	public RoutingContext buildContext() throws IOException {
+		return buildContext(buildConfig());
+	}
+
+	public RoutingContext buildContext(RoutingConfiguration config) throws IOException {
+		return new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+				new BinaryMapIndexReader[] { map.getReader() }, RouteCalculationMode.NORMAL);
+	}
+
+	public void close() throws IOException {
+		map.close();
+	}
+
+	public static float routingTime(List<RouteSegmentResult> route) {
+		float time = 0;
+		for (RouteSegmentResult r : route) {
+			time += r.getRoutingTime();
+		}
+		return time;
+	}
+
+	/**
+	 * @return road id and point interval of every route segment (to compare routes)
+	 */
+	public static List<String> segments(List<RouteSegmentResult> route) {
+		List<String> res = new ArrayList<String>();
+		for (RouteSegmentResult r : route) {
+			res.add(r.getObject().getId() + ":" + r.getStartPointIndex() + "-" + r.getEndPointIndex());
+		}
+		return res;
+	}
+}
@@ -0,0 +1,57 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TileEvictionPolicyTest {
+
+	private static RoutingSubregionTile tile(int access, long lastAccess) {
+		RoutingSubregionTile t = new RoutingSubregionTile(new RouteSubregion((RouteRegion) null));
+		t.access = access;
+		t.totalAccess = access;
+		t.lastAccess = lastAccess;
+		return t;
+	}
+
+	@Test
+	public void testLruAndLfuOrder() {
+		RoutingSubregionTile recentRare = tile(1, 30);
+		RoutingSubregionTile oldFrequent = tile(50, 10);
+		RoutingSubregionTile middle = tile(10, 20);
+		List<RoutingSubregionTile> tiles = new ArrayList<RoutingSubregionTile>(Arrays.asList(recentRare, oldFrequent, middle));
+
+		TileEvictionPolicy.Standard.LRU.sortForEviction(null, tiles);
+		Assert.assertEquals(Arrays.asList(oldFrequent, middle, recentRare), tiles);
+
+		TileEvictionPolicy.Standard.LFU.sortForEviction(null, tiles);
+		Assert.assertEquals(Arrays.asList(recentRare, middle, oldFrequent), tiles);
+	}
+
+	@Test
+	public void testParsePolicy() {
+		Assert.assertSame(TileEvictionPolicy.Standard.LRU, TileEvictionPolicy.Standard.parse("lru", null));
+		Assert.assertSame(TileEvictionPolicy.Standard.ACCESS_AGE,
+				TileEvictionPolicy.Standard.parse("unknown", TileEvictionPolicy.Standard.ACCESS_AGE));
+	}
+
+	@Test
+	public void testRouteDataObjectSize() {
+		RouteDataObject ro = new RouteDataObject((RouteRegion) null);
+		int empty = RoutingMemoryUtils.routeDataObject(ro);
+		Assert.assertEquals(RoutingMemoryUtils.ROUTE_DATA_OBJECT, empty);
+		Assert.assertEquals(0, empty % 8);
+		ro.pointsX = new int[10];
+		ro.pointsY = new int[10];
+		// 16 header + 40 data for each array
+		Assert.assertEquals(empty + 2 * 56, RoutingMemoryUtils.routeDataObject(ro));
+	}
+}
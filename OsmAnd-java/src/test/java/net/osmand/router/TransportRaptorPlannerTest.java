@@ -0,0 +1,84 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.SyntheticMapFixture;
+import net.osmand.data.LatLon;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+
+public class TransportRaptorPlannerTest {
+
+	private static final String CONFIG = "<osmand_routing_config defaultProfile=\"public_transport\">"
+			+ "<routingProfile name=\"public_transport\" baseProfile=\"public_transport\" minDefaultSpeed=\"3.6\" maxDefaultSpeed=\"40\">"
+			+ "<way attribute=\"speed\"><select value=\"30\" t=\"route\" v=\"bus\"/></way>"
+			+ "</routingProfile></osmand_routing_config>";
+
+	private static final LatLon START = new LatLon(51.985, 4.975);
+	private static final LatLon END = new LatLon(52.015, 5.025);
+
+	private SyntheticMapFixture map;
+	private BinaryMapIndexReader reader;
+	private RoutingConfiguration.Builder builder;
+
+	@Before
+	public void setUp() throws IOException, XmlPullParserException {
+		map = new SyntheticMapFixture();
+		reader = map.getReader();
+		builder = RoutingConfiguration.parseFromInputStream(new ByteArrayInputStream(CONFIG.getBytes("UTF-8")));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		map.close();
+	}
+
+	@Test
+	public void testSameBestRouteAsPlanner() throws IOException, InterruptedException {
+		List<TransportRouteResult> expected = buildRoute(false);
+		List<TransportRouteResult> actual = buildRoute(true);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertFalse(actual.isEmpty());
+		TransportRouteResult e = expected.get(0);
+		TransportRouteResult a = actual.get(0);
+		// times are rounded to seconds on each leg
+		Assert.assertEquals(e.getRouteTime(), a.getRouteTime(), 60);
+		Assert.assertEquals(e.getSegments().size(), a.getSegments().size());
+		for (int i = 0; i < e.getSegments().size(); i++) {
+			TransportRouteResultSegment es = e.getSegments().get(i);
+			TransportRouteResultSegment as = a.getSegments().get(i);
+			Assert.assertEquals(es.route.getId(), as.route.getId());
+			Assert.assertEquals(es.getStart().getId(), as.getStart().getId());
+			Assert.assertEquals(es.getEnd().getId(), as.getEnd().getId());
+		}
+	}
+
+	@Test
+	public void testNoChangesAllowed() throws IOException, InterruptedException {
+		HashMap<String, String> params = new HashMap<String, String>();
+		params.put("max_num_changes", "0");
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(builder.getRouter("public_transport"), params);
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, reader);
+		List<TransportRouteResult> res = new TransportRaptorPlanner().buildRoute(ctx, START, END);
+		for (TransportRouteResult r : res) {
+			Assert.assertEquals(1, r.getSegments().size());
+		}
+	}
+
+	private List<TransportRouteResult> buildRoute(boolean raptor) throws IOException, InterruptedException {
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(builder.getRouter("public_transport"),
+				new HashMap<String, String>());
+		cfg.useRaptor = raptor;
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, reader);
+		return new TransportRoutePlanner().buildRoute(ctx, START, END);
+	}
+}
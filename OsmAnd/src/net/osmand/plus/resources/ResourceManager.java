@@ -762,18 +762,17 @@ public class ResourceManager {
 		}
 
 		java.text.DateFormat dateFormat = getDateFormat();
+		String indexingMap = context.getString(R.string.indexing_map);
+		progress.startTask(indexingMap, -1);
+		Map<File, BinaryMapIndexReader> mapReaders = cachedOsmandIndexes.getReaders(files, filesToReindex,
+				Runtime.getRuntime().availableProcessors(), progress, indexingMap);
 		for (File f : files) {
 			String fileName = f.getName();
-			progress.startTask(context.getString(R.string.indexing_map) + " " + fileName, -1);
+			progress.startTask(indexingMap + " " + fileName, -1);
 			try {
-				BinaryMapIndexReader mapReader = null;
-				try {
-					mapReader = cachedOsmandIndexes.getReader(f, !filesToReindex.contains(f));
-					if (mapReader.getVersion() != IndexConstants.BINARY_MAP_VERSION) {
-						mapReader = null;
-					}
-				} catch (IOException e) {
-					log.error(String.format("File %s could not be read", fileName), e);
+				BinaryMapIndexReader mapReader = mapReaders.get(f);
+				if (mapReader != null && mapReader.getVersion() != IndexConstants.BINARY_MAP_VERSION) {
+					mapReader = null;
 				}
 				boolean wikiMap = WikipediaPlugin.containsWikipediaExtension(fileName);
 				boolean srtmMap = SrtmDownloadItem.containsSrtmExtension(fileName);